@@ -68,6 +68,7 @@ public class CliApplication implements Runnable {
             
             // Execute command
             int exitCode = commandLine.execute(args);
+            component.streamingValidator().close();
             System.exit(exitCode);
             
         } catch (Exception e) {
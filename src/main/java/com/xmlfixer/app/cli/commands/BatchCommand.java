@@ -2,6 +2,7 @@ package com.xmlfixer.app.cli.commands;
 
 import com.xmlfixer.app.core.ApplicationOrchestrator;
 import com.xmlfixer.app.core.ApplicationOrchestrator.BatchProcessingResult;
+import com.xmlfixer.parsing.XmlSources;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +11,14 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -122,13 +130,58 @@ public class BatchCommand implements Callable<Integer> {
         }
     }
     
+    /**
+     * Expands the inputs into the XML documents to process. Directories are listed (walked
+     * with --recursive), zip archives contribute their XML entries, which are read in place,
+     * and gzip-compressed files are taken as they are. Include and exclude patterns match the
+     * document name without its .gz suffix.
+     */
     private File[] collectXmlFiles() {
-        // TODO: Implement actual file collection logic
-        // For now, return the input paths as-is
-        return Arrays.stream(inputPaths)
-            .filter(File::exists)
-            .filter(f -> f.getName().toLowerCase().endsWith(".xml"))
-            .toArray(File[]::new);
+        PathMatcher include = includePattern != null ? globMatcher(includePattern) : null;
+        PathMatcher exclude = excludePattern != null ? globMatcher(excludePattern) : null;
+        List<File> xmlFiles = new ArrayList<>();
+        for (File inputPath : inputPaths) {
+            collect(inputPath, true, include, exclude, xmlFiles);
+        }
+        return xmlFiles.toArray(new File[0]);
+    }
+
+    private void collect(File file, boolean explicit, PathMatcher include, PathMatcher exclude, List<File> xmlFiles) {
+        if (file.isDirectory()) {
+            if (!explicit && !recursive) {
+                return;
+            }
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collect(child, false, include, exclude, xmlFiles);
+                }
+            }
+        } else if (XmlSources.isZipArchive(file)) {
+            try {
+                for (File entry : XmlSources.listXmlEntries(file)) {
+                    addIfMatching(entry, include, exclude, xmlFiles);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read archive {}", file, e);
+            }
+        } else if (XmlSources.exists(file) && (explicit || XmlSources.isXmlName(file.getName()))) {
+            addIfMatching(file, include, exclude, xmlFiles);
+        } else if (explicit) {
+            logger.warn("Input not found: {}", file);
+        }
+    }
+
+    private static void addIfMatching(File file, PathMatcher include, PathMatcher exclude, List<File> xmlFiles) {
+        Path name = Paths.get(XmlSources.logicalName(file));
+        if ((include == null || include.matches(name)) && (exclude == null || !exclude.matches(name))) {
+            xmlFiles.add(file);
+        }
+    }
+
+    private static PathMatcher globMatcher(String pattern) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
     }
     
     private File setupOutputDirectory() {
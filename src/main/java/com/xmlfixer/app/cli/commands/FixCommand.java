@@ -2,6 +2,7 @@ package com.xmlfixer.app.cli.commands;
 
 import com.xmlfixer.app.core.ApplicationOrchestrator;
 import com.xmlfixer.correction.model.CorrectionResult;
+import com.xmlfixer.parsing.XmlSources;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,11 +62,18 @@ public class FixCommand implements Callable<Integer> {
     public Integer call() throws Exception {
         try {
             // Validate input files
-            if (!xmlFile.exists()) {
+            if (!XmlSources.exists(xmlFile)) {
                 System.err.println("Error: XML file not found: " + xmlFile.getAbsolutePath());
                 return 1;
             }
             
+            // Fixed output is written as plain XML, so it cannot replace a compressed source
+            if (inPlace && XmlSources.isCompressed(xmlFile)) {
+                System.err.println("Error: --in-place is not supported for compressed or archived files: "
+                        + xmlFile.getPath());
+                return 1;
+            }
+            
             if (!schemaFile.exists()) {
                 System.err.println("Error: Schema file not found: " + schemaFile.getAbsolutePath());
                 return 1;
@@ -123,8 +131,8 @@ public class FixCommand implements Callable<Integer> {
             return xmlFile;
         }
         
-        // Default: add .fixed suffix
-        String baseName = xmlFile.getName();
+        // Default: add .fixed suffix, next to the archive or compressed file
+        String baseName = XmlSources.logicalName(xmlFile);
         String extension = "";
         int lastDot = baseName.lastIndexOf('.');
         
@@ -133,13 +141,13 @@ public class FixCommand implements Callable<Integer> {
             baseName = baseName.substring(0, lastDot);
         }
         
-        return new File(xmlFile.getParent(), baseName + ".fixed" + extension);
+        return new File(containerDirectory(), baseName + ".fixed" + extension);
     }
     
     private void createBackupFile() {
         try {
-            String backupName = xmlFile.getName() + ".backup";
-            File backupFile = new File(xmlFile.getParent(), backupName);
+            String backupName = XmlSources.logicalName(xmlFile) + ".backup";
+            File backupFile = new File(containerDirectory(), backupName);
             
             // TODO: Implement actual file copy
             System.out.println("Backup created: " + backupFile.getName());
@@ -150,6 +158,10 @@ public class FixCommand implements Callable<Integer> {
         }
     }
     
+    private File containerDirectory() {
+        return XmlSources.containerOf(xmlFile).getAbsoluteFile().getParentFile();
+    }
+    
     private void displayCorrectionResults(CorrectionResult result) {
         System.out.println("\n" + "=".repeat(50));
         System.out.println("CORRECTION RESULTS");
@@ -1,6 +1,7 @@
 package com.xmlfixer.app.cli.commands;
 
 import com.xmlfixer.app.core.ApplicationOrchestrator;
+import com.xmlfixer.parsing.XmlSources;
 import com.xmlfixer.validation.model.ValidationResult;
 
 import org.slf4j.Logger;
@@ -49,7 +50,7 @@ public class ValidateCommand implements Callable<Integer> {
     public Integer call() throws Exception {
         try {
             // Validate input files
-            if (!xmlFile.exists()) {
+            if (!XmlSources.exists(xmlFile)) {
                 System.err.println("Error: XML file not found: " + xmlFile.getAbsolutePath());
                 return 1;
             }
@@ -68,19 +69,19 @@ public class ValidateCommand implements Callable<Integer> {
             }
             
             // Perform validation
-            ValidationResult result = orchestrator.validateXml(xmlFile, schemaFile);
-            
-            // Display results
-            displayValidationResults(result);
-            
-            // Generate report if requested
-            if (reportFile != null) {
-                generateReport(result);
+            try (ValidationResult result = orchestrator.validateXml(xmlFile, schemaFile)) {
+                // Display results
+                displayValidationResults(result);
+
+                // Generate report if requested
+                if (reportFile != null) {
+                    generateReport(result);
+                }
+
+                // Return appropriate exit code
+                return result.isValid() ? 0 : 2;
             }
             
-            // Return appropriate exit code
-            return result.isValid() ? 0 : 2;
-            
         } catch (Exception e) {
             logger.error("Validation command failed", e);
             System.err.println("Validation failed: " + e.getMessage());
@@ -4,9 +4,11 @@ import com.xmlfixer.common.exceptions.XmlFixerException;
 import com.xmlfixer.correction.CorrectionEngine;
 import com.xmlfixer.correction.model.CorrectionResult;
 import com.xmlfixer.parsing.XmlParser;
+import com.xmlfixer.parsing.XmlSources;
 import com.xmlfixer.reporting.ReportGenerator;
 import com.xmlfixer.reporting.model.Report;
 import com.xmlfixer.schema.SchemaAnalyzer;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.XmlValidator;
 import com.xmlfixer.validation.model.ValidationResult;
@@ -57,7 +59,8 @@ public class ApplicationOrchestrator {
     }
 
     /**
-     * Validates an XML file against a schema with comprehensive analysis
+     * Validates an XML file against a schema with comprehensive analysis; the caller closes
+     * the result
      */
     public CompletableFuture<ValidationResult> validateXmlAsync(File xmlFile, File schemaFile) {
         return CompletableFuture.supplyAsync(() -> {
@@ -101,25 +104,28 @@ public class ApplicationOrchestrator {
                 logger.info("Starting intelligent correction of {} using schema {}",
                         xmlFile.getName(), schemaFile.getName());
 
-                // Step 1: Analyze schema structure
-                SchemaElement rootSchema = schemaAnalyzer.analyzeSchema(schemaFile);
+                // Step 1: Compile schema once for validation and correction
+                CompiledSchema compiledSchema = schemaAnalyzer.compileSchema(schemaFile);
                 logger.debug("Schema analysis completed for: {}", schemaFile.getName());
 
                 // Step 2: Validate XML to identify errors
-                ValidationResult validationResult = xmlValidator.validate(xmlFile, schemaFile);
-                logger.debug("Validation found {} errors to correct", validationResult.getErrorCount());
+                CorrectionResult correctionResult;
+                try (ValidationResult validationResult = xmlValidator.validate(xmlFile, compiledSchema)) {
+                    logger.debug("Validation found {} errors to correct", validationResult.getErrorCount());
 
-                // Step 3: Apply intelligent corrections
-                CorrectionResult correctionResult = correctionEngine.correct(
-                        xmlFile, schemaFile, outputFile, validationResult, rootSchema);
+                    // Step 3: Apply intelligent corrections
+                    correctionResult = correctionEngine.correct(
+                            xmlFile, schemaFile, outputFile, validationResult, compiledSchema);
+                }
 
-                // Step 4: Post-correction validation
+                // Step 4: Post-correction validation; the result keeps its counts once closed
                 if (correctionResult.isSuccess() && !correctionResult.isNoChangesRequired()) {
-                    ValidationResult postCorrectionValidation = xmlValidator.validate(outputFile, schemaFile);
-                    correctionResult.setAfterValidation(postCorrectionValidation);
+                    try (ValidationResult postCorrectionValidation = xmlValidator.validate(outputFile, compiledSchema)) {
+                        correctionResult.setAfterValidation(postCorrectionValidation);
 
-                    logger.info("Post-correction validation: {} errors remaining",
-                            postCorrectionValidation.getErrorCount());
+                        logger.info("Post-correction validation: {} errors remaining",
+                                postCorrectionValidation.getErrorCount());
+                    }
                 }
 
                 logger.info("Correction completed for: {} ({}ms). Applied: {}, Failed: {}",
@@ -162,48 +168,52 @@ public class ApplicationOrchestrator {
                 result.setOutputFile(outputFile);
 
                 long startTime = System.currentTimeMillis();
+                try {
+                    // Step 1: Schema Analysis
+                    CompiledSchema compiledSchema = schemaAnalyzer.compileSchema(schemaFile);
+                    if (options.isAnalyzeSchema()) {
+                        logger.debug("Analyzing schema structure");
+                        result.setSchemaAnalysis(compiledSchema.getRootElement());
+                    }
 
-                // Step 1: Schema Analysis
-                if (options.isAnalyzeSchema()) {
-                    logger.debug("Analyzing schema structure");
-                    SchemaElement rootSchema = schemaAnalyzer.analyzeSchema(schemaFile);
-                    result.setSchemaAnalysis(rootSchema);
-                }
-
-                // Step 2: Initial Validation
-                logger.debug("Performing initial validation");
-                ValidationResult initialValidation = xmlValidator.validate(xmlFile, schemaFile);
-                result.setInitialValidation(initialValidation);
-
-                // Step 3: Correction (if needed and requested)
-                if (!initialValidation.isValid() && options.isApplyCorrections()) {
-                    logger.debug("Applying corrections");
-                    CorrectionResult correctionResult = correctionEngine.correct(
-                            xmlFile, schemaFile, outputFile, initialValidation, result.getSchemaAnalysis());
-                    result.setCorrectionResult(correctionResult);
-
-                    // Step 4: Post-correction validation
-                    if (correctionResult.isSuccess() && !correctionResult.isNoChangesRequired()) {
-                        ValidationResult finalValidation = xmlValidator.validate(outputFile, schemaFile);
-                        result.setFinalValidation(finalValidation);
+                    // Step 2: Initial Validation
+                    logger.debug("Performing initial validation");
+                    ValidationResult initialValidation = xmlValidator.validate(xmlFile, compiledSchema);
+                    result.setInitialValidation(initialValidation);
+
+                    // Step 3: Correction (if needed and requested)
+                    if (!initialValidation.isValid() && options.isApplyCorrections()) {
+                        logger.debug("Applying corrections");
+                        CorrectionResult correctionResult = correctionEngine.correct(
+                                xmlFile, schemaFile, outputFile, initialValidation, compiledSchema);
+                        result.setCorrectionResult(correctionResult);
+
+                        // Step 4: Post-correction validation
+                        if (correctionResult.isSuccess() && !correctionResult.isNoChangesRequired()) {
+                            ValidationResult finalValidation = xmlValidator.validate(outputFile, compiledSchema);
+                            result.setFinalValidation(finalValidation);
+                        }
                     }
-                }
 
-                // Step 5: Generate comprehensive report
-                if (options.isGenerateReport()) {
-                    logger.debug("Generating comprehensive report");
-                    Report report = reportGenerator.generateReport(
-                            result.getInitialValidation(), result.getCorrectionResult());
-                    result.setReport(report);
-                }
+                    // Step 5: Generate comprehensive report
+                    if (options.isGenerateReport()) {
+                        logger.debug("Generating comprehensive report");
+                        Report report = reportGenerator.generateReport(
+                                result.getInitialValidation(), result.getCorrectionResult());
+                        result.setReport(report);
+                    }
 
-                long endTime = System.currentTimeMillis();
-                result.setTotalProcessingTimeMs(endTime - startTime);
+                    long endTime = System.currentTimeMillis();
+                    result.setTotalProcessingTimeMs(endTime - startTime);
 
-                logger.info("Complete processing finished for: {} in {}ms",
-                        xmlFile.getName(), result.getTotalProcessingTimeMs());
+                    logger.info("Complete processing finished for: {} in {}ms",
+                            xmlFile.getName(), result.getTotalProcessingTimeMs());
 
-                return result;
+                    return result;
+                } finally {
+                    // Reports are generated above, so the spilled errors are no longer needed
+                    result.closeValidations();
+                }
 
             } catch (Exception e) {
                 logger.error("Complete processing failed", e);
@@ -298,9 +308,10 @@ public class ApplicationOrchestrator {
                 try {
                     logger.debug("Processing batch file: {}", xmlFile.getName());
 
-                    // Generate output file name
+                    // Generate output file name; archive entries keep their archive and folders
                     File outputFile = new File(outputDirectory,
-                            xmlFile.getName().replaceAll("\\.[^.]+$", ".fixed.xml"));
+                            XmlSources.outputPath(xmlFile).replaceAll("\\.[^./]+$", ".fixed.xml"));
+                    outputFile.getParentFile().mkdirs();
 
                     // Process the file
                     CorrectionResult correctionResult = fixXml(xmlFile, schemaFile, outputFile);
@@ -402,6 +413,18 @@ public class ApplicationOrchestrator {
             this.totalProcessingTimeMs = totalProcessingTimeMs;
         }
 
+        /**
+         * Closes both validation results; their counts remain available
+         */
+        public void closeValidations() {
+            if (initialValidation != null) {
+                initialValidation.close();
+            }
+            if (finalValidation != null) {
+                finalValidation.close();
+            }
+        }
+
         public boolean wasSuccessful() {
             return finalValidation != null ? finalValidation.isValid() :
                     (initialValidation != null && initialValidation.isValid());
@@ -8,6 +8,7 @@ import com.xmlfixer.correction.config.CorrectionModule;
 import com.xmlfixer.parsing.config.ParsingModule;
 import com.xmlfixer.reporting.config.ReportingModule;
 import com.xmlfixer.schema.config.SchemaModule;
+import com.xmlfixer.validation.StreamingValidator;
 import com.xmlfixer.validation.config.ValidationModule;
 
 import dagger.Component;
@@ -36,6 +37,11 @@ public interface ApplicationComponent {
      */
     ApplicationOrchestrator orchestrator();
     
+    /**
+     * Provides the streaming validator, closed when the application exits
+     */
+    StreamingValidator streamingValidator();
+    
     /**
      * CLI specific injection point
      */
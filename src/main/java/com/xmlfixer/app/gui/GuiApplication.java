@@ -85,6 +85,7 @@ public class GuiApplication extends Application {
     @Override
     public void stop() throws Exception {
         super.stop();
+        component.streamingValidator().close();
         logger.info("GUI application stopped");
     }
     
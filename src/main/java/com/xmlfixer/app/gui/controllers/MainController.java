@@ -166,7 +166,9 @@ public class MainController implements Initializable {
             protected void succeeded() {
                 ValidationResult result = getValue();
                 Platform.runLater(() -> {
-                    handleValidationResult(result);
+                    try (result) {
+                        handleValidationResult(result);
+                    }
                     hideProgress();
                 });
             }
@@ -2,7 +2,7 @@ package com.xmlfixer.correction;
 
 import com.xmlfixer.correction.model.*;
 import com.xmlfixer.correction.strategies.*;
-import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.validation.model.ValidationResult;
 import com.xmlfixer.validation.model.ValidationError;
 import com.xmlfixer.validation.model.ErrorType;
@@ -46,10 +46,10 @@ public class CorrectionEngine {
     }
 
     /**
-     * Corrects XML file with schema element context for better correction accuracy
+     * Corrects XML file with compiled schema context for better correction accuracy
      */
     public CorrectionResult correct(File xmlFile, File schemaFile, File outputFile,
-                                    ValidationResult validationResult, SchemaElement rootSchema) {
+                                    ValidationResult validationResult, CompiledSchema schema) {
         logger.info("Starting intelligent correction of XML file: {} using schema: {}",
                 xmlFile.getName(), schemaFile.getName());
 
@@ -80,7 +80,7 @@ public class CorrectionEngine {
                     validationResult.getErrors() : new ArrayList<>();
 
             CorrectionPlan correctionPlan = correctionPlanner.createCorrectionPlan(
-                    errors, document, rootSchema);
+                    errors, document, schema);
 
             logger.debug("Created correction plan with {} correction groups",
                     correctionPlan.getCorrectionGroups().size());
@@ -100,7 +100,7 @@ public class CorrectionEngine {
                         logger.debug("Attempting to apply action: {} for error type: {}",
                                 action.getDescription(), action.getRelatedErrorType());
 
-                        boolean success = applyCorrectionAction(action, document, rootSchema);
+                        boolean success = applyCorrectionAction(action, document, schema);
                         if (success) {
                             action.setApplied(true);
                             appliedActions.add(action);
@@ -206,7 +206,7 @@ public class CorrectionEngine {
      * Applies a single correction action using the appropriate strategy
      */
     private boolean applyCorrectionAction(CorrectionAction action, Document document,
-                                          SchemaElement rootSchema) {
+                                          CompiledSchema schema) {
         ErrorType relatedErrorType = action.getRelatedErrorType();
         if (relatedErrorType == null) {
             logger.warn("Cannot apply correction action without related error type: {}",
@@ -230,7 +230,7 @@ public class CorrectionEngine {
 
         try {
             // First check if the strategy can handle this specific action
-            boolean canCorrect = strategy.canCorrect(action, document, rootSchema);
+            boolean canCorrect = strategy.canCorrect(action, document, schema);
             if (!canCorrect) {
                 logger.debug("Strategy {} cannot correct action: {}",
                         strategy.getStrategyName(), action.getDescription());
@@ -238,7 +238,7 @@ public class CorrectionEngine {
             }
 
             // Apply the correction
-            return strategy.applyCorrection(action, document, rootSchema);
+            return strategy.applyCorrection(action, document, schema);
         } catch (Exception e) {
             logger.error("Strategy execution failed for action: {}", action.getDescription(), e);
             return false;
@@ -287,7 +287,7 @@ public class CorrectionEngine {
      * Validates if a correction action can be applied
      */
     public boolean canApplyCorrection(CorrectionAction action, Document document,
-                                      SchemaElement rootSchema) {
+                                      CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         CorrectionStrategy strategy = correctionStrategies.get(errorType);
 
@@ -296,7 +296,7 @@ public class CorrectionEngine {
             strategy = findFallbackStrategy(action);
         }
 
-        return strategy != null && strategy.canCorrect(action, document, rootSchema);
+        return strategy != null && strategy.canCorrect(action, document, schema);
     }
 
     /**
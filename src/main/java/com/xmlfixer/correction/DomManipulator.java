@@ -1,5 +1,9 @@
 package com.xmlfixer.correction;
 
+import com.xmlfixer.common.exceptions.XmlFixerException;
+import com.xmlfixer.parsing.ParserPool;
+import com.xmlfixer.parsing.XmlInput;
+import com.xmlfixer.parsing.XmlSources;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.*;
@@ -9,13 +13,13 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 /**
@@ -27,19 +31,29 @@ public class DomManipulator {
 
     private static final Logger logger = LoggerFactory.getLogger(DomManipulator.class);
 
-    private final DocumentBuilderFactory documentBuilderFactory;
+    private final ParserPool<DocumentBuilder> documentBuilders;
     private final XPathFactory xPathFactory;
-    private final TransformerFactory transformerFactory;
+    private final ParserPool<Transformer> transformers;
+    private final XmlInput xmlInput;
 
     @Inject
     public DomManipulator() {
-        this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        this.documentBuilderFactory.setNamespaceAware(true);
-        this.documentBuilderFactory.setIgnoringComments(false);
-        this.documentBuilderFactory.setIgnoringElementContentWhitespace(false);
+        this(ParserPool.DEFAULT_MAX_IDLE, XmlInput.decompressing(XmlInput.buffered(XmlInput.DEFAULT_BUFFER_SIZE)));
+    }
+
+    /**
+     * @param xmlInput how compressed and archived sources are read
+     */
+    public DomManipulator(int parserPoolSize, XmlInput xmlInput) {
+        this.xmlInput = xmlInput;
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setIgnoringComments(false);
+        documentBuilderFactory.setIgnoringElementContentWhitespace(false);
+        this.documentBuilders = ParserPool.forDocumentBuilders("dom-correction", parserPoolSize, documentBuilderFactory);
 
         this.xPathFactory = XPathFactory.newInstance();
-        this.transformerFactory = TransformerFactory.newInstance();
+        this.transformers = ParserPool.forTransformers("dom-output", parserPoolSize, TransformerFactory.newInstance());
 
         logger.info("DomManipulator initialized");
     }
@@ -48,17 +62,30 @@ public class DomManipulator {
      * Loads an XML document from file
      */
     public Document loadDocument(File xmlFile) {
+        DocumentBuilder builder = null;
         try {
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
-            Document document = builder.parse(xmlFile);
+            builder = documentBuilders.borrow();
+            Document document = parse(builder, xmlFile);
             document.normalize();
 
             logger.debug("Successfully loaded XML document: {}", xmlFile.getName());
             return document;
 
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+        } catch (XmlFixerException | SAXException | IOException e) {
             logger.error("Failed to load XML document: {}", xmlFile.getName(), e);
             return null;
+        } finally {
+            documentBuilders.release(builder);
+        }
+    }
+
+    private Document parse(DocumentBuilder builder, File xmlFile) throws SAXException, IOException {
+        if (!XmlSources.isCompressed(xmlFile)) {
+            return builder.parse(xmlFile);
+        }
+        // Relative references resolve inside the archive, or next to the compressed file
+        try (InputStream in = xmlInput.open(xmlFile)) {
+            return builder.parse(in, XmlSources.baseUri(xmlFile));
         }
     }
 
@@ -66,8 +93,10 @@ public class DomManipulator {
      * Saves a DOM document to file with proper formatting
      */
     public boolean saveDocument(Document document, File outputFile) {
+        Transformer transformer = null;
         try {
-            Transformer transformer = transformerFactory.newTransformer();
+            // Output properties are set on every use since the pool resets them
+            transformer = transformers.borrow();
 
             // Configure output properties for readable XML
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
@@ -83,12 +112,28 @@ public class DomManipulator {
             logger.debug("Successfully saved XML document: {}", outputFile.getName());
             return true;
 
-        } catch (TransformerException e) {
+        } catch (XmlFixerException | TransformerException e) {
             logger.error("Failed to save XML document: {}", outputFile.getName(), e);
             return false;
+        } finally {
+            transformers.release(transformer);
         }
     }
 
+    /**
+     * Pool of DOM builders used to load documents, with its reuse statistics
+     */
+    public ParserPool<DocumentBuilder> getDocumentBuilderPool() {
+        return documentBuilders;
+    }
+
+    /**
+     * Pool of transformers used to save documents, with its reuse statistics
+     */
+    public ParserPool<Transformer> getTransformerPool() {
+        return transformers;
+    }
+
     /**
      * Finds elements using XPath expression
      */
@@ -3,10 +3,13 @@ package com.xmlfixer.correction.config;
 import com.xmlfixer.correction.CorrectionEngine;
 import com.xmlfixer.correction.DomManipulator;
 import com.xmlfixer.correction.strategies.*;
+import com.xmlfixer.parsing.ParserPool;
+import com.xmlfixer.parsing.XmlInput;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
+import java.util.Properties;
 
 /**
  * Enhanced Dagger module for correction-related dependencies
@@ -17,8 +20,10 @@ public class CorrectionModule {
 
     @Provides
     @Singleton
-    public DomManipulator provideDomManipulator() {
-        return new DomManipulator();
+    public DomManipulator provideDomManipulator(Properties properties, XmlInput xmlInput) {
+        int parserPoolSize = Integer.parseInt(properties.getProperty(
+                "xml.parser.pool.size", String.valueOf(ParserPool.DEFAULT_MAX_IDLE)));
+        return new DomManipulator(parserPoolSize, xmlInput);
     }
 
     @Provides
@@ -1,6 +1,7 @@
 package com.xmlfixer.correction.model;
 
 import com.xmlfixer.validation.model.ErrorType;
+import com.xmlfixer.validation.model.ValidationError;
 
 /**
  * Represents a single correction action applied to an XML document
@@ -11,6 +12,8 @@ public class CorrectionAction {
     private String description;
     private String xPath;
     private String elementName;
+    private long byteOffset = -1;
+    private long endByteOffset = -1;
     private String oldValue;
     private String newValue;
     private ErrorType relatedErrorType;
@@ -41,6 +44,21 @@ public class CorrectionAction {
     public String getElementName() { return elementName; }
     public void setElementName(String elementName) { this.elementName = elementName; }
 
+    // Byte range of the element in the source file, -1 when unknown; see ValidationError
+    public long getByteOffset() { return byteOffset; }
+    public void setByteOffset(long byteOffset) { this.byteOffset = byteOffset; }
+
+    public long getEndByteOffset() { return endByteOffset; }
+    public void setEndByteOffset(long endByteOffset) { this.endByteOffset = endByteOffset; }
+
+    /**
+     * Takes the byte range of the error the action corrects
+     */
+    public void locateAt(ValidationError error) {
+        this.byteOffset = error.getByteOffset();
+        this.endByteOffset = error.getEndByteOffset();
+    }
+
     // Value changes
     public String getOldValue() { return oldValue; }
     public void setOldValue(String oldValue) { this.oldValue = oldValue; }
@@ -1,5 +1,6 @@
 package com.xmlfixer.correction.strategies;
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -32,26 +33,26 @@ public class AttributeStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         return errorType == ErrorType.MISSING_REQUIRED_ATTRIBUTE ||
                 errorType == ErrorType.INVALID_ATTRIBUTE_VALUE;
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
 
         if (errorType == ErrorType.MISSING_REQUIRED_ATTRIBUTE) {
-            return handleMissingAttribute(action, document, rootSchema);
+            return handleMissingAttribute(action, document, schema);
         } else if (errorType == ErrorType.INVALID_ATTRIBUTE_VALUE) {
-            return handleInvalidAttributeValue(action, document, rootSchema);
+            return handleInvalidAttributeValue(action, document, schema);
         }
 
         return false;
     }
 
-    private boolean handleMissingAttribute(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleMissingAttribute(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String attributeName = extractAttributeName(action.getDescription());
 
@@ -72,7 +73,7 @@ public class AttributeStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handleInvalidAttributeValue(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleInvalidAttributeValue(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String attributeName = extractAttributeName(action.getDescription());
         String currentValue = action.getOldValue();
@@ -150,7 +151,7 @@ public class AttributeStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, SchemaElement schema) {
+    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, CompiledSchema schema) {
         return List.of();
     }
 }
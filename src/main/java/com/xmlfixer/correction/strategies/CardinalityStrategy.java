@@ -1,6 +1,7 @@
 package com.xmlfixer.correction.strategies;
 
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -31,26 +32,26 @@ public class CardinalityStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         return errorType == ErrorType.TOO_FEW_OCCURRENCES ||
                 errorType == ErrorType.TOO_MANY_OCCURRENCES;
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
 
         if (errorType == ErrorType.TOO_FEW_OCCURRENCES) {
-            return handleTooFewOccurrences(action, document, rootSchema);
+            return handleTooFewOccurrences(action, document, schema);
         } else if (errorType == ErrorType.TOO_MANY_OCCURRENCES) {
-            return handleTooManyOccurrences(action, document, rootSchema);
+            return handleTooManyOccurrences(action, document, schema);
         }
 
         return false;
     }
 
-    private boolean handleTooFewOccurrences(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleTooFewOccurrences(CorrectionAction action, Document document, CompiledSchema schema) {
         String elementName = action.getElementName();
         String xPath = action.getxPath();
 
@@ -65,7 +66,7 @@ public class CardinalityStrategy implements CorrectionStrategy {
             }
 
             // Find schema element to determine how many elements to add
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, elementName);
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, elementName);
             if (schemaElement == null) {
                 logger.warn("Could not find schema element for: {}", elementName);
                 return false;
@@ -106,7 +107,7 @@ public class CardinalityStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handleTooManyOccurrences(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleTooManyOccurrences(CorrectionAction action, Document document, CompiledSchema schema) {
         String elementName = action.getElementName();
         String xPath = action.getxPath();
 
@@ -121,7 +122,7 @@ public class CardinalityStrategy implements CorrectionStrategy {
             }
 
             // Find schema element to determine maximum allowed
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, elementName);
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, elementName);
             if (schemaElement == null) {
                 logger.warn("Could not find schema element for: {}", elementName);
                 return false;
@@ -212,7 +213,7 @@ public class CardinalityStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, SchemaElement schema) {
+    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, CompiledSchema schema) {
         return List.of();
     }
 }
@@ -1,5 +1,6 @@
 package com.xmlfixer.correction.strategies;
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -31,26 +32,26 @@ public class ContentStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         return errorType == ErrorType.EMPTY_REQUIRED_CONTENT ||
                 errorType == ErrorType.INVALID_CONTENT_MODEL;
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
 
         if (errorType == ErrorType.EMPTY_REQUIRED_CONTENT) {
-            return handleEmptyRequiredContent(action, document, rootSchema);
+            return handleEmptyRequiredContent(action, document, schema);
         } else if (errorType == ErrorType.INVALID_CONTENT_MODEL) {
-            return handleInvalidContentModel(action, document, rootSchema);
+            return handleInvalidContentModel(action, document, schema);
         }
 
         return false;
     }
 
-    private boolean handleEmptyRequiredContent(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleEmptyRequiredContent(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
 
         logger.debug("Filling empty required content at path: {}", xPath);
@@ -61,7 +62,7 @@ public class ContentStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, element.getNodeName());
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, element.getNodeName());
             if (schemaElement != null) {
                 String defaultContent = schemaElement.getDefaultValue();
                 if (defaultContent == null || defaultContent.isEmpty()) {
@@ -79,7 +80,7 @@ public class ContentStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handleInvalidContentModel(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleInvalidContentModel(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
 
         logger.debug("Correcting invalid content model at path: {}", xPath);
@@ -147,7 +148,7 @@ public class ContentStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, SchemaElement schema) {
+    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, CompiledSchema schema) {
         return List.of();
     }
 }
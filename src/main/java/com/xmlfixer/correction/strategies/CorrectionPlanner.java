@@ -1,7 +1,7 @@
 package com.xmlfixer.correction.strategies;
 
 import com.xmlfixer.correction.model.*;
-import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.validation.model.ValidationError;
 import com.xmlfixer.validation.model.ErrorType;
 import org.slf4j.Logger;
@@ -40,7 +40,7 @@ public class CorrectionPlanner {
      * Creates a correction plan from validation errors
      */
     public CorrectionPlan createCorrectionPlan(List<ValidationError> errors, Document document,
-                                               SchemaElement rootSchema) {
+                                               CompiledSchema schema) {
         logger.debug("Creating correction plan for {} validation errors", errors.size());
 
         CorrectionPlan plan = new CorrectionPlan();
@@ -94,6 +94,7 @@ public class CorrectionPlanner {
         action.setDescription(generateActionDescription(error));
         action.setxPath(error.getxPath());
         action.setElementName(error.getElementName());
+        action.locateAt(error);
 
         // Set action type based on error type
         ActionType actionType = mapErrorToActionType(error.getErrorType());
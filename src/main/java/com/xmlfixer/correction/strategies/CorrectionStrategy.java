@@ -1,7 +1,7 @@
 package com.xmlfixer.correction.strategies;
 
 import com.xmlfixer.correction.model.CorrectionAction;
-import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
 import org.w3c.dom.Document;
@@ -33,11 +33,11 @@ public interface CorrectionStrategy {
      * Generates correction actions for the given validation errors
      *
      * @param errorsByType Map of validation errors grouped by error type
-     * @param schema The schema element tree for context
+     * @param schema The compiled schema for context
      * @return List of correction actions to fix the errors
      */
     List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType,
-                                               SchemaElement schema);
+                                               CompiledSchema schema);
 
     /**
      * Determines if this strategy can handle the given error type
@@ -53,7 +53,7 @@ public interface CorrectionStrategy {
      * @param schema The schema context
      * @return true if the action is safe to apply
      */
-    default boolean validateAction(CorrectionAction action, SchemaElement schema) {
+    default boolean validateAction(CorrectionAction action, CompiledSchema schema) {
         return action != null && action.getActionType() != null;
     }
 
@@ -106,6 +106,6 @@ public interface CorrectionStrategy {
         }
     }
 
-    boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema);
-    boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema);
+    boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema);
+    boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema);
 }
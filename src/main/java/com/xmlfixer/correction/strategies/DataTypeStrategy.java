@@ -1,6 +1,8 @@
 package com.xmlfixer.correction.strategies;
 
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.schema.model.ElementConstraint;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -9,6 +11,8 @@ import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
 import com.xmlfixer.correction.DomManipulator;
+import com.xmlfixer.schema.pattern.XsdMatcher;
+import com.xmlfixer.schema.pattern.XsdPattern;
 import com.xmlfixer.correction.model.CorrectionAction;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
@@ -49,7 +53,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         return errorType == ErrorType.INVALID_DATA_TYPE ||
                 errorType == ErrorType.INVALID_FORMAT ||
@@ -58,24 +62,24 @@ public class DataTypeStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
 
         switch (errorType) {
             case INVALID_DATA_TYPE:
-                return handleDataTypeCorrection(action, document, rootSchema);
+                return handleDataTypeCorrection(action, document, schema);
             case INVALID_FORMAT:
-                return handleFormatCorrection(action, document, rootSchema);
+                return handleFormatCorrection(action, document, schema);
             case PATTERN_MISMATCH:
-                return handlePatternCorrection(action, document, rootSchema);
+                return handlePatternCorrection(action, document, schema);
             case INVALID_VALUE_RANGE:
-                return handleRangeCorrection(action, document, rootSchema);
+                return handleRangeCorrection(action, document, schema);
             default:
                 return false;
         }
     }
 
-    private boolean handleDataTypeCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleDataTypeCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String currentValue = action.getOldValue();
 
@@ -88,7 +92,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, element.getNodeName());
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, element.getNodeName());
             if (schemaElement == null) {
                 logger.warn("Could not find schema element for: {}", element.getNodeName());
                 return false;
@@ -112,7 +116,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handleFormatCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleFormatCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String currentValue = action.getOldValue();
 
@@ -141,7 +145,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handlePatternCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handlePatternCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String currentValue = action.getOldValue();
 
@@ -153,15 +157,16 @@ public class DataTypeStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, element.getNodeName());
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, element.getNodeName());
             if (schemaElement == null || !schemaElement.hasConstraints()) {
                 return false;
             }
 
-            // Find pattern constraint
-            String pattern = schemaElement.getConstraints().stream()
-                    .filter(c -> c.getConstraintType().name().equals("PATTERN"))
-                    .map(c -> c.getValue())
+            // Find pattern constraint (compiled with the schema; null if the facet was invalid)
+            XsdPattern pattern = schemaElement.getConstraints().stream()
+                    .filter(c -> c.getConstraintType() == ElementConstraint.ConstraintType.PATTERN)
+                    .map(ElementConstraint::getCompiledPattern)
+                    .filter(Objects::nonNull)
                     .findFirst()
                     .orElse(null);
 
@@ -183,7 +188,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
         }
     }
 
-    private boolean handleRangeCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    private boolean handleRangeCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
         String currentValue = action.getOldValue();
 
@@ -195,7 +200,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, element.getNodeName());
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, element.getNodeName());
             if (schemaElement == null || !schemaElement.hasConstraints()) {
                 return false;
             }
@@ -307,17 +312,24 @@ public class DataTypeStrategy implements CorrectionStrategy {
         return corrected;
     }
 
-    private String correctPattern(String value, String pattern) {
-        // This is a simplified pattern correction
-        // In practice, this would need more sophisticated logic
+    private String correctPattern(String value, XsdPattern pattern) {
+        // Tries a few common clean-ups and keeps the first one the facet accepts
         if (value == null) return null;
 
-        // For common patterns like phone numbers, emails, etc.
-        if (pattern.contains("\\d")) {
-            // Extract digits
-            String digits = value.replaceAll("[^\\d]", "");
-            if (!digits.isEmpty()) {
-                return digits;
+        XsdMatcher matcher = pattern.matcher();
+        String trimmed = value.trim();
+        String[] candidates = {
+                trimmed,
+                trimmed.replaceAll("\\s+", " "),
+                trimmed.toUpperCase(),
+                trimmed.toLowerCase(),
+                trimmed.replaceAll("[^\\p{Alnum}]", ""),
+                trimmed.replaceAll("[^\\d]", "")
+        };
+
+        for (String candidate : candidates) {
+            if (!candidate.isEmpty() && matcher.matches(candidate)) {
+                return candidate;
             }
         }
 
@@ -387,7 +399,7 @@ public class DataTypeStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, SchemaElement schema) {
+    public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType, CompiledSchema schema) {
         return List.of();
     }
 }
@@ -4,6 +4,7 @@ import com.xmlfixer.correction.DomManipulator;
 import com.xmlfixer.correction.model.ActionType;
 import com.xmlfixer.correction.model.CorrectionAction;
 import com.xmlfixer.schema.model.ElementConstraint;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -53,7 +54,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
 
     @Override
     public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType,
-                                                      SchemaElement schema) {
+                                                      CompiledSchema schema) {
         List<CorrectionAction> actions = new ArrayList<>();
 
         // Handle missing required elements
@@ -81,12 +82,12 @@ public class MissingElementStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         return action.getRelatedErrorType() == ErrorType.MISSING_REQUIRED_ELEMENT;
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String elementName = action.getElementName();
         String xPath = action.getxPath();
 
@@ -99,7 +100,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = findSchemaElement(rootSchema, elementName);
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, elementName);
             Element newElement = createElementFromSchema(document, schemaElement);
 
             if (newElement != null) {
@@ -144,7 +145,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
     /**
      * Creates a correction action to add a missing required element
      */
-    private CorrectionAction createAddElementAction(ValidationError error, SchemaElement schema) {
+    private CorrectionAction createAddElementAction(ValidationError error, CompiledSchema schema) {
         String elementName = error.getElementName();
         String parentPath = getParentPath(error.getxPath());
 
@@ -154,7 +155,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
         }
 
         // Find the schema definition for this element
-        SchemaElement elementSchema = findSchemaElement(schema, elementName);
+        SchemaElement elementSchema = StrategyHelper.findSchemaElement(schema, elementName);
         if (elementSchema == null) {
             logger.warn("Cannot find schema definition for element: {}", elementName);
             return null;
@@ -168,6 +169,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
         action.setElementName(elementName);
         action.setxPath(parentPath);
         action.setRelatedErrorType(error.getErrorType());
+        action.locateAt(error);
 
         // Determine the best insertion position
         String insertionPosition = determineInsertionPosition(parentPath, elementName, schema);
@@ -187,7 +189,7 @@ public class MissingElementStrategy implements CorrectionStrategy {
     /**
      * Creates correction actions to add multiple occurrences for cardinality violations
      */
-    private List<CorrectionAction> createCardinalityAddActions(ValidationError error, SchemaElement schema) {
+    private List<CorrectionAction> createCardinalityAddActions(ValidationError error, CompiledSchema schema) {
         List<CorrectionAction> actions = new ArrayList<>();
 
         String elementName = error.getElementName();
@@ -220,9 +222,9 @@ public class MissingElementStrategy implements CorrectionStrategy {
     /**
      * Determines the best position to insert a new element based on schema order
      */
-    private String determineInsertionPosition(String parentPath, String elementName, SchemaElement schema) {
+    private String determineInsertionPosition(String parentPath, String elementName, CompiledSchema schema) {
         // Find the parent element in the schema
-        SchemaElement parentSchema = findSchemaElementByPath(schema, parentPath);
+        SchemaElement parentSchema = StrategyHelper.findSchemaElementByPath(schema, parentPath);
         if (parentSchema == null || !parentSchema.hasChildren()) {
             return "last"; // Default to end if no schema guidance
         }
@@ -320,10 +322,9 @@ public class MissingElementStrategy implements CorrectionStrategy {
             switch (constraint.getConstraintType()) {
                 case ENUMERATION:
                     // Use first enumerated value
-                    String enumValues = constraint.getValue();
-                    if (enumValues != null && !enumValues.isEmpty()) {
-                        String[] values = enumValues.split(",");
-                        return values[0].trim();
+                    List<String> enumValues = constraint.getValues();
+                    if (!enumValues.isEmpty()) {
+                        return enumValues.get(0);
                     }
                     break;
                 case MIN_INCLUSIVE:
@@ -390,64 +391,6 @@ public class MissingElementStrategy implements CorrectionStrategy {
         return lastSlash > 0 ? xpath.substring(0, lastSlash) : "/";
     }
 
-    /**
-     * Finds a schema element by name in the schema tree
-     */
-    private SchemaElement findSchemaElement(SchemaElement root, String elementName) {
-        if (root == null || elementName == null) {
-            return null;
-        }
-
-        if (elementName.equals(root.getName())) {
-            return root;
-        }
-
-        if (root.hasChildren()) {
-            for (SchemaElement child : root.getChildren()) {
-                SchemaElement found = findSchemaElement(child, elementName);
-                if (found != null) {
-                    return found;
-                }
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Finds a schema element by XPath in the schema tree
-     */
-    private SchemaElement findSchemaElementByPath(SchemaElement root, String path) {
-        if (root == null || path == null || path.isEmpty() || "/".equals(path)) {
-            return root;
-        }
-
-        String[] pathParts = path.split("/");
-        SchemaElement current = root;
-
-        for (String part : pathParts) {
-            if (part.isEmpty()) continue;
-
-            if (current.hasChildren()) {
-                SchemaElement found = null;
-                for (SchemaElement child : current.getChildren()) {
-                    if (part.equals(child.getName())) {
-                        found = child;
-                        break;
-                    }
-                }
-                if (found == null) {
-                    return null;
-                }
-                current = found;
-            } else {
-                return null;
-            }
-        }
-
-        return current;
-    }
-
     /**
      * Inner class for cardinality information
      */
@@ -3,6 +3,7 @@ package com.xmlfixer.correction.strategies;
 import com.xmlfixer.correction.DomManipulator;
 import com.xmlfixer.correction.model.ActionType;
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -54,7 +55,7 @@ public class OrderingStrategy implements CorrectionStrategy {
 
     @Override
     public List<CorrectionAction> generateCorrections(Map<ErrorType, List<ValidationError>> errorsByType,
-                                                      SchemaElement schema) {
+                                                      CompiledSchema schema) {
         List<CorrectionAction> actions = new ArrayList<>();
 
         // Handle invalid element order
@@ -87,7 +88,7 @@ public class OrderingStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean canCorrect(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean canCorrect(CorrectionAction action, Document document, CompiledSchema schema) {
         ErrorType errorType = action.getRelatedErrorType();
         // Handle both INVALID_ELEMENT_ORDER and UNEXPECTED_ELEMENT
         return errorType == ErrorType.INVALID_ELEMENT_ORDER ||
@@ -95,7 +96,7 @@ public class OrderingStrategy implements CorrectionStrategy {
     }
 
     @Override
-    public boolean applyCorrection(CorrectionAction action, Document document, SchemaElement rootSchema) {
+    public boolean applyCorrection(CorrectionAction action, Document document, CompiledSchema schema) {
         String xPath = action.getxPath();
 
         logger.debug("Correcting element ordering at path: {}", xPath);
@@ -107,7 +108,7 @@ public class OrderingStrategy implements CorrectionStrategy {
                 return false;
             }
 
-            SchemaElement schemaElement = StrategyHelper.findSchemaElement(rootSchema, parentElement.getNodeName());
+            SchemaElement schemaElement = StrategyHelper.findSchemaElement(schema, parentElement.getNodeName());
             if (schemaElement == null || !schemaElement.hasChildren()) {
                 return false;
             }
@@ -130,7 +131,7 @@ public class OrderingStrategy implements CorrectionStrategy {
      */
     private List<CorrectionAction> createOrderingActions(String parentPath,
                                                          List<ValidationError> errors,
-                                                         SchemaElement schema) {
+                                                         CompiledSchema schema) {
         List<CorrectionAction> actions = new ArrayList<>();
 
         // Get the expected order from schema
@@ -164,8 +165,8 @@ public class OrderingStrategy implements CorrectionStrategy {
     /**
      * Gets the expected element order from schema definition
      */
-    private List<String> getExpectedElementOrder(String parentPath, SchemaElement schema) {
-        SchemaElement parentElement = findSchemaElementByPath(schema, parentPath);
+    private List<String> getExpectedElementOrder(String parentPath, CompiledSchema schema) {
+        SchemaElement parentElement = StrategyHelper.findSchemaElementByPath(schema, parentPath);
         if (parentElement == null || !parentElement.hasChildren()) {
             return Collections.emptyList();
         }
@@ -269,7 +270,7 @@ public class OrderingStrategy implements CorrectionStrategy {
     /**
      * Creates an action to reposition an unexpected element
      */
-    private CorrectionAction createRepositionAction(ValidationError error, SchemaElement schema) {
+    private CorrectionAction createRepositionAction(ValidationError error, CompiledSchema schema) {
         String elementName = error.getElementName();
         if (elementName == null) {
             return null;
@@ -290,6 +291,7 @@ public class OrderingStrategy implements CorrectionStrategy {
         action.setElementName(elementName);
         action.setxPath(error.getxPath());
         action.setRelatedErrorType(ErrorType.UNEXPECTED_ELEMENT);
+        action.locateAt(error);
         action.setOldValue(error.getxPath());
         action.setNewValue(validPosition);
 
@@ -299,9 +301,12 @@ public class OrderingStrategy implements CorrectionStrategy {
     /**
      * Finds a valid position for an element based on schema constraints
      */
-    private String findValidPosition(String elementName, String currentPath, SchemaElement schema) {
+    private String findValidPosition(String elementName, String currentPath, CompiledSchema schema) {
         // Search for valid parent elements that can contain this element
-        return searchValidParent(elementName, schema, "");
+        if (schema == null) {
+            return null;
+        }
+        return searchValidParent(elementName, schema.getRootElement(), "");
     }
 
     /**
@@ -356,40 +361,6 @@ public class OrderingStrategy implements CorrectionStrategy {
         return lastSlash > 0 ? xpath.substring(0, lastSlash) : "/";
     }
 
-    /**
-     * Finds schema element by path
-     */
-    private SchemaElement findSchemaElementByPath(SchemaElement root, String path) {
-        if (root == null || path == null || path.isEmpty() || "/".equals(path)) {
-            return root;
-        }
-
-        String[] pathParts = path.split("/");
-        SchemaElement current = root;
-
-        for (String part : pathParts) {
-            if (part.isEmpty()) continue;
-
-            if (current.hasChildren()) {
-                SchemaElement found = null;
-                for (SchemaElement child : current.getChildren()) {
-                    if (part.equals(child.getName())) {
-                        found = child;
-                        break;
-                    }
-                }
-                if (found == null) {
-                    return null;
-                }
-                current = found;
-            } else {
-                return null;
-            }
-        }
-
-        return current;
-    }
-
     /**
      * Inner class representing an element move operation
      */
@@ -1,5 +1,6 @@
 package com.xmlfixer.correction.strategies;
 import com.xmlfixer.correction.model.CorrectionAction;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
 import com.xmlfixer.validation.model.ErrorType;
 import com.xmlfixer.validation.model.ValidationError;
@@ -63,26 +64,22 @@ public class StrategyHelper {
     }
 
     /**
-     * Finds schema element by name recursively
+     * Finds schema element by name using the compiled schema's name index
      */
-    public static SchemaElement findSchemaElement(SchemaElement rootSchema, String elementName) {
-        if (rootSchema == null || elementName == null) {
+    public static SchemaElement findSchemaElement(CompiledSchema schema, String elementName) {
+        if (schema == null || elementName == null) {
             return null;
         }
+        return schema.findElement(elementName);
+    }
 
-        if (elementName.equals(rootSchema.getName())) {
-            return rootSchema;
-        }
-
-        if (rootSchema.hasChildren()) {
-            for (SchemaElement child : rootSchema.getChildren()) {
-                SchemaElement found = findSchemaElement(child, elementName);
-                if (found != null) {
-                    return found;
-                }
-            }
+    /**
+     * Finds schema element by slash-separated path
+     */
+    public static SchemaElement findSchemaElementByPath(CompiledSchema schema, String path) {
+        if (schema == null) {
+            return null;
         }
-
-        return null;
+        return schema.findElementByPath(path);
     }
 }
@@ -0,0 +1,84 @@
+package com.xmlfixer.parsing;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files through a channel in blocks of bufferSize bytes
+ */
+public final class BufferedXmlInput implements XmlInput {
+
+    private final int bufferSize;
+
+    public BufferedXmlInput(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        return open(file, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream open(File file, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(start);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BufferedInputStream(new ChannelRangeInputStream(channel, end - start), bufferSize);
+    }
+
+    public int getBufferSize() { return bufferSize; }
+
+    /**
+     * Reads at most the remaining bytes of the range straight into the caller's array
+     */
+    private static final class ChannelRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long remaining;
+
+        ChannelRangeInputStream(FileChannel channel, long length) {
+            this.channel = channel;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) > 0 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedXmlInput{bufferSize=" + bufferSize + "}";
+    }
+}
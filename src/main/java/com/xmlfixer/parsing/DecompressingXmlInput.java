@@ -0,0 +1,94 @@
+package com.xmlfixer.parsing;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads gzip files and zip archive entries as the XML they contain; other files are opened
+ * by the wrapped input. Decompression runs on a pipelining thread ahead of the parser.
+ * Compressed sources cannot be read by byte range, so they are not seekable.
+ */
+public final class DecompressingXmlInput implements XmlInput {
+
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final XmlInput input;
+
+    public DecompressingXmlInput(XmlInput input) {
+        this.input = input;
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        if (XmlSources.isZipEntry(file)) {
+            return new PipelinedInputStream(openZipEntry(file));
+        }
+        if (XmlSources.isGzip(file)) {
+            InputStream compressed = input.open(file);
+            try {
+                return new PipelinedInputStream(new GZIPInputStream(compressed, INFLATE_BUFFER_SIZE));
+            } catch (IOException e) {
+                compressed.close();
+                throw e;
+            }
+        }
+        return input.open(file);
+    }
+
+    @Override
+    public InputStream open(File file, long start, long end) throws IOException {
+        if (XmlSources.isCompressed(file)) {
+            throw new IOException("Compressed input cannot be read by byte range: " + file);
+        }
+        return input.open(file, start, end);
+    }
+
+    @Override
+    public boolean isSeekable(File file) {
+        return !XmlSources.isCompressed(file) && input.isSeekable(file);
+    }
+
+    /**
+     * Opens an archive entry; closing the stream closes the archive. Entries named .gz are
+     * decompressed as well.
+     */
+    private static InputStream openZipEntry(File file) throws IOException {
+        ZipFile zip = new ZipFile(XmlSources.archiveOf(file));
+        try {
+            String entryName = XmlSources.entryNameOf(file);
+            ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException("No entry " + entryName + " in " + zip.getName());
+            }
+            InputStream in = zip.getInputStream(entry);
+            if (entryName.toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                in = new GZIPInputStream(in, INFLATE_BUFFER_SIZE);
+            }
+            return new FilterInputStream(in) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        zip.close();
+                    }
+                }
+            };
+        } catch (IOException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DecompressingXmlInput{" + input + "}";
+    }
+}
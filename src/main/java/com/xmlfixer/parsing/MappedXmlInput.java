@@ -0,0 +1,132 @@
+package com.xmlfixer.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads files through memory-mapped regions of regionSize bytes.
+ * Only one region of a stream is mapped at a time, so files larger than 2 GB work and the
+ * address space used stays bounded; a region is released by the garbage collector once the
+ * stream has moved past it. Read-ahead is left to the kernel, which sees sequential faults.
+ */
+public final class MappedXmlInput implements XmlInput {
+
+    public static final long DEFAULT_REGION_SIZE = 64L * 1024 * 1024;
+
+    private final long regionSize;
+
+    public MappedXmlInput() {
+        this(DEFAULT_REGION_SIZE);
+    }
+
+    public MappedXmlInput(long regionSize) {
+        if (regionSize < 1 || regionSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Region size must be between 1 byte and 2 GB: " + regionSize);
+        }
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public InputStream open(File file) throws IOException {
+        return open(file, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream open(File file, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new MappedInputStream(channel, start, Math.min(end, channel.size()), regionSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getRegionSize() { return regionSize; }
+
+    /**
+     * Copies from the current region, mapping the next one when it is used up
+     */
+    private static final class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private final long regionSize;
+        private long regionStart;
+        private MappedByteBuffer region;
+
+        MappedInputStream(FileChannel channel, long start, long end, long regionSize) {
+            this.channel = channel;
+            this.end = end;
+            this.regionSize = regionSize;
+            this.regionStart = start;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextRegion() ? region.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextRegion()) {
+                return -1;
+            }
+            int count = Math.min(length, region.remaining());
+            region.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && nextRegion()) {
+                int step = (int) Math.min(n - skipped, region.remaining());
+                region.position(region.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return region != null ? region.remaining() : 0;
+        }
+
+        /**
+         * True when the current region has bytes left, mapping the next region if needed
+         */
+        private boolean nextRegion() throws IOException {
+            if (region != null && region.hasRemaining()) {
+                return true;
+            }
+            if (region != null) {
+                regionStart += region.capacity();
+                region = null;
+            }
+            if (regionStart >= end) {
+                return false;
+            }
+            long size = Math.min(regionSize, end - regionStart);
+            region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, size);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            region = null;
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedXmlInput{regionSize=" + regionSize + "}";
+    }
+}
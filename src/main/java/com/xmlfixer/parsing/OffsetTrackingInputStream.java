@@ -0,0 +1,264 @@
+package com.xmlfixer.parsing;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Remembers the bytes a parser reads from its input, so the line and column of a parse
+ * event can be turned into a byte offset. The parser reads ahead of its events by at most
+ * its buffer size, so keeping the most recent historySize bytes is enough.
+ * <p>
+ * A cursor walks the bytes once, counting lines and columns the way the parser does: CR,
+ * LF and CRLF end a line, a byte order mark is not counted, and columns count UTF-16 units.
+ * Lookups must come in document order, as SAX events do. Offsets are known for UTF-8 and
+ * single-byte encodings; for others every lookup returns -1.
+ */
+public final class OffsetTrackingInputStream extends FilterInputStream {
+
+    public static final int DEFAULT_HISTORY_SIZE = 256 * 1024;
+
+    // Start offsets of the most recent lines, indexed by line number
+    private static final int LINE_STARTS = 16;
+
+    private enum CharWidth { UTF_8, SINGLE_BYTE, UNSUPPORTED }
+
+    private final byte[] history;
+    private final int mask;
+    private long position;
+
+    // Cursor: an offset with the line and column the parser reports for it
+    private long cursor;
+    private int line = 1;
+    private int column = 1;
+    private boolean afterCarriageReturn;
+    private final long[] lineStarts = new long[LINE_STARTS];
+    private long byteOrderMarkEnd = -1;
+    private CharWidth charWidth = CharWidth.UTF_8;
+
+    public OffsetTrackingInputStream(InputStream in) {
+        this(in, DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * @param historySize bytes kept for lookups, rounded up to a power of two
+     */
+    public OffsetTrackingInputStream(InputStream in, int historySize) {
+        super(in);
+        if (historySize < 1024 || historySize > (1 << 30)) {
+            throw new IllegalArgumentException("History size must be between 1 KB and 1 GB: " + historySize);
+        }
+        this.history = new byte[Integer.highestOneBit(historySize - 1) << 1];
+        this.mask = history.length - 1;
+    }
+
+    /**
+     * Sets the encoding the parser decodes the bytes with, as reported by its locator
+     */
+    public void setEncoding(String encoding) {
+        Charset charset;
+        try {
+            charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            charWidth = CharWidth.UNSUPPORTED;
+            return;
+        }
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            charWidth = CharWidth.UTF_8;
+        } else if (charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f) {
+            charWidth = CharWidth.SINGLE_BYTE;
+        } else {
+            charWidth = CharWidth.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Bytes read from the underlying stream so far
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Offset of the given line and column; -1 when the encoding is not supported or the
+     * position is behind an earlier lookup
+     */
+    public long offsetOf(int targetLine, int targetColumn) {
+        if (charWidth == CharWidth.UNSUPPORTED || targetLine <= 0 || targetColumn <= 0
+                || targetLine < line || (targetLine == line && targetColumn < column)) {
+            return -1;
+        }
+        walk(position, targetLine, targetColumn);
+        return reached(targetLine, targetColumn) ? cursor : -1;
+    }
+
+    /**
+     * Line of an offset the cursor has passed, counting back over the line ends between
+     * them; -1 when the offset is no longer in the history
+     */
+    public int lineOf(long offset) {
+        if (offset < 0 || offset > cursor || offset < Math.max(0, position - history.length)) {
+            return -1;
+        }
+        int lineEnds = 0;
+        for (long i = offset; i < cursor; i++) {
+            byte b = history[(int) (i & mask)];
+            // The LF of a CRLF was counted with its CR
+            if (b == '\r' || (b == '\n' && (i == 0 || history[(int) ((i - 1) & mask)] != '\r'))) {
+                lineEnds++;
+            }
+        }
+        return line - lineEnds;
+    }
+
+    /**
+     * Offset at which one of the last few lines the cursor has reached starts; -1 for
+     * lines further back
+     */
+    public long lineStartOf(int targetLine) {
+        if (targetLine <= 0 || targetLine > line || line - targetLine >= LINE_STARTS) {
+            return -1;
+        }
+        return lineStarts[targetLine % LINE_STARTS];
+    }
+
+    /**
+     * Offset of the last '<' before the given offset, which for the end of a start tag is
+     * where the tag begins; -1 when it is no longer in the history
+     */
+    public long markupStart(long offset) {
+        if (offset < 0 || offset > position) {
+            return -1;
+        }
+        long oldest = Math.max(0, position - history.length);
+        for (long i = offset - 1; i >= oldest; i--) {
+            if (history[(int) (i & mask)] == '<') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            evictFor(1);
+            history[(int) (position & mask)] = (byte) b;
+            position++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int count = in.read(bytes, offset, length);
+        for (int done = 0; done < count; ) {
+            int piece = Math.min(count - done, history.length / 2);
+            evictFor(piece);
+            int start = (int) (position & mask);
+            int first = Math.min(piece, history.length - start);
+            System.arraycopy(bytes, offset + done, history, start, first);
+            System.arraycopy(bytes, offset + done + first, history, 0, piece - first);
+            position += piece;
+            done += piece;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes still have to pass the cursor
+        byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count < 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Moves the cursor past the bytes the next count bytes will overwrite
+     */
+    private void evictFor(int count) {
+        long limit = position + count - history.length;
+        if (cursor < limit) {
+            walk(limit, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Advances the cursor up to limit, stopping at the target; bytes that take no column,
+     * such as the LF of a CRLF, are passed so the cursor rests on the next character
+     */
+    private void walk(long limit, int targetLine, int targetColumn) {
+        if (byteOrderMarkEnd < 0 && position >= 3) {
+            byteOrderMarkEnd = (history[0] & 0xFF) == 0xEF && (history[1] & 0xFF) == 0xBB
+                    && (history[2] & 0xFF) == 0xBF ? 3 : 0;
+        }
+        while (cursor < limit) {
+            int b = history[(int) (cursor & mask)] & 0xFF;
+            int width = width(b);
+            if (width > 0 && reached(targetLine, targetColumn)) {
+                return;
+            }
+            if (b == '\r') {
+                line++;
+                column = 1;
+                lineStarts[line % LINE_STARTS] = cursor + 1;
+                afterCarriageReturn = true;
+            } else if (b == '\n') {
+                if (!afterCarriageReturn) {
+                    line++;
+                    column = 1;
+                }
+                lineStarts[line % LINE_STARTS] = cursor + 1;
+                afterCarriageReturn = false;
+            } else {
+                column += width;
+                afterCarriageReturn = false;
+            }
+            cursor++;
+        }
+    }
+
+    /**
+     * Columns the byte at the cursor takes; line ends count as one here
+     */
+    private int width(int b) {
+        if (cursor < byteOrderMarkEnd || (b == '\n' && afterCarriageReturn)) {
+            return 0;
+        }
+        if (charWidth != CharWidth.UTF_8 || b < 0x80) {
+            return 1;
+        }
+        if ((b & 0xC0) == 0x80) {
+            return 0; // continuation byte
+        }
+        return b >= 0xF0 ? 2 : 1; // four-byte sequences are surrogate pairs
+    }
+
+    private boolean reached(int targetLine, int targetColumn) {
+        return line > targetLine || (line == targetLine && column >= targetColumn);
+    }
+}
@@ -0,0 +1,158 @@
+package com.xmlfixer.parsing;
+
+import com.xmlfixer.common.exceptions.XmlFixerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded pool of JAXP parsers and transformers.
+ * An instance is confined to the thread that borrowed it until it is released; it is reset
+ * on release and kept for the next caller while fewer than maxIdle instances are idle.
+ * The JAXP factories are not documented as thread-safe, so creating a new instance is
+ * serialized on the factory; borrowing a pooled one takes no lock.
+ */
+public final class ParserPool<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParserPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    /**
+     * Creates a new pooled instance
+     */
+    @FunctionalInterface
+    public interface Factory<T> {
+        T create() throws Exception;
+    }
+
+    private final String name;
+    private final int maxIdle;
+    private final Factory<T> factory;
+    private final Consumer<T> resetter;
+    private final BlockingQueue<T> idle;
+
+    // Statistics
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong reuseCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+
+    public ParserPool(String name, int maxIdle, Factory<T> factory, Consumer<T> resetter) {
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Parser pool size must be at least 1: " + maxIdle);
+        }
+        this.name = name;
+        this.maxIdle = maxIdle;
+        this.factory = factory;
+        this.resetter = resetter;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    /**
+     * Pool of SAX parsers from the given, fully configured factory
+     */
+    public static ParserPool<SAXParser> forSaxParsers(String name, int maxIdle, SAXParserFactory saxParserFactory) {
+        return new ParserPool<>(name, maxIdle, synchronizedOn(saxParserFactory, saxParserFactory::newSAXParser),
+                SAXParser::reset);
+    }
+
+    /**
+     * Pool of DOM builders from the given, fully configured factory
+     */
+    public static ParserPool<DocumentBuilder> forDocumentBuilders(String name, int maxIdle,
+                                                                  DocumentBuilderFactory documentBuilderFactory) {
+        return new ParserPool<>(name, maxIdle,
+                synchronizedOn(documentBuilderFactory, documentBuilderFactory::newDocumentBuilder),
+                DocumentBuilder::reset);
+    }
+
+    /**
+     * Pool of identity transformers; reset drops any output properties set by the borrower
+     */
+    public static ParserPool<Transformer> forTransformers(String name, int maxIdle,
+                                                          TransformerFactory transformerFactory) {
+        return new ParserPool<>(name, maxIdle,
+                synchronizedOn(transformerFactory, transformerFactory::newTransformer),
+                Transformer::reset);
+    }
+
+    /**
+     * Takes an idle instance or creates one; the caller owns it until release
+     */
+    public T borrow() {
+        borrowCount.incrementAndGet();
+        T instance = idle.poll();
+        if (instance != null) {
+            reuseCount.incrementAndGet();
+            return instance;
+        }
+
+        try {
+            instance = factory.create();
+        } catch (Exception e) {
+            throw new XmlFixerException("Failed to create " + name + " instance: " + e.getMessage(), e);
+        }
+        createdCount.incrementAndGet();
+        logger.debug("Created {} instance #{}", name, createdCount.get());
+        return instance;
+    }
+
+    /**
+     * Resets the instance and returns it to the pool; it is dropped when the pool is full
+     * or the reset fails
+     */
+    public void release(T instance) {
+        if (instance == null) {
+            return;
+        }
+        try {
+            resetter.accept(instance);
+        } catch (RuntimeException e) {
+            discardCount.incrementAndGet();
+            logger.debug("Dropping {} instance that failed to reset", name, e);
+            return;
+        }
+        if (!idle.offer(instance)) {
+            discardCount.incrementAndGet();
+        }
+    }
+
+    public String getName() { return name; }
+    public int getMaxIdle() { return maxIdle; }
+    public int getIdleCount() { return idle.size(); }
+    public long getCreatedCount() { return createdCount.get(); }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getReuseCount() { return reuseCount.get(); }
+    public long getDiscardCount() { return discardCount.get(); }
+
+    public double getReuseRate() {
+        long borrowed = borrowCount.get();
+        return borrowed > 0 ? (double) reuseCount.get() / borrowed * 100.0 : 0.0;
+    }
+
+    private static <T> Factory<T> synchronizedOn(Object lock, Factory<T> factory) {
+        return () -> {
+            synchronized (lock) {
+                return factory.create();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ParserPool{name=%s, idle=%d, max=%d, created=%d, borrowed=%d, reused=%d, discarded=%d}",
+                name, getIdleCount(), maxIdle, getCreatedCount(), getBorrowCount(), getReuseCount(),
+                getDiscardCount());
+    }
+}
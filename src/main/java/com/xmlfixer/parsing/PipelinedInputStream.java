@@ -0,0 +1,155 @@
+package com.xmlfixer.parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a source on a thread of its own, a few blocks ahead of the consumer.
+ * Used for decompression, so inflating the next blocks overlaps with parsing the current
+ * one. A fixed set of blocks circulates between the two threads, so memory is bounded by
+ * depth times blockSize and nothing is allocated per block. A failure of the source is
+ * thrown by the read that reaches it. Closing the stream stops the reading thread and
+ * closes the source.
+ */
+public final class PipelinedInputStream extends InputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_DEPTH = 4;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final Block END = new Block(0);
+
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<Block> free;
+    private final Thread reader;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private Block current;
+    private int position;
+
+    public PipelinedInputStream(InputStream source) {
+        this(source, DEFAULT_BLOCK_SIZE, DEFAULT_DEPTH);
+    }
+
+    public PipelinedInputStream(InputStream source, int blockSize, int depth) {
+        if (blockSize < 1 || depth < 1) {
+            throw new IllegalArgumentException("Block size and depth must be positive");
+        }
+        // One slot more than there are blocks, so the end marker always fits
+        this.filled = new ArrayBlockingQueue<>(depth + 1);
+        this.free = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            free.add(new Block(blockSize));
+        }
+        this.reader = new Thread(() -> fill(source), "xml-pipeline-" + threadCount.incrementAndGet());
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill(InputStream source) {
+        try (InputStream in = source) {
+            while (!closed) {
+                Block block = free.take();
+                block.length = in.readNBytes(block.data, 0, block.data.length);
+                if (block.length == 0) {
+                    break;
+                }
+                filled.put(block);
+                if (block.length < block.data.length) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            // Passed on, so the consumer never mistakes a failed source for its end
+            failure = new IOException("Reading the source failed: " + e, e);
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        } finally {
+            filled.offer(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current.data, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current != null && current != END ? current.length - position : 0;
+    }
+
+    /**
+     * True when the current block has bytes left, waiting for the next one if needed
+     */
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current == END) {
+            return false;
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current != null) {
+            free.offer(current);
+        }
+        try {
+            current = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+        position = 0;
+        if (current == END) {
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+    }
+
+    private static final class Block {
+        private final byte[] data;
+        private int length;
+
+        Block(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
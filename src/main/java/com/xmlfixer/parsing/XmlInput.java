@@ -0,0 +1,61 @@
+package com.xmlfixer.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Opens XML files, or byte ranges of them, for the parsers.
+ * The buffered input reads through a file channel in blocks of the configured size; the
+ * mapped input reads memory-mapped regions of the file, so the parser's reads are copies
+ * from the page cache without a system call each.
+ */
+public interface XmlInput {
+
+    int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    InputStream open(File file) throws IOException;
+
+    /**
+     * Opens the bytes from start up to end
+     */
+    InputStream open(File file, long start, long end) throws IOException;
+
+    /**
+     * True when byte ranges of the file can be opened, which parallel validation needs
+     */
+    default boolean isSeekable(File file) {
+        return true;
+    }
+
+    static XmlInput buffered(int bufferSize) {
+        return new BufferedXmlInput(bufferSize);
+    }
+
+    static XmlInput mapped() {
+        return new MappedXmlInput();
+    }
+
+    /**
+     * Adds reading of gzip files and zip archive entries to an input
+     */
+    static XmlInput decompressing(XmlInput input) {
+        return new DecompressingXmlInput(input);
+    }
+
+    /**
+     * Input for the xml.input.mode setting, "buffered" or "mapped"; the buffer size only
+     * applies to buffered input
+     */
+    static XmlInput forMode(String mode, int bufferSize) {
+        switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "buffered":
+                return buffered(bufferSize);
+            case "mapped":
+                return mapped();
+            default:
+                throw new IllegalArgumentException("Unknown XML input mode: " + mode);
+        }
+    }
+}
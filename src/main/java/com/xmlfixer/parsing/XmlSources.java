@@ -0,0 +1,168 @@
+package com.xmlfixer.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Naming of the XML sources the tool accepts besides plain files: gzip-compressed files
+ * ending in .gz, and entries of zip archives. An entry is addressed by a virtual file whose
+ * path is the archive path, '!' and the entry name, such as "feeds.zip!/2024/trades.xml";
+ * it is read straight from the archive without being extracted. Sources are opened through
+ * the configured XmlInput.
+ */
+public final class XmlSources {
+
+    private static final String ARCHIVE_SUFFIX = ".zip!";
+
+    private XmlSources() {
+    }
+
+    public static boolean isGzip(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    public static boolean isZipArchive(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".zip") && file.isFile();
+    }
+
+    public static boolean isZipEntry(File file) {
+        return entrySeparator(file.getPath()) >= 0;
+    }
+
+    /**
+     * True when the bytes of the source are not the XML itself
+     */
+    public static boolean isCompressed(File file) {
+        return isGzip(file) || isZipEntry(file);
+    }
+
+    /**
+     * Virtual file for an entry of a zip archive
+     */
+    public static File zipEntry(File archive, String entryName) {
+        return new File(archive.getPath() + "!" + File.separator + entryName);
+    }
+
+    public static File archiveOf(File zipEntry) {
+        String path = zipEntry.getPath();
+        return new File(path.substring(0, entrySeparator(path) + ARCHIVE_SUFFIX.length() - 1));
+    }
+
+    /**
+     * Name of the entry inside its archive, with '/' separators as zip files use
+     */
+    public static String entryNameOf(File zipEntry) {
+        String path = zipEntry.getPath();
+        return path.substring(entrySeparator(path) + ARCHIVE_SUFFIX.length() + 1).replace(File.separatorChar, '/');
+    }
+
+    /**
+     * The file on disk holding the source: the archive for an entry, the file itself otherwise
+     */
+    public static File containerOf(File file) {
+        return isZipEntry(file) ? archiveOf(file) : file;
+    }
+
+    /**
+     * Base URI that relative references of the document resolve against: a jar: URI inside
+     * the archive for an entry, the file's own URI otherwise
+     */
+    public static String baseUri(File file) {
+        if (!isZipEntry(file)) {
+            return file.toURI().toString();
+        }
+        try {
+            String entryPath = new URI(null, null, "/" + entryNameOf(file), null).getRawPath();
+            return "jar:" + archiveOf(file).toURI() + "!" + entryPath;
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid archive entry name: " + file, e);
+        }
+    }
+
+    /**
+     * Path of the document relative to an output directory, with '/' separators: its logical
+     * name, and for an entry the archive name without .zip and the entry's folders in front,
+     * so entries of different archives never share a path. Folders named "." or ".." are
+     * dropped, so the path stays inside the output directory.
+     */
+    public static String outputPath(File file) {
+        if (!isZipEntry(file)) {
+            return logicalName(file);
+        }
+        String archiveName = archiveOf(file).getName();
+        StringBuilder path = new StringBuilder(archiveName.substring(0, archiveName.length() - ".zip".length()));
+        String[] folders = entryNameOf(file).split("/");
+        for (int i = 0; i < folders.length - 1; i++) {
+            if (!folders[i].isEmpty() && !folders[i].equals(".") && !folders[i].equals("..")) {
+                path.append('/').append(folders[i]);
+            }
+        }
+        return path.append('/').append(logicalName(file)).toString();
+    }
+
+    /**
+     * Name of the XML document itself, without a .gz suffix
+     */
+    public static String logicalName(File file) {
+        String name = file.getName();
+        return isGzip(file) ? name.substring(0, name.length() - ".gz".length()) : name;
+    }
+
+    /**
+     * True for names of XML documents, compressed or not
+     */
+    public static boolean isXmlName(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".xml") || lower.endsWith(".xml.gz");
+    }
+
+    public static boolean exists(File file) {
+        if (!isZipEntry(file)) {
+            return file.isFile();
+        }
+        File archive = archiveOf(file);
+        if (!archive.isFile()) {
+            return false;
+        }
+        try (ZipFile zip = new ZipFile(archive)) {
+            return zip.getEntry(entryNameOf(file)) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Virtual files for the XML entries of an archive, in archive order
+     */
+    public static List<File> listXmlEntries(File archive) throws IOException {
+        List<File> entries = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (!entry.isDirectory() && isXmlName(entry.getName())) {
+                    entries.add(zipEntry(archive, entry.getName()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static int entrySeparator(String path) {
+        int index = path.toLowerCase(Locale.ROOT).indexOf(ARCHIVE_SUFFIX);
+        int separator = index + ARCHIVE_SUFFIX.length();
+        if (index < 0 || separator >= path.length()
+                || (path.charAt(separator) != '/' && path.charAt(separator) != File.separatorChar)) {
+            return -1;
+        }
+        return index;
+    }
+}
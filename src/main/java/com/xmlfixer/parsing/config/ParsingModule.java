@@ -1,10 +1,12 @@
 package com.xmlfixer.parsing.config;
 
+import com.xmlfixer.parsing.XmlInput;
 import com.xmlfixer.parsing.XmlParser;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
+import java.util.Properties;
 
 /**
  * Dagger module for parsing-related dependencies
@@ -17,5 +19,14 @@ public class ParsingModule {
     public XmlParser provideXmlParser() {
         return new XmlParser();
     }
+
+    @Provides
+    @Singleton
+    public XmlInput provideXmlInput(Properties properties) {
+        int bufferKb = Integer.parseInt(properties.getProperty(
+                "xml.buffer.size.kb", String.valueOf(XmlInput.DEFAULT_BUFFER_SIZE / 1024)));
+        XmlInput input = XmlInput.forMode(properties.getProperty("xml.input.mode", "buffered"), bufferKb * 1024);
+        return XmlInput.decompressing(input);
+    }
 }
 
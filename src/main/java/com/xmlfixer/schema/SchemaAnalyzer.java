@@ -21,10 +21,17 @@ public class SchemaAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(SchemaAnalyzer.class);
 
     private final SchemaParser schemaParser;
+    private final SchemaCache schemaCache;
+    private final SchemaSnapshotStore snapshotStore;
+    private final SchemaCompiler schemaCompiler;
 
     @Inject
-    public SchemaAnalyzer(SchemaParser schemaParser) {
+    public SchemaAnalyzer(SchemaParser schemaParser, SchemaCache schemaCache,
+                          SchemaSnapshotStore snapshotStore) {
         this.schemaParser = schemaParser;
+        this.schemaCache = schemaCache;
+        this.snapshotStore = snapshotStore;
+        this.schemaCompiler = new SchemaCompiler();
         logger.info("SchemaAnalyzer initialized");
     }
 
@@ -32,10 +39,52 @@ public class SchemaAnalyzer {
      * Analyzes a schema file and returns the complete schema structure
      */
     public SchemaElement analyzeSchema(File schemaFile) {
+        return compileSchema(schemaFile).getRootElement();
+    }
+
+    /**
+     * Returns the validation rules for a schema file, grouped by element name
+     */
+    public Map<String, List<ValidationRule>> getValidationRules(File schemaFile) {
+        return compileSchema(schemaFile).getValidationRules();
+    }
+
+    /**
+     * Returns the compiled form of a schema file, analyzing it on first use.
+     * The result is immutable and may be shared between concurrent runs.
+     */
+    public CompiledSchema compileSchema(File schemaFile) {
+        return schemaCache.getOrLoad(schemaFile, this::performAnalysis);
+    }
+
+    public SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
+
+    public SchemaSnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
+    /**
+     * Compiles a schema file from its snapshot if one is current, otherwise runs the
+     * full analysis pipeline and writes a fresh snapshot
+     */
+    private CompiledSchema performAnalysis(File schemaFile) {
+        long startTime = System.currentTimeMillis();
+
+        SchemaSnapshotStore.SchemaSnapshot snapshot = snapshotStore.load(schemaFile);
+        if (snapshot != null) {
+            CompiledSchema compiled = schemaCompiler.compile(
+                    schemaFile, snapshot.getRootElement(), snapshot.getValidationRules(),
+                    snapshot.getReferencedSchemas());
+            logger.info("Schema loaded from snapshot for: {} in {}ms",
+                    schemaFile.getName(), System.currentTimeMillis() - startTime);
+            return compiled;
+        }
+
         logger.info("Analyzing schema file: {}", schemaFile.getName());
 
         try {
-            long startTime = System.currentTimeMillis();
 
             // Parse the schema document
             Document schemaDocument = schemaParser.parseSchemaDocument(schemaFile);
@@ -52,13 +101,24 @@ public class SchemaAnalyzer {
             // Build element hierarchy
             buildElementHierarchy(rootElement);
 
+            // Group rules by element for the validators
+            Map<String, List<ValidationRule>> rulesByElement = extractValidationRules(rootElement);
+
+            // Included and imported schemas also decide when the cached result is stale
+            List<File> referencedSchemas = schemaParser.findReferencedSchemas(schemaDocument, schemaFile);
+
+            // Persist the analysis so later runs can skip parsing
+            if (snapshotStore.isEnabled()) {
+                snapshotStore.save(schemaFile, referencedSchemas, rootElement, rulesByElement);
+            }
+
             // Calculate analysis metrics
             long endTime = System.currentTimeMillis();
             logger.info("Schema analysis completed for: {} in {}ms. Found {} elements, {} validation rules",
                     schemaFile.getName(), (endTime - startTime),
                     countAllElements(rootElement), validationRules.size());
 
-            return rootElement;
+            return schemaCompiler.compile(schemaFile, rootElement, rulesByElement, referencedSchemas);
 
         } catch (Exception e) {
             logger.error("Failed to analyze schema: {}", schemaFile.getName(), e);
@@ -244,6 +304,7 @@ public class SchemaAnalyzer {
             case ENUMERATION:
                 rule = new ValidationRule(ValidationRule.RuleType.ENUMERATION, element.getName());
                 rule.setExpectedValue(constraint.getValue());
+                rule.setAllowedValues(constraint.getValues());
                 break;
 
             case MIN_LENGTH:
@@ -268,6 +329,79 @@ public class SchemaAnalyzer {
         return rule;
     }
 
+    /**
+     * Extracts validation rules from schema element hierarchy, keyed by element name
+     */
+    private Map<String, List<ValidationRule>> extractValidationRules(SchemaElement rootSchema) {
+        Map<String, List<ValidationRule>> rulesMap = new HashMap<>();
+
+        // Recursively extract rules from schema
+        extractRulesRecursive(rootSchema, rulesMap);
+
+        return rulesMap;
+    }
+
+    /**
+     * Recursively extracts validation rules from schema elements
+     */
+    private void extractRulesRecursive(SchemaElement element,
+                                       Map<String, List<ValidationRule>> rulesMap) {
+        if (element == null) {
+            return;
+        }
+
+        List<ValidationRule> elementRules = new ArrayList<>();
+
+        // Required element rule
+        if (element.isRequired()) {
+            ValidationRule requiredRule = new ValidationRule(
+                    ValidationRule.RuleType.ELEMENT_REQUIRED, element.getName());
+            requiredRule.setRequired(true);
+            elementRules.add(requiredRule);
+        }
+
+        // Cardinality rule
+        if (element.getMinOccurs() > 0 || element.getMaxOccurs() < Integer.MAX_VALUE) {
+            ValidationRule cardinalityRule = new ValidationRule(
+                    ValidationRule.RuleType.ELEMENT_CARDINALITY, element.getName());
+            cardinalityRule.setMinOccurs(element.getMinOccurs());
+            cardinalityRule.setMaxOccurs(element.getMaxOccurs());
+            elementRules.add(cardinalityRule);
+        }
+
+        // Data type rule
+        if (element.getType() != null && !element.getType().equals("complexType")) {
+            ValidationRule typeRule = new ValidationRule(
+                    ValidationRule.RuleType.DATA_TYPE, element.getName());
+            typeRule.setDataType(element.getType());
+            elementRules.add(typeRule);
+        }
+
+        // Pattern rules from pattern facets; other facets are checked through the constraints
+        if (element.hasConstraints()) {
+            element.getConstraints().stream()
+                    .filter(constraint -> constraint.getConstraintType() == ElementConstraint.ConstraintType.PATTERN)
+                    .forEach(constraint -> {
+                        ValidationRule constraintRule = new ValidationRule(
+                                ValidationRule.RuleType.PATTERN_MATCH, element.getName());
+                        constraintRule.setPattern(constraint.getValue());
+                        constraintRule.setDescription(constraint.getDescription());
+                        elementRules.add(constraintRule);
+                    });
+        }
+
+        if (!elementRules.isEmpty()) {
+            rulesMap.put(element.getName(), elementRules);
+        }
+
+        // Process children
+        if (element.hasChildren()) {
+            for (SchemaElement child : element.getChildren()) {
+                extractRulesRecursive(child, rulesMap);
+            }
+        }
+    }
+
     /**
      * Builds element hierarchy information
      */
@@ -0,0 +1,297 @@
+package com.xmlfixer.schema;
+
+import com.xmlfixer.common.exceptions.XmlFixerException;
+import com.xmlfixer.schema.model.CompiledSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe LRU cache of compiled schemas, one entry per canonical path.
+ * An entry stays current while the size and modification time of the schema and of every
+ * schema it includes or imports are unchanged, which costs a few file stats per lookup.
+ * When only the schema's own stamp has changed, its content hash decides: a file that was
+ * touched but not edited keeps its entry.
+ */
+@Singleton
+public class SchemaCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private static final int HASH_BUFFER_SIZE = 8192;
+
+    private final int maxEntries;
+    private final Map<String, CacheEntry> entries;
+    private final ConcurrentMap<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong hashCount = new AtomicLong();
+
+    public SchemaCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public SchemaCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Schema cache size must be at least 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > SchemaCache.this.maxEntries) {
+                    evictionCount.incrementAndGet();
+                    logger.debug("Evicting cached schema: {}", eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        logger.info("SchemaCache initialized with capacity {}", maxEntries);
+    }
+
+    /**
+     * Returns the compiled schema for the file, running the loader on a miss.
+     * Concurrent misses for the same file are serialized so the loader runs only once.
+     */
+    public CompiledSchema getOrLoad(File schemaFile, Function<File, CompiledSchema> loader) {
+        String canonicalPath = canonicalPath(schemaFile);
+
+        CompiledSchema cached = lookup(canonicalPath, schemaFile);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            logger.debug("Schema cache hit for: {}", schemaFile.getName());
+            return cached;
+        }
+
+        synchronized (lockFor(canonicalPath)) {
+            cached = lookup(canonicalPath, schemaFile);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return cached;
+            }
+
+            missCount.incrementAndGet();
+            logger.debug("Schema cache miss for: {}", schemaFile.getName());
+            // Stamped before loading, so an edit made while loading is noticed next time
+            FileStamp stamp = FileStamp.of(schemaFile);
+            String contentHash = hashContent(schemaFile);
+            CompiledSchema loaded = Objects.requireNonNull(loader.apply(schemaFile),
+                    "Schema loader returned null for " + schemaFile.getName());
+
+            List<FileStamp> dependencies = new ArrayList<>(loaded.getReferencedSchemas().size());
+            for (File referenced : loaded.getReferencedSchemas()) {
+                dependencies.add(FileStamp.of(referenced));
+            }
+            synchronized (entries) {
+                entries.put(canonicalPath, new CacheEntry(loaded, stamp, contentHash, dependencies));
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Returns the cached schema if its entry is still current, refreshing the stamp of a
+     * schema whose content turns out to be unchanged
+     */
+    private CompiledSchema lookup(String canonicalPath, File schemaFile) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(canonicalPath);
+        }
+        if (entry == null || !entry.dependenciesUnchanged()) {
+            return null;
+        }
+
+        FileStamp stamp = FileStamp.of(schemaFile);
+        if (stamp.equals(entry.getStamp())) {
+            return entry.getSchema();
+        }
+        if (!hashContent(schemaFile).equals(entry.getContentHash())) {
+            return null;
+        }
+        synchronized (entries) {
+            entries.replace(canonicalPath, entry, entry.withStamp(stamp));
+        }
+        return entry.getSchema();
+    }
+
+    /**
+     * Removes the cached version of the given schema file
+     */
+    public void invalidate(File schemaFile) {
+        String canonicalPath = canonicalPath(schemaFile);
+        synchronized (entries) {
+            entries.remove(canonicalPath);
+        }
+    }
+
+    /**
+     * Clears all cached schemas (statistics are preserved)
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        logger.debug("Schema cache cleared");
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public long getHitCount() { return hitCount.get(); }
+    public long getMissCount() { return missCount.get(); }
+    public long getEvictionCount() { return evictionCount.get(); }
+
+    /**
+     * Times a schema file was read to hash its content
+     */
+    public long getHashCount() { return hashCount.get(); }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total > 0 ? (double) hits / total * 100.0 : 0.0;
+    }
+
+    /**
+     * Per-path monitor so that different schemas can be analyzed in parallel
+     */
+    private Object lockFor(String canonicalPath) {
+        return loadLocks.computeIfAbsent(canonicalPath, path -> new Object());
+    }
+
+    private String canonicalPath(File schemaFile) {
+        try {
+            return schemaFile.getCanonicalPath();
+        } catch (IOException e) {
+            return schemaFile.getAbsolutePath();
+        }
+    }
+
+    private String hashContent(File schemaFile) {
+        hashCount.incrementAndGet();
+        try (InputStream in = Files.newInputStream(schemaFile.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new XmlFixerException("Failed to hash schema file: " + schemaFile.getName(), e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SchemaCache{size=%d, max=%d, hits=%d, misses=%d, evictions=%d, hashes=%d}",
+                size(), maxEntries, getHitCount(), getMissCount(), getEvictionCount(), getHashCount());
+    }
+
+    /**
+     * Size and modification time of a file; a missing file has size -1
+     */
+    private static final class FileStamp {
+        private final File file;
+        private final long length;
+        private final long lastModified;
+
+        private FileStamp(File file, long length, long lastModified) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        static FileStamp of(File file) {
+            return new FileStamp(file, file.isFile() ? file.length() : -1L, file.lastModified());
+        }
+
+        boolean isCurrent() {
+            return equals(of(file));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileStamp)) return false;
+            FileStamp other = (FileStamp) o;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(length, lastModified);
+        }
+    }
+
+    /**
+     * One cached version of a schema with the stamps it was loaded under
+     */
+    private static final class CacheEntry {
+        private final CompiledSchema schema;
+        private final FileStamp stamp;
+        private final String contentHash;
+        private final List<FileStamp> dependencies;
+
+        CacheEntry(CompiledSchema schema, FileStamp stamp, String contentHash, List<FileStamp> dependencies) {
+            this.schema = schema;
+            this.stamp = stamp;
+            this.contentHash = contentHash;
+            this.dependencies = Collections.unmodifiableList(dependencies);
+        }
+
+        CompiledSchema getSchema() { return schema; }
+        FileStamp getStamp() { return stamp; }
+        String getContentHash() { return contentHash; }
+
+        boolean dependenciesUnchanged() {
+            for (FileStamp dependency : dependencies) {
+                if (!dependency.isCurrent()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        CacheEntry withStamp(FileStamp newStamp) {
+            return new CacheEntry(schema, newStamp, contentHash, dependencies);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.xmlfixer.schema;
+
+import com.xmlfixer.schema.datatype.NumericBound;
+import com.xmlfixer.schema.datatype.XsdDatatype;
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.schema.model.ContentAutomaton;
+import com.xmlfixer.schema.model.ContentModelException;
+import com.xmlfixer.schema.model.ElementConstraint;
+import com.xmlfixer.schema.model.EnumerationSet;
+import com.xmlfixer.schema.model.OrderingRule;
+import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.ValidationRule;
+import com.xmlfixer.schema.pattern.XsdPattern;
+import com.xmlfixer.schema.pattern.XsdPatternException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Turns an analyzed schema tree and its rules into an immutable CompiledSchema.
+ * Compiles facets and content models, decides how each element's text is captured, builds
+ * the name index and seals every model object (which builds each element's child index) so
+ * the result can be shared between threads.
+ */
+public class SchemaCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCompiler.class);
+
+    /**
+     * Compiles the schema tree rooted at rootElement
+     */
+    public CompiledSchema compile(File schemaFile, SchemaElement rootElement,
+                                  Map<String, List<ValidationRule>> validationRules) {
+        return compile(schemaFile, rootElement, validationRules, Collections.emptyList());
+    }
+
+    /**
+     * Compiles the schema tree rooted at rootElement, recording the schemas it references
+     */
+    public CompiledSchema compile(File schemaFile, SchemaElement rootElement,
+                                  Map<String, List<ValidationRule>> validationRules,
+                                  List<File> referencedSchemas) {
+        Map<String, SchemaElement> elementsByName = new HashMap<>();
+        List<String> problems = new ArrayList<>();
+        // Repeated facets share one XsdPattern instance and are reported once
+        Map<String, XsdPattern> patterns = new HashMap<>();
+
+        // Breadth-first so that findElement prefers the shallowest definition;
+        // the visited set guards against recursive element references
+        Set<SchemaElement> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<SchemaElement> queue = new ArrayDeque<>();
+        queue.add(rootElement);
+        visited.add(rootElement);
+
+        while (!queue.isEmpty()) {
+            SchemaElement element = queue.poll();
+            elementsByName.putIfAbsent(element.getName(), element);
+
+            if (element.hasChildren()) {
+                for (SchemaElement child : element.getChildren()) {
+                    if (visited.add(child)) {
+                        queue.add(child);
+                    }
+                }
+            }
+
+            compileConstraints(element, patterns, problems);
+            compileContentModel(element, problems);
+            element.setValueCapture(classifyValue(element, validationRules.get(element.getName())));
+            sealElement(element);
+        }
+
+        Map<String, List<ValidationRule>> sealedRules = new HashMap<>();
+        for (Map.Entry<String, List<ValidationRule>> entry : validationRules.entrySet()) {
+            for (ValidationRule rule : entry.getValue()) {
+                compileRulePattern(rule, patterns, problems);
+                if (rule.getRuleType() == ValidationRule.RuleType.ENUMERATION && !rule.getAllowedValues().isEmpty()) {
+                    rule.setEnumeration(EnumerationSet.of(rule.getAllowedValues()));
+                }
+                rule.seal();
+            }
+            sealedRules.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+        }
+
+        CompiledSchema compiled = new CompiledSchema(schemaFile, rootElement, sealedRules,
+                elementsByName, referencedSchemas, visited.size(), problems);
+        logger.debug("Compiled schema: {}", compiled);
+        return compiled;
+    }
+
+    /**
+     * Compiles facet values once so validation never re-parses them
+     */
+    private void compileConstraints(SchemaElement element, Map<String, XsdPattern> patterns,
+                                    List<String> problems) {
+        if (!element.hasConstraints()) {
+            return;
+        }
+        for (ElementConstraint constraint : element.getConstraints()) {
+            switch (constraint.getConstraintType()) {
+                case PATTERN:
+                    constraint.setCompiledPattern(compilePattern(constraint.getValue(), element.getName(), patterns, problems));
+                    break;
+                case ENUMERATION:
+                    constraint.setEnumeration(EnumerationSet.of(constraint.getValues()));
+                    break;
+                case MIN_INCLUSIVE:
+                case MAX_INCLUSIVE:
+                case MIN_EXCLUSIVE:
+                case MAX_EXCLUSIVE:
+                    NumericBound bound = NumericBound.parse(constraint.getValue());
+                    if (bound == null) {
+                        // Date and time bounds are not compared yet
+                        logger.debug("Non-numeric {} '{}' on element '{}' is not enforced",
+                                constraint.getConstraintType(), constraint.getValue(), element.getName());
+                    }
+                    constraint.setNumericBound(bound);
+                    break;
+                case MIN_LENGTH:
+                case MAX_LENGTH:
+                case TOTAL_DIGITS:
+                case FRACTION_DIGITS:
+                    constraint.setLimit(parseLimit(constraint, element.getName(), problems));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Decides how much of the element's text validation needs. Facets such as patterns or
+     * bounds need the whole value; length facets and binary types can be checked while the
+     * text streams past; elements with neither are not captured at all.
+     */
+    private SchemaElement.ValueCapture classifyValue(SchemaElement element, List<ValidationRule> rules) {
+        boolean buffer = false;
+        boolean stream = false;
+
+        // Datatypes are only checked on leaf elements, see StreamingValidator
+        if (rules != null && element.getType() != null && !element.hasChildren()) {
+            for (ValidationRule rule : rules) {
+                XsdDatatype datatype = rule.getRuleType() == ValidationRule.RuleType.DATA_TYPE
+                        ? rule.getBuiltinDatatype() : null;
+                if (datatype != null && !datatype.isUnrestricted()) {
+                    if (datatype.isStreamable()) {
+                        stream = true;
+                    } else {
+                        buffer = true;
+                    }
+                }
+            }
+        }
+
+        if (element.hasConstraints()) {
+            for (ElementConstraint constraint : element.getConstraints()) {
+                switch (constraint.getConstraintType()) {
+                    case PATTERN:
+                        buffer |= constraint.getCompiledPattern() != null;
+                        break;
+                    case ENUMERATION:
+                        buffer = true;
+                        break;
+                    case MIN_INCLUSIVE:
+                    case MAX_INCLUSIVE:
+                    case MIN_EXCLUSIVE:
+                    case MAX_EXCLUSIVE:
+                        buffer |= constraint.getNumericBound() != null;
+                        break;
+                    case TOTAL_DIGITS:
+                    case FRACTION_DIGITS:
+                        buffer |= constraint.getLimit() >= 0;
+                        break;
+                    case MIN_LENGTH:
+                    case MAX_LENGTH:
+                        stream |= constraint.getLimit() >= 0;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        if (buffer) {
+            return SchemaElement.ValueCapture.BUFFER;
+        }
+        return stream ? SchemaElement.ValueCapture.STREAM : SchemaElement.ValueCapture.NONE;
+    }
+
+    /**
+     * Compiles the element's content model into an automaton; models that cannot be compiled
+     * are recorded as problems and their children are checked one by one instead
+     */
+    private void compileContentModel(SchemaElement element, List<String> problems) {
+        OrderingRule contentModel = element.getContentModel();
+        if (contentModel == null || contentModel.getType() == null
+                || (!contentModel.hasParticles() && !contentModel.hasElementOrder())) {
+            return;
+        }
+        try {
+            contentModel.setAutomaton(ContentAutomaton.compile(contentModel, element));
+        } catch (ContentModelException e) {
+            String problem = String.format("Content model of element '%s' is not enforced: %s",
+                    element.getName(), e.getDescription());
+            logger.warn(problem);
+            problems.add(problem);
+        }
+    }
+
+    private int parseLimit(ElementConstraint constraint, String elementName, List<String> problems) {
+        String value = constraint.getValue() != null ? constraint.getValue().trim() : "";
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit >= 0) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        String problem = String.format("Invalid %s value '%s' on element '%s' is ignored",
+                constraint.getConstraintType(), constraint.getValue(), elementName);
+        logger.warn(problem);
+        problems.add(problem);
+        return -1;
+    }
+
+    private void compileRulePattern(ValidationRule rule, Map<String, XsdPattern> patterns, List<String> problems) {
+        if (rule.getRuleType() == ValidationRule.RuleType.PATTERN_MATCH && rule.hasPattern()) {
+            rule.setCompiledPattern(compilePattern(rule.getPattern(), rule.getElementName(), patterns, problems));
+        }
+    }
+
+    /**
+     * Compiles a facet pattern, recording a problem instead of failing the schema
+     */
+    private XsdPattern compilePattern(String pattern, String elementName, Map<String, XsdPattern> patterns,
+                                      List<String> problems) {
+        if (patterns.containsKey(pattern)) {
+            return patterns.get(pattern);
+        }
+
+        XsdPattern compiled = null;
+        try {
+            compiled = XsdPattern.compile(pattern);
+        } catch (XsdPatternException e) {
+            String problem = String.format("Invalid pattern '%s' on element '%s' is ignored: %s",
+                    pattern, elementName, e.getDescription());
+            logger.warn(problem);
+            problems.add(problem);
+        }
+        patterns.put(pattern, compiled);
+        return compiled;
+    }
+
+    private void sealElement(SchemaElement element) {
+        if (element.hasConstraints()) {
+            element.getConstraints().forEach(ElementConstraint::seal);
+        }
+        if (element.getContentModel() != null) {
+            element.getContentModel().seal();
+        }
+        element.seal();
+    }
+}
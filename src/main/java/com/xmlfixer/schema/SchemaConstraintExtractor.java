@@ -326,7 +326,8 @@ public class SchemaConstraintExtractor {
 
         if (!enumValues.isEmpty()) {
             ElementConstraint enumConstraint = new ElementConstraint(
-                    ElementConstraint.ConstraintType.ENUMERATION, String.join(",", enumValues));
+                    ElementConstraint.ConstraintType.ENUMERATION, enumValues.get(0));
+            enumValues.subList(1, enumValues.size()).forEach(enumConstraint::addValue);
             enumConstraint.setDescription("Allowed values: " + enumValues);
             return enumConstraint;
         }
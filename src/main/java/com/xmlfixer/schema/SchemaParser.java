@@ -1,6 +1,7 @@
 package com.xmlfixer.schema;
 
 import com.xmlfixer.common.exceptions.XmlFixerException;
+import com.xmlfixer.parsing.ParserPool;
 import com.xmlfixer.schema.model.ElementConstraint;
 import com.xmlfixer.schema.model.OrderingRule;
 import com.xmlfixer.schema.model.SchemaElement;
@@ -20,8 +21,10 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Service for parsing XSD schema files and extracting structural information
@@ -35,15 +38,21 @@ public class SchemaParser {
     private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
     private static final String XS_PREFIX = "xs:";
     private static final String XSD_PREFIX = "xsd:";
+    private static final String[] SCHEMA_REFERENCE_DIRECTIVES = {"include", "import", "redefine"};
 
-    private DocumentBuilderFactory documentBuilderFactory;
+    private final ParserPool<DocumentBuilder> documentBuilders;
 
     @Inject
     public SchemaParser() {
-        this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        this.documentBuilderFactory.setNamespaceAware(true);
-        this.documentBuilderFactory.setIgnoringComments(true);
-        this.documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+        this(ParserPool.DEFAULT_MAX_IDLE);
+    }
+
+    public SchemaParser(int parserPoolSize) {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setIgnoringComments(true);
+        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+        this.documentBuilders = ParserPool.forDocumentBuilders("dom-schema", parserPoolSize, documentBuilderFactory);
         logger.info("SchemaParser initialized");
     }
 
@@ -53,8 +62,9 @@ public class SchemaParser {
     public Document parseSchemaDocument(File schemaFile) {
         logger.info("Parsing schema document: {}", schemaFile.getName());
 
+        DocumentBuilder builder = null;
         try {
-            DocumentBuilder builder = documentBuilderFactory.newDocumentBuilder();
+            builder = documentBuilders.borrow();
             Document document = builder.parse(schemaFile);
             document.getDocumentElement().normalize();
 
@@ -64,6 +74,8 @@ public class SchemaParser {
         } catch (Exception e) {
             logger.error("Failed to parse schema document: {}", schemaFile.getName(), e);
             throw new XmlFixerException("Schema parsing failed: " + e.getMessage(), e);
+        } finally {
+            documentBuilders.release(builder);
         }
     }
 
@@ -91,6 +103,42 @@ public class SchemaParser {
         return elements;
     }
 
+    /**
+     * Collects the schema files pulled in through xs:include, xs:import and xs:redefine,
+     * following references transitively. Remote locations are skipped.
+     */
+    public List<File> findReferencedSchemas(Document schemaDocument, File schemaFile) {
+        Set<File> referenced = new LinkedHashSet<>();
+        collectReferencedSchemas(schemaDocument, schemaFile, referenced);
+        referenced.remove(schemaFile.getAbsoluteFile().toPath().normalize().toFile());
+        return new ArrayList<>(referenced);
+    }
+
+    private void collectReferencedSchemas(Document schemaDocument, File baseFile, Set<File> referenced) {
+        Element root = schemaDocument.getDocumentElement();
+        File baseDir = baseFile.getAbsoluteFile().getParentFile();
+
+        for (String directive : SCHEMA_REFERENCE_DIRECTIVES) {
+            NodeList nodes = root.getElementsByTagNameNS(XSD_NAMESPACE, directive);
+            for (int i = 0; i < nodes.getLength(); i++) {
+                String location = ((Element) nodes.item(i)).getAttribute("schemaLocation");
+                if (location.isEmpty() || location.contains("://")) {
+                    continue;
+                }
+
+                File referencedFile = new File(baseDir, location).toPath().normalize().toFile();
+                // Missing files are still recorded so that their later creation is noticed
+                if (referenced.add(referencedFile) && referencedFile.isFile()) {
+                    try {
+                        collectReferencedSchemas(parseSchemaDocument(referencedFile), referencedFile, referenced);
+                    } catch (XmlFixerException e) {
+                        logger.warn("Could not follow schema reference: {}", referencedFile);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Parses a single element definition from XSD
      */
@@ -209,23 +257,54 @@ public class SchemaParser {
     private void parseComplexType(Element complexTypeNode, SchemaElement schemaElement) {
         schemaElement.setType("complexType");
 
-        // Parse sequence, choice, or all groups
-        NodeList sequences = complexTypeNode.getElementsByTagNameNS(XSD_NAMESPACE, "sequence");
-        NodeList choices = complexTypeNode.getElementsByTagNameNS(XSD_NAMESPACE, "choice");
-        NodeList alls = complexTypeNode.getElementsByTagNameNS(XSD_NAMESPACE, "all");
-
-        if (sequences.getLength() > 0) {
-            parseSequenceGroup((Element) sequences.item(0), schemaElement);
-        } else if (choices.getLength() > 0) {
-            parseChoiceGroup((Element) choices.item(0), schemaElement);
-        } else if (alls.getLength() > 0) {
-            parseAllGroup((Element) alls.item(0), schemaElement);
+        // Parse the sequence, choice or all group that forms the content model
+        Element group = findModelGroup(complexTypeNode);
+        if (group != null) {
+            OrderingRule contentModel = parseModelGroup(group, schemaElement);
+            contentModel.setGroupName(schemaElement.getName());
+            schemaElement.setContentModel(contentModel);
         }
 
         // Parse attributes
         parseAttributes(complexTypeNode, schemaElement);
     }
 
+    /**
+     * Finds the model group declared directly on a complex type, or on its complexContent
+     * extension or restriction
+     */
+    private Element findModelGroup(Element complexTypeNode) {
+        for (Element child : childElements(complexTypeNode)) {
+            switch (child.getLocalName()) {
+                case "sequence":
+                case "choice":
+                case "all":
+                    return child;
+                case "complexContent":
+                    for (Element derivation : childElements(child)) {
+                        Element group = findModelGroup(derivation);
+                        if (group != null) {
+                            return group;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    private List<Element> childElements(Element parent) {
+        List<Element> elements = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && XSD_NAMESPACE.equals(child.getNamespaceURI())) {
+                elements.add((Element) child);
+            }
+        }
+        return elements;
+    }
+
     /**
      * Parses simple type definitions and constraints
      */
@@ -276,6 +355,13 @@ public class SchemaParser {
                 constraint = new ElementConstraint(ElementConstraint.ConstraintType.PATTERN, value);
                 break;
             case "enumeration":
+                // All enumeration facets of a restriction form one constraint
+                ElementConstraint enumeration = findConstraint(schemaElement, ElementConstraint.ConstraintType.ENUMERATION);
+                if (enumeration != null) {
+                    enumeration.addValue(value);
+                    logger.debug("Added enumeration value: {} to element: {}", value, schemaElement.getName());
+                    return;
+                }
                 constraint = new ElementConstraint(ElementConstraint.ConstraintType.ENUMERATION, value);
                 break;
             case "minLength":
@@ -316,65 +402,113 @@ public class SchemaParser {
         }
     }
 
-    /**
-     * Parses sequence groups (ordered elements)
-     */
-    private void parseSequenceGroup(Element sequenceNode, SchemaElement parentElement) {
-        NodeList elements = sequenceNode.getElementsByTagNameNS(XSD_NAMESPACE, "element");
-
-        for (int i = 0; i < elements.getLength(); i++) {
-            Element childElementNode = (Element) elements.item(i);
-            SchemaElement childElement = parseElementDefinition(childElementNode, parentElement.getSchemaFile());
-            if (childElement != null) {
-                parentElement.addChild(childElement);
+    private ElementConstraint findConstraint(SchemaElement schemaElement, ElementConstraint.ConstraintType type) {
+        if (schemaElement.hasConstraints()) {
+            for (ElementConstraint constraint : schemaElement.getConstraints()) {
+                if (constraint.getConstraintType() == type) {
+                    return constraint;
+                }
             }
         }
+        return null;
+    }
+
+    private OrderingRule parseModelGroup(Element groupNode, SchemaElement parentElement) {
+        switch (groupNode.getLocalName()) {
+            case "choice":
+                return parseChoiceGroup(groupNode, parentElement);
+            case "all":
+                return parseAllGroup(groupNode, parentElement);
+            default:
+                return parseSequenceGroup(groupNode, parentElement);
+        }
+    }
 
-        // Add ordering rule for sequence
+    /**
+     * Parses sequence groups (ordered elements)
+     */
+    private OrderingRule parseSequenceGroup(Element sequenceNode, SchemaElement parentElement) {
         OrderingRule orderingRule = new OrderingRule();
         orderingRule.setType(OrderingRule.OrderingType.SEQUENCE);
         orderingRule.setStrict(true);
-        // Store ordering rule in parent element (will be implemented in OrderingRule class)
+        parseParticles(sequenceNode, parentElement, orderingRule);
+        return orderingRule;
     }
 
     /**
      * Parses choice groups (alternative elements)
      */
-    private void parseChoiceGroup(Element choiceNode, SchemaElement parentElement) {
-        NodeList elements = choiceNode.getElementsByTagNameNS(XSD_NAMESPACE, "element");
-
-        for (int i = 0; i < elements.getLength(); i++) {
-            Element childElementNode = (Element) elements.item(i);
-            SchemaElement childElement = parseElementDefinition(childElementNode, parentElement.getSchemaFile());
-            if (childElement != null) {
-                parentElement.addChild(childElement);
-            }
-        }
-
-        // Add ordering rule for choice
+    private OrderingRule parseChoiceGroup(Element choiceNode, SchemaElement parentElement) {
         OrderingRule orderingRule = new OrderingRule();
         orderingRule.setType(OrderingRule.OrderingType.CHOICE);
         orderingRule.setStrict(false);
+        parseParticles(choiceNode, parentElement, orderingRule);
+        return orderingRule;
     }
 
     /**
      * Parses all groups (unordered elements)
      */
-    private void parseAllGroup(Element allNode, SchemaElement parentElement) {
-        NodeList elements = allNode.getElementsByTagNameNS(XSD_NAMESPACE, "element");
-
-        for (int i = 0; i < elements.getLength(); i++) {
-            Element childElementNode = (Element) elements.item(i);
-            SchemaElement childElement = parseElementDefinition(childElementNode, parentElement.getSchemaFile());
-            if (childElement != null) {
-                parentElement.addChild(childElement);
-            }
-        }
-
-        // Add ordering rule for all
+    private OrderingRule parseAllGroup(Element allNode, SchemaElement parentElement) {
         OrderingRule orderingRule = new OrderingRule();
         orderingRule.setType(OrderingRule.OrderingType.ALL);
         orderingRule.setStrict(false);
+        parseParticles(allNode, parentElement, orderingRule);
+        return orderingRule;
+    }
+
+    /**
+     * Reads the direct particles of a group: element declarations become children of the
+     * parent element, nested groups become nested rules. Element references, group
+     * references and wildcards are not modelled.
+     */
+    private void parseParticles(Element groupNode, SchemaElement parentElement, OrderingRule orderingRule) {
+        String minOccurs = groupNode.getAttribute("minOccurs");
+        if (!minOccurs.isEmpty()) {
+            orderingRule.setMinOccurs(parseOccurs(minOccurs, 1));
+        }
+        String maxOccurs = groupNode.getAttribute("maxOccurs");
+        if (!maxOccurs.isEmpty()) {
+            orderingRule.setMaxOccurs(parseOccurs(maxOccurs, 1));
+        }
+
+        for (Element particleNode : childElements(groupNode)) {
+            switch (particleNode.getLocalName()) {
+                case "element":
+                    SchemaElement childElement = parseElementDefinition(particleNode, parentElement.getSchemaFile());
+                    if (childElement != null) {
+                        parentElement.addChild(childElement);
+                        orderingRule.addElement(childElement.getName());
+                        orderingRule.addParticle(OrderingRule.Particle.element(childElement.getName(),
+                                childElement.getMinOccurs(), childElement.getMaxOccurs()));
+                    }
+                    break;
+                case "sequence":
+                case "choice":
+                case "all":
+                    OrderingRule nested = parseModelGroup(particleNode, parentElement);
+                    nested.setGroupName(parentElement.getName());
+                    orderingRule.addElements(nested.getElementOrder());
+                    orderingRule.addParticle(OrderingRule.Particle.group(nested));
+                    break;
+                default:
+                    logger.debug("Particle '{}' in content model of '{}' is not modelled",
+                            particleNode.getLocalName(), parentElement.getName());
+                    break;
+            }
+        }
+    }
+
+    private int parseOccurs(String value, int defaultValue) {
+        if ("unbounded".equals(value)) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid occurrence value: {}", value);
+            return defaultValue;
+        }
     }
 
     /**
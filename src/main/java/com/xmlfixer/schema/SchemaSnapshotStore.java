@@ -0,0 +1,549 @@
+package com.xmlfixer.schema;
+
+import com.xmlfixer.schema.model.ElementConstraint;
+import com.xmlfixer.schema.model.OrderingRule;
+import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.ValidationRule;
+import com.xmlfixer.validation.model.ErrorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persists analyzed schemas as compact binary snapshots so that short CLI runs can skip
+ * the XSD DOM parse and analysis. A snapshot records the size and modification time of
+ * the XSD and every schema it includes or imports; any change makes it stale.
+ * Snapshots are kept in a directory, by default a cache directory under the user's home,
+ * and named after a digest of the schema's canonical path; without a directory they are
+ * written next to the XSD.
+ */
+@Singleton
+public class SchemaSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaSnapshotStore.class);
+
+    public static final String SNAPSHOT_EXTENSION = ".xfs";
+
+    // Leading bytes of the path digest used in snapshot names
+    private static final int NAME_DIGEST_BYTES = 16;
+
+    // "XFSS" - bump FORMAT_VERSION whenever the layout below changes
+    private static final int MAGIC = 0x58465353;
+    private static final int FORMAT_VERSION = 4;
+
+    private final boolean enabled;
+    private final File snapshotDirectory;
+
+    public SchemaSnapshotStore() {
+        this(true, defaultDirectory());
+    }
+
+    /**
+     * @param snapshotDirectory where snapshots are kept; null to write them next to the XSD
+     */
+    public SchemaSnapshotStore(boolean enabled, File snapshotDirectory) {
+        this.enabled = enabled;
+        this.snapshotDirectory = snapshotDirectory;
+        logger.info("SchemaSnapshotStore initialized (enabled: {}, directory: {})",
+                enabled, snapshotDirectory != null ? snapshotDirectory : "next to schema");
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Per-user snapshot directory used when none is configured
+     */
+    public static File defaultDirectory() {
+        return new File(System.getProperty("user.home"), ".xmlfixer" + File.separator + "schema-snapshots");
+    }
+
+    /**
+     * Loads the snapshot for a schema file, or returns null if there is none or it is stale
+     */
+    public SchemaSnapshot load(File schemaFile) {
+        if (!enabled) {
+            return null;
+        }
+
+        Path snapshotPath = getSnapshotFile(schemaFile).toPath();
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+
+        try {
+            // Single sequential read of the whole snapshot
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.debug("Ignoring snapshot with foreign format: {}", snapshotPath);
+                return null;
+            }
+
+            List<File> dependencies = new ArrayList<>();
+            int dependencyCount = buffer.getInt();
+            for (int i = 0; i < dependencyCount; i++) {
+                File file = new File(readString(buffer));
+                long length = buffer.getLong();
+                long lastModified = buffer.getLong();
+                if (fileLength(file) != length || file.lastModified() != lastModified) {
+                    logger.debug("Schema snapshot is stale ({} changed): {}", file.getName(), snapshotPath);
+                    return null;
+                }
+                dependencies.add(file);
+            }
+
+            SchemaElement rootElement = readElements(buffer, schemaFile);
+            Map<String, List<ValidationRule>> validationRules = readRules(buffer);
+
+            logger.debug("Loaded schema snapshot: {}", snapshotPath);
+            return new SchemaSnapshot(rootElement, validationRules,
+                    dependencies.subList(1, dependencies.size()));
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Discarding unreadable schema snapshot: {}", snapshotPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot for a schema file. Failures are logged and never propagated,
+     * since a missing snapshot only costs a re-analysis.
+     */
+    public void save(File schemaFile, List<File> referencedSchemas, SchemaElement rootElement,
+                     Map<String, List<ValidationRule>> validationRules) {
+        if (!enabled) {
+            return;
+        }
+
+        File snapshotFile = getSnapshotFile(schemaFile);
+        Path tempFile = null;
+
+        try {
+            File directory = snapshotFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            tempFile = directory.toPath().resolve(snapshotFile.getName() + "." + System.nanoTime() + ".tmp");
+
+            try (OutputStream fileOut = Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+
+                List<File> dependencies = new ArrayList<>();
+                dependencies.add(schemaFile.getAbsoluteFile());
+                dependencies.addAll(referencedSchemas);
+                out.writeInt(dependencies.size());
+                for (File file : dependencies) {
+                    writeString(out, file.getAbsolutePath());
+                    out.writeLong(fileLength(file));
+                    out.writeLong(file.lastModified());
+                }
+
+                writeElements(out, rootElement);
+                writeRules(out, validationRules);
+            }
+
+            // Readers never observe a partially written snapshot
+            try {
+                Files.move(tempFile, snapshotFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.debug("Wrote schema snapshot: {}", snapshotFile);
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write schema snapshot: {}", snapshotFile, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // best effort
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the snapshot for a schema file if one exists
+     */
+    public void invalidate(File schemaFile) {
+        try {
+            Files.deleteIfExists(getSnapshotFile(schemaFile).toPath());
+        } catch (IOException e) {
+            logger.warn("Could not delete schema snapshot for: {}", schemaFile.getName(), e);
+        }
+    }
+
+    /**
+     * Location of the snapshot for a schema file
+     */
+    public File getSnapshotFile(File schemaFile) {
+        if (snapshotDirectory == null) {
+            return new File(schemaFile.getAbsolutePath() + SNAPSHOT_EXTENSION);
+        }
+        // Qualify with the path digest so equally named schemas do not collide
+        return new File(snapshotDirectory, schemaFile.getName() + "-" + pathDigest(schemaFile) + SNAPSHOT_EXTENSION);
+    }
+
+    private static String pathDigest(File schemaFile) {
+        String path;
+        try {
+            path = schemaFile.getCanonicalPath();
+        } catch (IOException e) {
+            path = schemaFile.getAbsolutePath();
+        }
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder sb = new StringBuilder(NAME_DIGEST_BYTES * 2);
+        for (int i = 0; i < NAME_DIGEST_BYTES; i++) {
+            sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static long fileLength(File file) {
+        return file.isFile() ? file.length() : -1L;
+    }
+
+    // ---- element tree ----
+
+    /**
+     * Writes every distinct element once; children are stored as element ids so that
+     * shared and recursive references survive the round trip
+     */
+    private void writeElements(DataOutputStream out, SchemaElement rootElement) throws IOException {
+        Map<SchemaElement, Integer> ids = new IdentityHashMap<>();
+        List<SchemaElement> ordered = new ArrayList<>();
+        Deque<SchemaElement> queue = new ArrayDeque<>();
+        ids.put(rootElement, 0);
+        ordered.add(rootElement);
+        queue.add(rootElement);
+
+        while (!queue.isEmpty()) {
+            SchemaElement element = queue.poll();
+            if (element.hasChildren()) {
+                for (SchemaElement child : element.getChildren()) {
+                    if (!ids.containsKey(child)) {
+                        ids.put(child, ordered.size());
+                        ordered.add(child);
+                        queue.add(child);
+                    }
+                }
+            }
+        }
+
+        out.writeInt(ordered.size());
+        for (SchemaElement element : ordered) {
+            writeString(out, element.getName());
+            writeString(out, element.getNamespace());
+            writeString(out, element.getType());
+            writeString(out, element.getDefaultValue());
+            writeString(out, element.getDocumentation());
+            out.writeInt(element.getMinOccurs());
+            out.writeInt(element.getMaxOccurs());
+            out.writeBoolean(element.isRequired());
+
+            List<ElementConstraint> constraints = element.hasConstraints()
+                    ? element.getConstraints() : Collections.emptyList();
+            out.writeInt(constraints.size());
+            for (ElementConstraint constraint : constraints) {
+                writeString(out, constraint.getConstraintType().name());
+                writeString(out, constraint.getValue());
+                writeString(out, constraint.getDescription());
+                out.writeBoolean(constraint.isRequired());
+                writeStringList(out, constraint.getConstraintType() == ElementConstraint.ConstraintType.ENUMERATION
+                        ? constraint.getValues() : null);
+            }
+
+            OrderingRule contentModel = element.getContentModel();
+            out.writeBoolean(contentModel != null);
+            if (contentModel != null) {
+                writeString(out, contentModel.getType() != null ? contentModel.getType().name() : null);
+                out.writeBoolean(contentModel.isStrict());
+                out.writeInt(contentModel.getMinOccurs());
+                out.writeInt(contentModel.getMaxOccurs());
+                writeString(out, contentModel.getGroupName());
+                writeString(out, contentModel.getDescription());
+                out.writeInt(contentModel.getElementCount());
+                for (int i = 0; i < contentModel.getElementCount(); i++) {
+                    writeString(out, contentModel.getElementOrder().get(i));
+                }
+                writeParticles(out, contentModel);
+            }
+
+            List<SchemaElement> children = element.hasChildren()
+                    ? element.getChildren() : Collections.emptyList();
+            out.writeInt(children.size());
+            for (SchemaElement child : children) {
+                out.writeInt(ids.get(child));
+            }
+        }
+    }
+
+    private SchemaElement readElements(ByteBuffer buffer, File schemaFile) {
+        int count = buffer.getInt();
+        SchemaElement[] elements = new SchemaElement[count];
+        int[][] childIds = new int[count][];
+
+        for (int i = 0; i < count; i++) {
+            SchemaElement element = new SchemaElement(readString(buffer));
+            element.setSchemaFile(schemaFile);
+            element.setNamespace(readString(buffer));
+            element.setType(readString(buffer));
+            element.setDefaultValue(readString(buffer));
+            element.setDocumentation(readString(buffer));
+            // minOccurs also derives 'required', so restore the stored flag afterwards
+            element.setMinOccurs(buffer.getInt());
+            element.setMaxOccurs(buffer.getInt());
+            element.setRequired(buffer.get() != 0);
+
+            int constraintCount = buffer.getInt();
+            for (int c = 0; c < constraintCount; c++) {
+                ElementConstraint.ConstraintType type = ElementConstraint.ConstraintType.valueOf(readString(buffer));
+                String value = readString(buffer);
+                String description = readString(buffer);
+                boolean constraintRequired = buffer.get() != 0;
+                List<String> values = readStringList(buffer);
+
+                ElementConstraint constraint;
+                if (values != null && values.size() > 1) {
+                    constraint = new ElementConstraint(type, values.get(0));
+                    values.subList(1, values.size()).forEach(constraint::addValue);
+                } else {
+                    constraint = new ElementConstraint(type, value);
+                }
+                constraint.setDescription(description);
+                constraint.setRequired(constraintRequired);
+                element.addConstraint(constraint);
+            }
+
+            if (buffer.get() != 0) {
+                String type = readString(buffer);
+                OrderingRule contentModel = new OrderingRule();
+                if (type != null) {
+                    contentModel.setType(OrderingRule.OrderingType.valueOf(type));
+                }
+                contentModel.setStrict(buffer.get() != 0);
+                contentModel.setMinOccurs(buffer.getInt());
+                contentModel.setMaxOccurs(buffer.getInt());
+                contentModel.setGroupName(readString(buffer));
+                contentModel.setDescription(readString(buffer));
+                int orderCount = buffer.getInt();
+                for (int o = 0; o < orderCount; o++) {
+                    contentModel.addElement(readString(buffer));
+                }
+                readParticles(buffer, contentModel);
+                element.setContentModel(contentModel);
+            }
+
+            int childCount = buffer.getInt();
+            childIds[i] = new int[childCount];
+            for (int c = 0; c < childCount; c++) {
+                childIds[i][c] = buffer.getInt();
+            }
+            elements[i] = element;
+        }
+
+        for (int i = 0; i < count; i++) {
+            List<SchemaElement> children = new ArrayList<>(childIds[i].length);
+            for (int childId : childIds[i]) {
+                children.add(elements[childId]);
+            }
+            elements[i].setChildren(children);
+        }
+
+        return elements[0];
+    }
+
+    /**
+     * Writes the particles of a group; nested groups are written recursively without their
+     * element order, which the parent already lists
+     */
+    private void writeParticles(DataOutputStream out, OrderingRule group) throws IOException {
+        List<OrderingRule.Particle> particles = group.hasParticles() ? group.getParticles() : Collections.emptyList();
+        out.writeInt(particles.size());
+        for (OrderingRule.Particle particle : particles) {
+            out.writeBoolean(particle.isGroup());
+            if (particle.isGroup()) {
+                OrderingRule nested = particle.getGroup();
+                writeString(out, nested.getType().name());
+                out.writeInt(nested.getMinOccurs());
+                out.writeInt(nested.getMaxOccurs());
+                writeParticles(out, nested);
+            } else {
+                writeString(out, particle.getElementName());
+                out.writeInt(particle.getMinOccurs());
+                out.writeInt(particle.getMaxOccurs());
+            }
+        }
+    }
+
+    private void readParticles(ByteBuffer buffer, OrderingRule group) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            if (buffer.get() != 0) {
+                OrderingRule nested = new OrderingRule(OrderingRule.OrderingType.valueOf(readString(buffer)));
+                nested.setMinOccurs(buffer.getInt());
+                nested.setMaxOccurs(buffer.getInt());
+                nested.setGroupName(group.getGroupName());
+                readParticles(buffer, nested);
+                group.addParticle(OrderingRule.Particle.group(nested));
+            } else {
+                String name = readString(buffer);
+                int minOccurs = buffer.getInt();
+                int maxOccurs = buffer.getInt();
+                group.addParticle(OrderingRule.Particle.element(name, minOccurs, maxOccurs));
+            }
+        }
+    }
+
+    // ---- validation rules ----
+
+    private void writeRules(DataOutputStream out, Map<String, List<ValidationRule>> validationRules)
+            throws IOException {
+        out.writeInt(validationRules.size());
+        for (Map.Entry<String, List<ValidationRule>> entry : validationRules.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (ValidationRule rule : entry.getValue()) {
+                writeString(out, rule.getRuleType() != null ? rule.getRuleType().name() : null);
+                writeString(out, rule.getElementName());
+                writeString(out, rule.getAttributeName());
+                writeString(out, rule.getExpectedValue());
+                writeString(out, rule.getPattern());
+                writeString(out, rule.getDataType());
+                writeString(out, rule.getDescription());
+                out.writeBoolean(rule.isRequired());
+                out.writeInt(rule.getMinOccurs());
+                out.writeInt(rule.getMaxOccurs());
+                writeString(out, rule.getSeverity() != null ? rule.getSeverity().name() : null);
+                writeString(out, rule.getRelatedErrorType() != null ? rule.getRelatedErrorType().name() : null);
+                writeStringList(out, rule.getRuleType() == ValidationRule.RuleType.ENUMERATION
+                        ? rule.getAllowedValues() : null);
+            }
+        }
+    }
+
+    private Map<String, List<ValidationRule>> readRules(ByteBuffer buffer) {
+        int setCount = buffer.getInt();
+        Map<String, List<ValidationRule>> validationRules = new HashMap<>(setCount * 2);
+
+        for (int i = 0; i < setCount; i++) {
+            String key = readString(buffer);
+            int ruleCount = buffer.getInt();
+            List<ValidationRule> rules = new ArrayList<>(ruleCount);
+
+            for (int r = 0; r < ruleCount; r++) {
+                String ruleType = readString(buffer);
+                ValidationRule rule = new ValidationRule(
+                        ruleType != null ? ValidationRule.RuleType.valueOf(ruleType) : null, readString(buffer));
+                rule.setAttributeName(readString(buffer));
+                rule.setExpectedValue(readString(buffer));
+                rule.setPattern(readString(buffer));
+                rule.setDataType(readString(buffer));
+                rule.setDescription(readString(buffer));
+                rule.setRequired(buffer.get() != 0);
+                rule.setMinOccurs(buffer.getInt());
+                rule.setMaxOccurs(buffer.getInt());
+                String severity = readString(buffer);
+                rule.setSeverity(severity != null ? ValidationRule.Severity.valueOf(severity) : null);
+                // Setters above derive an error type; the stored one wins
+                String errorType = readString(buffer);
+                rule.setRelatedErrorType(errorType != null ? ErrorType.valueOf(errorType) : null);
+                rule.setAllowedValues(readStringList(buffer));
+                rules.add(rule);
+            }
+
+            validationRules.put(key, rules);
+        }
+
+        return validationRules;
+    }
+
+    // ---- primitives ----
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void writeStringList(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStringList(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    /**
+     * Analysis output restored from a snapshot, not yet compiled
+     */
+    public static final class SchemaSnapshot {
+        private final SchemaElement rootElement;
+        private final Map<String, List<ValidationRule>> validationRules;
+        private final List<File> referencedSchemas;
+
+        SchemaSnapshot(SchemaElement rootElement, Map<String, List<ValidationRule>> validationRules,
+                       List<File> referencedSchemas) {
+            this.rootElement = rootElement;
+            this.validationRules = validationRules;
+            this.referencedSchemas = referencedSchemas;
+        }
+
+        public SchemaElement getRootElement() { return rootElement; }
+        public Map<String, List<ValidationRule>> getValidationRules() { return validationRules; }
+        public List<File> getReferencedSchemas() { return referencedSchemas; }
+    }
+}
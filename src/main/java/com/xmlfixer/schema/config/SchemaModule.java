@@ -1,12 +1,17 @@
 package com.xmlfixer.schema.config;
 
+import com.xmlfixer.parsing.ParserPool;
 import com.xmlfixer.schema.SchemaAnalyzer;
+import com.xmlfixer.schema.SchemaCache;
 import com.xmlfixer.schema.SchemaConstraintExtractor;
 import com.xmlfixer.schema.SchemaParser;
+import com.xmlfixer.schema.SchemaSnapshotStore;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
+import java.io.File;
+import java.util.Properties;
 
 /**
  * Dagger module for schema-related dependencies
@@ -16,8 +21,10 @@ public class SchemaModule {
 
     @Provides
     @Singleton
-    public SchemaParser provideSchemaParser() {
-        return new SchemaParser();
+    public SchemaParser provideSchemaParser(Properties properties) {
+        int parserPoolSize = Integer.parseInt(properties.getProperty(
+                "xml.parser.pool.size", String.valueOf(ParserPool.DEFAULT_MAX_IDLE)));
+        return new SchemaParser(parserPoolSize);
     }
 
     @Provides
@@ -28,7 +35,25 @@ public class SchemaModule {
 
     @Provides
     @Singleton
-    public SchemaAnalyzer provideSchemaAnalyzer(SchemaParser schemaParser) {
-        return new SchemaAnalyzer(schemaParser);
+    public SchemaCache provideSchemaCache(Properties properties) {
+        int maxEntries = Integer.parseInt(properties.getProperty(
+                "schema.cache.max.entries", String.valueOf(SchemaCache.DEFAULT_MAX_ENTRIES)));
+        return new SchemaCache(maxEntries);
+    }
+
+    @Provides
+    @Singleton
+    public SchemaSnapshotStore provideSchemaSnapshotStore(Properties properties) {
+        boolean enabled = Boolean.parseBoolean(properties.getProperty("schema.snapshot.enabled", "true"));
+        String directory = properties.getProperty("schema.snapshot.dir", "").trim();
+        return new SchemaSnapshotStore(enabled,
+                directory.isEmpty() ? SchemaSnapshotStore.defaultDirectory() : new File(directory));
+    }
+
+    @Provides
+    @Singleton
+    public SchemaAnalyzer provideSchemaAnalyzer(SchemaParser schemaParser, SchemaCache schemaCache,
+                                                SchemaSnapshotStore snapshotStore) {
+        return new SchemaAnalyzer(schemaParser, schemaCache, snapshotStore);
     }
 }
@@ -0,0 +1,70 @@
+package com.xmlfixer.schema.datatype;
+
+/**
+ * Digit counts used by the totalDigits and fractionDigits facets, computed in place.
+ * Both return -1 when the text is not a plain decimal number.
+ */
+public final class DecimalDigits {
+
+    private DecimalDigits() {
+    }
+
+    /**
+     * Number of digits needed to write the value as i x 10^-n: leading zeros and trailing
+     * fraction zeros do not count, so "000123.4500" has 5
+     */
+    public static int totalDigits(char[] ch, int start, int length) {
+        return count(ch, start, length, true);
+    }
+
+    /**
+     * Number of fraction digits, ignoring trailing zeros
+     */
+    public static int fractionDigits(char[] ch, int start, int length) {
+        return count(ch, start, length, false);
+    }
+
+    private static int count(char[] ch, int start, int length, boolean total) {
+        int from = start;
+        int to = start + length;
+        while (from < to && isSpace(ch[from])) from++;
+        while (to > from && isSpace(ch[to - 1])) to--;
+
+        int p = from;
+        if (p < to && (ch[p] == '+' || ch[p] == '-')) p++;
+        int integerStart = p;
+        while (p < to && isDigit(ch[p])) p++;
+        int integerEnd = p;
+        int fractionStart = p;
+        int fractionEnd = p;
+        if (p < to && ch[p] == '.') {
+            fractionStart = ++p;
+            while (p < to && isDigit(ch[p])) p++;
+            fractionEnd = p;
+        }
+        if (p != to || (integerEnd == integerStart && fractionEnd == fractionStart)) {
+            return -1;
+        }
+
+        while (fractionEnd > fractionStart && ch[fractionEnd - 1] == '0') fractionEnd--;
+        int fraction = fractionEnd - fractionStart;
+        if (!total) {
+            return fraction;
+        }
+
+        while (integerStart < integerEnd && ch[integerStart] == '0') integerStart++;
+        if (integerStart < integerEnd) {
+            return (integerEnd - integerStart) + fraction;
+        }
+        // Pure fractions such as 0.0012 need as many digits as their scale
+        return fraction;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
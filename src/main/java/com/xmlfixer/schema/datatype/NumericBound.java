@@ -0,0 +1,138 @@
+package com.xmlfixer.schema.datatype;
+
+import java.math.BigDecimal;
+
+/**
+ * Bound of a min/max inclusive/exclusive facet, parsed once when the schema is compiled.
+ * Values are compared with primitive longs when both sides are integers of at most
+ * 18 digits; fractions that cannot change the outcome are decided without parsing, and
+ * everything else falls back to BigDecimal.
+ */
+public final class NumericBound {
+
+    /** Returned by compareTo when the value is not a decimal or floating-point number */
+    public static final int NOT_COMPARABLE = Integer.MIN_VALUE;
+
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final String lexical;
+    private final BigDecimal decimal;
+    private final boolean fitsLong;
+    private final long longValue;
+
+    private NumericBound(String lexical, BigDecimal decimal) {
+        this.lexical = lexical;
+        this.decimal = decimal;
+
+        boolean integral = decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0;
+        long value = 0;
+        boolean fits = false;
+        if (integral && decimal.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0) {
+            value = decimal.longValue();
+            fits = true;
+        }
+        this.fitsLong = fits;
+        this.longValue = value;
+    }
+
+    /**
+     * Parses a facet value; returns null if it is not numeric (e.g. a date bound)
+     */
+    public static NumericBound parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return new NumericBound(trimmed, new BigDecimal(trimmed));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public BigDecimal getDecimal() { return decimal; }
+
+    /**
+     * Compares the number in ch[start, start + length) with this bound.
+     * Returns a negative, zero or positive result, or NOT_COMPARABLE for non-numeric text.
+     */
+    public int compareTo(char[] ch, int start, int length) {
+        int from = start;
+        int to = start + length;
+        while (from < to && isSpace(ch[from])) from++;
+        while (to > from && isSpace(ch[to - 1])) to--;
+
+        int p = from;
+        boolean negative = false;
+        if (p < to && (ch[p] == '+' || ch[p] == '-')) {
+            negative = ch[p] == '-';
+            p++;
+        }
+        int integerStart = p;
+        while (p < to && isDigit(ch[p])) p++;
+        int integerEnd = p;
+
+        boolean fractionNonZero = false;
+        int fractionStart = p;
+        if (p < to && ch[p] == '.') {
+            fractionStart = ++p;
+            for (; p < to && isDigit(ch[p]); p++) {
+                fractionNonZero |= ch[p] != '0';
+            }
+        }
+        if (integerEnd == integerStart && p == fractionStart) {
+            return NOT_COMPARABLE;
+        }
+
+        boolean exponent = false;
+        if (p < to && (ch[p] == 'e' || ch[p] == 'E')) {
+            p++;
+            if (p < to && (ch[p] == '+' || ch[p] == '-')) p++;
+            int exponentStart = p;
+            while (p < to && isDigit(ch[p])) p++;
+            if (p == exponentStart) {
+                return NOT_COMPARABLE;
+            }
+            exponent = true;
+        }
+        if (p != to) {
+            return NOT_COMPARABLE;
+        }
+
+        int significantStart = integerStart;
+        while (significantStart < integerEnd && ch[significantStart] == '0') significantStart++;
+
+        if (fitsLong && !exponent && integerEnd - significantStart <= MAX_LONG_DIGITS) {
+            long value = 0;
+            for (int i = significantStart; i < integerEnd; i++) {
+                value = value * 10 + (ch[i] - '0');
+            }
+            if (negative) {
+                value = -value;
+            }
+            // The integer part decides unless it equals the bound; then the fraction tips it
+            if (value != longValue) {
+                return Long.compare(value, longValue);
+            }
+            if (!fractionNonZero) {
+                return 0;
+            }
+            return negative ? -1 : 1;
+        }
+
+        return new BigDecimal(ch, from, to - from).compareTo(decimal);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    @Override
+    public String toString() {
+        return lexical;
+    }
+}
@@ -0,0 +1,118 @@
+package com.xmlfixer.schema.datatype;
+
+/**
+ * Incremental checks for element values that are validated without being buffered.
+ * Text is fed chunk by chunk as the SAX parser delivers it; the scanner keeps the trimmed
+ * length and whether the text so far can still be hexBinary or base64Binary, so a large
+ * binary payload is checked in one pass with constant memory. Reusable after reset;
+ * confine each instance to a single thread.
+ */
+public final class ValueScanner {
+
+    private int length;
+    private int trailing;
+    private boolean started;
+
+    private int hexDigits;
+    private boolean hexValid;
+    private boolean hexEnded;
+
+    private int base64Count;
+    private int base64Padding;
+    private boolean base64Valid;
+
+    public ValueScanner() {
+        reset();
+    }
+
+    public void reset() {
+        length = 0;
+        trailing = 0;
+        started = false;
+        hexDigits = 0;
+        hexValid = true;
+        hexEnded = false;
+        base64Count = 0;
+        base64Padding = 0;
+        base64Valid = true;
+    }
+
+    /**
+     * Feeds the next chunk of the value
+     */
+    public void append(char[] ch, int start, int count) {
+        for (int i = start, end = start + count; i < end; i++) {
+            char c = ch[i];
+            if (c <= ' ') {
+                // Leading whitespace is not part of the trimmed value; trailing runs are undone at the end
+                if (started) {
+                    length++;
+                    trailing++;
+                    hexEnded = true;
+                }
+                continue;
+            }
+            started = true;
+            length++;
+            trailing = 0;
+
+            if (hexValid) {
+                if (hexEnded || !isHexDigit(c)) {
+                    hexValid = false;
+                } else {
+                    hexDigits++;
+                }
+            }
+
+            if (base64Valid) {
+                if (c == '=') {
+                    base64Padding++;
+                    base64Count++;
+                } else if (base64Padding > 0 || !isBase64Char(c)) {
+                    base64Valid = false;
+                } else {
+                    base64Count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * True while only whitespace has been fed
+     */
+    public boolean isBlank() {
+        return !started;
+    }
+
+    /**
+     * Length of the value without leading and trailing whitespace, as String.trim would give
+     */
+    public int getTrimmedLength() {
+        return length - trailing;
+    }
+
+    /**
+     * Checks the value fed so far against a datatype that isStreamable
+     */
+    public boolean isValid(XsdDatatype datatype) {
+        switch (datatype) {
+            case HEX_BINARY:
+                return started && hexValid && (hexDigits & 1) == 0;
+            case BASE64_BINARY:
+                return started && base64Valid && base64Padding <= 2 && base64Count % 4 == 0;
+            default:
+                if (!datatype.isStreamable()) {
+                    throw new IllegalArgumentException("Datatype cannot be checked incrementally: " + datatype);
+                }
+                return true;
+        }
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isBase64Char(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+    }
+}
@@ -0,0 +1,557 @@
+package com.xmlfixer.schema.datatype;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lexical checkers for the built-in XSD datatypes.
+ * Each check scans a char[] range in place, without parsing to boxed values, allocating or
+ * throwing, so it can run straight from a SAX characters() buffer. Leading and trailing
+ * whitespace is ignored for every type except the string family, matching whiteSpace="collapse".
+ */
+public enum XsdDatatype {
+
+    STRING("string", Kind.ANY, null, null),
+    NORMALIZED_STRING("normalizedString", Kind.ANY, null, null),
+    TOKEN("token", Kind.ANY, null, null),
+    BOOLEAN("boolean", Kind.BOOLEAN, null, null),
+    DECIMAL("decimal", Kind.DECIMAL, null, null),
+    INTEGER("integer", Kind.INTEGER, null, null),
+    LONG("long", Kind.INTEGER, "-9223372036854775808", "9223372036854775807"),
+    INT("int", Kind.INTEGER, "-2147483648", "2147483647"),
+    SHORT("short", Kind.INTEGER, "-32768", "32767"),
+    BYTE("byte", Kind.INTEGER, "-128", "127"),
+    NON_NEGATIVE_INTEGER("nonNegativeInteger", Kind.INTEGER, "0", null),
+    POSITIVE_INTEGER("positiveInteger", Kind.INTEGER, "1", null),
+    NON_POSITIVE_INTEGER("nonPositiveInteger", Kind.INTEGER, null, "0"),
+    NEGATIVE_INTEGER("negativeInteger", Kind.INTEGER, null, "-1"),
+    UNSIGNED_LONG("unsignedLong", Kind.INTEGER, "0", "18446744073709551615"),
+    UNSIGNED_INT("unsignedInt", Kind.INTEGER, "0", "4294967295"),
+    UNSIGNED_SHORT("unsignedShort", Kind.INTEGER, "0", "65535"),
+    UNSIGNED_BYTE("unsignedByte", Kind.INTEGER, "0", "255"),
+    FLOAT("float", Kind.FLOATING, null, null),
+    DOUBLE("double", Kind.FLOATING, null, null),
+    DATE("date", Kind.DATE, null, null),
+    DATE_TIME("dateTime", Kind.DATE_TIME, null, null),
+    TIME("time", Kind.TIME, null, null),
+    DURATION("duration", Kind.DURATION, null, null),
+    G_YEAR("gYear", Kind.G_YEAR, null, null),
+    G_YEAR_MONTH("gYearMonth", Kind.G_YEAR_MONTH, null, null),
+    G_MONTH("gMonth", Kind.G_MONTH, null, null),
+    G_MONTH_DAY("gMonthDay", Kind.G_MONTH_DAY, null, null),
+    G_DAY("gDay", Kind.G_DAY, null, null),
+    HEX_BINARY("hexBinary", Kind.HEX_BINARY, null, null),
+    BASE64_BINARY("base64Binary", Kind.BASE64_BINARY, null, null);
+
+    private enum Kind {
+        ANY, BOOLEAN, DECIMAL, INTEGER, FLOATING, DATE, DATE_TIME, TIME, DURATION,
+        G_YEAR, G_YEAR_MONTH, G_MONTH, G_MONTH_DAY, G_DAY, HEX_BINARY, BASE64_BINARY
+    }
+
+    private static final Map<String, XsdDatatype> BY_NAME = new HashMap<>();
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[64]);
+
+    static {
+        for (XsdDatatype datatype : values()) {
+            BY_NAME.put(datatype.xsdName, datatype);
+        }
+    }
+
+    private final String xsdName;
+    private final Kind kind;
+    private final String lowerBound;
+    private final String upperBound;
+
+    XsdDatatype(String xsdName, Kind kind, String lowerBound, String upperBound) {
+        this.xsdName = xsdName;
+        this.kind = kind;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Resolves a type reference such as "xs:int" or "int"; returns null for user-defined
+     * or unsupported types
+     */
+    public static XsdDatatype forName(String typeName) {
+        if (typeName == null) {
+            return null;
+        }
+        int colon = typeName.indexOf(':');
+        return BY_NAME.get(colon >= 0 ? typeName.substring(colon + 1) : typeName);
+    }
+
+    public String getXsdName() { return xsdName; }
+
+    /**
+     * True for the string family, whose lexical space accepts any text
+     */
+    public boolean isUnrestricted() {
+        return kind == Kind.ANY;
+    }
+
+    /**
+     * True if a ValueScanner can check the type chunk by chunk, without the whole value
+     */
+    public boolean isStreamable() {
+        return kind == Kind.ANY || kind == Kind.HEX_BINARY || kind == Kind.BASE64_BINARY;
+    }
+
+    /**
+     * Checks a value held in a CharSequence; copies it into a per-thread scratch buffer
+     */
+    public boolean isValid(CharSequence value) {
+        int length = value.length();
+        char[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new char[Math.max(length, scratch.length * 2)];
+            SCRATCH.set(scratch);
+        }
+        if (value instanceof String) {
+            ((String) value).getChars(0, length, scratch, 0);
+        } else if (value instanceof StringBuilder) {
+            ((StringBuilder) value).getChars(0, length, scratch, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                scratch[i] = value.charAt(i);
+            }
+        }
+        return isValid(scratch, 0, length);
+    }
+
+    /**
+     * Checks the lexical form in ch[start, start + length)
+     */
+    public boolean isValid(char[] ch, int start, int length) {
+        if (kind == Kind.ANY) {
+            return true;
+        }
+
+        int from = start;
+        int to = start + length;
+        while (from < to && isSpace(ch[from])) from++;
+        while (to > from && isSpace(ch[to - 1])) to--;
+        if (from == to) {
+            return false;
+        }
+
+        int p;
+        switch (kind) {
+            case BOOLEAN:
+                return checkBoolean(ch, from, to);
+            case DECIMAL:
+                return checkDecimal(ch, from, to);
+            case INTEGER:
+                return checkInteger(ch, from, to);
+            case FLOATING:
+                return checkFloating(ch, from, to);
+            case DATE:
+                p = scanDate(ch, from, to);
+                return scanTimezone(ch, p, to) == to;
+            case DATE_TIME:
+                p = scanDate(ch, from, to);
+                p = expect(ch, p, to, 'T');
+                p = scanTime(ch, p, to);
+                return scanTimezone(ch, p, to) == to;
+            case TIME:
+                p = scanTime(ch, from, to);
+                return scanTimezone(ch, p, to) == to;
+            case DURATION:
+                return checkDuration(ch, from, to);
+            case G_YEAR:
+                p = scanYear(ch, from, to);
+                return scanTimezone(ch, p, to) == to;
+            case G_YEAR_MONTH:
+                p = scanYear(ch, from, to);
+                p = expect(ch, p, to, '-');
+                p = scanMonth(ch, p, to);
+                return scanTimezone(ch, p, to) == to;
+            case G_MONTH:
+                p = expect(ch, expect(ch, from, to, '-'), to, '-');
+                p = scanMonth(ch, p, to);
+                return scanTimezone(ch, p, to) == to;
+            case G_MONTH_DAY:
+                return checkMonthDay(ch, from, to);
+            case G_DAY: {
+                p = expect(ch, expect(ch, expect(ch, from, to, '-'), to, '-'), to, '-');
+                int day = twoDigits(ch, p, to);
+                if (day < 1 || day > 31) {
+                    return false;
+                }
+                return scanTimezone(ch, p + 2, to) == to;
+            }
+            case HEX_BINARY:
+                return checkHexBinary(ch, from, to);
+            case BASE64_BINARY:
+                return checkBase64(ch, from, to);
+            default:
+                return true;
+        }
+    }
+
+    // ---- numbers ----
+
+    private static boolean checkBoolean(char[] ch, int from, int to) {
+        int length = to - from;
+        if (length == 1) {
+            return ch[from] == '0' || ch[from] == '1';
+        }
+        return regionEquals(ch, from, to, "true") || regionEquals(ch, from, to, "false");
+    }
+
+    private static boolean checkDecimal(char[] ch, int from, int to) {
+        int p = from;
+        if (ch[p] == '+' || ch[p] == '-') p++;
+        return scanMantissa(ch, p, to) == to;
+    }
+
+    /**
+     * Scans digits with an optional fraction, requiring at least one digit overall
+     */
+    private static int scanMantissa(char[] ch, int p, int to) {
+        int integerStart = p;
+        p = skipDigits(ch, p, to);
+        boolean hasDigits = p > integerStart;
+        if (p < to && ch[p] == '.') {
+            int fractionStart = ++p;
+            p = skipDigits(ch, p, to);
+            hasDigits |= p > fractionStart;
+        }
+        return hasDigits ? p : -1;
+    }
+
+    private boolean checkInteger(char[] ch, int from, int to) {
+        int p = from;
+        if (ch[p] == '+' || ch[p] == '-') p++;
+        int digitsStart = p;
+        p = skipDigits(ch, p, to);
+        if (p != to || p == digitsStart) {
+            return false;
+        }
+
+        // Compare against the bounds digit by digit, so unsignedLong and integer need no BigInteger
+        while (digitsStart < to && ch[digitsStart] == '0') digitsStart++;
+        boolean negative = ch[from] == '-' && digitsStart < to;
+        if (upperBound != null && compare(negative, ch, digitsStart, to, upperBound) > 0) {
+            return false;
+        }
+        return lowerBound == null || compare(negative, ch, digitsStart, to, lowerBound) >= 0;
+    }
+
+    /**
+     * Compares a signed digit run (without leading zeros) to a decimal bound
+     */
+    private static int compare(boolean negative, char[] ch, int from, int to, String bound) {
+        boolean boundNegative = bound.charAt(0) == '-';
+        int boundStart = boundNegative ? 1 : 0;
+        while (boundStart < bound.length() && bound.charAt(boundStart) == '0') boundStart++;
+
+        if (negative != boundNegative) {
+            return negative ? -1 : 1;
+        }
+
+        int magnitude;
+        int length = to - from;
+        int boundLength = bound.length() - boundStart;
+        if (length != boundLength) {
+            magnitude = length < boundLength ? -1 : 1;
+        } else {
+            magnitude = 0;
+            for (int i = 0; i < length && magnitude == 0; i++) {
+                magnitude = Character.compare(ch[from + i], bound.charAt(boundStart + i));
+            }
+        }
+        return negative ? -magnitude : magnitude;
+    }
+
+    private static boolean checkFloating(char[] ch, int from, int to) {
+        if (regionEquals(ch, from, to, "INF") || regionEquals(ch, from, to, "-INF")
+                || regionEquals(ch, from, to, "+INF") || regionEquals(ch, from, to, "NaN")) {
+            return true;
+        }
+        int p = from;
+        if (ch[p] == '+' || ch[p] == '-') p++;
+        p = scanMantissa(ch, p, to);
+        if (p < 0) {
+            return false;
+        }
+        if (p < to && (ch[p] == 'e' || ch[p] == 'E')) {
+            p++;
+            if (p < to && (ch[p] == '+' || ch[p] == '-')) p++;
+            int exponentStart = p;
+            p = skipDigits(ch, p, to);
+            if (p == exponentStart) {
+                return false;
+            }
+        }
+        return p == to;
+    }
+
+    // ---- dates and times ----
+
+    /**
+     * Scans an optionally negative year of at least four digits; returns the end or -1
+     */
+    private static int scanYear(char[] ch, int p, int to) {
+        if (p < 0) return -1;
+        if (p < to && ch[p] == '-') p++;
+        int yearStart = p;
+        p = skipDigits(ch, p, to);
+        int length = p - yearStart;
+        if (length < 4 || (length > 4 && ch[yearStart] == '0')) {
+            return -1;
+        }
+        // Year 0000 is not allowed in XSD 1.0
+        for (int i = yearStart; i < p; i++) {
+            if (ch[i] != '0') {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static int scanMonth(char[] ch, int p, int to) {
+        int month = twoDigits(ch, p, to);
+        return month >= 1 && month <= 12 ? p + 2 : -1;
+    }
+
+    private static int scanDate(char[] ch, int from, int to) {
+        int yearEnd = scanYear(ch, from, to);
+        if (yearEnd < 0) {
+            return -1;
+        }
+        int p = expect(ch, yearEnd, to, '-');
+        int month = twoDigits(ch, p, to);
+        if (month < 1 || month > 12) {
+            return -1;
+        }
+        p = expect(ch, p + 2, to, '-');
+        int day = twoDigits(ch, p, to);
+        int yearStart = ch[from] == '-' ? from + 1 : from;
+        if (day < 1 || day > daysInMonth(month, yearMod400(ch, yearStart, yearEnd))) {
+            return -1;
+        }
+        return p + 2;
+    }
+
+    private static int scanTime(char[] ch, int p, int to) {
+        int hour = twoDigits(ch, p, to);
+        p = expect(ch, p + 2, to, ':');
+        int minute = twoDigits(ch, p, to);
+        p = expect(ch, p + 2, to, ':');
+        int second = twoDigits(ch, p, to);
+        if (hour < 0 || minute < 0 || second < 0 || hour > 24 || minute > 59 || second > 59) {
+            return -1;
+        }
+        p += 2;
+
+        boolean fractionZero = true;
+        if (p < to && ch[p] == '.') {
+            int fractionStart = ++p;
+            for (; p < to && isDigit(ch[p]); p++) {
+                fractionZero &= ch[p] == '0';
+            }
+            if (p == fractionStart) {
+                return -1;
+            }
+        }
+        // 24:00:00 is the only valid time in hour 24
+        if (hour == 24 && (minute != 0 || second != 0 || !fractionZero)) {
+            return -1;
+        }
+        return p;
+    }
+
+    /**
+     * Scans an optional 'Z' or (+|-)hh:mm timezone; returns p unchanged if there is none
+     */
+    private static int scanTimezone(char[] ch, int p, int to) {
+        if (p < 0 || p >= to) {
+            return p;
+        }
+        if (ch[p] == 'Z') {
+            return p + 1;
+        }
+        if (ch[p] != '+' && ch[p] != '-') {
+            return p;
+        }
+        int hour = twoDigits(ch, p + 1, to);
+        int q = expect(ch, p + 3, to, ':');
+        int minute = twoDigits(ch, q, to);
+        if (hour < 0 || minute < 0 || hour > 14 || minute > 59 || (hour == 14 && minute != 0)) {
+            return -1;
+        }
+        return q + 2;
+    }
+
+    private static boolean checkMonthDay(char[] ch, int from, int to) {
+        int p = expect(ch, expect(ch, from, to, '-'), to, '-');
+        int month = twoDigits(ch, p, to);
+        p = expect(ch, p + 2, to, '-');
+        int day = twoDigits(ch, p, to);
+        // Without a year, February 29 is allowed
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(month, 0)) {
+            return false;
+        }
+        return scanTimezone(ch, p + 2, to) == to;
+    }
+
+    private static boolean checkDuration(char[] ch, int from, int to) {
+        int p = from;
+        if (ch[p] == '-') p++;
+        if (p >= to || ch[p] != 'P') {
+            return false;
+        }
+        p++;
+
+        boolean any = false;
+        int order = 0;
+        while (p < to && ch[p] != 'T') {
+            int digitsStart = p;
+            p = skipDigits(ch, p, to);
+            if (p == digitsStart || p >= to) {
+                return false;
+            }
+            char designator = ch[p++];
+            int position = designator == 'Y' ? 1 : designator == 'M' ? 2 : designator == 'D' ? 3 : 0;
+            if (position <= order) {
+                return false;
+            }
+            order = position;
+            any = true;
+        }
+
+        if (p < to) {
+            p++;
+            boolean anyTime = false;
+            order = 0;
+            while (p < to) {
+                int digitsStart = p;
+                p = skipDigits(ch, p, to);
+                if (p == digitsStart) {
+                    return false;
+                }
+                boolean fraction = false;
+                if (p < to && ch[p] == '.') {
+                    int fractionStart = ++p;
+                    p = skipDigits(ch, p, to);
+                    if (p == fractionStart) {
+                        return false;
+                    }
+                    fraction = true;
+                }
+                if (p >= to) {
+                    return false;
+                }
+                char designator = ch[p++];
+                int position = designator == 'H' ? 1 : designator == 'M' ? 2 : designator == 'S' ? 3 : 0;
+                if (position <= order || (fraction && position != 3)) {
+                    return false;
+                }
+                order = position;
+                anyTime = true;
+            }
+            if (!anyTime) {
+                return false;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private static int daysInMonth(int month, int yearMod400) {
+        switch (month) {
+            case 2:
+                boolean leap = (yearMod400 % 4 == 0 && yearMod400 % 100 != 0) || yearMod400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int yearMod400(char[] ch, int from, int to) {
+        int mod = 0;
+        for (int i = from; i < to; i++) {
+            mod = (mod * 10 + (ch[i] - '0')) % 400;
+        }
+        return mod;
+    }
+
+    // ---- binary ----
+
+    private static boolean checkHexBinary(char[] ch, int from, int to) {
+        if (((to - from) & 1) != 0) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = ch[i];
+            if (!isDigit(c) && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean checkBase64(char[] ch, int from, int to) {
+        int count = 0;
+        int padding = 0;
+        for (int i = from; i < to; i++) {
+            char c = ch[i];
+            // Encoded data is commonly wrapped into lines
+            if (isSpace(c)) {
+                continue;
+            }
+            if (c == '=') {
+                padding++;
+            } else if (padding > 0 || !isBase64Char(c)) {
+                return false;
+            }
+            count++;
+        }
+        return padding <= 2 && count % 4 == 0;
+    }
+
+    private static boolean isBase64Char(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || isDigit(c) || c == '+' || c == '/';
+    }
+
+    // ---- primitives ----
+
+    private static int twoDigits(char[] ch, int p, int to) {
+        if (p < 0 || p + 2 > to || !isDigit(ch[p]) || !isDigit(ch[p + 1])) {
+            return -1;
+        }
+        return (ch[p] - '0') * 10 + (ch[p + 1] - '0');
+    }
+
+    private static int expect(char[] ch, int p, int to, char expected) {
+        return p >= 0 && p < to && ch[p] == expected ? p + 1 : -1;
+    }
+
+    private static int skipDigits(char[] ch, int p, int to) {
+        while (p < to && isDigit(ch[p])) p++;
+        return p;
+    }
+
+    private static boolean regionEquals(char[] ch, int from, int to, String expected) {
+        if (to - from != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (ch[from + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
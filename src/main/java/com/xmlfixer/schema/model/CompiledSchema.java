@@ -0,0 +1,135 @@
+package com.xmlfixer.schema.model;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, fully analyzed form of an XSD schema.
+ * Produced once per schema version by the SchemaAnalyzer and shared between validation
+ * and correction runs on any thread. The element tree and rules it exposes are sealed,
+ * so callers can read them concurrently without copying or locking.
+ */
+public final class CompiledSchema {
+
+    private final File schemaFile;
+    private final SchemaElement rootElement;
+    private final Map<String, List<ValidationRule>> validationRules;
+    private final Map<String, SchemaElement> elementsByName;
+    private final List<File> referencedSchemas;
+    private final int elementCount;
+    private final List<String> compilationProblems;
+    private final long compiledAt;
+
+    public CompiledSchema(File schemaFile, SchemaElement rootElement,
+                          Map<String, List<ValidationRule>> validationRules,
+                          Map<String, SchemaElement> elementsByName, List<File> referencedSchemas,
+                          int elementCount, List<String> compilationProblems) {
+        this.schemaFile = schemaFile;
+        this.rootElement = rootElement;
+        this.validationRules = Collections.unmodifiableMap(validationRules);
+        this.elementsByName = Collections.unmodifiableMap(elementsByName);
+        this.referencedSchemas = Collections.unmodifiableList(referencedSchemas);
+        this.elementCount = elementCount;
+        this.compilationProblems = Collections.unmodifiableList(compilationProblems);
+        this.compiledAt = System.currentTimeMillis();
+    }
+
+    public File getSchemaFile() { return schemaFile; }
+    public SchemaElement getRootElement() { return rootElement; }
+    public int getElementCount() { return elementCount; }
+    public long getCompiledAt() { return compiledAt; }
+
+    /**
+     * Schema files the schema includes or imports, directly or through other schemas
+     */
+    public List<File> getReferencedSchemas() { return referencedSchemas; }
+
+    /**
+     * Schema defects found while compiling, such as facet patterns that do not compile.
+     * The affected checks are skipped during validation.
+     */
+    public List<String> getCompilationProblems() { return compilationProblems; }
+
+    /**
+     * Validation rules grouped by element name
+     */
+    public Map<String, List<ValidationRule>> getValidationRules() { return validationRules; }
+
+    /**
+     * Returns the rules for an element, or an empty list if it has none
+     */
+    public List<ValidationRule> getRules(String elementName) {
+        List<ValidationRule> rules = validationRules.get(elementName);
+        return rules != null ? rules : Collections.emptyList();
+    }
+
+    /**
+     * Finds the element with the given name closest to the root; among definitions at the
+     * same depth, the one reached first from the root breadth-first
+     */
+    public SchemaElement findElement(String elementName) {
+        return elementName != null ? elementsByName.get(elementName) : null;
+    }
+
+    /**
+     * Finds an element by a slash-separated path such as "/root/child"
+     */
+    public SchemaElement findElementByPath(String path) {
+        if (path == null || path.isEmpty() || "/".equals(path)) {
+            return rootElement;
+        }
+
+        String[] pathParts = path.split("/");
+        SchemaElement current = rootElement;
+        boolean first = true;
+
+        for (String part : pathParts) {
+            if (part.isEmpty()) continue;
+
+            // Leading segment may name the root itself
+            if (first && part.equals(rootElement.getName())) {
+                first = false;
+                continue;
+            }
+            first = false;
+
+            current = getChild(current, part);
+            if (current == null) {
+                return null;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Looks up a direct child definition by name
+     */
+    public SchemaElement getChild(SchemaElement parent, String childName) {
+        return parent != null ? parent.getChild(childName) : null;
+    }
+
+    /**
+     * Returns the children that must appear at least once within the parent
+     */
+    public List<SchemaElement> getRequiredChildren(SchemaElement parent) {
+        return parent != null ? parent.getRequiredChildren() : Collections.emptyList();
+    }
+
+    /**
+     * Returns the sequence, choice or all group declared for the parent, if any
+     */
+    public OrderingRule getContentModel(SchemaElement parent) {
+        return parent != null ? parent.getContentModel() : null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledSchema{schema='%s', root='%s', elements=%d, ruleSets=%d}",
+                schemaFile != null ? schemaFile.getName() : null,
+                rootElement != null ? rootElement.getName() : null,
+                elementCount, validationRules.size());
+    }
+}
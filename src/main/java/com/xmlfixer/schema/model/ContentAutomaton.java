@@ -0,0 +1,464 @@
+package com.xmlfixer.schema.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic automaton compiled from the sequence, choice or all group of an element.
+ * A validator keeps one long of state per open element and advances it with a single table
+ * lookup per child, so ordering, choice and occurrence bounds are checked while streaming
+ * without collecting the child list. Sequences and choices go through the Glushkov
+ * construction and subset construction, with counted repetitions unrolled; an all group is
+ * kept as a bit mask of the children seen so far. Instances are immutable and may be shared
+ * between threads.
+ */
+public final class ContentAutomaton {
+
+    /** State returned by next when the child is not allowed at that point */
+    public static final long REJECTED = -1L;
+
+    /** Upper bounds on unrolled element positions and on deterministic states */
+    static final int MAX_POSITIONS = 4096;
+    static final int MAX_STATES = 4096;
+
+    private static final int MAX_ALL_PARTICLES = 64;
+
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIndex;
+    private final boolean unordered;
+
+    // Sequence and choice: transitions[state * symbols.length + symbol], -1 when rejected
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    // All: bit i is set once symbol i has been seen
+    private final long requiredMask;
+    private final boolean emptyAccepted;
+
+    private ContentAutomaton(String[] symbols, int[] transitions, boolean[] accepting) {
+        this.symbols = symbols;
+        this.symbolIndex = indexSymbols(symbols);
+        this.unordered = false;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.requiredMask = 0;
+        this.emptyAccepted = accepting[0];
+    }
+
+    private ContentAutomaton(String[] symbols, long requiredMask, boolean emptyAccepted) {
+        this.symbols = symbols;
+        this.symbolIndex = indexSymbols(symbols);
+        this.unordered = true;
+        this.transitions = null;
+        this.accepting = null;
+        this.requiredMask = requiredMask;
+        this.emptyAccepted = emptyAccepted;
+    }
+
+    private static Map<String, Integer> indexSymbols(String[] symbols) {
+        Map<String, Integer> index = new HashMap<>(Math.max(4, symbols.length * 2));
+        for (int i = 0; i < symbols.length; i++) {
+            index.put(symbols[i], i);
+        }
+        return index;
+    }
+
+    /**
+     * Compiles the content model of an element. Groups without particles are read from
+     * their element order, taking occurrence bounds from the owner's child definitions.
+     *
+     * @throws ContentModelException if the model is not deterministic enough to compile
+     *                               within the state limits or breaks the all group rules
+     */
+    public static ContentAutomaton compile(OrderingRule contentModel, SchemaElement owner) {
+        String ownerName = owner != null ? owner.getName() : contentModel.getGroupName();
+        OrderingRule model = contentModel.hasParticles() ? contentModel : withElementParticles(contentModel, owner);
+
+        if (model.getType() == OrderingRule.OrderingType.ALL) {
+            return compileAll(model, ownerName);
+        }
+        return new Builder(ownerName).build(model);
+    }
+
+    private static OrderingRule withElementParticles(OrderingRule contentModel, SchemaElement owner) {
+        OrderingRule model = new OrderingRule(contentModel.getType());
+        model.setMinOccurs(contentModel.getMinOccurs());
+        model.setMaxOccurs(contentModel.getMaxOccurs());
+        for (String name : contentModel.getElementOrder()) {
+            SchemaElement child = owner != null ? owner.getChild(name) : null;
+            model.addParticle(child != null
+                    ? OrderingRule.Particle.element(name, child.getMinOccurs(), child.getMaxOccurs())
+                    : OrderingRule.Particle.element(name, 1, 1));
+        }
+        return model;
+    }
+
+    private static ContentAutomaton compileAll(OrderingRule model, String ownerName) {
+        List<OrderingRule.Particle> particles = model.getParticles();
+        if (particles.size() > MAX_ALL_PARTICLES) {
+            throw new ContentModelException("All group has more than " + MAX_ALL_PARTICLES + " elements", ownerName);
+        }
+        if (model.getMaxOccurs() > 1) {
+            throw new ContentModelException("All group may occur at most once", ownerName);
+        }
+
+        String[] names = new String[particles.size()];
+        long required = 0;
+        for (int i = 0; i < particles.size(); i++) {
+            OrderingRule.Particle particle = particles.get(i);
+            if (particle.isGroup() || particle.getMaxOccurs() > 1) {
+                throw new ContentModelException("All group may only contain elements occurring at most once", ownerName);
+            }
+            for (int j = 0; j < i; j++) {
+                if (names[j].equals(particle.getElementName())) {
+                    throw new ContentModelException("Element '" + names[j] + "' is declared twice in an all group",
+                            ownerName);
+                }
+            }
+            names[i] = particle.getElementName();
+            if (particle.getMinOccurs() > 0) {
+                required |= 1L << i;
+            }
+        }
+        return new ContentAutomaton(names, required, model.getMinOccurs() == 0 || required == 0);
+    }
+
+    /**
+     * Returns the symbol of a child element name, or -1 if the model does not mention it
+     */
+    public int symbolOf(String elementName) {
+        Integer symbol = symbolIndex.get(elementName);
+        return symbol != null ? symbol : -1;
+    }
+
+    public long initialState() {
+        return 0;
+    }
+
+    /**
+     * Advances the state by one child element; returns REJECTED if the child is not allowed there
+     */
+    public long next(long state, int symbol) {
+        if (state < 0 || symbol < 0) {
+            return REJECTED;
+        }
+        if (unordered) {
+            long bit = 1L << symbol;
+            return (state & bit) != 0 ? REJECTED : state | bit;
+        }
+        return transitions[(int) state * symbols.length + symbol];
+    }
+
+    /**
+     * Checks whether the content seen so far is complete
+     */
+    public boolean isAccepting(long state) {
+        if (state < 0) {
+            return false;
+        }
+        if (unordered) {
+            return state == 0 ? emptyAccepted : (state & requiredMask) == requiredMask;
+        }
+        return accepting[(int) state];
+    }
+
+    /**
+     * Names of the elements that may follow in the given state, for error messages
+     */
+    public List<String> expectedElements(long state) {
+        if (state < 0) {
+            return Collections.emptyList();
+        }
+        List<String> expected = new ArrayList<>();
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            if (next(state, symbol) != REJECTED) {
+                expected.add(symbols[symbol]);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Names of the elements still needed to complete the content; for an all group these are
+     * the unseen required elements, otherwise the elements that could continue the content
+     */
+    public List<String> missingElements(long state) {
+        if (isAccepting(state)) {
+            return Collections.emptyList();
+        }
+        if (!unordered) {
+            return expectedElements(state);
+        }
+        List<String> missing = new ArrayList<>();
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            if ((requiredMask & ~state & (1L << symbol)) != 0) {
+                missing.add(symbols[symbol]);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * True for an all group, where children may appear in any order
+     */
+    public boolean isUnordered() { return unordered; }
+
+    public int getSymbolCount() { return symbols.length; }
+
+    public int getStateCount() {
+        return unordered ? -1 : accepting.length;
+    }
+
+    @Override
+    public String toString() {
+        return unordered
+                ? String.format("ContentAutomaton{all, elements=%d}", symbols.length)
+                : String.format("ContentAutomaton{elements=%d, states=%d}", symbols.length, accepting.length);
+    }
+
+    /**
+     * Glushkov construction over the unrolled particle tree, followed by subset construction.
+     * Positions are element occurrences; first, last and follow sets are kept as bit sets.
+     */
+    private static final class Builder {
+
+        private final String ownerName;
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+        private final List<String> symbolNames = new ArrayList<>();
+        private int[] labels = new int[16];
+        private final List<BitSet> follow = new ArrayList<>();
+        private int positions;
+
+        Builder(String ownerName) {
+            this.ownerName = ownerName;
+        }
+
+        ContentAutomaton build(OrderingRule model) {
+            Fragment root = group(model);
+
+            int width = symbolNames.size();
+            Map<BitSet, Integer> stateIds = new HashMap<>();
+            List<BitSet> states = new ArrayList<>();
+            Deque<Integer> pending = new ArrayDeque<>();
+
+            // State sets hold bit 0 for the start and bit p + 1 once position p has been matched
+            BitSet start = new BitSet();
+            start.set(0);
+            stateIds.put(start, 0);
+            states.add(start);
+            pending.add(0);
+
+            int[] table = new int[16 * Math.max(1, width)];
+            while (!pending.isEmpty()) {
+                int id = pending.poll();
+                BitSet state = states.get(id);
+
+                BitSet reachable = new BitSet(positions);
+                for (int s = state.nextSetBit(0); s >= 0; s = state.nextSetBit(s + 1)) {
+                    reachable.or(s == 0 ? root.first : follow.get(s - 1));
+                }
+
+                BitSet[] targets = new BitSet[width];
+                for (int p = reachable.nextSetBit(0); p >= 0; p = reachable.nextSetBit(p + 1)) {
+                    int symbol = labels[p];
+                    if (targets[symbol] == null) {
+                        targets[symbol] = new BitSet();
+                    }
+                    targets[symbol].set(p + 1);
+                }
+
+                int rowEnd = (id + 1) * width;
+                if (rowEnd > table.length) {
+                    table = Arrays.copyOf(table, Math.max(rowEnd, table.length * 2));
+                }
+                for (int symbol = 0; symbol < width; symbol++) {
+                    int target = -1;
+                    if (targets[symbol] != null) {
+                        Integer existing = stateIds.get(targets[symbol]);
+                        if (existing == null) {
+                            if (states.size() >= MAX_STATES) {
+                                throw new ContentModelException("Content model needs more than "
+                                        + MAX_STATES + " states", ownerName);
+                            }
+                            existing = states.size();
+                            stateIds.put(targets[symbol], existing);
+                            states.add(targets[symbol]);
+                            pending.add(existing);
+                        }
+                        target = existing;
+                    }
+                    table[id * width + symbol] = target;
+                }
+            }
+
+            boolean[] accepting = new boolean[states.size()];
+            for (int id = 0; id < states.size(); id++) {
+                BitSet state = states.get(id);
+                accepting[id] = state.get(0) ? root.nullable : intersectsShifted(state, root.last);
+            }
+
+            return new ContentAutomaton(symbolNames.toArray(new String[0]),
+                    Arrays.copyOf(table, states.size() * width), accepting);
+        }
+
+        private static boolean intersectsShifted(BitSet state, BitSet last) {
+            for (int s = state.nextSetBit(1); s >= 0; s = state.nextSetBit(s + 1)) {
+                if (last.get(s - 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Fragment group(OrderingRule rule) {
+            return repeat(() -> body(rule), rule.getMinOccurs(), rule.getMaxOccurs());
+        }
+
+        private Fragment body(OrderingRule rule) {
+            if (rule.getType() == OrderingRule.OrderingType.ALL) {
+                throw new ContentModelException("All group must be the whole content model", ownerName);
+            }
+
+            boolean choice = rule.getType() == OrderingRule.OrderingType.CHOICE;
+            Fragment result = null;
+            for (OrderingRule.Particle particle : rule.getParticles()) {
+                Fragment fragment = particle.isGroup()
+                        ? group(particle.getGroup())
+                        : repeat(() -> leaf(particle.getElementName()), particle.getMinOccurs(), particle.getMaxOccurs());
+                if (result == null) {
+                    result = fragment;
+                } else {
+                    result = choice ? alternative(result, fragment) : sequence(result, fragment);
+                }
+            }
+            // An empty choice matches nothing; an empty sequence matches the empty content
+            return result != null ? result : choice ? Fragment.nothing() : Fragment.empty();
+        }
+
+        /**
+         * Unrolls x{min,max} into min copies followed by nested optional copies, or a star
+         * when unbounded; every copy gets fresh positions
+         */
+        private Fragment repeat(FragmentSource source, int minOccurs, int maxOccurs) {
+            if (minOccurs < 0 || maxOccurs < minOccurs) {
+                throw new ContentModelException("Invalid occurrence range " + minOccurs + ".." + maxOccurs, ownerName);
+            }
+            if (maxOccurs == 0) {
+                return Fragment.empty();
+            }
+
+            Fragment result = Fragment.empty();
+            for (int i = 0; i < minOccurs; i++) {
+                result = sequence(result, source.create());
+            }
+
+            if (maxOccurs == Integer.MAX_VALUE) {
+                return sequence(result, star(source.create()));
+            }
+
+            // (x (x)?)? rather than x? x? keeps the unrolled optional copies deterministic
+            Fragment tail = Fragment.empty();
+            for (int i = minOccurs; i < maxOccurs; i++) {
+                tail = optional(sequence(source.create(), tail));
+            }
+            return sequence(result, tail);
+        }
+
+        private Fragment leaf(String elementName) {
+            if (positions >= MAX_POSITIONS) {
+                throw new ContentModelException("Content model unrolls to more than "
+                        + MAX_POSITIONS + " element positions", ownerName);
+            }
+            Integer symbol = symbolIds.get(elementName);
+            if (symbol == null) {
+                symbol = symbolNames.size();
+                symbolIds.put(elementName, symbol);
+                symbolNames.add(elementName);
+            }
+            if (positions == labels.length) {
+                labels = Arrays.copyOf(labels, labels.length * 2);
+            }
+            int position = positions++;
+            labels[position] = symbol;
+            follow.add(new BitSet());
+
+            Fragment fragment = new Fragment(false);
+            fragment.first.set(position);
+            fragment.last.set(position);
+            return fragment;
+        }
+
+        private Fragment sequence(Fragment a, Fragment b) {
+            link(a.last, b.first);
+            Fragment result = new Fragment(a.nullable && b.nullable);
+            result.first.or(a.first);
+            if (a.nullable) {
+                result.first.or(b.first);
+            }
+            result.last.or(b.last);
+            if (b.nullable) {
+                result.last.or(a.last);
+            }
+            return result;
+        }
+
+        private Fragment alternative(Fragment a, Fragment b) {
+            Fragment result = new Fragment(a.nullable || b.nullable);
+            result.first.or(a.first);
+            result.first.or(b.first);
+            result.last.or(a.last);
+            result.last.or(b.last);
+            return result;
+        }
+
+        private Fragment star(Fragment a) {
+            link(a.last, a.first);
+            return optional(a);
+        }
+
+        private Fragment optional(Fragment a) {
+            Fragment result = new Fragment(true);
+            result.first.or(a.first);
+            result.last.or(a.last);
+            return result;
+        }
+
+        private void link(BitSet from, BitSet to) {
+            for (int p = from.nextSetBit(0); p >= 0; p = from.nextSetBit(p + 1)) {
+                follow.get(p).or(to);
+            }
+        }
+    }
+
+    private interface FragmentSource {
+        Fragment create();
+    }
+
+    /**
+     * Glushkov attributes of a sub-expression
+     */
+    private static final class Fragment {
+        final boolean nullable;
+        final BitSet first = new BitSet();
+        final BitSet last = new BitSet();
+
+        Fragment(boolean nullable) {
+            this.nullable = nullable;
+        }
+
+        static Fragment empty() {
+            return new Fragment(true);
+        }
+
+        static Fragment nothing() {
+            return new Fragment(false);
+        }
+    }
+}
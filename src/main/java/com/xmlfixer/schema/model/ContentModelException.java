@@ -0,0 +1,22 @@
+package com.xmlfixer.schema.model;
+
+import com.xmlfixer.common.exceptions.XmlFixerException;
+
+/**
+ * Thrown when a content model cannot be compiled into a ContentAutomaton, for example because
+ * its occurrence bounds would need too many states
+ */
+public class ContentModelException extends XmlFixerException {
+
+    private final String description;
+    private final String elementName;
+
+    public ContentModelException(String description, String elementName) {
+        super(String.format("%s in content model of '%s'", description, elementName), "INVALID_CONTENT_MODEL");
+        this.description = description;
+        this.elementName = elementName;
+    }
+
+    public String getDescription() { return description; }
+    public String getElementName() { return elementName; }
+}
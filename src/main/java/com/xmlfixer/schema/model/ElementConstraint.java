@@ -1,5 +1,13 @@
 package com.xmlfixer.schema.model;
 
+import com.xmlfixer.schema.datatype.DecimalDigits;
+import com.xmlfixer.schema.datatype.NumericBound;
+import com.xmlfixer.schema.pattern.XsdPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Represents constraints on schema elements (patterns, ranges, enumerations, etc.)
  */
@@ -33,6 +41,12 @@ public class ElementConstraint {
     private String value;
     private String description;
     private boolean required;
+    private List<String> values;
+    private XsdPattern compiledPattern;
+    private EnumerationSet enumeration;
+    private NumericBound numericBound;
+    private int limit = -1;
+    private boolean sealed;
     
     public ElementConstraint() {
         this.required = false;
@@ -51,17 +65,102 @@ public class ElementConstraint {
     
     // Basic properties
     public ConstraintType getConstraintType() { return constraintType; }
-    public void setConstraintType(ConstraintType constraintType) { this.constraintType = constraintType; }
+    public void setConstraintType(ConstraintType constraintType) { checkMutable(); this.constraintType = constraintType; }
     
     public String getValue() { return value; }
-    public void setValue(String value) { this.value = value; }
+    public void setValue(String value) { checkMutable(); this.value = value; }
     
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) { checkMutable(); this.description = description; }
     
     public boolean isRequired() { return required; }
-    public void setRequired(boolean required) { this.required = required; }
-    
+    public void setRequired(boolean required) { checkMutable(); this.required = required; }
+
+    /**
+     * Individual values of an ENUMERATION constraint; a constraint built from a single value
+     * reports just that value. getValue() holds the comma-joined form for display only.
+     */
+    public List<String> getValues() {
+        if (values != null) {
+            return values;
+        }
+        return value != null ? Collections.singletonList(value) : Collections.emptyList();
+    }
+
+    /**
+     * Adds another enumeration facet value to this constraint
+     */
+    public void addValue(String additionalValue) {
+        checkMutable();
+        if (values == null) {
+            values = new ArrayList<>();
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        values.add(additionalValue);
+        this.value = String.join(",", values);
+    }
+
+    /**
+     * XSD pattern compiled from a PATTERN value by the SchemaCompiler; null if not compiled or invalid
+     */
+    public XsdPattern getCompiledPattern() { return compiledPattern; }
+    public void setCompiledPattern(XsdPattern compiledPattern) { checkMutable(); this.compiledPattern = compiledPattern; }
+
+    /**
+     * Lookup set built from the ENUMERATION values by the SchemaCompiler; null if not compiled
+     */
+    public EnumerationSet getEnumeration() { return enumeration; }
+    public void setEnumeration(EnumerationSet enumeration) { checkMutable(); this.enumeration = enumeration; }
+
+    /**
+     * Parsed bound of a min/max inclusive/exclusive facet; null if not compiled or not numeric
+     */
+    public NumericBound getNumericBound() { return numericBound; }
+    public void setNumericBound(NumericBound numericBound) { checkMutable(); this.numericBound = numericBound; }
+
+    /**
+     * Parsed value of a length or digits facet; -1 if not compiled or invalid
+     */
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { checkMutable(); this.limit = limit; }
+
+    /**
+     * Checks a range or digits facet against the text in ch[start, start + length).
+     * Text that is not a number passes; the datatype check reports it.
+     */
+    public boolean checkNumericFacet(char[] ch, int start, int length) {
+        switch (constraintType) {
+            case MIN_INCLUSIVE:
+            case MAX_INCLUSIVE:
+            case MIN_EXCLUSIVE:
+            case MAX_EXCLUSIVE: {
+                if (numericBound == null) {
+                    return true;
+                }
+                int comparison = numericBound.compareTo(ch, start, length);
+                if (comparison == NumericBound.NOT_COMPARABLE) {
+                    return true;
+                }
+                if (constraintType == ConstraintType.MIN_INCLUSIVE) return comparison >= 0;
+                if (constraintType == ConstraintType.MAX_INCLUSIVE) return comparison <= 0;
+                if (constraintType == ConstraintType.MIN_EXCLUSIVE) return comparison > 0;
+                return comparison < 0;
+            }
+            case TOTAL_DIGITS: {
+                int digits = DecimalDigits.totalDigits(ch, start, length);
+                return limit < 0 || digits < 0 || digits <= limit;
+            }
+            case FRACTION_DIGITS: {
+                int digits = DecimalDigits.fractionDigits(ch, start, length);
+                return limit < 0 || digits < 0 || digits <= limit;
+            }
+            default:
+                return true;
+        }
+    }
+
     // Utility methods
     public String getFullDescription() {
         StringBuilder sb = new StringBuilder();
@@ -81,6 +180,24 @@ public class ElementConstraint {
         return sb.toString();
     }
     
+    /**
+     * Freezes this constraint; setters throw afterwards
+     */
+    public void seal() {
+        if (values != null) {
+            values = Collections.unmodifiableList(new ArrayList<>(values));
+        }
+        this.sealed = true;
+    }
+
+    public boolean isSealed() { return sealed; }
+
+    private void checkMutable() {
+        if (sealed) {
+            throw new IllegalStateException("Constraint is sealed: " + constraintType);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("ElementConstraint{type=%s, value='%s', required=%s}", 
@@ -0,0 +1,115 @@
+package com.xmlfixer.schema.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of the values allowed by an enumeration facet.
+ * Built once when the schema is compiled. Very small sets are scanned directly, sets up to
+ * PERFECT_HASH_LIMIT use a collision-free open table (one hash, one equals per lookup) and
+ * larger code lists fall back to a HashSet. Values are kept whole, so they may contain commas.
+ */
+public final class EnumerationSet {
+
+    private static final int LINEAR_LIMIT = 4;
+    private static final int PERFECT_HASH_LIMIT = 64;
+    private static final int SEED_ATTEMPTS = 256;
+
+    private final List<String> values;
+    private final String[] linear;
+    private final String[] table;
+    private final int multiplier;
+    private final int shift;
+    private final Set<String> hashed;
+
+    private EnumerationSet(List<String> values) {
+        this.values = Collections.unmodifiableList(values);
+
+        String[] perfectTable = null;
+        int perfectMultiplier = 0;
+        int perfectShift = 0;
+
+        if (values.size() > LINEAR_LIMIT && values.size() <= PERFECT_HASH_LIMIT) {
+            // Table at least twice the size of the set keeps the seed search short
+            int bits = 32 - Integer.numberOfLeadingZeros(values.size() * 2 - 1);
+            search:
+            for (int extraBits = 0; extraBits < 3; extraBits++) {
+                int tableBits = bits + extraBits;
+                for (int attempt = 0; attempt < SEED_ATTEMPTS; attempt++) {
+                    int candidate = (0x9E3779B9 * (2 * attempt + 1)) | 1;
+                    String[] slots = tryBuild(values, candidate, 32 - tableBits);
+                    if (slots != null) {
+                        perfectTable = slots;
+                        perfectMultiplier = candidate;
+                        perfectShift = 32 - tableBits;
+                        break search;
+                    }
+                }
+            }
+        }
+
+        this.linear = values.size() <= LINEAR_LIMIT ? values.toArray(new String[0]) : null;
+        this.table = perfectTable;
+        this.multiplier = perfectMultiplier;
+        this.shift = perfectShift;
+        this.hashed = linear == null && table == null ? new HashSet<>(values) : null;
+    }
+
+    /**
+     * Creates a set from the facet values in declaration order; duplicates are dropped
+     */
+    public static EnumerationSet of(Collection<String> values) {
+        return new EnumerationSet(new ArrayList<>(new LinkedHashSet<>(values)));
+    }
+
+    private static String[] tryBuild(List<String> values, int multiplier, int shift) {
+        String[] slots = new String[1 << (32 - shift)];
+        for (String value : values) {
+            int slot = (value.hashCode() * multiplier) >>> shift;
+            if (slots[slot] != null) {
+                return null;
+            }
+            slots[slot] = value;
+        }
+        return slots;
+    }
+
+    /**
+     * Checks whether the value is one of the allowed values
+     */
+    public boolean contains(String value) {
+        if (value == null) {
+            return false;
+        }
+        if (linear != null) {
+            for (String allowed : linear) {
+                if (allowed.length() == value.length() && allowed.equals(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (table != null) {
+            String candidate = table[(value.hashCode() * multiplier) >>> shift];
+            return candidate != null && candidate.equals(value);
+        }
+        return hashed.contains(value);
+    }
+
+    /**
+     * Allowed values in declaration order
+     */
+    public List<String> getValues() { return values; }
+
+    public int size() { return values.size(); }
+
+    @Override
+    public String toString() {
+        return String.join(", ", values);
+    }
+}
@@ -1,6 +1,7 @@
 package com.xmlfixer.schema.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,9 +33,13 @@ public class OrderingRule {
     private List<String> elementOrder;
     private String groupName;
     private String description;
+    private List<Particle> particles;
+    private ContentAutomaton automaton;
+    private boolean sealed;
 
     public OrderingRule() {
         this.elementOrder = new ArrayList<>();
+        this.particles = new ArrayList<>();
         this.minOccurs = 1;
         this.maxOccurs = 1;
         this.strict = true;
@@ -49,6 +54,7 @@ public class OrderingRule {
     // Basic properties
     public OrderingType getType() { return type; }
     public void setType(OrderingType type) {
+        checkMutable();
         this.type = type;
         if (type == OrderingType.SEQUENCE) {
             this.strict = true;
@@ -56,26 +62,27 @@ public class OrderingRule {
     }
 
     public boolean isStrict() { return strict; }
-    public void setStrict(boolean strict) { this.strict = strict; }
+    public void setStrict(boolean strict) { checkMutable(); this.strict = strict; }
 
     public String getGroupName() { return groupName; }
-    public void setGroupName(String groupName) { this.groupName = groupName; }
+    public void setGroupName(String groupName) { checkMutable(); this.groupName = groupName; }
 
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) { checkMutable(); this.description = description; }
 
     // Occurrence constraints
     public int getMinOccurs() { return minOccurs; }
-    public void setMinOccurs(int minOccurs) { this.minOccurs = minOccurs; }
+    public void setMinOccurs(int minOccurs) { checkMutable(); this.minOccurs = minOccurs; }
 
     public int getMaxOccurs() { return maxOccurs; }
-    public void setMaxOccurs(int maxOccurs) { this.maxOccurs = maxOccurs; }
+    public void setMaxOccurs(int maxOccurs) { checkMutable(); this.maxOccurs = maxOccurs; }
 
     // Element ordering
     public List<String> getElementOrder() { return elementOrder; }
-    public void setElementOrder(List<String> elementOrder) { this.elementOrder = elementOrder; }
+    public void setElementOrder(List<String> elementOrder) { checkMutable(); this.elementOrder = elementOrder; }
 
     public void addElement(String elementName) {
+        checkMutable();
         if (this.elementOrder == null) {
             this.elementOrder = new ArrayList<>();
         }
@@ -83,12 +90,36 @@ public class OrderingRule {
     }
 
     public void addElements(List<String> elementNames) {
+        checkMutable();
         if (this.elementOrder == null) {
             this.elementOrder = new ArrayList<>();
         }
         this.elementOrder.addAll(elementNames);
     }
 
+    // Particles in declaration order, including nested groups
+    public List<Particle> getParticles() { return particles; }
+    public void setParticles(List<Particle> particles) { checkMutable(); this.particles = particles; }
+
+    public void addParticle(Particle particle) {
+        checkMutable();
+        if (this.particles == null) {
+            this.particles = new ArrayList<>();
+        }
+        this.particles.add(particle);
+    }
+
+    public boolean hasParticles() {
+        return particles != null && !particles.isEmpty();
+    }
+
+    /**
+     * Automaton compiled from this group when the schema is compiled; null if the group
+     * could not be compiled and is checked element by element instead
+     */
+    public ContentAutomaton getAutomaton() { return automaton; }
+    public void setAutomaton(ContentAutomaton automaton) { checkMutable(); this.automaton = automaton; }
+
     // Utility methods
     public boolean isOptional() {
         return minOccurs == 0;
@@ -197,6 +228,73 @@ public class OrderingRule {
         return true;
     }
 
+    /**
+     * Freezes this rule; the element order becomes read-only and setters throw afterwards
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        this.elementOrder = elementOrder != null ? Collections.unmodifiableList(new ArrayList<>(elementOrder))
+                : Collections.emptyList();
+        this.particles = particles != null ? Collections.unmodifiableList(new ArrayList<>(particles))
+                : Collections.emptyList();
+        for (Particle particle : particles) {
+            if (particle.isGroup()) {
+                particle.getGroup().seal();
+            }
+        }
+        this.sealed = true;
+    }
+
+    public boolean isSealed() { return sealed; }
+
+    private void checkMutable() {
+        if (sealed) {
+            throw new IllegalStateException("Ordering rule is sealed: " + type);
+        }
+    }
+
+    /**
+     * One entry of a group: an element occurrence or a nested sequence, choice or all group.
+     * Nested groups carry their own minOccurs and maxOccurs.
+     */
+    public static class Particle {
+        private final String elementName;
+        private final OrderingRule group;
+        private final int minOccurs;
+        private final int maxOccurs;
+
+        private Particle(String elementName, OrderingRule group, int minOccurs, int maxOccurs) {
+            this.elementName = elementName;
+            this.group = group;
+            this.minOccurs = minOccurs;
+            this.maxOccurs = maxOccurs;
+        }
+
+        public static Particle element(String elementName, int minOccurs, int maxOccurs) {
+            return new Particle(elementName, null, minOccurs, maxOccurs);
+        }
+
+        public static Particle group(OrderingRule group) {
+            return new Particle(null, group, 0, 0);
+        }
+
+        public String getElementName() { return elementName; }
+        public OrderingRule getGroup() { return group; }
+        public int getMinOccurs() { return group != null ? group.getMinOccurs() : minOccurs; }
+        public int getMaxOccurs() { return group != null ? group.getMaxOccurs() : maxOccurs; }
+
+        public boolean isGroup() { return group != null; }
+
+        @Override
+        public String toString() {
+            return isGroup() ? group.toString()
+                    : String.format("%s{%d,%s}", elementName, minOccurs,
+                            maxOccurs == Integer.MAX_VALUE ? "unbounded" : String.valueOf(maxOccurs));
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("OrderingRule{type=%s, strict=%s, elements=%d, minOccurs=%d, maxOccurs=%d}",
@@ -2,13 +2,22 @@ package com.xmlfixer.schema.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an element definition from an XSD schema
  */
 public class SchemaElement {
-    
+
+    /**
+     * How a validator should capture the element's text: not at all, in full for checks
+     * that need the whole value, or chunk by chunk through a ValueScanner
+     */
+    public enum ValueCapture { NONE, BUFFER, STREAM }
+
     private String name;
     private String namespace;
     private String type;
@@ -20,6 +29,13 @@ public class SchemaElement {
     private List<ElementConstraint> constraints;
     private String defaultValue;
     private String documentation;
+    private OrderingRule contentModel;
+    private ValueCapture valueCapture = ValueCapture.BUFFER;
+    private Map<String, SchemaElement> childIndex;
+    private Map<String, Integer> childOrdinals;
+    private List<SchemaElement> requiredChildren;
+    private long requiredChildMask;
+    private boolean sealed;
     
     public SchemaElement() {
         this.children = new ArrayList<>();
@@ -36,59 +52,156 @@ public class SchemaElement {
     
     // Basic properties
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
+    public void setName(String name) { checkMutable(); this.name = name; }
     
     public String getNamespace() { return namespace; }
-    public void setNamespace(String namespace) { this.namespace = namespace; }
+    public void setNamespace(String namespace) { checkMutable(); this.namespace = namespace; }
     
     public String getType() { return type; }
-    public void setType(String type) { this.type = type; }
+    public void setType(String type) { checkMutable(); this.type = type; }
     
     public File getSchemaFile() { return schemaFile; }
-    public void setSchemaFile(File schemaFile) { this.schemaFile = schemaFile; }
+    public void setSchemaFile(File schemaFile) { checkMutable(); this.schemaFile = schemaFile; }
     
     public String getDocumentation() { return documentation; }
-    public void setDocumentation(String documentation) { this.documentation = documentation; }
+    public void setDocumentation(String documentation) { checkMutable(); this.documentation = documentation; }
     
     // Occurrence constraints
     public boolean isRequired() { return required; }
-    public void setRequired(boolean required) { this.required = required; }
+    public void setRequired(boolean required) { checkMutable(); this.required = required; }
     
     public int getMinOccurs() { return minOccurs; }
     public void setMinOccurs(int minOccurs) { 
+        checkMutable();
         this.minOccurs = minOccurs;
         this.required = minOccurs > 0;
     }
     
     public int getMaxOccurs() { return maxOccurs; }
-    public void setMaxOccurs(int maxOccurs) { this.maxOccurs = maxOccurs; }
+    public void setMaxOccurs(int maxOccurs) { checkMutable(); this.maxOccurs = maxOccurs; }
     
     // Default values
     public String getDefaultValue() { return defaultValue; }
-    public void setDefaultValue(String defaultValue) { this.defaultValue = defaultValue; }
+    public void setDefaultValue(String defaultValue) { checkMutable(); this.defaultValue = defaultValue; }
     
     // Hierarchy
     public List<SchemaElement> getChildren() { return children; }
-    public void setChildren(List<SchemaElement> children) { this.children = children; }
+    public void setChildren(List<SchemaElement> children) { checkMutable(); this.children = children; }
     
     public void addChild(SchemaElement child) {
+        checkMutable();
         if (this.children == null) {
             this.children = new ArrayList<>();
         }
         this.children.add(child);
     }
     
+    /**
+     * Looks up a direct child by name. Sealed elements use a name index built at seal time;
+     * its keys are interned, so names from a string-interning SAX parser hit on identity.
+     */
+    public SchemaElement getChild(String childName) {
+        if (childIndex != null) {
+            return childIndex.get(childName);
+        }
+        if (children != null) {
+            for (SchemaElement child : children) {
+                if (child.getName().equals(childName)) {
+                    return child;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Children that must appear at least once; precomputed once the element is sealed
+     */
+    public List<SchemaElement> getRequiredChildren() {
+        if (requiredChildren != null) {
+            return requiredChildren;
+        }
+        return buildChildIndex(new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Position of a child name among the distinct child names, or -1 if there is no such
+     * child; lets validators keep per-child counters in a plain array. Only sealed
+     * elements have ordinals.
+     */
+    public int getChildOrdinal(String childName) {
+        checkSealed();
+        Integer ordinal = childOrdinals.get(childName);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Number of distinct child names, i.e. the size of an array indexed by child ordinal
+     */
+    public int getChildSlotCount() {
+        checkSealed();
+        return childOrdinals.size();
+    }
+
+    /**
+     * Bit i is set when the child with ordinal i is required; ordinals from 64 on are not
+     * covered, so callers must check getChildSlotCount before relying on the mask alone
+     */
+    public long getRequiredChildMask() {
+        checkSealed();
+        return requiredChildMask;
+    }
+
+    /**
+     * Fills the name index and ordinals (first definition wins) and returns the required children
+     */
+    private List<SchemaElement> buildChildIndex(Map<String, SchemaElement> index, Map<String, Integer> ordinals) {
+        List<SchemaElement> required = new ArrayList<>();
+        if (children != null) {
+            for (SchemaElement child : children) {
+                String childName = child.getName().intern();
+                if (index.putIfAbsent(childName, child) == null) {
+                    ordinals.put(childName, ordinals.size());
+                    if (child.isRequired()) {
+                        required.add(child);
+                    }
+                }
+            }
+        }
+        return required;
+    }
+
+    private static long maskOf(List<SchemaElement> required, Map<String, Integer> ordinals) {
+        long mask = 0;
+        for (SchemaElement child : required) {
+            int ordinal = ordinals.get(child.getName());
+            if (ordinal < Long.SIZE) {
+                mask |= 1L << ordinal;
+            }
+        }
+        return mask;
+    }
+
     // Constraints
     public List<ElementConstraint> getConstraints() { return constraints; }
-    public void setConstraints(List<ElementConstraint> constraints) { this.constraints = constraints; }
+    public void setConstraints(List<ElementConstraint> constraints) { checkMutable(); this.constraints = constraints; }
     
     public void addConstraint(ElementConstraint constraint) {
+        checkMutable();
         if (this.constraints == null) {
             this.constraints = new ArrayList<>();
         }
         this.constraints.add(constraint);
     }
     
+    // Content model (sequence, choice or all) of the child elements
+    public OrderingRule getContentModel() { return contentModel; }
+    public void setContentModel(OrderingRule contentModel) { checkMutable(); this.contentModel = contentModel; }
+
+    // Set by the schema compiler from the datatype and facets that apply to the text
+    public ValueCapture getValueCapture() { return valueCapture; }
+    public void setValueCapture(ValueCapture valueCapture) { checkMutable(); this.valueCapture = valueCapture; }
+
     // Utility methods
     public boolean hasChildren() {
         return children != null && !children.isEmpty();
@@ -117,6 +230,43 @@ public class SchemaElement {
         return name;
     }
     
+    /**
+     * Freezes this element so it can be shared between threads; the child and
+     * constraint lists become read-only, the child index and ordinals are built and
+     * every setter throws afterwards
+     */
+    public void seal() {
+        if (sealed) {
+            return;
+        }
+        this.children = children != null ? Collections.unmodifiableList(new ArrayList<>(children))
+                : Collections.emptyList();
+        this.constraints = constraints != null ? Collections.unmodifiableList(new ArrayList<>(constraints))
+                : Collections.emptyList();
+        Map<String, SchemaElement> index = new HashMap<>(Math.max(4, this.children.size() * 2));
+        Map<String, Integer> ordinals = new HashMap<>(Math.max(4, this.children.size() * 2));
+        List<SchemaElement> required = buildChildIndex(index, ordinals);
+        this.childIndex = index;
+        this.childOrdinals = ordinals;
+        this.requiredChildren = required.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(required);
+        this.requiredChildMask = maskOf(required, ordinals);
+        this.sealed = true;
+    }
+
+    public boolean isSealed() { return sealed; }
+
+    private void checkSealed() {
+        if (!sealed) {
+            throw new IllegalStateException("Schema element is not sealed: " + name);
+        }
+    }
+
+    private void checkMutable() {
+        if (sealed) {
+            throw new IllegalStateException("Schema element is sealed: " + name);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("SchemaElement{name='%s', type='%s', required=%s, minOccurs=%d, maxOccurs=%d}", 
@@ -1,7 +1,13 @@
 package com.xmlfixer.schema.model;
 
+import com.xmlfixer.schema.datatype.XsdDatatype;
+import com.xmlfixer.schema.pattern.XsdPattern;
 import com.xmlfixer.validation.model.ErrorType;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Represents a validation rule derived from schema constraints
  */
@@ -41,9 +47,14 @@ public class ValidationRule {
     private int minOccurs;
     private int maxOccurs;
     private String dataType;
+    private XsdDatatype builtinDatatype;
     private String description;
     private Severity severity;
     private ErrorType relatedErrorType;
+    private List<String> allowedValues;
+    private XsdPattern compiledPattern;
+    private EnumerationSet enumeration;
+    private boolean sealed;
 
     public ValidationRule() {
         this.severity = Severity.ERROR;
@@ -60,26 +71,27 @@ public class ValidationRule {
 
     // Basic properties
     public RuleType getRuleType() { return ruleType; }
-    public void setRuleType(RuleType ruleType) { this.ruleType = ruleType; }
+    public void setRuleType(RuleType ruleType) { checkMutable(); this.ruleType = ruleType; }
 
     public String getElementName() { return elementName; }
-    public void setElementName(String elementName) { this.elementName = elementName; }
+    public void setElementName(String elementName) { checkMutable(); this.elementName = elementName; }
 
     public String getAttributeName() { return attributeName; }
-    public void setAttributeName(String attributeName) { this.attributeName = attributeName; }
+    public void setAttributeName(String attributeName) { checkMutable(); this.attributeName = attributeName; }
 
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    public void setDescription(String description) { checkMutable(); this.description = description; }
 
     public Severity getSeverity() { return severity; }
-    public void setSeverity(Severity severity) { this.severity = severity; }
+    public void setSeverity(Severity severity) { checkMutable(); this.severity = severity; }
 
     public ErrorType getRelatedErrorType() { return relatedErrorType; }
-    public void setRelatedErrorType(ErrorType relatedErrorType) { this.relatedErrorType = relatedErrorType; }
+    public void setRelatedErrorType(ErrorType relatedErrorType) { checkMutable(); this.relatedErrorType = relatedErrorType; }
 
     // Constraint properties
     public boolean isRequired() { return required; }
     public void setRequired(boolean required) {
+        checkMutable();
         this.required = required;
         if (required && ruleType == RuleType.ELEMENT_REQUIRED) {
             this.relatedErrorType = ErrorType.MISSING_REQUIRED_ELEMENT;
@@ -89,27 +101,59 @@ public class ValidationRule {
     }
 
     public String getExpectedValue() { return expectedValue; }
-    public void setExpectedValue(String expectedValue) { this.expectedValue = expectedValue; }
+    public void setExpectedValue(String expectedValue) { checkMutable(); this.expectedValue = expectedValue; }
 
     public String getPattern() { return pattern; }
     public void setPattern(String pattern) {
+        checkMutable();
         this.pattern = pattern;
         if (pattern != null && ruleType == RuleType.PATTERN_MATCH) {
             this.relatedErrorType = ErrorType.PATTERN_MISMATCH;
         }
     }
 
+    /**
+     * XSD pattern compiled from the pattern by the SchemaCompiler; null if not compiled or invalid
+     */
+    public XsdPattern getCompiledPattern() { return compiledPattern; }
+    public void setCompiledPattern(XsdPattern compiledPattern) { checkMutable(); this.compiledPattern = compiledPattern; }
+
+    /**
+     * Values allowed by an ENUMERATION rule; expectedValue keeps the comma-joined form for display
+     */
+    public List<String> getAllowedValues() {
+        return allowedValues != null ? allowedValues : Collections.emptyList();
+    }
+    public void setAllowedValues(List<String> allowedValues) {
+        checkMutable();
+        this.allowedValues = allowedValues != null ? new ArrayList<>(allowedValues) : null;
+    }
+
+    /**
+     * Lookup set built from the allowed values by the SchemaCompiler; null if not compiled
+     */
+    public EnumerationSet getEnumeration() { return enumeration; }
+    public void setEnumeration(EnumerationSet enumeration) { checkMutable(); this.enumeration = enumeration; }
+
     public String getDataType() { return dataType; }
     public void setDataType(String dataType) {
+        checkMutable();
         this.dataType = dataType;
+        this.builtinDatatype = XsdDatatype.forName(dataType);
         if (dataType != null && ruleType == RuleType.DATA_TYPE) {
             this.relatedErrorType = ErrorType.INVALID_DATA_TYPE;
         }
     }
 
+    /**
+     * Built-in XSD type the data type refers to; null for user-defined types
+     */
+    public XsdDatatype getBuiltinDatatype() { return builtinDatatype; }
+
     // Occurrence constraints
     public int getMinOccurs() { return minOccurs; }
     public void setMinOccurs(int minOccurs) {
+        checkMutable();
         this.minOccurs = minOccurs;
         if (minOccurs > 0 && ruleType == RuleType.ELEMENT_CARDINALITY) {
             this.relatedErrorType = ErrorType.TOO_FEW_OCCURRENCES;
@@ -118,6 +162,7 @@ public class ValidationRule {
 
     public int getMaxOccurs() { return maxOccurs; }
     public void setMaxOccurs(int maxOccurs) {
+        checkMutable();
         this.maxOccurs = maxOccurs;
         if (maxOccurs < Integer.MAX_VALUE && ruleType == RuleType.ELEMENT_CARDINALITY) {
             this.relatedErrorType = ErrorType.TOO_MANY_OCCURRENCES;
@@ -196,63 +241,29 @@ public class ValidationRule {
     }
 
     private boolean validatePattern(String value) {
-        if (pattern == null || pattern.isEmpty()) {
-            return true;
-        }
-
-        try {
-            return value.matches(pattern);
-        } catch (Exception e) {
-            return false;
-        }
+        // Patterns are compiled once with the schema; invalid ones were reported there
+        return compiledPattern == null || compiledPattern.matches(value);
     }
 
     private boolean validateRange(String value) {
-        // TODO: Implement range validation based on data type
+        // Range and digits facets are enforced through the element's compiled constraints
         return true;
     }
 
     private boolean validateEnumeration(String value) {
-        if (expectedValue == null || expectedValue.isEmpty()) {
-            return true;
+        if (enumeration != null) {
+            return enumeration.contains(value);
         }
-
-        // For enumeration, expectedValue contains comma-separated allowed values
-        String[] allowedValues = expectedValue.split(",");
-        for (String allowedValue : allowedValues) {
-            if (allowedValue.trim().equals(value)) {
-                return true;
-            }
+        if (allowedValues != null && !allowedValues.isEmpty()) {
+            return allowedValues.contains(value);
         }
-        return false;
+        // Rules built without a value list compare against the single expected value
+        return expectedValue == null || expectedValue.isEmpty() || expectedValue.equals(value);
     }
 
     private boolean validateDataType(String value) {
-        if (dataType == null || dataType.isEmpty()) {
-            return true;
-        }
-
-        try {
-            switch (dataType.toLowerCase()) {
-                case "int":
-                case "integer":
-                    Integer.parseInt(value);
-                    return true;
-                case "double":
-                case "decimal":
-                    Double.parseDouble(value);
-                    return true;
-                case "boolean":
-                    return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
-                case "date":
-                    // TODO: Implement date validation
-                    return true;
-                default:
-                    return true; // For string and other types
-            }
-        } catch (Exception e) {
-            return false;
-        }
+        // User-defined types are checked through their facets
+        return builtinDatatype == null || builtinDatatype.isValid(value);
     }
 
     /**
@@ -298,6 +309,24 @@ public class ValidationRule {
         return sb.toString();
     }
 
+    /**
+     * Freezes this rule; setters throw afterwards
+     */
+    public void seal() {
+        if (allowedValues != null) {
+            allowedValues = Collections.unmodifiableList(allowedValues);
+        }
+        this.sealed = true;
+    }
+
+    public boolean isSealed() { return sealed; }
+
+    private void checkMutable() {
+        if (sealed) {
+            throw new IllegalStateException("Validation rule is sealed: " + elementName);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("ValidationRule{type=%s, element='%s', required=%s, severity=%s}",
@@ -0,0 +1,240 @@
+package com.xmlfixer.schema.pattern;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of code points matched by one step of an XSD pattern
+ */
+abstract class CharClass {
+
+    /** Any character except line feed and carriage return, as matched by '.' */
+    static final CharClass WILDCARD = new Negation(new Ranges(new int[] {'\n', '\n', '\r', '\r'}));
+
+    /** \s */
+    static final CharClass SPACE = new Ranges(new int[] {'\t', '\n', '\r', '\r', ' ', ' '});
+
+    /** \i: characters that may start an XML name */
+    static final CharClass NAME_START = new Ranges(new int[] {
+            ':', ':', 'A', 'Z', '_', '_', 'a', 'z',
+            0xC0, 0xD6, 0xD8, 0xF6, 0xF8, 0x2FF, 0x370, 0x37D, 0x37F, 0x1FFF,
+            0x200C, 0x200D, 0x2070, 0x218F, 0x2C00, 0x2FEF, 0x3001, 0xD7FF,
+            0xF900, 0xFDCF, 0xFDF0, 0xFFFD, 0x10000, 0xEFFFF});
+
+    /** \c: characters that may appear in an XML name */
+    static final CharClass NAME_CHAR = new Union(List.of(NAME_START, new Ranges(new int[] {
+            '-', '.', '0', '9', 0xB7, 0xB7, 0x300, 0x36F, 0x203F, 0x2040})));
+
+    /** \d */
+    static final CharClass DIGIT = new Category(1 << Character.DECIMAL_DIGIT_NUMBER);
+
+    private static final Map<String, Integer> CATEGORIES = new HashMap<>();
+
+    static {
+        CATEGORIES.put("Lu", 1 << Character.UPPERCASE_LETTER);
+        CATEGORIES.put("Ll", 1 << Character.LOWERCASE_LETTER);
+        CATEGORIES.put("Lt", 1 << Character.TITLECASE_LETTER);
+        CATEGORIES.put("Lm", 1 << Character.MODIFIER_LETTER);
+        CATEGORIES.put("Lo", 1 << Character.OTHER_LETTER);
+        CATEGORIES.put("Mn", 1 << Character.NON_SPACING_MARK);
+        CATEGORIES.put("Mc", 1 << Character.COMBINING_SPACING_MARK);
+        CATEGORIES.put("Me", 1 << Character.ENCLOSING_MARK);
+        CATEGORIES.put("Nd", 1 << Character.DECIMAL_DIGIT_NUMBER);
+        CATEGORIES.put("Nl", 1 << Character.LETTER_NUMBER);
+        CATEGORIES.put("No", 1 << Character.OTHER_NUMBER);
+        CATEGORIES.put("Pc", 1 << Character.CONNECTOR_PUNCTUATION);
+        CATEGORIES.put("Pd", 1 << Character.DASH_PUNCTUATION);
+        CATEGORIES.put("Ps", 1 << Character.START_PUNCTUATION);
+        CATEGORIES.put("Pe", 1 << Character.END_PUNCTUATION);
+        CATEGORIES.put("Pi", 1 << Character.INITIAL_QUOTE_PUNCTUATION);
+        CATEGORIES.put("Pf", 1 << Character.FINAL_QUOTE_PUNCTUATION);
+        CATEGORIES.put("Po", 1 << Character.OTHER_PUNCTUATION);
+        CATEGORIES.put("Zs", 1 << Character.SPACE_SEPARATOR);
+        CATEGORIES.put("Zl", 1 << Character.LINE_SEPARATOR);
+        CATEGORIES.put("Zp", 1 << Character.PARAGRAPH_SEPARATOR);
+        CATEGORIES.put("Sm", 1 << Character.MATH_SYMBOL);
+        CATEGORIES.put("Sc", 1 << Character.CURRENCY_SYMBOL);
+        CATEGORIES.put("Sk", 1 << Character.MODIFIER_SYMBOL);
+        CATEGORIES.put("So", 1 << Character.OTHER_SYMBOL);
+        CATEGORIES.put("Cc", 1 << Character.CONTROL);
+        CATEGORIES.put("Cf", 1 << Character.FORMAT);
+        CATEGORIES.put("Co", 1 << Character.PRIVATE_USE);
+        CATEGORIES.put("Cn", 1 << Character.UNASSIGNED);
+        CATEGORIES.put("Cs", 1 << Character.SURROGATE);
+
+        for (String major : new String[] {"L", "M", "N", "P", "Z", "S", "C"}) {
+            int mask = 0;
+            for (Map.Entry<String, Integer> entry : CATEGORIES.entrySet()) {
+                if (entry.getKey().length() == 2 && entry.getKey().charAt(0) == major.charAt(0)) {
+                    mask |= entry.getValue();
+                }
+            }
+            CATEGORIES.put(major, mask);
+        }
+    }
+
+    /** \w: everything except punctuation, separators and "other" characters */
+    static final CharClass WORD = new Negation(
+            new Category(CATEGORIES.get("P") | CATEGORIES.get("Z") | CATEGORIES.get("C")));
+
+    abstract boolean contains(int codePoint);
+
+    static CharClass single(int codePoint) {
+        return new Ranges(new int[] {codePoint, codePoint});
+    }
+
+    static CharClass range(int from, int to) {
+        return new Ranges(new int[] {from, to});
+    }
+
+    /**
+     * Resolves the name inside \p{...}: a general category such as "Lu" or a block such as "IsBasicLatin".
+     * Returns null if the name is unknown.
+     */
+    static CharClass property(String name) {
+        Integer mask = CATEGORIES.get(name);
+        if (mask != null) {
+            return new Category(mask);
+        }
+        if (name.startsWith("Is") && name.length() > 2) {
+            try {
+                return new Block(Character.UnicodeBlock.forName(name.substring(2)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sorted, inclusive code point ranges stored as [from0, to0, from1, to1, ...]
+     */
+    static final class Ranges extends CharClass {
+        private final int[] bounds;
+
+        Ranges(int[] bounds) {
+            this.bounds = bounds;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            for (int i = 0; i < bounds.length; i += 2) {
+                if (codePoint < bounds[i]) {
+                    return false;
+                }
+                if (codePoint <= bounds[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Category extends CharClass {
+        private final int typeMask;
+
+        Category(int typeMask) {
+            this.typeMask = typeMask;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            return (typeMask & (1 << Character.getType(codePoint))) != 0;
+        }
+    }
+
+    static final class Block extends CharClass {
+        private final Character.UnicodeBlock block;
+
+        Block(Character.UnicodeBlock block) {
+            this.block = block;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            return Character.UnicodeBlock.of(codePoint) == block;
+        }
+    }
+
+    static final class Union extends CharClass {
+        private final CharClass[] members;
+
+        Union(List<CharClass> members) {
+            this.members = members.toArray(new CharClass[0]);
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            for (CharClass member : members) {
+                if (member.contains(codePoint)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Negation extends CharClass {
+        private final CharClass negated;
+
+        Negation(CharClass negated) {
+            this.negated = negated;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            return !negated.contains(codePoint);
+        }
+    }
+
+    /**
+     * Character class subtraction, e.g. [a-z-[aeiou]]
+     */
+    static final class Subtraction extends CharClass {
+        private final CharClass base;
+        private final CharClass excluded;
+
+        Subtraction(CharClass base, CharClass excluded) {
+            this.base = base;
+            this.excluded = excluded;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            return base.contains(codePoint) && !excluded.contains(codePoint);
+        }
+    }
+
+    /**
+     * Wraps a class with a precomputed bitmap for ASCII, where nearly all facet input lives
+     */
+    static final class AsciiCached extends CharClass {
+        private final CharClass delegate;
+        private final long low;
+        private final long high;
+
+        AsciiCached(CharClass delegate) {
+            this.delegate = delegate;
+            long lo = 0;
+            long hi = 0;
+            for (int c = 0; c < 64; c++) {
+                if (delegate.contains(c)) lo |= 1L << c;
+                if (delegate.contains(c + 64)) hi |= 1L << c;
+            }
+            this.low = lo;
+            this.high = hi;
+        }
+
+        @Override
+        boolean contains(int codePoint) {
+            if (codePoint < 64) {
+                return (low & (1L << codePoint)) != 0;
+            }
+            if (codePoint < 128) {
+                return (high & (1L << (codePoint - 64))) != 0;
+            }
+            return delegate.contains(codePoint);
+        }
+    }
+}
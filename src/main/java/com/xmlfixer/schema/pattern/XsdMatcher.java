@@ -0,0 +1,113 @@
+package com.xmlfixer.schema.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Reusable matching state for one XsdPattern.
+ * Simulates all NFA threads in lock step, one code point at a time, so each input character
+ * is examined at most once per program instruction. Holds scratch arrays sized to the program
+ * and allocates nothing per match; confine each instance to a single thread.
+ */
+public final class XsdMatcher {
+
+    private final XsdPattern pattern;
+    private int[] current;
+    private int[] next;
+    private final int[] marks;
+    private final int[] stack;
+    private int generation;
+
+    XsdMatcher(XsdPattern pattern) {
+        this.pattern = pattern;
+        int size = pattern.programSize();
+        this.current = new int[size];
+        this.next = new int[size];
+        this.marks = new int[size];
+        this.stack = new int[2 * size + 1];
+    }
+
+    public XsdPattern pattern() { return pattern; }
+
+    /**
+     * Checks whether the whole input matches the pattern
+     */
+    public boolean matches(CharSequence input) {
+        int[] ops = pattern.ops;
+        int[] arg1 = pattern.arg1;
+        CharClass[] classes = pattern.classes;
+
+        nextGeneration();
+        int count = addThread(current, 0, 0);
+        int length = input.length();
+        int index = 0;
+
+        while (index < length && count > 0) {
+            int codePoint = Character.codePointAt(input, index);
+            index += Character.charCount(codePoint);
+            nextGeneration();
+
+            int nextCount = 0;
+            for (int i = 0; i < count; i++) {
+                int pc = current[i];
+                if (ops[pc] == XsdPattern.OP_CLASS && classes[arg1[pc]].contains(codePoint)) {
+                    nextCount = addThread(next, nextCount, pc + 1);
+                }
+            }
+
+            int[] swap = current;
+            current = next;
+            next = swap;
+            count = nextCount;
+        }
+
+        if (index < length) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (ops[current[i]] == XsdPattern.OP_MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the epsilon closure of start to list, skipping instructions already added this step
+     */
+    private int addThread(int[] list, int count, int start) {
+        int[] ops = pattern.ops;
+        int[] arg1 = pattern.arg1;
+        int[] arg2 = pattern.arg2;
+
+        int top = 0;
+        stack[top++] = start;
+        while (top > 0) {
+            int pc = stack[--top];
+            if (marks[pc] == generation) {
+                continue;
+            }
+            marks[pc] = generation;
+
+            switch (ops[pc]) {
+                case XsdPattern.OP_JUMP:
+                    stack[top++] = arg1[pc];
+                    break;
+                case XsdPattern.OP_SPLIT:
+                    stack[top++] = arg2[pc];
+                    stack[top++] = arg1[pc];
+                    break;
+                default:
+                    list[count++] = pc;
+                    break;
+            }
+        }
+        return count;
+    }
+
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+    }
+}
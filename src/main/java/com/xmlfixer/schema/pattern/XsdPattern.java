@@ -0,0 +1,172 @@
+package com.xmlfixer.schema.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled XSD pattern facet.
+ * Patterns are implicitly anchored and are translated into a Thompson NFA program, which is
+ * simulated without backtracking: matching costs O(input length x program size) for any
+ * input, so a hostile value cannot stall a validation worker the way nested quantifiers
+ * can with java.util.regex. Instances are immutable and may be shared between threads.
+ */
+public final class XsdPattern {
+
+    /** Upper bound on program size; large counted repetitions are expanded inline */
+    static final int MAX_PROGRAM_SIZE = 50_000;
+
+    static final int OP_CLASS = 0;
+    static final int OP_SPLIT = 1;
+    static final int OP_JUMP = 2;
+    static final int OP_MATCH = 3;
+
+    private final String pattern;
+    final int[] ops;
+    final int[] arg1;
+    final int[] arg2;
+    final CharClass[] classes;
+
+    private XsdPattern(String pattern, Compiler compiler) {
+        this.pattern = pattern;
+        int size = compiler.size;
+        this.ops = Arrays.copyOf(compiler.ops, size);
+        this.arg1 = Arrays.copyOf(compiler.arg1, size);
+        this.arg2 = Arrays.copyOf(compiler.arg2, size);
+        this.classes = compiler.classes.toArray(new CharClass[0]);
+    }
+
+    /**
+     * Compiles an XSD pattern
+     *
+     * @throws XsdPatternException if the pattern is not valid XSD regex syntax or is too large
+     */
+    public static XsdPattern compile(String pattern) {
+        XsdRegexParser.Node root = new XsdRegexParser(pattern).parse();
+        Compiler compiler = new Compiler(pattern);
+        compiler.emit(root);
+        compiler.add(OP_MATCH, 0, 0);
+        return new XsdPattern(pattern, compiler);
+    }
+
+    /**
+     * Creates a reusable matcher; matchers are not thread-safe
+     */
+    public XsdMatcher matcher() {
+        return new XsdMatcher(this);
+    }
+
+    /**
+     * Checks whether the whole input matches; allocates a matcher per call
+     */
+    public boolean matches(CharSequence input) {
+        return matcher().matches(input);
+    }
+
+    public String pattern() { return pattern; }
+
+    int programSize() { return ops.length; }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Emits the NFA program for a parsed pattern
+     */
+    private static final class Compiler {
+        private final String pattern;
+        private final Map<CharClass, Integer> classIndex = new IdentityHashMap<>();
+        private final List<CharClass> classes = new ArrayList<>();
+        private int[] ops = new int[16];
+        private int[] arg1 = new int[16];
+        private int[] arg2 = new int[16];
+        private int size;
+
+        Compiler(String pattern) {
+            this.pattern = pattern;
+        }
+
+        void emit(XsdRegexParser.Node node) {
+            if (node instanceof XsdRegexParser.Node.Atom) {
+                CharClass charClass = ((XsdRegexParser.Node.Atom) node).charClass;
+                Integer index = classIndex.get(charClass);
+                if (index == null) {
+                    index = classes.size();
+                    classes.add(new CharClass.AsciiCached(charClass));
+                    classIndex.put(charClass, index);
+                }
+                add(OP_CLASS, index, 0);
+            } else if (node instanceof XsdRegexParser.Node.Concatenation) {
+                for (XsdRegexParser.Node part : ((XsdRegexParser.Node.Concatenation) node).parts) {
+                    emit(part);
+                }
+            } else if (node instanceof XsdRegexParser.Node.Alternation) {
+                emitAlternation(((XsdRegexParser.Node.Alternation) node).branches);
+            } else {
+                emitRepeat((XsdRegexParser.Node.Repeat) node);
+            }
+        }
+
+        private void emitAlternation(List<XsdRegexParser.Node> branches) {
+            List<Integer> exits = new ArrayList<>();
+            for (int i = 0; i < branches.size() - 1; i++) {
+                int split = add(OP_SPLIT, 0, 0);
+                arg1[split] = size;
+                emit(branches.get(i));
+                exits.add(add(OP_JUMP, 0, 0));
+                arg2[split] = size;
+            }
+            emit(branches.get(branches.size() - 1));
+            for (int exit : exits) {
+                arg1[exit] = size;
+            }
+        }
+
+        private void emitRepeat(XsdRegexParser.Node.Repeat repeat) {
+            for (int i = 0; i < repeat.min; i++) {
+                emit(repeat.body);
+            }
+
+            if (repeat.max == XsdRegexParser.Node.Repeat.UNBOUNDED) {
+                int split = add(OP_SPLIT, 0, 0);
+                arg1[split] = size;
+                emit(repeat.body);
+                add(OP_JUMP, split, 0);
+                arg2[split] = size;
+                return;
+            }
+
+            // Optional copies all skip to the common end: x{1,3} = x(x(x)?)?
+            List<Integer> skips = new ArrayList<>();
+            for (int i = repeat.min; i < repeat.max; i++) {
+                int split = add(OP_SPLIT, 0, 0);
+                arg1[split] = size;
+                skips.add(split);
+                emit(repeat.body);
+            }
+            for (int split : skips) {
+                arg2[split] = size;
+            }
+        }
+
+        int add(int op, int first, int second) {
+            if (size == MAX_PROGRAM_SIZE) {
+                throw new XsdPatternException("Pattern is too large to compile", pattern, pattern.length());
+            }
+            if (size == ops.length) {
+                int capacity = Math.min(size * 2, MAX_PROGRAM_SIZE);
+                ops = Arrays.copyOf(ops, capacity);
+                arg1 = Arrays.copyOf(arg1, capacity);
+                arg2 = Arrays.copyOf(arg2, capacity);
+            }
+            ops[size] = op;
+            arg1[size] = first;
+            arg2[size] = second;
+            return size++;
+        }
+    }
+}
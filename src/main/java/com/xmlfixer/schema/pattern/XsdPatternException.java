@@ -0,0 +1,24 @@
+package com.xmlfixer.schema.pattern;
+
+import com.xmlfixer.common.exceptions.XmlFixerException;
+
+/**
+ * Thrown when an XSD pattern facet is not a valid XML Schema regular expression
+ */
+public class XsdPatternException extends XmlFixerException {
+
+    private final String description;
+    private final String pattern;
+    private final int index;
+
+    public XsdPatternException(String description, String pattern, int index) {
+        super(String.format("%s near index %d: %s", description, index, pattern), "INVALID_PATTERN");
+        this.description = description;
+        this.pattern = pattern;
+        this.index = index;
+    }
+
+    public String getDescription() { return description; }
+    public String getPattern() { return pattern; }
+    public int getIndex() { return index; }
+}
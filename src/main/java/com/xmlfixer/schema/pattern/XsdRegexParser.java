@@ -0,0 +1,343 @@
+package com.xmlfixer.schema.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive-descent parser for the XML Schema regular expression dialect (XSD Part 2, Appendix F).
+ * Differs from java.util.regex in that '^' and '$' are ordinary characters, \i and \c name
+ * classes exist, character classes support subtraction and there are no lazy quantifiers,
+ * back-references or lookaround.
+ */
+class XsdRegexParser {
+
+    /** Largest bound accepted in {n,m}; the program size limit usually applies first */
+    private static final int MAX_REPEAT = 10_000;
+
+    private final String regex;
+    private int pos;
+
+    XsdRegexParser(String regex) {
+        this.regex = regex;
+    }
+
+    Node parse() {
+        Node node = parseRegExp();
+        if (pos < regex.length()) {
+            throw error(regex.charAt(pos) == ')' ? "Unmatched ')'" : "Unexpected character '" + regex.charAt(pos) + "'");
+        }
+        return node;
+    }
+
+    private Node parseRegExp() {
+        List<Node> branches = new ArrayList<>();
+        branches.add(parseBranch());
+        while (peek() == '|') {
+            pos++;
+            branches.add(parseBranch());
+        }
+        return branches.size() == 1 ? branches.get(0) : new Node.Alternation(branches);
+    }
+
+    private Node parseBranch() {
+        List<Node> pieces = new ArrayList<>();
+        while (pos < regex.length() && peek() != '|' && peek() != ')') {
+            pieces.add(parsePiece());
+        }
+        return pieces.size() == 1 ? pieces.get(0) : new Node.Concatenation(pieces);
+    }
+
+    private Node parsePiece() {
+        Node atom = parseAtom();
+        if (pos >= regex.length()) {
+            return atom;
+        }
+
+        switch (peek()) {
+            case '?':
+                pos++;
+                return new Node.Repeat(atom, 0, 1);
+            case '*':
+                pos++;
+                return new Node.Repeat(atom, 0, Node.Repeat.UNBOUNDED);
+            case '+':
+                pos++;
+                return new Node.Repeat(atom, 1, Node.Repeat.UNBOUNDED);
+            case '{':
+                return parseQuantity(atom);
+            default:
+                return atom;
+        }
+    }
+
+    private Node parseQuantity(Node atom) {
+        int start = pos++;
+        int min = parseNumber();
+        int max = min;
+        if (peek() == ',') {
+            pos++;
+            max = peek() == '}' ? Node.Repeat.UNBOUNDED : parseNumber();
+        }
+        if (peek() != '}') {
+            throw error("Unterminated quantifier");
+        }
+        pos++;
+        if (max != Node.Repeat.UNBOUNDED && max < min) {
+            pos = start;
+            throw error("Quantifier maximum is smaller than its minimum");
+        }
+        return new Node.Repeat(atom, min, max);
+    }
+
+    private int parseNumber() {
+        int start = pos;
+        long value = 0;
+        while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9') {
+            value = value * 10 + (regex.charAt(pos++) - '0');
+            if (value > MAX_REPEAT) {
+                throw error("Quantifier bound exceeds " + MAX_REPEAT);
+            }
+        }
+        if (pos == start) {
+            throw error("Expected a number in quantifier");
+        }
+        return (int) value;
+    }
+
+    private Node parseAtom() {
+        int c = peek();
+        switch (c) {
+            case '(': {
+                pos++;
+                Node group = parseRegExp();
+                if (peek() != ')') {
+                    throw error("Unclosed group");
+                }
+                pos++;
+                return group;
+            }
+            case '[':
+                pos++;
+                return new Node.Atom(parseCharClassExpr());
+            case '.':
+                pos++;
+                return new Node.Atom(CharClass.WILDCARD);
+            case '\\':
+                return new Node.Atom(parseEscape(false));
+            case '?':
+            case '*':
+            case '+':
+            case '{':
+                throw error("Quantifier '" + (char) c + "' has nothing to repeat");
+            case '}':
+            case ']':
+                throw error("Unescaped '" + (char) c + "'");
+            default:
+                pos += Character.charCount(c);
+                return new Node.Atom(CharClass.single(c));
+        }
+    }
+
+    /**
+     * Parses a bracket expression; the opening '[' has been consumed
+     */
+    private CharClass parseCharClassExpr() {
+        boolean negated = false;
+        if (peek() == '^') {
+            negated = true;
+            pos++;
+        }
+
+        List<CharClass> members = new ArrayList<>();
+        CharClass subtracted = null;
+        boolean first = true;
+
+        while (true) {
+            if (pos >= regex.length()) {
+                throw error("Unclosed character class");
+            }
+            int c = peek();
+            if (c == ']' && !first) {
+                pos++;
+                break;
+            }
+            if (c == '-' && !first && peekAt(pos + 1) == '[') {
+                pos += 2;
+                subtracted = parseCharClassExpr();
+                if (peek() != ']') {
+                    throw error("Subtraction must be the last part of a character class");
+                }
+                pos++;
+                break;
+            }
+            if (c == '[') {
+                throw error("Unescaped '[' in character class");
+            }
+
+            if (c == '\\') {
+                int escapeStart = pos;
+                CharClass escaped = parseEscape(true);
+                int single = singleCharEscape(escapeStart);
+                if (single >= 0 && peek() == '-' && peekAt(pos + 1) != '[' && peekAt(pos + 1) != ']') {
+                    members.add(parseRangeEnd(single));
+                } else {
+                    members.add(escaped);
+                }
+            } else if (c == '-' && !first && peekAt(pos + 1) != ']') {
+                throw error("'-' must be escaped or placed at the start or end of a character class");
+            } else {
+                pos += Character.charCount(c);
+                if (peek() == '-' && peekAt(pos + 1) != '[' && peekAt(pos + 1) != ']') {
+                    members.add(parseRangeEnd(c));
+                } else {
+                    members.add(CharClass.single(c));
+                }
+            }
+            first = false;
+        }
+
+        CharClass group = members.size() == 1 ? members.get(0) : new CharClass.Union(members);
+        if (negated) {
+            group = new CharClass.Negation(group);
+        }
+        return subtracted != null ? new CharClass.Subtraction(group, subtracted) : group;
+    }
+
+    /**
+     * Parses the upper bound of a range whose lower bound is already known; pos is at the '-'
+     */
+    private CharClass parseRangeEnd(int from) {
+        pos++;
+        int to;
+        if (peek() == '\\') {
+            int escapeStart = pos;
+            parseEscape(true);
+            to = singleCharEscape(escapeStart);
+            if (to < 0) {
+                throw error("Range bound must be a single character");
+            }
+        } else if (peek() == '[') {
+            throw error("Unescaped '[' in character class");
+        } else {
+            to = peek();
+            pos += Character.charCount(to);
+        }
+        if (to < from) {
+            throw error("Character range is out of order");
+        }
+        return CharClass.range(from, to);
+    }
+
+    /**
+     * Returns the character denoted by the single-character escape at index, or -1 for class escapes
+     */
+    private int singleCharEscape(int index) {
+        char c = regex.charAt(index + 1);
+        switch (c) {
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 's': case 'S': case 'i': case 'I': case 'c': case 'C':
+            case 'd': case 'D': case 'w': case 'W': case 'p': case 'P':
+                return -1;
+            default: return c;
+        }
+    }
+
+    private CharClass parseEscape(boolean inClass) {
+        pos++;
+        if (pos >= regex.length()) {
+            throw error("Pattern ends with an escape character");
+        }
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 'n': return CharClass.single('\n');
+            case 'r': return CharClass.single('\r');
+            case 't': return CharClass.single('\t');
+            case '\\': case '|': case '.': case '?': case '*': case '+':
+            case '(': case ')': case '{': case '}': case '-': case '[': case ']': case '^':
+            case '$':
+                return CharClass.single(c);
+            case 's': return CharClass.SPACE;
+            case 'S': return new CharClass.Negation(CharClass.SPACE);
+            case 'i': return CharClass.NAME_START;
+            case 'I': return new CharClass.Negation(CharClass.NAME_START);
+            case 'c': return CharClass.NAME_CHAR;
+            case 'C': return new CharClass.Negation(CharClass.NAME_CHAR);
+            case 'd': return CharClass.DIGIT;
+            case 'D': return new CharClass.Negation(CharClass.DIGIT);
+            case 'w': return CharClass.WORD;
+            case 'W': return new CharClass.Negation(CharClass.WORD);
+            case 'p':
+            case 'P': {
+                CharClass property = parseProperty();
+                return c == 'p' ? property : new CharClass.Negation(property);
+            }
+            default:
+                pos--;
+                throw error("Unsupported escape '\\" + c + "'");
+        }
+    }
+
+    private CharClass parseProperty() {
+        if (peek() != '{') {
+            throw error("Expected '{' after \\p");
+        }
+        int close = regex.indexOf('}', pos);
+        if (close < 0) {
+            throw error("Unclosed property escape");
+        }
+        String name = regex.substring(pos + 1, close);
+        CharClass property = CharClass.property(name);
+        if (property == null) {
+            throw error("Unknown character property '" + name + "'");
+        }
+        pos = close + 1;
+        return property;
+    }
+
+    private int peek() {
+        return peekAt(pos);
+    }
+
+    private int peekAt(int index) {
+        return index < regex.length() ? regex.codePointAt(index) : -1;
+    }
+
+    private XsdPatternException error(String description) {
+        return new XsdPatternException(description, regex, pos);
+    }
+
+    /**
+     * Parsed form of a pattern
+     */
+    abstract static class Node {
+
+        static final class Atom extends Node {
+            final CharClass charClass;
+            Atom(CharClass charClass) { this.charClass = charClass; }
+        }
+
+        static final class Concatenation extends Node {
+            final List<Node> parts;
+            Concatenation(List<Node> parts) { this.parts = parts; }
+        }
+
+        static final class Alternation extends Node {
+            final List<Node> branches;
+            Alternation(List<Node> branches) { this.branches = branches; }
+        }
+
+        static final class Repeat extends Node {
+            static final int UNBOUNDED = -1;
+            final Node body;
+            final int min;
+            final int max;
+            Repeat(Node body, int min, int max) {
+                this.body = body;
+                this.min = min;
+                this.max = max;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.xmlfixer.validation;
+
+import java.util.Arrays;
+
+/**
+ * Interns element names and element paths to small ints for the streaming validator.
+ * Both tables are open-addressed, so looking up the names handed over by the SAX parser
+ * allocates nothing once a name has been seen. A path is identified by its parent path and
+ * its last name symbol; the string form is only built for error reports, once per path.
+ * Not thread-safe: each validation run uses its own table.
+ */
+final class ElementSymbolTable {
+
+    /** Path id of the document itself, the parent of the root element */
+    static final int DOCUMENT_PATH = 0;
+
+    // Symbols: names by symbol, open-addressed slots holding symbol + 1
+    private String[] names = new String[64];
+    private int[] nameSlots = new int[128];
+    private int nameCount;
+
+    // Paths: parent and symbol by path id, open-addressed slots holding path id + 1
+    private int[] pathParents = new int[256];
+    private int[] pathSymbols = new int[256];
+    private int[] pathSlots = new int[512];
+    private int pathCount = 1;
+    private String[] pathStrings = new String[256];
+
+    ElementSymbolTable() {
+        pathParents[DOCUMENT_PATH] = -1;
+        pathSymbols[DOCUMENT_PATH] = -1;
+    }
+
+    /**
+     * Returns the symbol for an element name, assigning the next one if the name is new
+     */
+    int symbol(String name) {
+        int mask = nameSlots.length - 1;
+        int slot = mix(name.hashCode()) & mask;
+        while (nameSlots[slot] != 0) {
+            String candidate = names[nameSlots[slot] - 1];
+            if (candidate == name || candidate.equals(name)) {
+                return nameSlots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameSlots[slot] = ++nameCount;
+        if (nameCount * 2 > nameSlots.length) {
+            rehashNames();
+        }
+        return nameCount - 1;
+    }
+
+    String name(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * Returns the id of the path made of parentPath followed by symbol, assigning one if new
+     */
+    int path(int parentPath, int symbol) {
+        int mask = pathSlots.length - 1;
+        int slot = mix(parentPath * 31 + symbol) & mask;
+        while (pathSlots[slot] != 0) {
+            int path = pathSlots[slot] - 1;
+            if (pathParents[path] == parentPath && pathSymbols[path] == symbol) {
+                return path;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (pathCount == pathParents.length) {
+            pathParents = Arrays.copyOf(pathParents, pathCount * 2);
+            pathSymbols = Arrays.copyOf(pathSymbols, pathCount * 2);
+            pathStrings = Arrays.copyOf(pathStrings, pathCount * 2);
+        }
+        pathParents[pathCount] = parentPath;
+        pathSymbols[pathCount] = symbol;
+        pathSlots[slot] = ++pathCount;
+        if (pathCount * 2 > pathSlots.length) {
+            rehashPaths();
+        }
+        return pathCount - 1;
+    }
+
+    /**
+     * Slash-separated form of a path, such as "/root/child"; built on first use and kept,
+     * since every error at the same path reports the same string
+     */
+    String pathString(int path) {
+        if (path <= DOCUMENT_PATH) {
+            return "";
+        }
+        String cached = pathStrings[path];
+        if (cached == null) {
+            cached = buildPathString(path);
+            pathStrings[path] = cached;
+        }
+        return cached;
+    }
+
+    private String buildPathString(int path) {
+        int depth = 0;
+        for (int p = path; p > DOCUMENT_PATH; p = pathParents[p]) {
+            depth++;
+        }
+        String[] segments = new String[depth];
+        for (int p = path; p > DOCUMENT_PATH; p = pathParents[p]) {
+            segments[--depth] = names[pathSymbols[p]];
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (String segment : segments) {
+            builder.append('/').append(segment);
+        }
+        return builder.toString();
+    }
+
+    private void rehashNames() {
+        int[] slots = new int[nameSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int symbol = 0; symbol < nameCount; symbol++) {
+            int slot = mix(names[symbol].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = symbol + 1;
+        }
+        nameSlots = slots;
+    }
+
+    private void rehashPaths() {
+        int[] slots = new int[pathSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int path = DOCUMENT_PATH + 1; path < pathCount; path++) {
+            int slot = mix(pathParents[path] * 31 + pathSymbols[path]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = path + 1;
+        }
+        pathSlots = slots;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
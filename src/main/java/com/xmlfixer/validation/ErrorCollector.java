@@ -1,344 +1,97 @@
 package com.xmlfixer.validation;
 
 import com.xmlfixer.validation.model.ErrorType;
-import com.xmlfixer.validation.model.ValidationError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Service for collecting, organizing, and analyzing validation errors
+ * Collects validation error totals across runs.
+ * Each run writes to its own ErrorSink and adds its counts here when it ends, so concurrent
+ * validations never share per-error state and no run's errors outlive it. Totals per error
+ * type are striped LongAdder counters, so recording from parallel batch workers does not
+ * contend on a lock.
  */
 @Singleton
 public class ErrorCollector {
 
     private static final Logger logger = LoggerFactory.getLogger(ErrorCollector.class);
 
-    // Error storage by category
-    private final Map<ErrorType, List<ValidationError>> errorsByType;
-    private final Map<String, List<ValidationError>> errorsByElement;
-    private final Map<String, List<ValidationError>> errorsByPath;
-    private final List<ValidationError> allErrors;
-    private final List<ValidationError> allWarnings;
+    private static final ErrorType[] ERROR_TYPES = ErrorType.values();
 
-    // Statistics
-    private int totalErrorCount;
-    private int totalWarningCount;
-    private Map<ErrorType, Integer> errorTypeCount;
+    // Totals across runs
+    private final LongAdder[] errorTypeTotals;
+    private final LongAdder totalErrorCount = new LongAdder();
+    private final LongAdder totalWarningCount = new LongAdder();
+    private final LongAdder runCount = new LongAdder();
 
     @Inject
     public ErrorCollector() {
-        this.errorsByType = new ConcurrentHashMap<>();
-        this.errorsByElement = new ConcurrentHashMap<>();
-        this.errorsByPath = new ConcurrentHashMap<>();
-        this.allErrors = Collections.synchronizedList(new ArrayList<>());
-        this.allWarnings = Collections.synchronizedList(new ArrayList<>());
-        this.errorTypeCount = new ConcurrentHashMap<>();
-
-        logger.info("ErrorCollector initialized");
-    }
-
-    /**
-     * Reports a list of validation errors
-     */
-    public void reportErrors(List<ValidationError> errors) {
-        if (errors == null || errors.isEmpty()) {
-            return;
-        }
-
-        for (ValidationError error : errors) {
-            collectError(error);
-        }
-
-        logger.debug("Collected {} errors", errors.size());
-    }
-
-    /**
-     * Reports a list of validation warnings
-     */
-    public void reportWarnings(List<ValidationError> warnings) {
-        if (warnings == null || warnings.isEmpty()) {
-            return;
-        }
-
-        for (ValidationError warning : warnings) {
-            warning.setSeverity(ValidationError.Severity.WARNING);
-            collectWarning(warning);
-        }
-
-        logger.debug("Collected {} warnings", warnings.size());
-    }
-
-    /**
-     * Collects a single validation error
-     */
-    public void collectError(ValidationError error) {
-        if (error == null) {
-            return;
-        }
-
-        // Add to all errors list
-        allErrors.add(error);
-        totalErrorCount++;
-
-        // Categorize by error type
-        errorsByType.computeIfAbsent(error.getErrorType(), k -> new ArrayList<>()).add(error);
-
-        // Categorize by element name
-        if (error.getElementName() != null) {
-            errorsByElement.computeIfAbsent(error.getElementName(), k -> new ArrayList<>()).add(error);
-        }
-
-        // Categorize by path
-        if (error.getxPath() != null) {
-            errorsByPath.computeIfAbsent(error.getxPath(), k -> new ArrayList<>()).add(error);
+        this.errorTypeTotals = new LongAdder[ERROR_TYPES.length];
+        for (int i = 0; i < errorTypeTotals.length; i++) {
+            errorTypeTotals[i] = new LongAdder();
         }
 
-        // Update error type count
-        errorTypeCount.merge(error.getErrorType(), 1, Integer::sum);
-
-        logger.trace("Collected error: {} at {}", error.getMessage(), error.getLocationString());
+        logger.info("ErrorCollector initialized");
     }
 
     /**
-     * Collects a single validation warning
+     * Adds the counts of a finished run to the totals; the sink itself is not kept
      */
-    public void collectWarning(ValidationError warning) {
-        if (warning == null) {
-            return;
+    public void record(ErrorSink sink) {
+        for (ErrorType errorType : ERROR_TYPES) {
+            int count = sink.getErrorCount(errorType);
+            if (count > 0) {
+                errorTypeTotals[errorType.ordinal()].add(count);
+            }
         }
+        totalErrorCount.add(sink.getErrorCount());
+        totalWarningCount.add(sink.getWarningCount());
+        runCount.increment();
 
-        warning.setSeverity(ValidationError.Severity.WARNING);
-        allWarnings.add(warning);
-        totalWarningCount++;
-
-        logger.trace("Collected warning: {} at {}", warning.getMessage(), warning.getLocationString());
-    }
-
-    /**
-     * Gets all collected errors
-     */
-    public List<ValidationError> getAllErrors() {
-        return new ArrayList<>(allErrors);
-    }
-
-    /**
-     * Gets all collected warnings
-     */
-    public List<ValidationError> getAllWarnings() {
-        return new ArrayList<>(allWarnings);
+        logger.debug("Recorded run with {} errors, {} warnings", sink.getErrorCount(), sink.getWarningCount());
     }
 
-    /**
-     * Gets errors by type
-     */
-    public List<ValidationError> getErrorsByType(ErrorType errorType) {
-        return errorsByType.getOrDefault(errorType, Collections.emptyList());
-    }
+    public long getRunCount() { return runCount.sum(); }
+    public long getTotalErrorCount() { return totalErrorCount.sum(); }
+    public long getTotalWarningCount() { return totalWarningCount.sum(); }
 
-    /**
-     * Gets errors by element name
-     */
-    public List<ValidationError> getErrorsByElement(String elementName) {
-        return errorsByElement.getOrDefault(elementName, Collections.emptyList());
+    public long getTotalErrorCount(ErrorType errorType) {
+        return errorTypeTotals[errorType.ordinal()].sum();
     }
 
     /**
-     * Gets errors by XPath
+     * Error counts per type across all recorded runs, omitting types that never occurred
      */
-    public List<ValidationError> getErrorsByPath(String xPath) {
-        return errorsByPath.getOrDefault(xPath, Collections.emptyList());
-    }
-
-    /**
-     * Gets error summary statistics
-     */
-    public ErrorSummary getErrorSummary() {
-        ErrorSummary summary = new ErrorSummary();
-        summary.setTotalErrors(totalErrorCount);
-        summary.setTotalWarnings(totalWarningCount);
-        summary.setErrorTypeDistribution(new HashMap<>(errorTypeCount));
-        summary.setMostCommonErrorType(findMostCommonErrorType());
-        summary.setElementsWithErrors(errorsByElement.keySet());
-        summary.setPathsWithErrors(errorsByPath.keySet());
-
-        return summary;
-    }
-
-    /**
-     * Groups errors by line number for easier fixing
-     */
-    public Map<Integer, List<ValidationError>> getErrorsByLine() {
-        return allErrors.stream()
-                .filter(error -> error.getLineNumber() > 0)
-                .collect(Collectors.groupingBy(ValidationError::getLineNumber));
-    }
-
-    /**
-     * Gets critical errors (those that must be fixed)
-     */
-    public List<ValidationError> getCriticalErrors() {
-        Set<ErrorType> criticalTypes = EnumSet.of(
-                ErrorType.MISSING_REQUIRED_ELEMENT,
-                ErrorType.MISSING_REQUIRED_ATTRIBUTE,
-                ErrorType.MALFORMED_XML,
-                ErrorType.SCHEMA_VIOLATION
-        );
-
-        return allErrors.stream()
-                .filter(error -> criticalTypes.contains(error.getErrorType()))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Gets structural errors (element order, cardinality)
-     */
-    public List<ValidationError> getStructuralErrors() {
-        Set<ErrorType> structuralTypes = EnumSet.of(
-                ErrorType.INVALID_ELEMENT_ORDER,
-                ErrorType.TOO_FEW_OCCURRENCES,
-                ErrorType.TOO_MANY_OCCURRENCES,
-                ErrorType.UNEXPECTED_ELEMENT
-        );
-
-        return allErrors.stream()
-                .filter(error -> structuralTypes.contains(error.getErrorType()))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Gets data quality errors (type, format, value issues)
-     */
-    public List<ValidationError> getDataQualityErrors() {
-        Set<ErrorType> dataTypes = EnumSet.of(
-                ErrorType.INVALID_DATA_TYPE,
-                ErrorType.INVALID_FORMAT,
-                ErrorType.INVALID_VALUE_RANGE,
-                ErrorType.PATTERN_MISMATCH,
-                ErrorType.EMPTY_REQUIRED_CONTENT
-        );
-
-        return allErrors.stream()
-                .filter(error -> dataTypes.contains(error.getErrorType()))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Generates a detailed error report
-     */
-    public String generateDetailedReport() {
-        StringBuilder report = new StringBuilder();
-
-        report.append("=== VALIDATION ERROR REPORT ===\n\n");
-
-        // Summary
-        report.append("SUMMARY:\n");
-        report.append(String.format("Total Errors: %d\n", totalErrorCount));
-        report.append(String.format("Total Warnings: %d\n", totalWarningCount));
-        report.append(String.format("Error Types: %d\n", errorTypeCount.size()));
-        report.append(String.format("Affected Elements: %d\n", errorsByElement.size()));
-        report.append("\n");
-
-        // Error type distribution
-        report.append("ERROR TYPE DISTRIBUTION:\n");
-        errorTypeCount.entrySet().stream()
-                .sorted(Map.Entry.<ErrorType, Integer>comparingByValue().reversed())
-                .forEach(entry -> report.append(String.format("  %s: %d\n",
-                        entry.getKey().getDescription(), entry.getValue())));
-        report.append("\n");
-
-        // Critical errors
-        List<ValidationError> criticalErrors = getCriticalErrors();
-        if (!criticalErrors.isEmpty()) {
-            report.append("CRITICAL ERRORS (Must Fix):\n");
-            appendErrorList(report, criticalErrors);
-            report.append("\n");
-        }
-
-        // Structural errors
-        List<ValidationError> structuralErrors = getStructuralErrors();
-        if (!structuralErrors.isEmpty()) {
-            report.append("STRUCTURAL ERRORS:\n");
-            appendErrorList(report, structuralErrors);
-            report.append("\n");
-        }
-
-        // Data quality errors
-        List<ValidationError> dataErrors = getDataQualityErrors();
-        if (!dataErrors.isEmpty()) {
-            report.append("DATA QUALITY ERRORS:\n");
-            appendErrorList(report, dataErrors);
-            report.append("\n");
-        }
-
-        // Warnings
-        if (!allWarnings.isEmpty()) {
-            report.append("WARNINGS:\n");
-            appendErrorList(report, allWarnings);
-            report.append("\n");
+    public Map<ErrorType, Long> getErrorTypeTotals() {
+        Map<ErrorType, Long> totals = new EnumMap<>(ErrorType.class);
+        for (ErrorType errorType : ERROR_TYPES) {
+            long total = errorTypeTotals[errorType.ordinal()].sum();
+            if (total > 0) {
+                totals.put(errorType, total);
+            }
         }
-
-        // Errors by location
-        report.append("ERRORS BY LOCATION:\n");
-        Map<Integer, List<ValidationError>> errorsByLine = getErrorsByLine();
-        errorsByLine.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    report.append(String.format("  Line %d: %d error(s)\n",
-                            entry.getKey(), entry.getValue().size()));
-                });
-
-        return report.toString();
+        return totals;
     }
 
     /**
-     * Clears all collected errors and warnings
+     * Resets the totals
      */
     public void clear() {
-        errorsByType.clear();
-        errorsByElement.clear();
-        errorsByPath.clear();
-        allErrors.clear();
-        allWarnings.clear();
-        errorTypeCount.clear();
-        totalErrorCount = 0;
-        totalWarningCount = 0;
+        for (LongAdder total : errorTypeTotals) {
+            total.reset();
+        }
+        totalErrorCount.reset();
+        totalWarningCount.reset();
+        runCount.reset();
 
         logger.debug("Error collector cleared");
     }
 
-    /**
-     * Finds the most common error type
-     */
-    private ErrorType findMostCommonErrorType() {
-        return errorTypeCount.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
-    }
-
-    /**
-     * Appends a list of errors to the report
-     */
-    private void appendErrorList(StringBuilder report, List<ValidationError> errors) {
-        errors.stream()
-                .sorted(Comparator.comparing(ValidationError::getLineNumber))
-                .forEach(error -> {
-                    report.append(String.format("  - %s\n", error.getFullMessage()));
-                    if (error.getExpectedValue() != null) {
-                        report.append(String.format("    Expected: %s\n", error.getExpectedValue()));
-                    }
-                    if (error.getActualValue() != null) {
-                        report.append(String.format("    Actual: %s\n", error.getActualValue()));
-                    }
-                });
-    }
-
     /**
      * Inner class for error summary statistics
      */
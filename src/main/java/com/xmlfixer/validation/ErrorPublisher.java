@@ -0,0 +1,190 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.validation.model.ValidationError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Cold publisher of the errors of one XML file.
+ * Each subscriber gets its own validation run on the executor. SAX pushes events, so
+ * backpressure is applied by blocking the parsing thread inside the listener callback until
+ * the subscriber requests more; cancelling ends the parse at the next element boundary.
+ * Errors are not kept by the run, so memory stays flat however many there are.
+ */
+final class ErrorPublisher implements Flow.Publisher<ValidationError> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErrorPublisher.class);
+
+    private final StreamingValidator validator;
+    private final File xmlFile;
+    private final CompiledSchema compiledSchema;
+    private final XmlValidator.ValidationOptions options;
+    private final Executor executor;
+
+    ErrorPublisher(StreamingValidator validator, File xmlFile, CompiledSchema compiledSchema,
+                   XmlValidator.ValidationOptions options, Executor executor) {
+        this.validator = validator;
+        this.xmlFile = xmlFile;
+        this.compiledSchema = compiledSchema;
+        this.options = options;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ValidationError> subscriber) {
+        ErrorSubscription subscription = new ErrorSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        try {
+            executor.execute(subscription::run);
+        } catch (RejectedExecutionException e) {
+            subscription.fail(e);
+        }
+    }
+
+    /**
+     * Subscription of one run; the demand is shared between the subscriber's thread and
+     * the parsing thread and guarded by the subscription's monitor. Signals to the
+     * subscriber never overlap: a signal raised while the parsing thread is in onNext is
+     * delivered by that thread as soon as onNext returns.
+     */
+    private final class ErrorSubscription implements Flow.Subscription, ValidationListener {
+        private final Flow.Subscriber<? super ValidationError> subscriber;
+        private long demand;
+        private boolean cancelled;      // the parse stops at the next element boundary
+        private boolean emitting;       // the parsing thread is in onNext
+        private boolean terminated;     // no further signal may be sent
+        private Throwable failure;      // waiting to be signalled once onNext returns
+
+        ErrorSubscription(Flow.Subscriber<? super ValidationError> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            Throwable invalid;
+            synchronized (this) {
+                if (n > 0) {
+                    if (!cancelled) {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                        notifyAll();
+                    }
+                    return;
+                }
+                if (terminated) {
+                    return;
+                }
+                // Signalled now rather than when the parse ends, which may be much later
+                invalid = new IllegalArgumentException("Requested " + n + " errors, must be positive");
+                cancelled = true;
+                notifyAll();
+                if (emitting) {
+                    failure = invalid;
+                    return;
+                }
+                terminated = true;
+            }
+            subscriber.onError(invalid);
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            terminated = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onError(ValidationError error) {
+            if (!awaitDemand()) {
+                return;
+            }
+            try {
+                subscriber.onNext(error);
+            } catch (RuntimeException e) {
+                logger.warn("Subscriber failed on error, cancelling validation of {}", xmlFile.getName(), e);
+                cancel();
+            }
+
+            Throwable pending;
+            synchronized (this) {
+                emitting = false;
+                if (failure == null || terminated) {
+                    return;
+                }
+                terminated = true;
+                pending = failure;
+            }
+            subscriber.onError(pending);
+        }
+
+        /**
+         * Blocks the parse until one error may be delivered; false once cancelled
+         */
+        private synchronized boolean awaitDemand() {
+            try {
+                while (demand == 0 && !cancelled) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+                failure = e;
+            }
+            if (cancelled) {
+                return false;
+            }
+            demand--;
+            emitting = true;
+            return true;
+        }
+
+        void run() {
+            if (isCancelled()) {
+                return; // cancelled, or failed, before the run started
+            }
+            try {
+                validator.validateStreaming(xmlFile, compiledSchema, options, this).close();
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            Throwable runFailure;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                cancelled = true;
+                runFailure = failure;
+            }
+            if (runFailure != null) {
+                subscriber.onError(runFailure);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+
+        void fail(Throwable throwable) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                cancelled = true;
+            }
+            subscriber.onError(throwable);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.validation.model.ErrorAggregator;
+import com.xmlfixer.validation.model.ErrorStore;
+import com.xmlfixer.validation.model.ErrorType;
+import com.xmlfixer.validation.model.ValidationError;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Errors and warnings of a single validation run.
+ * A sink has one writer, the thread running the validation, so adding takes no lock.
+ * Errors go to an ErrorStore that keeps a bounded window in memory and spills the rest to
+ * disk; the views by type, element, path and line are built on demand by streaming over it.
+ * In aggregation mode repeated errors are counted by an ErrorAggregator and only the first
+ * error of each distinct problem reaches the store, so the views list one error per problem
+ * while the counts include every occurrence. When a ValidationListener is attached, each
+ * error is handed to it as it is added and only counted here, unless it is the first of an
+ * aggregated group. With an error limit, errors past it are dropped before they are
+ * aggregated, handed to the listener or stored, so every count stays within the limit.
+ * Once its counts have been recorded with the ErrorCollector the sink is no longer
+ * written and may be read from any thread.
+ */
+public final class ErrorSink {
+
+    private static final Set<ErrorType> CRITICAL_TYPES = EnumSet.of(
+            ErrorType.MISSING_REQUIRED_ELEMENT,
+            ErrorType.MISSING_REQUIRED_ATTRIBUTE,
+            ErrorType.MALFORMED_XML,
+            ErrorType.SCHEMA_VIOLATION
+    );
+
+    private static final Set<ErrorType> STRUCTURAL_TYPES = EnumSet.of(
+            ErrorType.INVALID_ELEMENT_ORDER,
+            ErrorType.TOO_FEW_OCCURRENCES,
+            ErrorType.TOO_MANY_OCCURRENCES,
+            ErrorType.UNEXPECTED_ELEMENT
+    );
+
+    private static final Set<ErrorType> DATA_QUALITY_TYPES = EnumSet.of(
+            ErrorType.INVALID_DATA_TYPE,
+            ErrorType.INVALID_FORMAT,
+            ErrorType.INVALID_VALUE_RANGE,
+            ErrorType.PATTERN_MISMATCH,
+            ErrorType.EMPTY_REQUIRED_CONTENT
+    );
+
+    private final ErrorStore errors;
+    private final ErrorAggregator aggregator;
+    private final ValidationListener listener;
+    private final int errorLimit;
+    private final List<ValidationError> warnings = new ArrayList<>();
+
+    // Errors handed to the listener and not kept, by type
+    private final int[] streamedTypeCounts = new int[ErrorType.values().length];
+    private int streamedCount;
+
+    public ErrorSink() {
+        this(ErrorStore.DEFAULT_WINDOW_SIZE);
+    }
+
+    public ErrorSink(int errorWindowSize) {
+        this(errorWindowSize, null);
+    }
+
+    /**
+     * @param aggregator groups repeated errors, or null to keep every error
+     */
+    public ErrorSink(int errorWindowSize, ErrorAggregator aggregator) {
+        this(errorWindowSize, aggregator, null);
+    }
+
+    /**
+     * @param aggregator groups repeated errors, or null to keep every error
+     * @param listener receives every error as it is added, or null
+     */
+    public ErrorSink(int errorWindowSize, ErrorAggregator aggregator, ValidationListener listener) {
+        this(errorWindowSize, aggregator, listener, 0);
+    }
+
+    /**
+     * @param aggregator groups repeated errors, or null to keep every error
+     * @param listener receives every error as it is added, or null
+     * @param errorLimit errors kept before further ones are dropped, 0 for no limit
+     */
+    public ErrorSink(int errorWindowSize, ErrorAggregator aggregator, ValidationListener listener, int errorLimit) {
+        this.errors = new ErrorStore(errorWindowSize);
+        this.aggregator = aggregator;
+        this.listener = listener;
+        this.errorLimit = Math.max(errorLimit, 0);
+    }
+
+    public void addError(ValidationError error) {
+        if (errorLimit > 0 && getErrorCount() >= errorLimit) {
+            return;
+        }
+        if (listener != null) {
+            listener.onError(error);
+        }
+        if (aggregator != null) {
+            if (aggregator.add(error)) {
+                errors.add(error);
+            }
+        } else if (listener != null) {
+            streamedTypeCounts[error.getErrorType().ordinal()]++;
+            streamedCount++;
+        } else {
+            errors.add(error);
+        }
+    }
+
+    public void addWarning(ValidationError warning) {
+        warning.setSeverity(ValidationError.Severity.WARNING);
+        warnings.add(warning);
+        if (listener != null) {
+            listener.onWarning(warning);
+        }
+    }
+
+    /**
+     * True once the listener asked for the validation to end
+     */
+    public boolean isCancelled() {
+        return listener != null && listener.isCancelled();
+    }
+
+    /**
+     * Errors held in memory; getErrorStore iterates all of them
+     */
+    public List<ValidationError> getErrors() { return errors.getWindow(); }
+    public ErrorStore getErrorStore() { return errors; }
+
+    /**
+     * Groups of repeated errors; null unless the run aggregates errors
+     */
+    public ErrorAggregator getAggregator() { return aggregator; }
+    public List<ValidationError> getWarnings() { return warnings; }
+    public int getWarningCount() { return warnings.size(); }
+
+    /**
+     * Errors handed to the listener without being kept
+     */
+    public int getStreamedErrorCount() { return streamedCount; }
+
+    /**
+     * Number of errors, counting every occurrence of an aggregated problem and the errors
+     * only handed to the listener
+     */
+    public int getErrorCount() {
+        return aggregator == null ? errors.size() + streamedCount
+                : (int) Math.min(Integer.MAX_VALUE, aggregator.getTotalCount());
+    }
+
+    public int getErrorCount(ErrorType errorType) {
+        return aggregator == null ? errors.getCount(errorType) + streamedTypeCounts[errorType.ordinal()]
+                : (int) Math.min(Integer.MAX_VALUE, aggregator.getCount(errorType));
+    }
+
+    /**
+     * Error counts of the types that occurred in this run
+     */
+    public Map<ErrorType, Integer> getErrorTypeCounts() {
+        Map<ErrorType, Integer> counts = new EnumMap<>(ErrorType.class);
+        if (aggregator == null) {
+            counts.putAll(errors.countByType());
+            for (ErrorType errorType : ErrorType.values()) {
+                if (streamedTypeCounts[errorType.ordinal()] > 0) {
+                    counts.merge(errorType, streamedTypeCounts[errorType.ordinal()], Integer::sum);
+                }
+            }
+            return counts;
+        }
+        aggregator.countByType().forEach((errorType, count) ->
+                counts.put(errorType, (int) Math.min(Integer.MAX_VALUE, count)));
+        return counts;
+    }
+
+    /**
+     * Gets errors by type
+     */
+    public List<ValidationError> getErrorsByType(ErrorType errorType) {
+        return filter(error -> error.getErrorType() == errorType);
+    }
+
+    /**
+     * Gets errors by element name
+     */
+    public List<ValidationError> getErrorsByElement(String elementName) {
+        return filter(error -> elementName.equals(error.getElementName()));
+    }
+
+    /**
+     * Gets errors by XPath
+     */
+    public List<ValidationError> getErrorsByPath(String xPath) {
+        return filter(error -> xPath.equals(error.getxPath()));
+    }
+
+    /**
+     * Groups errors by line number for easier fixing
+     */
+    public Map<Integer, List<ValidationError>> getErrorsByLine() {
+        Map<Integer, List<ValidationError>> errorsByLine = new HashMap<>();
+        errors.forEach(error -> {
+            if (error.getLineNumber() > 0) {
+                errorsByLine.computeIfAbsent(error.getLineNumber(), line -> new ArrayList<>()).add(error);
+            }
+        });
+        return errorsByLine;
+    }
+
+    /**
+     * Gets critical errors (those that must be fixed)
+     */
+    public List<ValidationError> getCriticalErrors() {
+        return filter(error -> CRITICAL_TYPES.contains(error.getErrorType()));
+    }
+
+    /**
+     * Gets structural errors (element order, cardinality)
+     */
+    public List<ValidationError> getStructuralErrors() {
+        return filter(error -> STRUCTURAL_TYPES.contains(error.getErrorType()));
+    }
+
+    /**
+     * Gets data quality errors (type, format, value issues)
+     */
+    public List<ValidationError> getDataQualityErrors() {
+        return filter(error -> DATA_QUALITY_TYPES.contains(error.getErrorType()));
+    }
+
+    /**
+     * Gets error summary statistics
+     */
+    public ErrorCollector.ErrorSummary getErrorSummary() {
+        Map<ErrorType, Integer> distribution = getErrorTypeCounts();
+
+        ErrorCollector.ErrorSummary summary = new ErrorCollector.ErrorSummary();
+        summary.setTotalErrors(getErrorCount());
+        summary.setTotalWarnings(warnings.size());
+        summary.setErrorTypeDistribution(distribution);
+        summary.setMostCommonErrorType(distribution.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null));
+        summary.setElementsWithErrors(new LinkedHashSet<>(errors.countByElement().keySet()));
+        summary.setPathsWithErrors(collectKeys(ValidationError::getxPath));
+
+        return summary;
+    }
+
+    /**
+     * Generates a detailed error report
+     */
+    public String generateDetailedReport() {
+        Map<ErrorType, Integer> distribution = getErrorTypeCounts();
+        StringBuilder report = new StringBuilder();
+
+        report.append("=== VALIDATION ERROR REPORT ===\n\n");
+
+        // Summary
+        report.append("SUMMARY:\n");
+        report.append(String.format("Total Errors: %d\n", getErrorCount()));
+        report.append(String.format("Total Warnings: %d\n", warnings.size()));
+        report.append(String.format("Error Types: %d\n", distribution.size()));
+        report.append(String.format("Affected Elements: %d\n", errors.countByElement().size()));
+        report.append("\n");
+
+        // Error type distribution
+        report.append("ERROR TYPE DISTRIBUTION:\n");
+        distribution.entrySet().stream()
+                .sorted(Map.Entry.<ErrorType, Integer>comparingByValue().reversed())
+                .forEach(entry -> report.append(String.format("  %s: %d\n",
+                        entry.getKey().getDescription(), entry.getValue())));
+        report.append("\n");
+
+        // Repeated problems, one entry per group
+        if (aggregator != null && aggregator.getGroupCount() > 0) {
+            report.append("AGGREGATED ERRORS:\n");
+            appendGroups(report, aggregator);
+            report.append("\n");
+        }
+
+        // Critical errors
+        List<ValidationError> criticalErrors = getCriticalErrors();
+        if (!criticalErrors.isEmpty()) {
+            report.append("CRITICAL ERRORS (Must Fix):\n");
+            appendErrorList(report, criticalErrors);
+            report.append("\n");
+        }
+
+        // Structural errors
+        List<ValidationError> structuralErrors = getStructuralErrors();
+        if (!structuralErrors.isEmpty()) {
+            report.append("STRUCTURAL ERRORS:\n");
+            appendErrorList(report, structuralErrors);
+            report.append("\n");
+        }
+
+        // Data quality errors
+        List<ValidationError> dataErrors = getDataQualityErrors();
+        if (!dataErrors.isEmpty()) {
+            report.append("DATA QUALITY ERRORS:\n");
+            appendErrorList(report, dataErrors);
+            report.append("\n");
+        }
+
+        // Warnings
+        if (!warnings.isEmpty()) {
+            report.append("WARNINGS:\n");
+            appendErrorList(report, warnings);
+            report.append("\n");
+        }
+
+        // Errors by location
+        report.append("ERRORS BY LOCATION:\n");
+        errors.countByLine().forEach((line, count) ->
+                report.append(String.format("  Line %d: %d error(s)\n", line, count)));
+
+        return report.toString();
+    }
+
+    /**
+     * Appends each error group with its count, line range, sample locations and histogram
+     */
+    private static void appendGroups(StringBuilder report, ErrorAggregator aggregator) {
+        for (ErrorAggregator.ErrorGroup group : aggregator) {
+            report.append(String.format("  - %s x%d (lines %d-%d)\n",
+                    group.getMessage(), group.getCount(), group.getFirstLine(), group.getLastLine()));
+            if (group.getxPath() != null) {
+                report.append(String.format("    Path: %s\n", group.getxPath()));
+            }
+            if (group.getSampleCount() > 0) {
+                StringBuilder samples = new StringBuilder();
+                for (int i = 0; i < group.getSampleCount(); i++) {
+                    if (i > 0) {
+                        samples.append(", ");
+                    }
+                    samples.append(group.getSampleLine(i)).append(':').append(group.getSampleColumn(i));
+                }
+                report.append(String.format("    Samples: %s\n", samples));
+            }
+            long[] histogram = group.getLineHistogram();
+            if (histogram.length > 1) {
+                report.append(String.format("    Per %d lines: %s\n",
+                        group.getBucketWidth(), Arrays.toString(histogram)));
+            }
+        }
+    }
+
+    private List<ValidationError> filter(Predicate<ValidationError> predicate) {
+        List<ValidationError> matches = new ArrayList<>();
+        errors.forEach(error -> {
+            if (predicate.test(error)) {
+                matches.add(error);
+            }
+        });
+        return matches;
+    }
+
+    private Set<String> collectKeys(Function<ValidationError, String> key) {
+        Set<String> keys = new LinkedHashSet<>();
+        errors.forEach(error -> {
+            String value = key.apply(error);
+            if (value != null) {
+                keys.add(value);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Appends a list of errors to the report
+     */
+    private static void appendErrorList(StringBuilder report, List<ValidationError> errors) {
+        errors.stream()
+                .sorted(Comparator.comparing(ValidationError::getLineNumber))
+                .forEach(error -> {
+                    report.append(String.format("  - %s\n", error.getFullMessage()));
+                    if (error.getExpectedValue() != null) {
+                        report.append(String.format("    Expected: %s\n", error.getExpectedValue()));
+                    }
+                    if (error.getActualValue() != null) {
+                        report.append(String.format("    Actual: %s\n", error.getActualValue()));
+                    }
+                });
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ErrorSink{errors=%d, spilled=%d, groups=%d, warnings=%d}",
+                getErrorCount(), errors.getSpilledCount(),
+                aggregator != null ? aggregator.getGroupCount() : 0, warnings.size());
+    }
+}
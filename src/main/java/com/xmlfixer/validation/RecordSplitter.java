@@ -0,0 +1,599 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.parsing.XmlInput;
+import com.xmlfixer.validation.model.RecordIndex;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a document made of one root wrapping many repeated records into segments that can
+ * be validated independently.
+ * One pass over the raw bytes tracks just enough syntax (tags, quoted attribute values,
+ * comments, CDATA sections and processing instructions) to find where each child of the root
+ * starts; a segment closes at the first record boundary after the target size. Each segment
+ * is later parsed on its own: later segments start with a copy of the root start tag, and all
+ * but the last end with a synthetic root end tag, the last one running to the end of the file.
+ * Documents the scan cannot split safely give no split: those with a DOCTYPE, an encoding
+ * that is not ASCII-compatible, records of more than one name, a root end tag that does not
+ * match, anything but comments and processing instructions after the root, or fewer than two
+ * segments.
+ * When the document has a current {@link RecordIndex}, the record boundaries are taken from
+ * it and only the prolog is read; the scan can also write one as it goes.
+ */
+final class RecordSplitter {
+
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._\\-]+)[\"']");
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_PROLOG_BYTES = 1 << 20;
+
+    // Scanner states
+    private static final int TEXT = 0;
+    private static final int MARKUP = 1;        // after '<'
+    private static final int START_NAME = 2;
+    private static final int START_TAG = 3;
+    private static final int QUOTED = 4;
+    private static final int END_TAG = 5;
+    private static final int BANG = 6;          // after "<!"
+    private static final int COMMENT = 7;
+    private static final int CDATA = 8;
+    private static final int PI = 9;
+
+    private RecordSplitter() {
+    }
+
+    /**
+     * Scans the file and returns its segments, or null when it cannot be split. The records
+     * found are also added to the index writer, when one is given.
+     */
+    static Split split(File xmlFile, XmlInput input, long targetSegmentBytes, RecordIndex.Writer index)
+            throws IOException {
+        Scan scan = new Scan(targetSegmentBytes, index);
+        try (InputStream in = input.open(xmlFile)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            long base = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (!scan.feed(buffer, read, base)) {
+                    return null;
+                }
+                base += read;
+            }
+        }
+        if (scan.rootEnd < 0 || scan.state != TEXT || scan.segments.size() < 2) {
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(xmlFile, "r")) {
+            Charset encoding = readEncoding(file);
+            if (encoding == null) {
+                return null;
+            }
+            closeSegments(scan.segments, file.length(), scan.records);
+            return assemble(xmlFile, input, file, encoding, new String(scan.rootName.toByteArray(), encoding),
+                    scan.recordName(encoding), scan.rootTagStart, scan.rootTagEnd, scan.rootLine, scan.rootColumn,
+                    scan.segments);
+        }
+    }
+
+    /**
+     * Splits the file at records looked up in its index instead of scanning it, or returns
+     * null when it cannot be split
+     */
+    static Split split(File xmlFile, XmlInput input, long targetSegmentBytes, RecordIndex index)
+            throws IOException {
+        long records = index.getRecordCount();
+        if (!index.isUniform() || records < 2 || index.getRootOffset() > MAX_PROLOG_BYTES) {
+            return null;
+        }
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new Segment(0, 1, 1, 0));
+        // Same boundaries as the scan: the first record at least the target size into the open segment
+        long next = Math.max(1, index.recordFromOffset(targetSegmentBytes));
+        while (next < records) {
+            long offset = index.getOffset(next);
+            segments.get(segments.size() - 1).endOffset = offset;
+            segments.add(new Segment(offset, index.getLine(next), index.getColumn(next), next));
+            next = index.recordFromOffset(offset + targetSegmentBytes);
+        }
+        if (segments.size() < 2) {
+            return null;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(xmlFile, "r")) {
+            Charset encoding = readEncoding(file);
+            byte[] prolog = new byte[(int) index.getRootOffset()];
+            file.seek(0);
+            file.readFully(prolog);
+            if (encoding == null || new String(prolog, StandardCharsets.ISO_8859_1).contains("<!DOCTYPE")) {
+                return null;
+            }
+            closeSegments(segments, file.length(), records);
+            return assemble(xmlFile, input, file, encoding, index.getRootName(), index.getRecordName(),
+                    index.getRootOffset(), index.getRootTagEnd(), index.getRootLine(), index.getRootColumn(),
+                    segments);
+        }
+    }
+
+    private static Split assemble(File xmlFile, XmlInput input, RandomAccessFile file, Charset encoding,
+                                  String rootName, String recordName, long rootTagStart, long rootTagEnd,
+                                  int rootLine, int rootColumn, List<Segment> segments) throws IOException {
+        byte[] rootStartTag = new byte[(int) (rootTagEnd - rootTagStart)];
+        file.seek(rootTagStart);
+        file.readFully(rootStartTag);
+        byte[] rootEndTag = ("</" + rootName + ">").getBytes(encoding);
+        return new Split(xmlFile, input, encoding, rootName, recordName, rootStartTag, rootEndTag,
+                rootTagStart, rootLine, rootColumn, segments);
+    }
+
+    /**
+     * Numbers the segments and counts the records in each; the last one takes the root end
+     * tag and the epilog, so the parser checks them as it would in a sequential run
+     */
+    private static void closeSegments(List<Segment> segments, long fileLength, long records) {
+        segments.get(segments.size() - 1).endOffset = fileLength;
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            segment.index = i;
+            segment.last = i == segments.size() - 1;
+            long next = segment.last ? records : segments.get(i + 1).recordsBefore;
+            segment.recordCount = next - segment.recordsBefore;
+        }
+    }
+
+    private static Charset readEncoding(RandomAccessFile file) throws IOException {
+        byte[] head = new byte[(int) Math.min(file.length(), 512)];
+        file.seek(0);
+        file.readFully(head);
+        return detectEncoding(head);
+    }
+
+    /**
+     * Encoding named by the XML declaration, UTF-8 by default; null for encodings whose
+     * markup is not plain ASCII bytes
+     */
+    private static Charset detectEncoding(byte[] head) {
+        if (head.length >= 2 && ((head[0] == (byte) 0xFE && head[1] == (byte) 0xFF)
+                || (head[0] == (byte) 0xFF && head[1] == (byte) 0xFE) || head[0] == 0 || head[1] == 0)) {
+            return null;
+        }
+        String declaration = new String(head, StandardCharsets.ISO_8859_1);
+        if (!declaration.startsWith("<?xml") && !declaration.startsWith("\uFEFF<?xml")
+                && !declaration.startsWith("\u00EF\u00BB\u00BF<?xml")) {
+            return StandardCharsets.UTF_8;
+        }
+        int end = declaration.indexOf("?>");
+        Matcher matcher = ENCODING.matcher(end > 0 ? declaration.substring(0, end) : declaration);
+        if (!matcher.find()) {
+            return StandardCharsets.UTF_8;
+        }
+        String name = matcher.group(1).toUpperCase(Locale.ROOT);
+        if (!name.equals("UTF-8") && !name.equals("US-ASCII") && !name.equals("ASCII")
+                && !name.startsWith("ISO-8859-") && !name.startsWith("WINDOWS-125")) {
+            return null;
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Byte-level scanner state, fed buffer by buffer
+     */
+    private static final class Scan {
+        private final long targetSegmentBytes;
+        private final List<Segment> segments = new ArrayList<>();
+
+        private int state = TEXT;
+        private int depth;
+        private byte quote;
+        private int markupRun;          // trailing '-', ']' or '?' bytes seen in the current construct
+        private boolean selfClosing;
+        private boolean nameEnded;      // the name of the end tag being read is complete
+
+        private long line = 1;
+        private long lineStart;
+
+        // Offset, line and column of the '<' of the tag being read
+        private long tagStart;
+        private long tagLine;
+        private long tagColumn;
+
+        private final ByteArrayOutputStream rootName = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream name = new ByteArrayOutputStream();
+        private byte[] recordName;
+        private long rootTagStart = -1;
+        private long rootTagEnd = -1;
+        private int rootLine;
+        private int rootColumn;
+        private long rootEnd = -1;
+        private long records;
+
+        // Index written along the way, null when none is wanted
+        private final RecordIndex.Writer index;
+        private String recordNameText;
+
+        Scan(long targetSegmentBytes, RecordIndex.Writer index) {
+            this.targetSegmentBytes = targetSegmentBytes;
+            this.index = index;
+        }
+
+        /**
+         * Scans the next buffer; false when the document cannot be split
+         */
+        boolean feed(byte[] buffer, int length, long base) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                long offset = base + i;
+                if (b == '\n') {
+                    line++;
+                    lineStart = offset + 1;
+                }
+
+                switch (state) {
+                    case TEXT:
+                        if (b == '<') {
+                            state = MARKUP;
+                            tagStart = offset;
+                            tagLine = line;
+                            tagColumn = offset - lineStart + 1;
+                        } else if (rootEnd >= 0 && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                            return false; // text after the root: not well-formed
+                        }
+                        break;
+
+                    case MARKUP:
+                        if (b == '/') {
+                            state = END_TAG;
+                            name.reset();
+                            nameEnded = false;
+                        } else if (b == '!') {
+                            state = BANG;
+                        } else if (b == '?') {
+                            state = PI;
+                            markupRun = 0;
+                        } else {
+                            state = START_NAME;
+                            selfClosing = false;
+                            name.reset();
+                            name.write(b);
+                        }
+                        break;
+
+                    case START_NAME:
+                        if (isNameEnd(b)) {
+                            state = START_TAG;
+                            if (!startTag()) {
+                                return false;
+                            }
+                            if (b == '>') {
+                                endStartTag(offset);
+                            } else if (b == '/') {
+                                selfClosing = true;
+                            }
+                        } else {
+                            name.write(b);
+                        }
+                        break;
+
+                    case START_TAG:
+                        if (b == '"' || b == '\'') {
+                            state = QUOTED;
+                            quote = b;
+                        } else if (b == '/') {
+                            selfClosing = true;
+                        } else if (b == '>') {
+                            endStartTag(offset);
+                        } else if ((b & 0xFF) > ' ') {
+                            selfClosing = false;
+                        }
+                        break;
+
+                    case QUOTED:
+                        if (b == quote) {
+                            state = START_TAG;
+                        }
+                        break;
+
+                    case END_TAG:
+                        if (b == '>') {
+                            state = TEXT;
+                            if (--depth == 0) {
+                                if (!Arrays.equals(name.toByteArray(), rootName.toByteArray())) {
+                                    return false; // mismatched root end tag
+                                }
+                                endRoot(tagStart);
+                            } else if (depth < 0) {
+                                return false;
+                            }
+                        } else if (depth == 1 && !nameEnded) {
+                            if (isNameEnd(b)) {
+                                nameEnded = true;
+                            } else {
+                                name.write(b);
+                            }
+                        }
+                        break;
+
+                    case BANG:
+                        if (b == '-') {
+                            state = COMMENT;
+                            markupRun = -1; // the second '-' of "<!--" opens the comment
+                        } else if (b == '[' && depth > 0) {
+                            state = CDATA;
+                            markupRun = 0;
+                        } else {
+                            // DOCTYPE: entities and defaults would change the records; CDATA
+                            // outside the root is not well-formed
+                            return false;
+                        }
+                        break;
+
+                    case COMMENT:
+                        if (b == '-') {
+                            markupRun++;
+                        } else if (b == '>' && markupRun >= 2) {
+                            state = TEXT;
+                        } else {
+                            markupRun = 0;
+                        }
+                        break;
+
+                    case CDATA:
+                        if (b == ']') {
+                            markupRun++;
+                        } else if (b == '>' && markupRun >= 2) {
+                            state = TEXT;
+                        } else {
+                            markupRun = 0;
+                        }
+                        break;
+
+                    case PI:
+                        if (b == '?') {
+                            markupRun = 1;
+                        } else if (b == '>' && markupRun == 1) {
+                            state = TEXT;
+                        } else {
+                            markupRun = 0;
+                        }
+                        break;
+
+                    default:
+                        throw new IllegalStateException("Unknown scanner state " + state);
+                }
+            }
+            return true;
+        }
+
+        private static boolean isNameEnd(byte b) {
+            // Bytes of multi-byte UTF-8 characters are negative and belong to the name
+            return (b & 0xFF) <= ' ' || b == '>' || b == '/';
+        }
+
+        /**
+         * Handles the name of a start tag; records start at depth one
+         */
+        private boolean startTag() {
+            if (depth == 0) {
+                if (rootTagStart >= 0) {
+                    return false; // a second root: not well-formed, leave it to the parser
+                }
+                rootTagStart = tagStart;
+                byte[] current = name.toByteArray();
+                rootName.write(current, 0, current.length);
+                return true;
+            }
+            if (depth == 1) {
+                byte[] current = name.toByteArray();
+                if (recordName == null) {
+                    recordName = current;
+                } else if (!Arrays.equals(recordName, current)) {
+                    return false;
+                }
+                startRecord();
+            }
+            return true;
+        }
+
+        private void startRecord() {
+            if (segments.isEmpty()) {
+                segments.add(new Segment(0, 1, 1, 0));
+            } else {
+                Segment open = segments.get(segments.size() - 1);
+                if (tagStart - open.startOffset >= targetSegmentBytes) {
+                    open.endOffset = tagStart;
+                    segments.add(new Segment(tagStart, tagLine, tagColumn, records));
+                }
+            }
+            if (index != null) {
+                if (recordNameText == null) {
+                    recordNameText = new String(recordName, StandardCharsets.UTF_8);
+                }
+                index.addRecord(recordNameText, tagStart, (int) tagLine, (int) tagColumn);
+            }
+            records++;
+        }
+
+        private void endRoot(long offset) {
+            rootEnd = offset;
+            if (index != null) {
+                index.endRoot(offset);
+            }
+        }
+
+        private void endStartTag(long offset) {
+            state = TEXT;
+            if (depth == 0 && rootTagEnd < 0) {
+                rootTagEnd = offset + 1;
+                // SAX reports the position just after the '>' of the start tag
+                rootLine = (int) line;
+                rootColumn = (int) (offset - lineStart + 2);
+                if (index != null) {
+                    index.startRoot(new String(rootName.toByteArray(), StandardCharsets.UTF_8), rootTagStart,
+                            rootTagEnd, rootLine, rootColumn);
+                }
+            }
+            if (!selfClosing) {
+                depth++;
+            } else if (depth == 0) {
+                endRoot(tagStart); // an empty root has no records
+            }
+        }
+
+        String recordName(Charset encoding) {
+            return recordName != null ? new String(recordName, encoding) : null;
+        }
+    }
+
+    /**
+     * Document split into segments of whole records
+     */
+    static final class Split {
+        private final File xmlFile;
+        private final XmlInput input;
+        private final Charset encoding;
+        private final String rootName;
+        private final String recordName;
+        private final byte[] rootStartTag;
+        private final byte[] rootEndTag;
+        private final long rootOffset;
+        private final int rootLine;
+        private final int rootColumn;
+        private final List<Segment> segments;
+
+        // Lines the copied root start tag spans, and the bytes on its last line
+        private final int rootTagNewlines;
+        private final int rootTagLastLineLength;
+
+        Split(File xmlFile, XmlInput input, Charset encoding, String rootName, String recordName, byte[] rootStartTag,
+              byte[] rootEndTag, long rootOffset, int rootLine, int rootColumn, List<Segment> segments) {
+            this.xmlFile = xmlFile;
+            this.input = input;
+            this.encoding = encoding;
+            this.rootName = rootName;
+            this.recordName = recordName;
+            this.rootStartTag = rootStartTag;
+            this.rootEndTag = rootEndTag;
+            this.rootOffset = rootOffset;
+            this.rootLine = rootLine;
+            this.rootColumn = rootColumn;
+            this.segments = Collections.unmodifiableList(segments);
+
+            int newlines = 0;
+            int lastLineStart = 0;
+            for (int i = 0; i < rootStartTag.length; i++) {
+                if (rootStartTag[i] == '\n') {
+                    newlines++;
+                    lastLineStart = i + 1;
+                }
+            }
+            this.rootTagNewlines = newlines;
+            this.rootTagLastLineLength = rootStartTag.length - lastLineStart;
+        }
+
+        Charset getEncoding() { return encoding; }
+        String getRootName() { return rootName; }
+        String getRecordName() { return recordName; }
+        long getRootOffset() { return rootOffset; }
+        int getRootLine() { return rootLine; }
+        int getRootColumn() { return rootColumn; }
+        List<Segment> getSegments() { return segments; }
+
+        /**
+         * The segment as a document of its own: the first segment starts with the real prolog
+         * and root start tag, later ones with a copy of the root start tag; all but the last
+         * end with a synthetic root end tag, the last one with the real end of the file
+         */
+        InputStream open(Segment segment) throws IOException {
+            InputStream records = input.open(xmlFile, segment.startOffset, segment.endOffset);
+            InputStream body = segment.isFirst() ? records
+                    : new SequenceInputStream(new ByteArrayInputStream(rootStartTag), records);
+            return segment.isLast() ? body : new SequenceInputStream(body, new ByteArrayInputStream(rootEndTag));
+        }
+
+        /**
+         * Line in the file of a line reported while parsing the segment
+         */
+        int fileLine(Segment segment, int line) {
+            if (segment.isFirst() || line <= 0) {
+                return line;
+            }
+            return (int) (segment.startLine + line - rootTagNewlines - 1);
+        }
+
+        /**
+         * Column in the file; only the first line of a later segment is shifted, by the
+         * copied root tag. Columns count bytes there, so they are approximate on that line
+         * when it holds multi-byte characters.
+         */
+        int fileColumn(Segment segment, int line, int column) {
+            if (segment.isFirst() || line != rootTagNewlines + 1 || column <= 0) {
+                return column;
+            }
+            return (int) (column - rootTagLastLineLength + segment.startColumn - 1);
+        }
+
+        /**
+         * Offset in the file of an offset in the segment's input. The copied root start tag
+         * maps onto the real one; the appended root end tag of a segment before the last onto
+         * the segment's end.
+         */
+        long fileOffset(Segment segment, long offset) {
+            if (offset < 0) {
+                return -1;
+            }
+            long prefix = segment.isFirst() ? 0 : rootStartTag.length;
+            if (offset < prefix) {
+                return rootOffset + offset;
+            }
+            long fileOffset = segment.startOffset + offset - prefix;
+            return segment.isLast() ? fileOffset : Math.min(fileOffset, segment.endOffset);
+        }
+    }
+
+    /**
+     * Byte range of whole records, with where it starts in the file
+     */
+    static final class Segment {
+        private final long startOffset;
+        private long endOffset;
+        private final long startLine;
+        private final long startColumn;
+        private final long recordsBefore;
+        private long recordCount;
+        private int index;
+        private boolean last;
+
+        Segment(long startOffset, long startLine, long startColumn, long recordsBefore) {
+            this.startOffset = startOffset;
+            this.startLine = startLine;
+            this.startColumn = startColumn;
+            this.recordsBefore = recordsBefore;
+        }
+
+        long getStartOffset() { return startOffset; }
+        long getEndOffset() { return endOffset; }
+        long getRecordsBefore() { return recordsBefore; }
+        long getRecordCount() { return recordCount; }
+        int getIndex() { return index; }
+        boolean isFirst() { return index == 0; }
+        boolean isLast() { return last; }
+
+        @Override
+        public String toString() {
+            return String.format("Segment{index=%d, bytes=%d-%d, line=%d, records=%d+%d}",
+                    index, startOffset, endOffset, startLine, recordsBefore, recordCount);
+        }
+    }
+}
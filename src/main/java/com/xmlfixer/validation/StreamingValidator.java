@@ -1,126 +1,515 @@
 package com.xmlfixer.validation;
 
 import com.xmlfixer.common.exceptions.ValidationException;
+import com.xmlfixer.parsing.ParserPool;
+import com.xmlfixer.parsing.OffsetTrackingInputStream;
+import com.xmlfixer.parsing.XmlInput;
+import com.xmlfixer.schema.datatype.ValueScanner;
+import com.xmlfixer.schema.datatype.XsdDatatype;
 import com.xmlfixer.schema.model.*;
+import com.xmlfixer.schema.pattern.XsdMatcher;
+import com.xmlfixer.schema.pattern.XsdPattern;
 import com.xmlfixer.validation.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.*;
 import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.ext.Locator2;
 import org.xml.sax.helpers.LocatorImpl;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Streaming validator for memory-efficient processing of large XML files
- * Uses SAX parsing to validate XML against schema constraints with precise error location tracking
+ * Uses SAX parsing to validate XML against schema constraints with precise error location tracking.
+ * Parallel runs share the validator's thread pool, which close() shuts down.
  */
 @Singleton
-public class StreamingValidator {
+public class StreamingValidator implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(StreamingValidator.class);
 
+    private static final Map<ElementConstraint.ConstraintType, ErrorCode> RANGE_MESSAGES =
+            new EnumMap<>(ElementConstraint.ConstraintType.class);
+
+    static {
+        RANGE_MESSAGES.put(ElementConstraint.ConstraintType.MIN_INCLUSIVE, ErrorCode.BELOW_MIN_INCLUSIVE);
+        RANGE_MESSAGES.put(ElementConstraint.ConstraintType.MAX_INCLUSIVE, ErrorCode.ABOVE_MAX_INCLUSIVE);
+        RANGE_MESSAGES.put(ElementConstraint.ConstraintType.MIN_EXCLUSIVE, ErrorCode.NOT_ABOVE_MIN_EXCLUSIVE);
+        RANGE_MESSAGES.put(ElementConstraint.ConstraintType.MAX_EXCLUSIVE, ErrorCode.NOT_BELOW_MAX_EXCLUSIVE);
+    }
+
+    public static final int DEFAULT_PARALLEL_THREADS = 4;
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+
     private final ErrorCollector errorCollector;
-    private SAXParserFactory saxParserFactory;
+    private final ParserPool<SAXParser> saxParsers;
+    private final int errorWindowSize;
+    private final int parallelThreads;
+    private final long segmentBytes;
+    private final XmlInput xmlInput;
+    private final ForkJoinPool segmentPool;
 
     @Inject
     public StreamingValidator(ErrorCollector errorCollector) {
+        this(errorCollector, ParserPool.DEFAULT_MAX_IDLE, ErrorStore.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param errorWindowSize errors of a run kept in memory; later ones are spilled to disk
+     */
+    public StreamingValidator(ErrorCollector errorCollector, int parserPoolSize, int errorWindowSize) {
+        this(errorCollector, parserPoolSize, errorWindowSize, DEFAULT_PARALLEL_THREADS, DEFAULT_SEGMENT_BYTES,
+                XmlInput.decompressing(XmlInput.buffered(XmlInput.DEFAULT_BUFFER_SIZE)));
+    }
+
+    /**
+     * @param parallelThreads threads validating the segments of one file in parallel mode
+     * @param segmentBytes approximate size of those segments
+     * @param xmlInput how files are read for the parser
+     */
+    public StreamingValidator(ErrorCollector errorCollector, int parserPoolSize, int errorWindowSize,
+                              int parallelThreads, long segmentBytes, XmlInput xmlInput) {
+        if (parallelThreads < 1 || segmentBytes < 1) {
+            throw new IllegalArgumentException("Parallel threads and segment size must be positive");
+        }
         this.errorCollector = errorCollector;
-        this.saxParserFactory = SAXParserFactory.newInstance();
-        this.saxParserFactory.setNamespaceAware(true);
-        this.saxParserFactory.setValidating(false); // We'll do custom validation
-        logger.info("StreamingValidator initialized");
+        this.errorWindowSize = errorWindowSize;
+        this.parallelThreads = parallelThreads;
+        this.segmentBytes = segmentBytes;
+        this.xmlInput = xmlInput;
+        this.segmentPool = new ForkJoinPool(parallelThreads);
+        SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+        saxParserFactory.setNamespaceAware(true);
+        saxParserFactory.setValidating(false); // We'll do custom validation
+        this.saxParsers = ParserPool.forSaxParsers("sax-validation", parserPoolSize, saxParserFactory);
+        logger.info("StreamingValidator initialized with {}", xmlInput);
+    }
+
+    /**
+     * Validates XML using streaming approach against a compiled schema
+     */
+    public ValidationResult validateStreaming(File xmlFile, CompiledSchema compiledSchema) {
+        return validateStreaming(xmlFile, compiledSchema, null);
+    }
+
+    /**
+     * Validates XML using streaming approach, stopping the parse as soon as the error budget
+     * of the options is spent; the result is then marked truncated
+     */
+    public ValidationResult validateStreaming(File xmlFile, CompiledSchema compiledSchema,
+                                              XmlValidator.ValidationOptions options) {
+        return validateStreaming(xmlFile, compiledSchema, options, null);
     }
 
     /**
-     * Validates XML using streaming approach with schema constraints
+     * Validates XML, handing each error to the listener as soon as it is found. The errors
+     * are counted in the result but not kept, unless they start an aggregated group.
      */
-    public ValidationResult validateStreaming(File xmlFile, SchemaElement rootSchema,
-                                              Map<String, List<ValidationRule>> validationRules) {
+    public ValidationResult validateStreaming(File xmlFile, CompiledSchema compiledSchema,
+                                              XmlValidator.ValidationOptions options,
+                                              ValidationListener listener) {
         logger.info("Starting streaming validation of: {}", xmlFile.getName());
 
         ValidationResult result = new ValidationResult();
         result.setXmlFile(xmlFile);
 
-        try (InputStream inputStream = new FileInputStream(xmlFile)) {
-            SAXParser saxParser = saxParserFactory.newSAXParser();
-            XMLReader xmlReader = saxParser.getXMLReader();
+        int errorLimit = options != null ? options.getErrorLimit() : 0;
+        boolean failFast = options != null && options.isFailFast();
+        ErrorAggregator aggregator = options != null && options.isAggregateErrors()
+                ? new ErrorAggregator(options.getErrorSampleSize()) : null;
+
+        // Offsets into a compressed file cannot be seeked to, so it gets no index
+        boolean recordIndex = options != null && options.isRecordIndex() && xmlInput.isSeekable(xmlFile);
+
+        // Listeners and aggregation depend on seeing errors in document order as they are found
+        if (options != null && options.isParallel() && listener == null && aggregator == null) {
+            ErrorSink merged = validateParallel(xmlFile, compiledSchema, errorLimit, failFast, recordIndex, result);
+            if (merged != null) {
+                return complete(result, merged, null);
+            }
+        }
 
-            // Create validation handler
+        ErrorSink sink = new ErrorSink(errorWindowSize, aggregator, listener, errorLimit);
+        RecordIndex.Writer indexWriter = recordIndex && loadRecordIndex(xmlFile) == null
+                ? createRecordIndex(xmlFile) : null;
+        try (OffsetTrackingInputStream inputStream = new OffsetTrackingInputStream(xmlInput.open(xmlFile))) {
             StreamingValidationHandler handler = new StreamingValidationHandler(
-                    rootSchema, validationRules, errorCollector);
+                    compiledSchema, sink, errorLimit, failFast, inputStream, indexWriter, null, null);
+            if (parse(new InputSource(inputStream), handler, xmlFile.getName()) != ParseOutcome.COMPLETED) {
+                result.setTruncated(true);
+            } else if (indexWriter != null) {
+                commitRecordIndex(indexWriter, xmlFile);
+            }
+        } catch (IOException e) {
+            logger.error("Streaming validation failed", e);
+            sink.addError(new ValidationError(ErrorType.MALFORMED_XML, "XML parsing failed: " + e.getMessage()));
+        } finally {
+            if (indexWriter != null) {
+                indexWriter.discard();
+            }
+        }
+
+        logger.info("Streaming validation completed with {} errors, {} warnings",
+                sink.getErrorCount(), sink.getWarningCount());
+        return complete(result, sink, aggregator);
+    }
 
+    /**
+     * Parses one document with a pooled parser; errors go to the handler's sink
+     */
+    private ParseOutcome parse(InputSource inputSource, StreamingValidationHandler handler, String name) {
+        SAXParser saxParser = null;
+        try {
+            saxParser = saxParsers.borrow();
+            XMLReader xmlReader = saxParser.getXMLReader();
             xmlReader.setContentHandler(handler);
             xmlReader.setErrorHandler(handler);
-
-            // Parse and validate
-            InputSource inputSource = new InputSource(inputStream);
             xmlReader.parse(inputSource);
+            return ParseOutcome.COMPLETED;
 
-            // Collect results
-            result.setErrors(handler.getErrors());
-            result.setWarnings(handler.getWarnings());
-            result.setValid(handler.getErrors().isEmpty());
+        } catch (ValidationAbortedException e) {
+            logger.info("Streaming validation of {} stopped: {}", name, e.getMessage());
+            return ParseOutcome.ABORTED;
 
-            logger.info("Streaming validation completed with {} errors, {} warnings",
-                    result.getErrorCount(), result.getWarningCount());
+        } catch (SAXParseException e) {
+            // Not well-formed: the handler already recorded the fatal error after whatever it found so far
+            logger.warn("Streaming validation of {} stopped at malformed XML: {}", name, e.getMessage());
+            return ParseOutcome.MALFORMED;
 
         } catch (Exception e) {
             logger.error("Streaming validation failed", e);
-            ValidationError error = new ValidationError(
-                    ErrorType.MALFORMED_XML,
-                    "XML parsing failed: " + e.getMessage()
-            );
-            result.addError(error);
-            result.setValid(false);
+            handler.sink.addError(new ValidationError(ErrorType.MALFORMED_XML, "XML parsing failed: " + e.getMessage()));
+            return ParseOutcome.FAILED;
+
+        } finally {
+            // Reset drops the handler, so a pooled parser does not keep the run's state alive
+            saxParsers.release(saxParser);
+        }
+    }
+
+    /**
+     * Validates the record segments of the file on a fork-join pool and merges their errors
+     * in document order. Returns null when the file cannot be split, so the caller validates
+     * it sequentially.
+     */
+    private ErrorSink validateParallel(File xmlFile, CompiledSchema compiledSchema, int errorLimit,
+                                       boolean failFast, boolean recordIndex, ValidationResult result) {
+        if (segmentPool.isShutdown()) {
+            logger.debug("Validator is closed, validating {} sequentially", xmlFile.getName());
+            return null;
+        }
+        if (!xmlInput.isSeekable(xmlFile)) {
+            logger.debug("{} cannot be read by byte range, validating it sequentially", xmlFile.getName());
+            return null;
+        }
+        // A current record index gives the boundaries without a scan; otherwise the scan writes one
+        RecordIndex index = recordIndex ? loadRecordIndex(xmlFile) : null;
+        RecordIndex.Writer indexWriter = recordIndex && index == null ? createRecordIndex(xmlFile) : null;
+        RecordSplitter.Split split;
+        try {
+            if (index != null) {
+                logger.debug("Splitting {} at the records of its index", xmlFile.getName());
+                split = RecordSplitter.split(xmlFile, xmlInput, segmentBytes, index);
+            } else {
+                split = RecordSplitter.split(xmlFile, xmlInput, segmentBytes, indexWriter);
+                if (indexWriter != null) {
+                    commitRecordIndex(indexWriter, xmlFile);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not scan {} for record boundaries", xmlFile.getName(), e);
+            return null;
+        } finally {
+            if (indexWriter != null) {
+                indexWriter.discard();
+            }
+        }
+        SchemaElement rootSchema = compiledSchema.getRootElement();
+        if (split == null || rootSchema == null || !rootSchema.getName().equals(localName(split.getRootName()))) {
+            logger.debug("{} cannot be split into records, validating it sequentially", xmlFile.getName());
+            return null;
+        }
+        logger.info("Validating {} as {} segments on {} threads", xmlFile.getName(),
+                split.getSegments().size(), parallelThreads);
+
+        // Segments not started once the run has stopped are skipped
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<ForkJoinTask<SegmentRun>> runs = new ArrayList<>();
+        for (RecordSplitter.Segment segment : split.getSegments()) {
+            runs.add(segmentPool.submit(() -> abandoned.get() ? null
+                    : validateSegment(split, segment, compiledSchema, errorLimit, failFast)));
+        }
+
+        // Segments are merged in order; whatever follows a segment that ended the run is dropped.
+        // Every task is joined, so the store of each segment that ran is closed.
+        ErrorSink merged = new ErrorSink(errorWindowSize);
+        boolean stopped = false;
+        boolean merging = true;
+        int joined = 0;
+        try {
+            for (; joined < runs.size() && !stopped; joined++) {
+                SegmentRun run = runs.get(joined).join();
+                try {
+                    for (ValidationError error : run.sink.getErrorStore()) {
+                        if (errorLimit > 0 && merged.getErrorCount() >= errorLimit) {
+                            stopped = true;
+                            break;
+                        }
+                        merged.addError(error);
+                    }
+                    run.sink.getWarnings().forEach(merged::addWarning);
+                } finally {
+                    run.sink.getErrorStore().close();
+                }
+                if (run.outcome != ParseOutcome.COMPLETED) {
+                    stopped = true;
+                }
+            }
+            merging = false;
+        } finally {
+            abandoned.set(true);
+            for (int i = joined; i < runs.size(); i++) {
+                closeSegment(runs.get(i));
+            }
+            if (merging) {
+                merged.getErrorStore().close();
+            }
+        }
+        result.setTruncated(stopped);
+        logger.info("Parallel validation completed with {} errors, {} warnings",
+                merged.getErrorCount(), merged.getWarningCount());
+        return merged;
+    }
+
+    /**
+     * Waits for a segment whose errors are not merged and closes its store
+     */
+    private static void closeSegment(ForkJoinTask<SegmentRun> task) {
+        try {
+            SegmentRun run = task.join();
+            if (run != null) {
+                run.sink.getErrorStore().close();
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Segment dropped after the run stopped failed", e);
+        }
+    }
+
+    /**
+     * Shuts down the threads of parallel runs; files are validated sequentially afterwards
+     */
+    @Override
+    public void close() {
+        segmentPool.shutdownNow();
+    }
+
+    private SegmentRun validateSegment(RecordSplitter.Split split, RecordSplitter.Segment segment,
+                                       CompiledSchema compiledSchema, int errorLimit, boolean failFast) {
+        ErrorSink sink = new ErrorSink(errorWindowSize, null, null, errorLimit);
+        ParseOutcome outcome;
+        try (OffsetTrackingInputStream inputStream = new OffsetTrackingInputStream(split.open(segment))) {
+            StreamingValidationHandler handler = new StreamingValidationHandler(
+                    compiledSchema, sink, errorLimit, failFast, inputStream, null, split, segment);
+            InputSource inputSource = new InputSource(inputStream);
+            if (!segment.isFirst()) {
+                inputSource.setEncoding(split.getEncoding().name());
+            }
+            outcome = parse(inputSource, handler, segment.toString());
+        } catch (IOException e) {
+            sink.addError(new ValidationError(ErrorType.MALFORMED_XML, "XML parsing failed: " + e.getMessage()));
+            outcome = ParseOutcome.FAILED;
+        }
+        sink.getErrorStore().seal();
+        return new SegmentRun(sink, outcome);
+    }
+
+    /**
+     * The file's record index, or null when it has none that matches the file
+     */
+    private static RecordIndex loadRecordIndex(File xmlFile) {
+        try {
+            return RecordIndex.load(xmlFile);
+        } catch (IOException e) {
+            logger.debug("Ignoring the record index of {}: {}", xmlFile.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static RecordIndex.Writer createRecordIndex(File xmlFile) {
+        try {
+            return RecordIndex.create(xmlFile);
+        } catch (IOException e) {
+            logger.warn("Cannot write a record index for {}: {}", xmlFile.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static void commitRecordIndex(RecordIndex.Writer indexWriter, File xmlFile) {
+        try {
+            if (indexWriter.commit()) {
+                logger.info("Wrote record index of {} with {} records", xmlFile.getName(),
+                        indexWriter.getRecordCount());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write the record index of {}", xmlFile.getName(), e);
+        }
+    }
+
+    private static String localName(String qualifiedName) {
+        int colon = qualifiedName.indexOf(':');
+        return colon >= 0 ? qualifiedName.substring(colon + 1) : qualifiedName;
+    }
+
+    /**
+     * Records the finished run with the collector and fills in the result
+     */
+    private ValidationResult complete(ValidationResult result, ErrorSink sink, ErrorAggregator aggregator) {
+        // The run is finished: its store is sealed and only its counts go to the collector
+        sink.getErrorStore().seal();
+        errorCollector.record(sink);
+        result.setErrorStore(sink.getErrorStore());
+        result.setErrorAggregator(aggregator);
+        result.setStreamedErrorCount(sink.getStreamedErrorCount());
+        result.setErrors(new ArrayList<>(sink.getErrors()));
+        result.setWarnings(new ArrayList<>(sink.getWarnings()));
+        result.setValid(sink.getErrorCount() == 0);
+        if (aggregator != null) {
+            logger.info("Aggregated {} errors into {} groups", aggregator.getTotalCount(), aggregator.getGroupCount());
+        }
+        if (sink.getErrorStore().hasSpilled()) {
+            logger.info("Kept {} errors in memory, spilled {} to disk", sink.getErrors().size(),
+                    sink.getErrorStore().getSpilledCount());
         }
 
         return result;
     }
 
+    /**
+     * Publishes the errors of a validation run to each subscriber as they are found.
+     * Every subscription validates the file again on the executor; the parse waits while
+     * the subscriber has no outstanding demand.
+     */
+    public Flow.Publisher<ValidationError> publishErrors(File xmlFile, CompiledSchema compiledSchema,
+                                                         XmlValidator.ValidationOptions options,
+                                                         Executor executor) {
+        return new ErrorPublisher(this, xmlFile, compiledSchema, options, executor);
+    }
+
+    /**
+     * Pool of SAX parsers shared by validation runs, with its reuse statistics
+     */
+    public ParserPool<SAXParser> getParserPool() {
+        return saxParsers;
+    }
+
+    private enum ParseOutcome {
+        COMPLETED, ABORTED, MALFORMED, FAILED
+    }
+
+    /**
+     * Errors of one segment of a parallel run
+     */
+    private static final class SegmentRun {
+        private final ErrorSink sink;
+        private final ParseOutcome outcome;
+
+        SegmentRun(ErrorSink sink, ParseOutcome outcome) {
+            this.sink = sink;
+            this.outcome = outcome;
+        }
+    }
+
+    /**
+     * Thrown from the handler to end the parse once the error budget is spent
+     */
+    private static final class ValidationAbortedException extends SAXException {
+        ValidationAbortedException(int errorCount) {
+            this("Validation stopped after " + errorCount + " errors");
+        }
+
+        ValidationAbortedException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Inner class that handles SAX events and performs validation
      */
     private static class StreamingValidationHandler extends DefaultHandler implements ErrorHandler {
 
+        private final CompiledSchema compiledSchema;
         private final SchemaElement rootSchema;
         private final Map<String, List<ValidationRule>> validationRules;
-        private final ErrorCollector errorCollector;
-
-        // Validation state
-        private final Stack<ElementContext> elementStack;
-        private final Map<String, Integer> elementOccurrences;
-        private final List<ValidationError> errors;
-        private final List<ValidationError> warnings;
-
-        // Location tracking
+        private final ErrorSink sink;
+
+        // Error budget: 0 means no limit; failFast also stops at the first recoverable parser error
+        private final int errorLimit;
+        private final boolean failFast;
+
+        // Validation state; element names and paths are interned to ints and the open
+        // elements are kept in an array, so path strings are only built for error reports.
+        // Frames above depth are kept for reuse, so memory is bounded by document depth.
+        private final ElementSymbolTable symbols;
+        private ElementContext[] elementStack = new ElementContext[32];
+        private int depth;
+        private boolean rootMatched;
+
+        // Segment of a parallel run, null when the whole document is parsed. The root frame
+        // of a segment is seeded with the records before it, and its content is only checked
+        // as complete in the last segment.
+        private final RecordSplitter.Split split;
+        private final RecordSplitter.Segment segment;
+
+        // Location tracking; offsets are those of the parser's input, mapped to the file
+        // when an element or error records them
+        private final OffsetTrackingInputStream offsets;
         private Locator locator;
         private int currentLine = 1;
         private int currentColumn = 1;
-
-        // Content handling
-        private StringBuilder currentContent;
-        private boolean collectingContent;
-
-        public StreamingValidationHandler(SchemaElement rootSchema,
-                                          Map<String, List<ValidationRule>> validationRules,
-                                          ErrorCollector errorCollector) {
-            this.rootSchema = rootSchema;
-            this.validationRules = validationRules != null ? validationRules : new HashMap<>();
-            this.errorCollector = errorCollector;
-
-            this.elementStack = new Stack<>();
-            this.elementOccurrences = new HashMap<>();
-            this.errors = new ArrayList<>();
-            this.warnings = new ArrayList<>();
-            this.currentContent = new StringBuilder();
+        private long currentOffset = -1;
+
+        // Index of the root's records written as they are read, null when none is wanted
+        private RecordIndex.Writer recordIndex;
+
+        // Content handling; only text the schema checks is captured. Buffered text is kept as
+        // chars so built-in types are checked without a String; streamed text is only scanned.
+        private char[] textBuffer = new char[256];
+        private int textLength;
+        private SchemaElement.ValueCapture capture = SchemaElement.ValueCapture.NONE;
+        private final ValueScanner valueScanner = new ValueScanner();
+
+        // Matchers are reused per pattern; the compiled patterns themselves are shared
+        private final Map<XsdPattern, XsdMatcher> matchers = new IdentityHashMap<>();
+
+        public StreamingValidationHandler(CompiledSchema compiledSchema, ErrorSink sink,
+                                          int errorLimit, boolean failFast, OffsetTrackingInputStream offsets,
+                                          RecordIndex.Writer recordIndex,
+                                          RecordSplitter.Split split, RecordSplitter.Segment segment) {
+            this.offsets = offsets;
+            this.recordIndex = recordIndex;
+            this.split = split;
+            this.segment = segment;
+            this.compiledSchema = compiledSchema;
+            this.rootSchema = compiledSchema.getRootElement();
+            this.validationRules = compiledSchema.getValidationRules();
+            this.sink = sink;
+            this.errorLimit = errorLimit;
+            this.failFast = failFast;
+
+            this.symbols = new ElementSymbolTable();
         }
 
         @Override
@@ -131,69 +520,103 @@ public class StreamingValidator {
         @Override
         public void startDocument() throws SAXException {
             logger.debug("Starting document validation");
-            elementStack.clear();
-            elementOccurrences.clear();
-            errors.clear();
-            warnings.clear();
+            depth = 0;
+            rootMatched = false;
         }
 
         @Override
         public void startElement(String uri, String localName, String qName, Attributes attributes)
                 throws SAXException {
 
+            if (depth == 0 && locator instanceof Locator2) {
+                // The declared encoding is only known once the prolog has been read
+                offsets.setEncoding(((Locator2) locator).getEncoding());
+            }
             updateLocation();
+            long startOffset = fileOffset(offsets.markupStart(currentOffset));
+            if (depth == 0 && segment != null) {
+                // Later segments parse a copy of the root start tag
+                currentLine = split.getRootLine();
+                currentColumn = split.getRootColumn();
+                startOffset = split.getRootOffset();
+            }
+            if (recordIndex != null && depth <= 1) {
+                indexElement(qName, startOffset);
+            }
             String elementName = localName.isEmpty() ? qName : localName;
 
-            logger.debug("Start element: {} at line {}, column {}",
-                    elementName, currentLine, currentColumn);
-
-            // Create element context
-            ElementContext context = new ElementContext(elementName, currentLine, currentColumn);
+            // Take the element context from the frame pool
+            if (depth == elementStack.length) {
+                elementStack = Arrays.copyOf(elementStack, depth * 2);
+            }
+            ElementContext context = elementStack[depth];
+            if (context == null) {
+                context = new ElementContext();
+                elementStack[depth] = context;
+            }
+            context.reset(elementName, currentLine, currentColumn, startOffset);
             context.setNamespaceURI(uri);
             context.setQualifiedName(qName);
 
+            context.setPathId(symbols.path(currentPathId(), symbols.symbol(elementName)));
+
             // Validate element
             validateElement(context, attributes);
 
             // Push to stack
-            elementStack.push(context);
-
-            // Update occurrence count
-            String path = getCurrentPath();
-            elementOccurrences.merge(path, 1, Integer::sum);
+            depth++;
 
             // Reset content collection
-            currentContent.setLength(0);
-            collectingContent = true;
+            textLength = 0;
+            capture = context.getSchemaElement() != null
+                    ? context.getSchemaElement().getValueCapture() : SchemaElement.ValueCapture.NONE;
+            if (capture == SchemaElement.ValueCapture.STREAM) {
+                valueScanner.reset();
+            }
+
+            checkErrorLimit();
         }
 
         @Override
         public void endElement(String uri, String localName, String qName) throws SAXException {
             updateLocation();
 
-            if (!elementStack.isEmpty()) {
-                ElementContext context = elementStack.pop();
-                String elementName = context.getElementName();
-
-                logger.debug("End element: {} at line {}", elementName, currentLine);
+            if (depth > 0) {
+                ElementContext context = elementStack[--depth];
+                context.setEndOffset(fileOffset(currentOffset));
+                if (recordIndex != null && depth == 0) {
+                    recordIndex.endRoot(offsets.markupStart(currentOffset));
+                }
 
-                // Validate element content if collected
-                if (collectingContent && currentContent.length() > 0) {
-                    validateElementContent(context, currentContent.toString().trim());
+                // Validate element content if collected; a child element ends the capture
+                if (capture == SchemaElement.ValueCapture.BUFFER && textLength > 0) {
+                    validateElementContent(context);
+                } else if (capture == SchemaElement.ValueCapture.STREAM) {
+                    validateStreamedContent(context);
                 }
 
-                // Validate child elements completeness
-                validateChildElements(context);
+                // Validate child elements completeness; a segment's root closes for real only in the last one
+                if (depth > 0 || segment == null || segment.isLast()) {
+                    validateChildElements(context);
+                }
             }
 
-            collectingContent = false;
-            currentContent.setLength(0);
+            capture = SchemaElement.ValueCapture.NONE;
+            textLength = 0;
+
+            checkErrorLimit();
         }
 
         @Override
         public void characters(char[] ch, int start, int length) throws SAXException {
-            if (collectingContent) {
-                currentContent.append(ch, start, length);
+            if (capture == SchemaElement.ValueCapture.BUFFER) {
+                if (textLength + length > textBuffer.length) {
+                    textBuffer = Arrays.copyOf(textBuffer, Math.max(textLength + length, textBuffer.length * 2));
+                }
+                System.arraycopy(ch, start, textBuffer, textLength, length);
+                textLength += length;
+            } else if (capture == SchemaElement.ValueCapture.STREAM) {
+                valueScanner.append(ch, start, length);
             }
         }
 
@@ -201,12 +624,37 @@ public class StreamingValidator {
         public void endDocument() throws SAXException {
             logger.debug("Document validation completed");
 
-            // Final validation checks
+            // Final validation checks; required children were checked as each element closed
             performFinalValidation();
+        }
 
-            // Report all collected errors
-            errorCollector.reportErrors(errors);
-            errorCollector.reportWarnings(warnings);
+        /**
+         * Adds the root, or one of its records, to the record index. Columns there count bytes
+         * from the start of the line, as the splitter's do.
+         */
+        private void indexElement(String qName, long startOffset) {
+            if (depth == 0) {
+                long lineStart = offsets.lineStartOf(locator.getLineNumber());
+                recordIndex.startRoot(qName, startOffset, currentOffset, currentLine,
+                        lineStart >= 0 ? (int) (currentOffset - lineStart + 1) : -1);
+            } else {
+                int line = offsets.lineOf(startOffset);
+                long lineStart = offsets.lineStartOf(line);
+                recordIndex.addRecord(qName, startOffset, line,
+                        lineStart >= 0 ? (int) (startOffset - lineStart + 1) : -1);
+            }
+        }
+
+        /**
+         * Ends the parse once the error budget is spent or the listener cancelled the run
+         */
+        private void checkErrorLimit() throws ValidationAbortedException {
+            if (sink.isCancelled()) {
+                throw new ValidationAbortedException("Validation cancelled by its listener");
+            }
+            if (errorLimit > 0 && sink.getErrorCount() >= errorLimit) {
+                throw new ValidationAbortedException(sink.getErrorCount());
+            }
         }
 
         /**
@@ -214,29 +662,36 @@ public class StreamingValidator {
          */
         private void validateElement(ElementContext context, Attributes attributes) {
             String elementName = context.getElementName();
-            String parentPath = getParentPath();
 
             // Find schema element definition
-            SchemaElement schemaElement = findSchemaElement(elementName, parentPath);
+            SchemaElement schemaElement = findSchemaElement(elementName);
 
             if (schemaElement == null) {
                 // Unexpected element
-                addError(ErrorType.UNEXPECTED_ELEMENT,
-                        String.format("Unexpected element '%s' at path: %s", elementName, getCurrentPath()),
-                        context.getLineNumber(), context.getColumnNumber(), elementName);
+                addError(ErrorType.UNEXPECTED_ELEMENT, ErrorCode.UNEXPECTED_ELEMENT,
+                        context, elementName,
+                        elementName, getCurrentPath());
                 return;
             }
 
             context.setSchemaElement(schemaElement);
+            context.setContentAutomaton(contentAutomaton(schemaElement));
+            context.startChildren(schemaElement);
+
+            if (depth == 0 && segment != null) {
+                seedRecords(context, schemaElement);
+                if (!segment.isFirst()) {
+                    return; // the root itself was checked with the first segment
+                }
+            }
 
             // Validate attributes
             validateAttributes(context, attributes, schemaElement);
 
-            // Check element occurrence constraints
-            validateElementOccurrence(context, schemaElement);
-
-            // Apply validation rules
-            applyValidationRules(context, elementName);
+            // Advance the parent's content model; parents without one check occurrences directly
+            if (!advanceContentModel(context)) {
+                validateElementOccurrence(context, schemaElement);
+            }
         }
 
         /**
@@ -262,21 +717,21 @@ public class StreamingValidator {
         /**
          * Validates element content against data type constraints
          */
-        private void validateElementContent(ElementContext context, String content) {
-            if (context.getSchemaElement() == null) {
+        private void validateElementContent(ElementContext context) {
+            if (context.getSchemaElement() == null || isBlankText()) {
                 return;
             }
 
             SchemaElement schemaElement = context.getSchemaElement();
             String elementName = context.getElementName();
 
-            // Apply data type validation
+            // Apply data type validation (facets are checked through the constraints below)
             if (schemaElement.getType() != null && !schemaElement.hasChildren()) {
                 List<ValidationRule> rules = validationRules.get(elementName);
                 if (rules != null) {
                     for (ValidationRule rule : rules) {
-                        if (rule.isDataTypeRule()) {
-                            validateDataType(context, content, rule);
+                        if (rule.getRuleType() == ValidationRule.RuleType.DATA_TYPE) {
+                            validateDataType(context, rule);
                         }
                     }
                 }
@@ -284,6 +739,7 @@ public class StreamingValidator {
 
             // Apply constraint validation
             if (schemaElement.hasConstraints()) {
+                String content = new String(textBuffer, 0, textLength).trim();
                 for (ElementConstraint constraint : schemaElement.getConstraints()) {
                     validateConstraint(context, content, constraint);
                 }
@@ -291,18 +747,80 @@ public class StreamingValidator {
         }
 
         /**
-         * Validates data type according to rule
+         * Validates content that was scanned instead of buffered: binary datatypes and length facets
+         */
+        private void validateStreamedContent(ElementContext context) {
+            if (context.getSchemaElement() == null || valueScanner.isBlank()) {
+                return;
+            }
+
+            SchemaElement schemaElement = context.getSchemaElement();
+            String elementName = context.getElementName();
+            int length = valueScanner.getTrimmedLength();
+
+            if (schemaElement.getType() != null && !schemaElement.hasChildren()) {
+                List<ValidationRule> rules = validationRules.get(elementName);
+                if (rules != null) {
+                    for (ValidationRule rule : rules) {
+                        XsdDatatype datatype = rule.getRuleType() == ValidationRule.RuleType.DATA_TYPE
+                                ? rule.getBuiltinDatatype() : null;
+                        if (datatype != null && datatype.isStreamable() && !valueScanner.isValid(datatype)) {
+                            // The value may be megabytes long, so it is not quoted
+                            addError(ErrorType.INVALID_DATA_TYPE, ErrorCode.INVALID_STREAMED_VALUE,
+                                    context, elementName,
+                                    rule.getDataType(), length, elementName);
+                        }
+                    }
+                }
+            }
+
+            for (ElementConstraint constraint : schemaElement.getConstraints()) {
+                ErrorCode violation = lengthViolation(length, constraint);
+                if (violation != null) {
+                    addError(ErrorType.CONSTRAINT_VIOLATION, violation,
+                            context, elementName,
+                            length, constraint.getLimit());
+                }
+            }
+        }
+
+        /**
+         * Returns the error code if a length facet rejects the value length, otherwise null;
+         * the message takes the length and the facet limit
          */
-        private void validateDataType(ElementContext context, String content, ValidationRule rule) {
-            if (!rule.validate(content)) {
-                String message = String.format(
-                        "Invalid %s value '%s' for element '%s'",
-                        rule.getDataType(), content, context.getElementName()
-                );
+        private static ErrorCode lengthViolation(int length, ElementConstraint constraint) {
+            int limit = constraint.getLimit();
+            if (limit < 0) {
+                return null;
+            }
+            if (constraint.getConstraintType() == ElementConstraint.ConstraintType.MIN_LENGTH && length < limit) {
+                return ErrorCode.LENGTH_BELOW_MINIMUM;
+            }
+            if (constraint.getConstraintType() == ElementConstraint.ConstraintType.MAX_LENGTH && length > limit) {
+                return ErrorCode.LENGTH_ABOVE_MAXIMUM;
+            }
+            return null;
+        }
 
-                addError(ErrorType.INVALID_DATA_TYPE, message,
-                        context.getLineNumber(), context.getColumnNumber(),
-                        context.getElementName());
+        private boolean isBlankText() {
+            for (int i = 0; i < textLength; i++) {
+                if (!Character.isWhitespace(textBuffer[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Validates data type according to rule, checking built-in types straight from the text buffer
+         */
+        private void validateDataType(ElementContext context, ValidationRule rule) {
+            XsdDatatype datatype = rule.getBuiltinDatatype();
+            if (datatype != null && !datatype.isValid(textBuffer, 0, textLength)) {
+                // The buffer is reused, so the value is copied for the message
+                addError(ErrorType.INVALID_DATA_TYPE, ErrorCode.INVALID_VALUE,
+                        context, context.getElementName(),
+                        rule.getDataType(), new String(textBuffer, 0, textLength).trim(), context.getElementName());
             }
         }
 
@@ -311,129 +829,232 @@ public class StreamingValidator {
          */
         private void validateConstraint(ElementContext context, String content,
                                         ElementConstraint constraint) {
-            boolean valid = true;
-            String errorMessage = null;
+            ErrorCode violation = null;
+            Object[] arguments = null;
+            ErrorType errorType = ErrorType.CONSTRAINT_VIOLATION;
 
             switch (constraint.getConstraintType()) {
                 case PATTERN:
-                    if (!content.matches(constraint.getValue())) {
-                        valid = false;
-                        errorMessage = String.format(
-                                "Value '%s' does not match pattern '%s'",
-                                content, constraint.getValue()
-                        );
+                    // Patterns that failed to compile were reported when the schema was loaded
+                    XsdPattern pattern = constraint.getCompiledPattern();
+                    if (pattern != null && !matches(pattern, content)) {
+                        violation = ErrorCode.PATTERN_MISMATCH;
+                        arguments = new Object[]{content, constraint.getValue()};
                     }
                     break;
 
                 case ENUMERATION:
-                    String[] allowedValues = constraint.getValue().split(",");
-                    valid = Arrays.asList(allowedValues).contains(content);
-                    if (!valid) {
-                        errorMessage = String.format(
-                                "Value '%s' is not in allowed values: %s",
-                                content, constraint.getValue()
-                        );
+                    EnumerationSet allowedValues = constraint.getEnumeration();
+                    boolean allowed = allowedValues != null
+                            ? allowedValues.contains(content)
+                            : constraint.getValues().contains(content);
+                    if (!allowed) {
+                        violation = ErrorCode.NOT_IN_ENUMERATION;
+                        arguments = new Object[]{content, constraint.getValues()};
                     }
                     break;
 
                 case MIN_LENGTH:
-                    int minLen = Integer.parseInt(constraint.getValue());
-                    if (content.length() < minLen) {
-                        valid = false;
-                        errorMessage = String.format(
-                                "Value length %d is less than minimum %d",
-                                content.length(), minLen
-                        );
+                case MAX_LENGTH:
+                    violation = lengthViolation(content.length(), constraint);
+                    arguments = new Object[]{content.length(), constraint.getLimit()};
+                    break;
+
+                case MIN_INCLUSIVE:
+                case MAX_INCLUSIVE:
+                case MIN_EXCLUSIVE:
+                case MAX_EXCLUSIVE:
+                    // Bounds were parsed with the schema; compared straight from the text buffer
+                    if (!constraint.checkNumericFacet(textBuffer, 0, textLength)) {
+                        errorType = ErrorType.INVALID_VALUE_RANGE;
+                        violation = RANGE_MESSAGES.get(constraint.getConstraintType());
+                        arguments = new Object[]{content, constraint.getValue()};
                     }
                     break;
 
-                case MAX_LENGTH:
-                    int maxLen = Integer.parseInt(constraint.getValue());
-                    if (content.length() > maxLen) {
-                        valid = false;
-                        errorMessage = String.format(
-                                "Value length %d exceeds maximum %d",
-                                content.length(), maxLen
-                        );
+                case TOTAL_DIGITS:
+                case FRACTION_DIGITS:
+                    if (!constraint.checkNumericFacet(textBuffer, 0, textLength)) {
+                        violation = constraint.getConstraintType() == ElementConstraint.ConstraintType.TOTAL_DIGITS
+                                ? ErrorCode.TOO_MANY_TOTAL_DIGITS : ErrorCode.TOO_MANY_FRACTION_DIGITS;
+                        arguments = new Object[]{content, constraint.getLimit()};
                     }
                     break;
 
-                // Add more constraint types as needed
+                default:
+                    break;
             }
 
-            if (!valid && errorMessage != null) {
-                addError(ErrorType.CONSTRAINT_VIOLATION, errorMessage,
-                        context.getLineNumber(), context.getColumnNumber(),
-                        context.getElementName());
+            if (violation != null) {
+                addError(errorType, violation,
+                        context,
+                        context.getElementName(), arguments);
             }
         }
 
+        /**
+         * Matches content against a compiled pattern using this handler's cached matcher
+         */
+        private boolean matches(XsdPattern pattern, String content) {
+            return matchers.computeIfAbsent(pattern, XsdPattern::matcher).matches(content);
+        }
+
         /**
          * Validates element occurrence constraints
          */
         private void validateElementOccurrence(ElementContext context, SchemaElement schemaElement) {
-            String path = getCurrentPath();
-            int occurrences = elementOccurrences.getOrDefault(path, 0);
+            if (depth == 0) {
+                return; // the root element occurs once by definition
+            }
+
+            // Counted per parent instance, by the child's ordinal in the parent definition
+            ElementContext parent = elementStack[depth - 1];
+            int occurrences = parent.countChild(parent.getSchemaElement().getChildOrdinal(context.getElementName()));
 
             if (occurrences > schemaElement.getMaxOccurs()) {
-                String message = String.format(
-                        "Element '%s' appears %d times, but maximum allowed is %d",
-                        context.getElementName(), occurrences, schemaElement.getMaxOccurs()
-                );
-                addError(ErrorType.TOO_MANY_OCCURRENCES, message,
-                        context.getLineNumber(), context.getColumnNumber(),
-                        context.getElementName());
+                addError(ErrorType.TOO_MANY_OCCURRENCES, ErrorCode.TOO_MANY_OCCURRENCES,
+                        context, context.getElementName(),
+                        context.getElementName(), occurrences, schemaElement.getMaxOccurs());
             }
         }
 
         /**
-         * Validates child elements when parent element closes
+         * Puts the root frame where it would be after the records of earlier segments, so
+         * occurrence limits and the content model count the records of the whole document
          */
-        private void validateChildElements(ElementContext parentContext) {
-            if (parentContext.getSchemaElement() == null ||
-                    !parentContext.getSchemaElement().hasChildren()) {
+        private void seedRecords(ElementContext root, SchemaElement rootDefinition) {
+            long recordsBefore = segment.getRecordsBefore();
+            String recordName = localName(split.getRecordName());
+            if (recordsBefore == 0 || recordName == null) {
                 return;
             }
+            root.seedChild(rootDefinition.getChildOrdinal(recordName), recordsBefore);
 
-            SchemaElement parentSchema = parentContext.getSchemaElement();
-            Set<String> requiredChildren = new HashSet<>();
-
-            // Collect required children
-            for (SchemaElement child : parentSchema.getChildren()) {
-                if (child.isRequired()) {
-                    requiredChildren.add(child.getName());
+            ContentAutomaton automaton = root.getContentAutomaton();
+            if (automaton == null) {
+                return;
+            }
+            int symbol = automaton.symbolOf(recordName);
+            long state = root.getContentState();
+            for (long i = 0; i < recordsBefore && state != ContentAutomaton.REJECTED; i++) {
+                long next = automaton.next(state, symbol);
+                if (next == state) {
+                    break; // repeating the record no longer changes the state
                 }
+                state = next;
             }
+            root.setContentState(state);
+            root.setLastSymbol(symbol);
+        }
 
-            // Check which required children are missing
-            for (String requiredChild : requiredChildren) {
-                String childPath = getCurrentPath() + "/" + requiredChild;
-                if (!elementOccurrences.containsKey(childPath)) {
-                    String message = String.format(
-                            "Required element '%s' is missing in '%s'",
-                            requiredChild, parentContext.getElementName()
-                    );
-                    addError(ErrorType.MISSING_REQUIRED_ELEMENT, message,
-                            parentContext.getLineNumber(), parentContext.getColumnNumber(),
-                            requiredChild);
+        private static ContentAutomaton contentAutomaton(SchemaElement schemaElement) {
+            OrderingRule contentModel = schemaElement.getContentModel();
+            return contentModel != null ? contentModel.getAutomaton() : null;
+        }
+
+        /**
+         * Moves the parent's content model past this child. Returns false if the parent has no
+         * compiled model; once a model rejects a child the rest of that parent's content is
+         * not checked against it, so one mistake is reported once.
+         */
+        private boolean advanceContentModel(ElementContext context) {
+            if (depth == 0) {
+                return false;
+            }
+            ElementContext parent = elementStack[depth - 1];
+            ContentAutomaton automaton = parent.getContentAutomaton();
+            if (automaton == null) {
+                return false;
+            }
+
+            long state = parent.getContentState();
+            if (state == ContentAutomaton.REJECTED) {
+                return true;
+            }
+
+            int symbol = automaton.symbolOf(context.getElementName());
+            long next = automaton.next(state, symbol);
+            if (next == ContentAutomaton.REJECTED) {
+                reportContentModelViolation(parent, context, automaton, state, symbol);
+            }
+            parent.setContentState(next);
+            parent.setLastSymbol(symbol);
+            return true;
+        }
+
+        private void reportContentModelViolation(ElementContext parent, ElementContext context,
+                                                 ContentAutomaton automaton, long state, int symbol) {
+            String elementName = context.getElementName();
+            List<String> expected = automaton.expectedElements(state);
+
+            if (symbol >= 0 && (automaton.isUnordered() || symbol == parent.getLastSymbol())) {
+                addError(ErrorType.TOO_MANY_OCCURRENCES, ErrorCode.REPEATED_ELEMENT,
+                        context, elementName,
+                        elementName, parent.getElementName());
+            } else if (expected.isEmpty()) {
+                addError(ErrorType.INVALID_CONTENT_MODEL, ErrorCode.CONTENT_ALREADY_COMPLETE,
+                        context, elementName,
+                        elementName, parent.getElementName());
+            } else {
+                addError(ErrorType.INVALID_ELEMENT_ORDER, ErrorCode.UNEXPECTED_ELEMENT_ORDER,
+                        context, elementName,
+                        elementName, parent.getElementName(), expected);
+            }
+        }
+
+        /**
+         * Reports the elements a closing parent still needed according to its content model
+         */
+        private void reportIncompleteContent(ElementContext parentContext, ContentAutomaton automaton) {
+            List<String> missing = automaton.missingElements(parentContext.getContentState());
+
+            if (automaton.isUnordered() || missing.size() == 1) {
+                for (String requiredChild : missing) {
+                    addError(ErrorType.MISSING_REQUIRED_ELEMENT, ErrorCode.MISSING_CHILD_ELEMENT,
+                            parentContext, requiredChild,
+                            requiredChild, parentContext.getElementName());
                 }
+            } else {
+                addError(ErrorType.INVALID_CONTENT_MODEL, ErrorCode.INCOMPLETE_CONTENT,
+                        parentContext,
+                        parentContext.getElementName(), parentContext.getElementName(), missing);
             }
         }
 
         /**
-         * Applies validation rules to the element
+         * Validates child elements when parent element closes
          */
-        private void applyValidationRules(ElementContext context, String elementName) {
-            List<ValidationRule> rules = validationRules.get(elementName);
-            if (rules == null) {
+        private void validateChildElements(ElementContext parentContext) {
+            ContentAutomaton automaton = parentContext.getContentAutomaton();
+            if (automaton != null) {
+                long state = parentContext.getContentState();
+                if (state != ContentAutomaton.REJECTED && !automaton.isAccepting(state)) {
+                    reportIncompleteContent(parentContext, automaton);
+                }
+                return;
+            }
+
+            if (parentContext.getSchemaElement() == null ||
+                    !parentContext.getSchemaElement().hasChildren()) {
+                return;
+            }
+
+            SchemaElement parentSchema = parentContext.getSchemaElement();
+
+            // Every required child seen: one mask comparison when ordinals fit in a long
+            long requiredMask = parentSchema.getRequiredChildMask();
+            if (parentSchema.getChildSlotCount() <= Long.SIZE
+                    && (parentContext.getChildrenSeen() & requiredMask) == requiredMask) {
                 return;
             }
 
-            for (ValidationRule rule : rules) {
-                if (rule.getRuleType() == ValidationRule.RuleType.ELEMENT_REQUIRED &&
-                        rule.isRequired()) {
-                    // Mark element as validated (required element found)
-                    context.setValidated(true);
+            // Check which required children are missing
+            for (SchemaElement child : parentSchema.getRequiredChildren()) {
+                String requiredChild = child.getName();
+                if (parentContext.getChildCount(parentSchema.getChildOrdinal(requiredChild)) == 0) {
+                    addError(ErrorType.MISSING_REQUIRED_ELEMENT, ErrorCode.MISSING_CHILD_ELEMENT,
+                            parentContext, requiredChild,
+                            requiredChild, parentContext.getElementName());
                 }
             }
         }
@@ -442,18 +1063,10 @@ public class StreamingValidator {
          * Performs final validation checks at document end
          */
         private void performFinalValidation() {
-            // Check for missing required elements at root level
-            if (rootSchema != null && rootSchema.hasChildren()) {
-                for (SchemaElement child : rootSchema.getChildren()) {
-                    if (child.isRequired()) {
-                        String path = "/" + rootSchema.getName() + "/" + child.getName();
-                        if (!elementOccurrences.containsKey(path)) {
-                            addError(ErrorType.MISSING_REQUIRED_ELEMENT,
-                                    String.format("Required element '%s' is missing", child.getName()),
-                                    1, 1, child.getName());
-                        }
-                    }
-                }
+            // The document root did not match the schema root, so none of its content was checked
+            if (rootSchema != null && !rootMatched) {
+                addError(ErrorType.MISSING_REQUIRED_ELEMENT, ErrorCode.MISSING_ROOT_ELEMENT,
+                        1, 1, -1, -1, rootSchema.getName(), rootSchema.getName());
             }
         }
 
@@ -470,11 +1083,9 @@ public class StreamingValidator {
                     if (rule.isAttributeRule() &&
                             attrName.equals(rule.getAttributeName())) {
                         if (!rule.validate(attrValue)) {
-                            addError(ErrorType.INVALID_ATTRIBUTE_VALUE,
-                                    String.format("Invalid value '%s' for attribute '%s'",
-                                            attrValue, attrName),
-                                    context.getLineNumber(), context.getColumnNumber(),
-                                    context.getElementName());
+                            addError(ErrorType.INVALID_ATTRIBUTE_VALUE, ErrorCode.INVALID_ATTRIBUTE_VALUE,
+                                    context,
+                                    context.getElementName(), attrValue, attrName);
                         }
                     }
                 }
@@ -484,22 +1095,18 @@ public class StreamingValidator {
         /**
          * Finds schema element definition for the given element
          */
-        private SchemaElement findSchemaElement(String elementName, String parentPath) {
-            // Simple implementation - would need enhancement for complex schemas
-            if (elementStack.isEmpty() && rootSchema != null &&
+        private SchemaElement findSchemaElement(String elementName) {
+            if (depth == 0 && rootSchema != null &&
                     rootSchema.getName().equals(elementName)) {
+                rootMatched = true;
                 return rootSchema;
             }
 
-            if (!elementStack.isEmpty()) {
-                ElementContext parent = elementStack.peek();
-                if (parent.getSchemaElement() != null &&
-                        parent.getSchemaElement().hasChildren()) {
-                    for (SchemaElement child : parent.getSchemaElement().getChildren()) {
-                        if (child.getName().equals(elementName)) {
-                            return child;
-                        }
-                    }
+            // Constant-time lookup in the parent's child index
+            if (depth > 0) {
+                SchemaElement parent = elementStack[depth - 1].getSchemaElement();
+                if (parent != null) {
+                    return parent.getChild(elementName);
                 }
             }
 
@@ -511,106 +1118,155 @@ public class StreamingValidator {
          */
         private void updateLocation() {
             if (locator != null) {
-                currentLine = locator.getLineNumber();
-                currentColumn = locator.getColumnNumber();
+                currentLine = fileLine(locator.getLineNumber());
+                currentColumn = fileColumn(locator.getLineNumber(), locator.getColumnNumber());
+                currentOffset = offsets.offsetOf(locator.getLineNumber(), locator.getColumnNumber());
             }
         }
 
         /**
-         * Gets current element path
+         * Maps a line reported by the parser to the file, which differs inside a segment
          */
-        private String getCurrentPath() {
-            StringBuilder path = new StringBuilder();
-            for (ElementContext ctx : elementStack) {
-                path.append("/").append(ctx.getElementName());
-            }
-            return path.toString();
+        private int fileLine(int line) {
+            return segment != null ? split.fileLine(segment, line) : line;
+        }
+
+        private int fileColumn(int line, int column) {
+            return segment != null ? split.fileColumn(segment, line, column) : column;
+        }
+
+        private long fileOffset(long offset) {
+            return segment != null ? split.fileOffset(segment, offset) : offset;
         }
 
         /**
-         * Gets parent element path
+         * File offset of the position a parser error was reported at
          */
-        private String getParentPath() {
-            if (elementStack.isEmpty()) {
-                return "";
-            }
+        private long fileOffset(SAXParseException e) {
+            return fileOffset(offsets.offsetOf(e.getLineNumber(), e.getColumnNumber()));
+        }
 
-            StringBuilder path = new StringBuilder();
-            for (int i = 0; i < elementStack.size() - 1; i++) {
-                path.append("/").append(elementStack.get(i).getElementName());
-            }
-            return path.toString();
+        private int currentPathId() {
+            return depth > 0 ? elementStack[depth - 1].getPathId() : ElementSymbolTable.DOCUMENT_PATH;
+        }
+
+        /**
+         * Gets current element path; only built when an error is reported
+         */
+        private String getCurrentPath() {
+            return symbols.pathString(currentPathId());
+        }
+
+        /**
+         * Adds a validation error about an element, at its location and byte range
+         */
+        private void addError(ErrorType errorType, ErrorCode errorCode, ElementContext context,
+                              String elementName, Object... arguments) {
+            addError(errorType, errorCode, context.getLineNumber(), context.getColumnNumber(),
+                    context.getStartOffset(), context.getEndOffset(), elementName, arguments);
         }
 
         /**
-         * Adds a validation error
+         * Adds a validation error; the message is rendered from the code only when read
          */
-        private void addError(ErrorType errorType, String message, int line, int column,
-                              String elementName) {
-            ValidationError error = new ValidationError(errorType, message, line, column);
+        private void addError(ErrorType errorType, ErrorCode errorCode, int line, int column,
+                              long startOffset, long endOffset, String elementName, Object... arguments) {
+            ValidationError error = new ValidationError(errorType, errorCode, line, column, arguments);
+            error.setByteOffset(startOffset);
+            error.setEndByteOffset(endOffset);
             error.setElementName(elementName);
             error.setxPath(getCurrentPath());
-            errors.add(error);
+            sink.addError(error);
 
-            logger.debug("Validation error: {} at line {}, column {}", message, line, column);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Validation error: {} at line {}, column {}", errorCode, line, column);
+            }
         }
 
         /**
          * Adds a validation warning
          */
-        private void addWarning(ErrorType errorType, String message, int line, int column,
-                                String elementName) {
-            ValidationError warning = new ValidationError(errorType, message, line, column);
+        private void addWarning(ErrorType errorType, ErrorCode errorCode, int line, int column,
+                                long offset, String elementName, Object... arguments) {
+            ValidationError warning = new ValidationError(errorType, errorCode, line, column, arguments);
             warning.setSeverity(ValidationError.Severity.WARNING);
+            warning.setByteOffset(offset);
             warning.setElementName(elementName);
             warning.setxPath(getCurrentPath());
-            warnings.add(warning);
+            sink.addWarning(warning);
 
-            logger.debug("Validation warning: {} at line {}, column {}", message, line, column);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Validation warning: {} at line {}, column {}", errorCode, line, column);
+            }
         }
 
         // SAX ErrorHandler methods
         @Override
         public void warning(SAXParseException e) throws SAXException {
-            addWarning(ErrorType.MALFORMED_XML, e.getMessage(),
-                    e.getLineNumber(), e.getColumnNumber(), "");
+            addWarning(ErrorType.MALFORMED_XML, ErrorCode.PARSER_ERROR,
+                    fileLine(e.getLineNumber()), fileColumn(e.getLineNumber(), e.getColumnNumber()), fileOffset(e), "",
+                    e.getMessage());
         }
 
         @Override
         public void error(SAXParseException e) throws SAXException {
-            addError(ErrorType.MALFORMED_XML, e.getMessage(),
-                    e.getLineNumber(), e.getColumnNumber(), "");
+            addError(ErrorType.MALFORMED_XML, ErrorCode.PARSER_ERROR,
+                    fileLine(e.getLineNumber()), fileColumn(e.getLineNumber(), e.getColumnNumber()), fileOffset(e), -1, "",
+                    e.getMessage());
+            if (failFast) {
+                throw new ValidationAbortedException(sink.getErrorCount());
+            }
+            checkErrorLimit();
         }
 
         @Override
         public void fatalError(SAXParseException e) throws SAXException {
-            addError(ErrorType.MALFORMED_XML, "Fatal: " + e.getMessage(),
-                    e.getLineNumber(), e.getColumnNumber(), "");
+            addError(ErrorType.MALFORMED_XML, ErrorCode.PARSER_FATAL_ERROR,
+                    fileLine(e.getLineNumber()), fileColumn(e.getLineNumber(), e.getColumnNumber()), fileOffset(e), -1, "",
+                    e.getMessage());
             throw e; // Re-throw to stop parsing
         }
-
-        public List<ValidationError> getErrors() { return errors; }
-        public List<ValidationError> getWarnings() { return warnings; }
     }
 
     /**
-     * Inner class to maintain element context during validation
+     * Inner class to maintain element context during validation.
+     * Instances are pooled per nesting depth and reset for each element.
      */
     private static class ElementContext {
-        private final String elementName;
-        private final int lineNumber;
-        private final int columnNumber;
+        private String elementName;
+        private int lineNumber;
+        private int columnNumber;
+        private long startOffset;
+        private long endOffset;
         private String namespaceURI;
         private String qualifiedName;
+        private int pathId;
         private SchemaElement schemaElement;
-        private boolean validated;
-        private Map<String, String> attributes;
+        private ContentAutomaton contentAutomaton;
+        private long contentState;
+        private int lastSymbol;
 
-        public ElementContext(String elementName, int lineNumber, int columnNumber) {
+        // Occurrences of each child by ordinal in this element's definition, plus a mask
+        // of the ordinals below 64 that have been seen
+        private int[] childCounts = new int[8];
+        private int childSlots;
+        private long childrenSeen;
+
+        public void reset(String elementName, int lineNumber, int columnNumber, long startOffset) {
             this.elementName = elementName;
             this.lineNumber = lineNumber;
             this.columnNumber = columnNumber;
-            this.attributes = new HashMap<>();
+            this.startOffset = startOffset;
+            this.endOffset = -1;
+            this.namespaceURI = null;
+            this.qualifiedName = null;
+            this.pathId = 0;
+            this.schemaElement = null;
+            this.contentAutomaton = null;
+            this.contentState = 0;
+            this.lastSymbol = -1;
+            this.childSlots = 0;
+            this.childrenSeen = 0;
         }
 
         // Getters and setters
@@ -618,18 +1274,81 @@ public class StreamingValidator {
         public int getLineNumber() { return lineNumber; }
         public int getColumnNumber() { return columnNumber; }
 
+        // Byte range in the file; the end is -1 until the element closes
+        public long getStartOffset() { return startOffset; }
+        public long getEndOffset() { return endOffset; }
+        public void setEndOffset(long endOffset) { this.endOffset = endOffset; }
+
         public String getNamespaceURI() { return namespaceURI; }
         public void setNamespaceURI(String namespaceURI) { this.namespaceURI = namespaceURI; }
 
         public String getQualifiedName() { return qualifiedName; }
         public void setQualifiedName(String qualifiedName) { this.qualifiedName = qualifiedName; }
 
+        // Interned path, see ElementSymbolTable
+        public int getPathId() { return pathId; }
+        public void setPathId(int pathId) { this.pathId = pathId; }
+
         public SchemaElement getSchemaElement() { return schemaElement; }
         public void setSchemaElement(SchemaElement schemaElement) { this.schemaElement = schemaElement; }
 
-        public boolean isValidated() { return validated; }
-        public void setValidated(boolean validated) { this.validated = validated; }
+        // Position in the content model of this element's children
+        public ContentAutomaton getContentAutomaton() { return contentAutomaton; }
+        public void setContentAutomaton(ContentAutomaton contentAutomaton) {
+            this.contentAutomaton = contentAutomaton;
+            this.contentState = contentAutomaton != null ? contentAutomaton.initialState() : 0;
+        }
+
+        public long getContentState() { return contentState; }
+        public void setContentState(long contentState) { this.contentState = contentState; }
+
+        public int getLastSymbol() { return lastSymbol; }
+        public void setLastSymbol(int lastSymbol) { this.lastSymbol = lastSymbol; }
+
+
+        /**
+         * Clears the child counters for the children the definition allows
+         */
+        public void startChildren(SchemaElement definition) {
+            childSlots = definition.getChildSlotCount();
+            if (childSlots > childCounts.length) {
+                childCounts = new int[Math.max(childSlots, childCounts.length * 2)];
+            } else {
+                Arrays.fill(childCounts, 0, childSlots, 0);
+            }
+            childrenSeen = 0;
+        }
+
+        /**
+         * Counts one more occurrence of the child with the given ordinal and returns the total
+         */
+        public int countChild(int ordinal) {
+            if (ordinal < 0 || ordinal >= childSlots) {
+                return 0;
+            }
+            if (ordinal < Long.SIZE) {
+                childrenSeen |= 1L << ordinal;
+            }
+            return ++childCounts[ordinal];
+        }
+
+        /**
+         * Sets the occurrences of a child counted before this frame was opened
+         */
+        public void seedChild(int ordinal, long count) {
+            if (ordinal < 0 || ordinal >= childSlots || count <= 0) {
+                return;
+            }
+            if (ordinal < Long.SIZE) {
+                childrenSeen |= 1L << ordinal;
+            }
+            childCounts[ordinal] = (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        public int getChildCount(int ordinal) {
+            return ordinal >= 0 && ordinal < childSlots ? childCounts[ordinal] : 0;
+        }
 
-        public Map<String, String> getAttributes() { return attributes; }
+        public long getChildrenSeen() { return childrenSeen; }
     }
 }
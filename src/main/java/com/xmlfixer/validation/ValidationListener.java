@@ -0,0 +1,25 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.validation.model.ValidationError;
+
+/**
+ * Receives validation errors as soon as the streaming validator finds them.
+ * Callbacks run on the thread doing the validation, in document order, so a slow listener
+ * slows the parse down rather than letting errors pile up. Errors handed to a listener are
+ * counted but not kept in the ValidationResult.
+ */
+public interface ValidationListener {
+
+    void onError(ValidationError error);
+
+    default void onWarning(ValidationError warning) {
+    }
+
+    /**
+     * Checked between elements; returning true ends the validation early, the result is
+     * then marked truncated
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
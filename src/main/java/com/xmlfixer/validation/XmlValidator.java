@@ -3,11 +3,12 @@ package com.xmlfixer.validation;
 import com.xmlfixer.common.exceptions.ValidationException;
 import com.xmlfixer.parsing.XmlParser;
 import com.xmlfixer.schema.SchemaAnalyzer;
+import com.xmlfixer.schema.model.CompiledSchema;
 import com.xmlfixer.schema.model.SchemaElement;
-import com.xmlfixer.schema.model.ValidationRule;
 import com.xmlfixer.validation.model.ValidationResult;
 import com.xmlfixer.validation.model.ValidationError;
 import com.xmlfixer.validation.model.ErrorType;
+import com.xmlfixer.validation.model.ErrorAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,26 +28,36 @@ public class XmlValidator {
     private static final Logger logger = LoggerFactory.getLogger(XmlValidator.class);
 
     private final StreamingValidator streamingValidator;
-    private final ErrorCollector errorCollector;
     private final XmlParser xmlParser;
     private final SchemaAnalyzer schemaAnalyzer;
 
     @Inject
     public XmlValidator(StreamingValidator streamingValidator,
-                        ErrorCollector errorCollector,
                         XmlParser xmlParser,
                         SchemaAnalyzer schemaAnalyzer) {
         this.streamingValidator = streamingValidator;
-        this.errorCollector = errorCollector;
         this.xmlParser = xmlParser;
         this.schemaAnalyzer = schemaAnalyzer;
         logger.info("XmlValidator initialized");
     }
 
     /**
-     * Validates an XML file against a schema with comprehensive error detection
+     * Validates an XML file against a schema with comprehensive error detection.
+     * The caller closes the result, which deletes any errors spilled to disk.
      */
     public ValidationResult validate(File xmlFile, File schemaFile) {
+        return validate(xmlFile, schemaFile, null, null);
+    }
+
+    /**
+     * Validates an XML file against an already compiled schema
+     */
+    public ValidationResult validate(File xmlFile, CompiledSchema compiledSchema) {
+        return validate(xmlFile, compiledSchema.getSchemaFile(), compiledSchema, null);
+    }
+
+    private ValidationResult validate(File xmlFile, File schemaFile, CompiledSchema compiledSchema,
+                                      ValidationOptions options) {
         logger.info("Validating XML file: {} against schema: {}",
                 xmlFile.getName(), schemaFile.getName());
 
@@ -56,31 +67,37 @@ public class XmlValidator {
         result.setSchemaFile(schemaFile);
 
         try {
-            // Clear any previous errors
-            errorCollector.clear();
-
-            // Step 1: Analyze the schema
-            logger.debug("Analyzing schema structure");
-            SchemaElement rootSchema = schemaAnalyzer.analyzeSchema(schemaFile);
-
-            // Step 2: Extract validation rules from schema
-            Map<String, List<ValidationRule>> validationRules = extractValidationRules(rootSchema);
-            logger.debug("Extracted {} validation rule sets", validationRules.size());
+            // Step 1: Compile the schema (served from the schema cache after the first run)
+            if (compiledSchema == null) {
+                logger.debug("Analyzing schema structure");
+                compiledSchema = schemaAnalyzer.compileSchema(schemaFile);
+            }
+            SchemaElement rootSchema = compiledSchema.getRootElement();
+            logger.debug("Using {} validation rule sets", compiledSchema.getValidationRules().size());
 
-            // Step 3: Perform streaming validation
+            // Step 2: Perform streaming validation
             logger.debug("Starting streaming validation");
-            ValidationResult streamingResult = streamingValidator.validateStreaming(
-                    xmlFile, rootSchema, validationRules);
+            ValidationResult streamingResult = streamingValidator.validateStreaming(xmlFile, compiledSchema, options);
 
-            // Step 4: Merge results
+            // Step 3: Merge results
             result.setErrors(streamingResult.getErrors());
             result.setWarnings(streamingResult.getWarnings());
+            result.setTruncated(streamingResult.isTruncated());
+            result.setErrorStore(streamingResult.getErrorStore());
+            result.setErrorAggregator(streamingResult.getErrorAggregator());
+
+            // Surface schema defects found at compile time (e.g. invalid patterns)
+            for (String problem : compiledSchema.getCompilationProblems()) {
+                ValidationError schemaWarning = new ValidationError(ErrorType.SCHEMA_VIOLATION, problem);
+                schemaWarning.setSeverity(ValidationError.Severity.WARNING);
+                result.addWarning(schemaWarning);
+            }
 
-            // Step 5: Perform additional validation checks
+            // Step 4: Perform additional validation checks
             performAdditionalValidation(xmlFile, rootSchema, result);
 
-            // Step 6: Generate validation summary
-            result.setValid(result.getErrors().isEmpty());
+            // Step 5: Generate validation summary
+            result.setValid(result.getErrorCount() == 0);
 
             long endTime = System.currentTimeMillis();
             result.setValidationTimeMs(endTime - startTime);
@@ -109,8 +126,7 @@ public class XmlValidator {
      * Quick validation check without detailed results
      */
     public boolean isValid(File xmlFile, File schemaFile) {
-        try {
-            ValidationResult result = validate(xmlFile, schemaFile);
+        try (ValidationResult result = validate(xmlFile, schemaFile)) {
             return result.isValid();
         } catch (Exception e) {
             logger.warn("Quick validation check failed for: {}", xmlFile.getName(), e);
@@ -119,13 +135,14 @@ public class XmlValidator {
     }
 
     /**
-     * Validates XML with options for controlling validation behavior
+     * Validates XML with options for controlling validation behavior.
+     * The error budget is enforced while parsing, so the parse stops once it is spent.
      */
     public ValidationResult validateWithOptions(File xmlFile, File schemaFile,
                                                 ValidationOptions options) {
         logger.info("Validating with custom options: {}", options);
 
-        ValidationResult result = validate(xmlFile, schemaFile);
+        ValidationResult result = validate(xmlFile, schemaFile, null, options);
 
         // Apply options
         if (options != null) {
@@ -133,94 +150,21 @@ public class XmlValidator {
                 result.setWarnings(new ArrayList<>());
             }
 
-            if (options.getMaxErrors() > 0 && result.getErrorCount() > options.getMaxErrors()) {
-                List<ValidationError> limitedErrors = result.getErrors().stream()
-                        .limit(options.getMaxErrors())
-                        .collect(Collectors.toList());
-                result.setErrors(limitedErrors);
-            }
-
-            if (options.isStopOnFirstError() && !result.getErrors().isEmpty()) {
-                result.setErrors(Collections.singletonList(result.getErrors().get(0)));
+            // The streaming validator drops errors past the limit before aggregating them, so only
+            // errors added after the parse can exceed it; they are the last ones in the list
+            int errorLimit = options.getErrorLimit();
+            int excess = result.getErrorCount() - errorLimit;
+            if (errorLimit > 0 && excess > 0) {
+                List<ValidationError> errors = result.getErrors();
+                int kept = Math.max(errors.size() - excess, 0);
+                result.setErrors(new ArrayList<>(errors.subList(0, kept)));
+                result.setTruncated(true);
             }
         }
 
         return result;
     }
 
-    /**
-     * Extracts validation rules from schema element hierarchy
-     */
-    private Map<String, List<ValidationRule>> extractValidationRules(SchemaElement rootSchema) {
-        Map<String, List<ValidationRule>> rulesMap = new HashMap<>();
-
-        // Recursively extract rules from schema
-        extractRulesRecursive(rootSchema, rulesMap);
-
-        return rulesMap;
-    }
-
-    /**
-     * Recursively extracts validation rules from schema elements
-     */
-    private void extractRulesRecursive(SchemaElement element,
-                                       Map<String, List<ValidationRule>> rulesMap) {
-        if (element == null) {
-            return;
-        }
-
-        List<ValidationRule> elementRules = new ArrayList<>();
-
-        // Create rules based on element properties
-
-        // Required element rule
-        if (element.isRequired()) {
-            ValidationRule requiredRule = new ValidationRule(
-                    ValidationRule.RuleType.ELEMENT_REQUIRED, element.getName());
-            requiredRule.setRequired(true);
-            elementRules.add(requiredRule);
-        }
-
-        // Cardinality rule
-        if (element.getMinOccurs() > 0 || element.getMaxOccurs() < Integer.MAX_VALUE) {
-            ValidationRule cardinalityRule = new ValidationRule(
-                    ValidationRule.RuleType.ELEMENT_CARDINALITY, element.getName());
-            cardinalityRule.setMinOccurs(element.getMinOccurs());
-            cardinalityRule.setMaxOccurs(element.getMaxOccurs());
-            elementRules.add(cardinalityRule);
-        }
-
-        // Data type rule
-        if (element.getType() != null && !element.getType().equals("complexType")) {
-            ValidationRule typeRule = new ValidationRule(
-                    ValidationRule.RuleType.DATA_TYPE, element.getName());
-            typeRule.setDataType(element.getType());
-            elementRules.add(typeRule);
-        }
-
-        // Pattern rules from constraints
-        if (element.hasConstraints()) {
-            element.getConstraints().forEach(constraint -> {
-                ValidationRule constraintRule = new ValidationRule(
-                        ValidationRule.RuleType.PATTERN_MATCH, element.getName());
-                constraintRule.setPattern(constraint.getValue());
-                constraintRule.setDescription(constraint.getDescription());
-                elementRules.add(constraintRule);
-            });
-        }
-
-        if (!elementRules.isEmpty()) {
-            rulesMap.put(element.getName(), elementRules);
-        }
-
-        // Process children
-        if (element.hasChildren()) {
-            for (SchemaElement child : element.getChildren()) {
-                extractRulesRecursive(child, rulesMap);
-            }
-        }
-    }
-
     /**
      * Performs additional validation checks beyond streaming validation
      */
@@ -327,6 +271,23 @@ public class XmlValidator {
         private int maxErrors = 0; // 0 means no limit
         private boolean validateNamespaces = true;
         private boolean validateReferences = true;
+        private boolean failFast = false;
+        private boolean aggregateErrors = false;
+        private int errorSampleSize = ErrorAggregator.DEFAULT_SAMPLE_SIZE;
+        private boolean parallel = false;
+        private boolean recordIndex = false;
+
+        /**
+         * Options for ingestion gates: stop at the first well-formedness problem and after
+         * the first maxErrors schema errors, without warnings
+         */
+        public static ValidationOptions failFast(int maxErrors) {
+            ValidationOptions options = new ValidationOptions();
+            options.setFailFast(true);
+            options.setMaxErrors(maxErrors);
+            options.setIncludeWarnings(false);
+            return options;
+        }
 
         // Getters and setters
         public boolean isIncludeWarnings() { return includeWarnings; }
@@ -352,10 +313,46 @@ public class XmlValidator {
             this.validateReferences = validateReferences;
         }
 
+        public boolean isFailFast() { return failFast; }
+        public void setFailFast(boolean failFast) { this.failFast = failFast; }
+
+        /**
+         * Collapses repeated errors into counted groups, one per distinct problem
+         */
+        public boolean isAggregateErrors() { return aggregateErrors; }
+        public void setAggregateErrors(boolean aggregateErrors) { this.aggregateErrors = aggregateErrors; }
+
+        /**
+         * Locations kept per error group when aggregating
+         */
+        public int getErrorSampleSize() { return errorSampleSize; }
+        public void setErrorSampleSize(int errorSampleSize) { this.errorSampleSize = errorSampleSize; }
+
+        /**
+         * Validates a file made of repeated records in segments on several threads; files
+         * that cannot be split, and runs that aggregate errors, are validated sequentially
+         */
+        public boolean isParallel() { return parallel; }
+        public void setParallel(boolean parallel) { this.parallel = parallel; }
+
+        /**
+         * Writes a .xfidx index of the root's records next to the file on the first complete
+         * pass; later parallel runs split the file from it instead of scanning
+         */
+        public boolean isRecordIndex() { return recordIndex; }
+        public void setRecordIndex(boolean recordIndex) { this.recordIndex = recordIndex; }
+
+        /**
+         * Number of errors after which validation stops, 0 for no limit
+         */
+        public int getErrorLimit() {
+            return stopOnFirstError ? 1 : Math.max(maxErrors, 0);
+        }
+
         @Override
         public String toString() {
-            return String.format("ValidationOptions{warnings=%s, stopFirst=%s, maxErrors=%d}",
-                    includeWarnings, stopOnFirstError, maxErrors);
+            return String.format("ValidationOptions{warnings=%s, stopFirst=%s, maxErrors=%d, failFast=%s, aggregate=%s, parallel=%s, recordIndex=%s}",
+                    includeWarnings, stopOnFirstError, maxErrors, failFast, aggregateErrors, parallel, recordIndex);
         }
     }
 }
@@ -1,14 +1,18 @@
 package com.xmlfixer.validation.config;
 
+import com.xmlfixer.parsing.ParserPool;
+import com.xmlfixer.parsing.XmlInput;
 import com.xmlfixer.parsing.XmlParser;
 import com.xmlfixer.schema.SchemaAnalyzer;
 import com.xmlfixer.validation.ErrorCollector;
 import com.xmlfixer.validation.StreamingValidator;
 import com.xmlfixer.validation.XmlValidator;
+import com.xmlfixer.validation.model.ErrorStore;
 import dagger.Module;
 import dagger.Provides;
 
 import javax.inject.Singleton;
+import java.util.Properties;
 
 /**
  * Dagger module for validation-related dependencies
@@ -18,8 +22,18 @@ public class ValidationModule {
 
     @Provides
     @Singleton
-    public StreamingValidator provideStreamingValidator(ErrorCollector errorCollector) {
-        return new StreamingValidator(errorCollector);
+    public StreamingValidator provideStreamingValidator(ErrorCollector errorCollector, XmlInput xmlInput,
+                                                        Properties properties) {
+        int parserPoolSize = Integer.parseInt(properties.getProperty(
+                "xml.parser.pool.size", String.valueOf(ParserPool.DEFAULT_MAX_IDLE)));
+        int errorWindowSize = Integer.parseInt(properties.getProperty(
+                "validation.error.memory.window", String.valueOf(ErrorStore.DEFAULT_WINDOW_SIZE)));
+        int parallelThreads = Integer.parseInt(properties.getProperty(
+                "validation.concurrent.threads", String.valueOf(StreamingValidator.DEFAULT_PARALLEL_THREADS)));
+        long segmentMb = Long.parseLong(properties.getProperty(
+                "validation.parallel.segment.mb", String.valueOf(StreamingValidator.DEFAULT_SEGMENT_BYTES >> 20)));
+        return new StreamingValidator(errorCollector, parserPoolSize, errorWindowSize,
+                parallelThreads, segmentMb * 1024 * 1024, xmlInput);
     }
 
     @Provides
@@ -31,9 +45,8 @@ public class ValidationModule {
     @Provides
     @Singleton
     public XmlValidator provideXmlValidator(StreamingValidator streamingValidator,
-                                            ErrorCollector errorCollector,
                                             XmlParser xmlParser,
                                             SchemaAnalyzer schemaAnalyzer) {
-        return new XmlValidator(streamingValidator, errorCollector, xmlParser, schemaAnalyzer);
+        return new XmlValidator(streamingValidator, xmlParser, schemaAnalyzer);
     }
 }
@@ -0,0 +1,38 @@
+package com.xmlfixer.validation.model;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator that holds a resource, such as an open file, until it reaches the end or is
+ * closed; callers that may stop early close it, typically with try-with-resources
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the resource; calling it again, or after the end was reached, does nothing
+     */
+    @Override
+    void close();
+
+    /**
+     * Wraps an iterator that holds nothing to release
+     */
+    static <T> CloseableIterator<T> of(Iterator<T> iterator) {
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
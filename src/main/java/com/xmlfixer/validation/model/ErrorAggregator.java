@@ -0,0 +1,250 @@
+package com.xmlfixer.validation.model;
+
+import java.util.*;
+
+/**
+ * Collapses repeated validation errors into counted groups.
+ * Errors with the same type, schema node (element name and path) and message template form
+ * one group, which keeps the first error as its representative, the count, the locations of
+ * the first few occurrences and a histogram of the lines they were found on. A systemic
+ * problem repeated in millions of records then costs one group instead of millions of
+ * errors. One thread adds until the run is finished.
+ */
+public final class ErrorAggregator implements Iterable<ErrorAggregator.ErrorGroup> {
+
+    public static final int DEFAULT_SAMPLE_SIZE = 5;
+
+    /** Buckets of the line histogram; a bucket spans more lines as the document grows */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    private final int sampleSize;
+    private final Map<GroupKey, ErrorGroup> groups = new LinkedHashMap<>();
+    private final GroupKey probe = new GroupKey();
+    private long totalCount;
+
+    public ErrorAggregator() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    public ErrorAggregator(int sampleSize) {
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("Sample size must not be negative: " + sampleSize);
+        }
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Counts an occurrence; returns true when it starts a new group, whose representative
+     * it then is
+     */
+    public boolean add(ValidationError error) {
+        totalCount++;
+        probe.set(error);
+        ErrorGroup group = groups.get(probe);
+        boolean created = group == null;
+        if (created) {
+            group = new ErrorGroup(error, sampleSize);
+            groups.put(probe.copy(), group);
+        }
+        group.record(error.getLineNumber(), error.getColumnNumber());
+        return created;
+    }
+
+    /**
+     * Groups in the order their first error was found
+     */
+    public List<ErrorGroup> getGroups() {
+        return new ArrayList<>(groups.values());
+    }
+
+    @Override
+    public Iterator<ErrorGroup> iterator() {
+        return Collections.unmodifiableCollection(groups.values()).iterator();
+    }
+
+    public int getSampleSize() { return sampleSize; }
+    public int getGroupCount() { return groups.size(); }
+    public long getTotalCount() { return totalCount; }
+
+    /**
+     * Occurrences folded into a group beyond its representative
+     */
+    public long getCollapsedCount() {
+        return totalCount - groups.size();
+    }
+
+    public long getCount(ErrorType errorType) {
+        long count = 0;
+        for (ErrorGroup group : groups.values()) {
+            if (group.getErrorType() == errorType) {
+                count += group.getCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Occurrences per error type, in type order
+     */
+    public Map<ErrorType, Long> countByType() {
+        Map<ErrorType, Long> counts = new EnumMap<>(ErrorType.class);
+        for (ErrorGroup group : groups.values()) {
+            counts.merge(group.getErrorType(), group.getCount(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Identity of a group; a single mutable instance probes the map so counting an
+     * occurrence of a known problem allocates nothing
+     */
+    private static final class GroupKey {
+        private ErrorType errorType;
+        private ErrorCode errorCode;
+        private String message;
+        private String elementName;
+        private String xPath;
+        private int hash;
+
+        void set(ValidationError error) {
+            errorType = error.getErrorType();
+            errorCode = error.getErrorCode();
+            // Errors without a template can only be told apart by their text
+            message = errorCode == null ? error.getMessage() : null;
+            elementName = error.getElementName();
+            xPath = error.getxPath();
+            hash = Objects.hash(errorType, errorCode, message, elementName, xPath);
+        }
+
+        GroupKey copy() {
+            GroupKey key = new GroupKey();
+            key.errorType = errorType;
+            key.errorCode = errorCode;
+            key.message = message;
+            key.elementName = elementName;
+            key.xPath = xPath;
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GroupKey)) return false;
+            GroupKey other = (GroupKey) o;
+            return hash == other.hash && errorType == other.errorType && errorCode == other.errorCode
+                    && Objects.equals(message, other.message)
+                    && Objects.equals(elementName, other.elementName)
+                    && Objects.equals(xPath, other.xPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Occurrences of one distinct problem
+     */
+    public static final class ErrorGroup {
+        private final ValidationError representative;
+        private final int[] sampleLines;
+        private final int[] sampleColumns;
+        private int sampleCount;
+        private long count;
+        private int firstLine = -1;
+        private int lastLine = -1;
+
+        // Bucket i counts the lines from i * bucketWidth + 1 up to (i + 1) * bucketWidth
+        private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        private int bucketWidth = 1;
+
+        ErrorGroup(ValidationError representative, int sampleSize) {
+            this.representative = representative;
+            this.sampleLines = new int[sampleSize];
+            this.sampleColumns = new int[sampleSize];
+        }
+
+        void record(int line, int column) {
+            count++;
+            if (sampleCount < sampleLines.length) {
+                sampleLines[sampleCount] = line;
+                sampleColumns[sampleCount] = column;
+                sampleCount++;
+            }
+            if (line <= 0) {
+                return;
+            }
+            if (firstLine < 0 || line < firstLine) {
+                firstLine = line;
+            }
+            lastLine = Math.max(lastLine, line);
+
+            int bucket = (line - 1) / bucketWidth;
+            while (bucket >= HISTOGRAM_BUCKETS) {
+                widenBuckets();
+                bucket = (line - 1) / bucketWidth;
+            }
+            histogram[bucket]++;
+        }
+
+        /**
+         * Doubles the lines per bucket, merging neighbouring buckets into the lower half
+         */
+        private void widenBuckets() {
+            for (int i = 0; i < HISTOGRAM_BUCKETS / 2; i++) {
+                histogram[i] = histogram[2 * i] + histogram[2 * i + 1];
+            }
+            Arrays.fill(histogram, HISTOGRAM_BUCKETS / 2, HISTOGRAM_BUCKETS, 0L);
+            bucketWidth *= 2;
+        }
+
+        /**
+         * First error of the group, whose message describes all of them
+         */
+        public ValidationError getRepresentative() { return representative; }
+        public ErrorType getErrorType() { return representative.getErrorType(); }
+        public ErrorCode getErrorCode() { return representative.getErrorCode(); }
+        public String getElementName() { return representative.getElementName(); }
+        public String getxPath() { return representative.getxPath(); }
+        public String getMessage() { return representative.getMessage(); }
+
+        public long getCount() { return count; }
+        public int getFirstLine() { return firstLine; }
+        public int getLastLine() { return lastLine; }
+
+        public int getSampleCount() { return sampleCount; }
+        public int getSampleLine(int index) { return sampleLines[checkSample(index)]; }
+        public int getSampleColumn(int index) { return sampleColumns[checkSample(index)]; }
+
+        public int getBucketWidth() { return bucketWidth; }
+
+        /**
+         * Occurrence counts per bucket of getBucketWidth lines, up to the last bucket in use
+         */
+        public long[] getLineHistogram() {
+            int used = lastLine > 0 ? (lastLine - 1) / bucketWidth + 1 : 0;
+            return Arrays.copyOf(histogram, used);
+        }
+
+        private int checkSample(int index) {
+            if (index < 0 || index >= sampleCount) {
+                throw new IndexOutOfBoundsException("Sample " + index + " of " + sampleCount);
+            }
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ErrorGroup{type=%s, element='%s', path='%s', count=%d, lines=%d-%d}",
+                    getErrorType(), getElementName(), getxPath(), count, firstLine, lastLine);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ErrorAggregator{groups=%d, errors=%d, samples=%d}",
+                groups.size(), totalCount, sampleSize);
+    }
+}
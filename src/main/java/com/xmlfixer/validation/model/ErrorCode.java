@@ -0,0 +1,77 @@
+package com.xmlfixer.validation.model;
+
+import java.util.Collection;
+
+/**
+ * Message templates of the errors raised while streaming.
+ * An error keeps its code and raw arguments and renders the message only when it is read;
+ * collection arguments are rendered as comma-separated lists.
+ */
+public enum ErrorCode {
+
+    // Structure
+    UNEXPECTED_ELEMENT("Unexpected element '%s' at path: %s"),
+    MISSING_ROOT_ELEMENT("Required element '%s' is missing"),
+    MISSING_CHILD_ELEMENT("Required element '%s' is missing in '%s'"),
+    TOO_MANY_OCCURRENCES("Element '%s' appears %d times, but maximum allowed is %d"),
+    REPEATED_ELEMENT("Element '%s' appears more often in '%s' than allowed"),
+    CONTENT_ALREADY_COMPLETE("Element '%s' is not allowed in '%s' after its content is complete"),
+    UNEXPECTED_ELEMENT_ORDER("Element '%s' is not expected here in '%s', expected: %s"),
+    INCOMPLETE_CONTENT("Content of '%s' is incomplete, expected one of: %s"),
+
+    // Values
+    INVALID_VALUE("Invalid %s value '%s' for element '%s'"),
+    INVALID_STREAMED_VALUE("Invalid %s value (%d characters) for element '%s'"),
+    LENGTH_BELOW_MINIMUM("Value length %d is less than minimum %d"),
+    LENGTH_ABOVE_MAXIMUM("Value length %d exceeds maximum %d"),
+    PATTERN_MISMATCH("Value '%s' does not match pattern '%s'"),
+    NOT_IN_ENUMERATION("Value '%s' is not in allowed values: %s"),
+    BELOW_MIN_INCLUSIVE("Value '%s' is less than minimum %s"),
+    ABOVE_MAX_INCLUSIVE("Value '%s' exceeds maximum %s"),
+    NOT_ABOVE_MIN_EXCLUSIVE("Value '%s' must be greater than %s"),
+    NOT_BELOW_MAX_EXCLUSIVE("Value '%s' must be less than %s"),
+    TOO_MANY_TOTAL_DIGITS("Value '%s' has more than %d total digits"),
+    TOO_MANY_FRACTION_DIGITS("Value '%s' has more than %d fraction digits"),
+    INVALID_ATTRIBUTE_VALUE("Invalid value '%s' for attribute '%s'"),
+
+    // Parser
+    PARSER_ERROR("%s"),
+    PARSER_FATAL_ERROR("Fatal: %s");
+
+    private final String template;
+
+    ErrorCode(String template) {
+        this.template = template;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Renders the message for the given arguments
+     */
+    public String format(Object... arguments) {
+        Object[] rendered = arguments;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] instanceof Collection) {
+                if (rendered == arguments) {
+                    rendered = arguments.clone();
+                }
+                rendered[i] = join((Collection<?>) arguments[i]);
+            }
+        }
+        return String.format(template, rendered);
+    }
+
+    private static String join(Collection<?> values) {
+        StringBuilder joined = new StringBuilder();
+        for (Object value : values) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
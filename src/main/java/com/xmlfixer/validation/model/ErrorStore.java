@@ -0,0 +1,509 @@
+package com.xmlfixer.validation.model;
+
+import com.xmlfixer.common.exceptions.XmlFixerException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Append-only store of validation errors with bounded memory.
+ * The first windowSize errors are kept as objects; later ones are spilled to a temporary
+ * binary file, with element names and paths written once and then referenced by index.
+ * Spilled errors keep their ErrorCode and raw arguments, so messages are not rendered to be
+ * written and are rendered again only for the errors that are read.
+ * Counts by type and element are kept as the errors arrive, and iteration and grouping by
+ * line read the spill file back one record at a time, so a run with millions of errors
+ * never holds them all. One thread appends until the store is sealed; reading seals it.
+ * The owner of the store closes it, which deletes the spill file; spill files of stores
+ * still open when the JVM exits are deleted then.
+ */
+public final class ErrorStore implements Iterable<ValidationError>, Closeable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 10_000;
+
+    private static final ErrorType[] ERROR_TYPES = ErrorType.values();
+    private static final ValidationError.Severity[] SEVERITIES = ValidationError.Severity.values();
+    private static final ErrorCode[] ERROR_CODES = ErrorCode.values();
+
+    // Argument tags of spilled errors
+    private static final byte ARG_NULL = 0;
+    private static final byte ARG_INT = 1;
+    private static final byte ARG_LONG = 2;
+    private static final byte ARG_STRING = 3;
+    private static final byte ARG_LIST = 4;
+
+    private final int windowSize;
+    private final List<ValidationError> window = new ArrayList<>();
+    private final int[] typeCounts = new int[ERROR_TYPES.length];
+    private final Map<String, Integer> elementCounts = new HashMap<>();
+
+    // Spill file; names are written once and referenced by index afterwards
+    private File spillFile;
+    private DataOutputStream spillOut;
+    private final Map<String, Integer> spilledNames = new HashMap<>();
+    private final Set<SpillReader> openReaders = ConcurrentHashMap.newKeySet();
+    private int spilledCount;
+    private boolean sealed;
+    private volatile boolean closed;
+
+    public ErrorStore() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public ErrorStore(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("Error window size must not be negative: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    public void add(ValidationError error) {
+        if (sealed) {
+            throw new IllegalStateException("Error store is sealed");
+        }
+        typeCounts[error.getErrorType().ordinal()]++;
+        if (error.getElementName() != null) {
+            elementCounts.merge(error.getElementName(), 1, Integer::sum);
+        }
+
+        if (window.size() < windowSize) {
+            window.add(error);
+            return;
+        }
+        try {
+            spill(error);
+        } catch (IOException e) {
+            throw new XmlFixerException("Failed to spill validation error to disk: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Errors kept in memory, the first windowSize in document order
+     */
+    public List<ValidationError> getWindow() { return window; }
+
+    public int size() { return window.size() + spilledCount; }
+    public int getSpilledCount() { return spilledCount; }
+    public boolean hasSpilled() { return spilledCount > 0; }
+    public int getWindowSize() { return windowSize; }
+
+    public int getCount(ErrorType errorType) {
+        return typeCounts[errorType.ordinal()];
+    }
+
+    /**
+     * Counts of the error types that occurred
+     */
+    public Map<ErrorType, Integer> countByType() {
+        Map<ErrorType, Integer> counts = new EnumMap<>(ErrorType.class);
+        for (ErrorType errorType : ERROR_TYPES) {
+            if (typeCounts[errorType.ordinal()] > 0) {
+                counts.put(errorType, typeCounts[errorType.ordinal()]);
+            }
+        }
+        return counts;
+    }
+
+    public Map<String, Integer> countByElement() {
+        return Collections.unmodifiableMap(elementCounts);
+    }
+
+    /**
+     * Error counts per line, in line order; reads the spill file once
+     */
+    public SortedMap<Integer, Integer> countByLine() {
+        SortedMap<Integer, Integer> counts = new TreeMap<>();
+        forEach(error -> {
+            if (error.getLineNumber() > 0) {
+                counts.merge(error.getLineNumber(), 1, Integer::sum);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Visits every error in the order it was added, closing the spill file afterwards
+     */
+    @Override
+    public void forEach(Consumer<? super ValidationError> action) {
+        window.forEach(action);
+        if (spilledCount == 0) {
+            return;
+        }
+        try (SpillReader reader = openSpill()) {
+            for (int i = 0; i < spilledCount; i++) {
+                action.accept(reader.read());
+            }
+        } catch (IOException e) {
+            throw new XmlFixerException("Failed to read spilled validation errors: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Iterates every error in the order it was added; the spill file is read lazily and
+     * closed when the iteration reaches the end or the iterator is closed
+     */
+    @Override
+    public CloseableIterator<ValidationError> iterator() {
+        Iterator<ValidationError> windowIterator = Collections.unmodifiableList(window).iterator();
+        if (spilledCount == 0) {
+            return CloseableIterator.of(windowIterator);
+        }
+        return concat(windowIterator, spilledIterator());
+    }
+
+    /**
+     * Iterates only the errors beyond the in-memory window, read back from the spill file.
+     * The file is opened on the first call to next; close the iterator when stopping early.
+     */
+    public CloseableIterator<ValidationError> spilledIterator() {
+        int count = spilledCount;
+        return new CloseableIterator<ValidationError>() {
+            private SpillReader reader;
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return read < count;
+            }
+
+            @Override
+            public ValidationError next() {
+                if (read >= count) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    if (reader == null) {
+                        reader = openSpill();
+                    }
+                    ValidationError error = reader.read();
+                    if (++read == count) {
+                        close();
+                    }
+                    return error;
+                } catch (IOException e) {
+                    close();
+                    throw new XmlFixerException("Failed to read spilled validation errors: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void close() {
+                if (reader != null) {
+                    reader.close();
+                    reader = null;
+                }
+            }
+        };
+    }
+
+    /**
+     * Iterates the first iterator, then the second; closing it closes the second
+     */
+    public static CloseableIterator<ValidationError> concat(Iterator<ValidationError> first,
+                                                            CloseableIterator<ValidationError> second) {
+        return new CloseableIterator<ValidationError>() {
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override
+            public ValidationError next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+
+            @Override
+            public void close() {
+                second.close();
+            }
+        };
+    }
+
+    /**
+     * Ends writing and releases the spill file handle; the spilled errors stay readable
+     */
+    public void seal() {
+        sealed = true;
+        if (spillOut != null) {
+            try {
+                spillOut.close();
+            } catch (IOException e) {
+                throw new XmlFixerException("Failed to write spilled validation errors: " + e.getMessage(), e);
+            } finally {
+                spillOut = null;
+            }
+        }
+    }
+
+    public boolean isSealed() { return sealed; }
+    public boolean isClosed() { return closed; }
+
+    /**
+     * Closes open readers and deletes the spill file. The in-memory window and the counts,
+     * spilled errors included, stay available; reading the spilled errors throws afterwards.
+     */
+    @Override
+    public void close() {
+        sealed = true;
+        closed = true;
+        try {
+            if (spillOut != null) {
+                spillOut.close();
+            }
+        } catch (IOException e) {
+            // The file is deleted below
+        }
+        spillOut = null;
+        for (SpillReader reader : openReaders) {
+            reader.close();
+        }
+        if (spillFile != null) {
+            SpillFiles.delete(spillFile);
+            spillFile = null;
+        }
+        spilledNames.clear();
+    }
+
+    private void spill(ValidationError error) throws IOException {
+        if (spillOut == null) {
+            spillFile = SpillFiles.create();
+            spillOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), 64 * 1024));
+        }
+
+        DataOutputStream out = spillOut;
+        out.writeByte(error.getErrorType().ordinal());
+        out.writeByte(error.getSeverity() != null ? error.getSeverity().ordinal() : -1);
+        out.writeInt(error.getLineNumber());
+        out.writeInt(error.getColumnNumber());
+        out.writeLong(error.getByteOffset());
+        out.writeLong(error.getEndByteOffset());
+        writeName(out, error.getElementName());
+        writeName(out, error.getxPath());
+        writeMessage(out, error);
+        writeString(out, error.getExpectedValue());
+        writeString(out, error.getActualValue());
+        writeString(out, error.getSchemaRule());
+        spilledCount++;
+    }
+
+    /**
+     * Writes -1 for null, the index of a name seen before, or a new index followed by the name
+     */
+    private void writeName(DataOutputStream out, String name) throws IOException {
+        if (name == null) {
+            out.writeInt(-1);
+            return;
+        }
+        Integer index = spilledNames.get(name);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        int newIndex = spilledNames.size();
+        spilledNames.put(name, newIndex);
+        out.writeInt(newIndex);
+        writeString(out, name);
+    }
+
+    /**
+     * Writes the error code and its arguments, or -1 followed by the text of a plain message
+     */
+    private static void writeMessage(DataOutputStream out, ValidationError error) throws IOException {
+        ErrorCode errorCode = error.getErrorCode();
+        if (errorCode == null) {
+            out.writeByte(-1);
+            writeString(out, error.getMessage());
+            return;
+        }
+        Object[] arguments = error.getArguments();
+        out.writeByte(errorCode.ordinal());
+        out.writeByte(arguments.length);
+        for (Object argument : arguments) {
+            writeArgument(out, argument);
+        }
+    }
+
+    /**
+     * Numbers keep their type for the %d conversions; collections become lists of strings
+     * and anything else its string form
+     */
+    private static void writeArgument(DataOutputStream out, Object argument) throws IOException {
+        if (argument == null) {
+            out.writeByte(ARG_NULL);
+        } else if (argument instanceof Integer) {
+            out.writeByte(ARG_INT);
+            out.writeInt((Integer) argument);
+        } else if (argument instanceof Long) {
+            out.writeByte(ARG_LONG);
+            out.writeLong((Long) argument);
+        } else if (argument instanceof Collection) {
+            Collection<?> values = (Collection<?>) argument;
+            out.writeByte(ARG_LIST);
+            out.writeInt(values.size());
+            for (Object value : values) {
+                writeString(out, value != null ? value.toString() : null);
+            }
+        } else {
+            out.writeByte(ARG_STRING);
+            writeString(out, argument.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private SpillReader openSpill() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Error store is closed; its spilled errors were deleted");
+        }
+        seal();
+        return new SpillReader(spillFile, openReaders);
+    }
+
+    /**
+     * Spill files of open stores, deleted by a shutdown hook if the JVM exits before the
+     * stores are closed; closed stores leave the set, so it only holds live files
+     */
+    private static final class SpillFiles {
+        private static final Set<File> LIVE = ConcurrentHashMap.newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> LIVE.forEach(File::delete),
+                    "xmlfixer-spill-cleanup"));
+        }
+
+        static File create() throws IOException {
+            File file = Files.createTempFile("xmlfixer-errors-", ".bin").toFile();
+            LIVE.add(file);
+            return file;
+        }
+
+        /**
+         * Deletes the file now; one that cannot be deleted stays for the shutdown hook
+         */
+        static void delete(File file) {
+            if (file.delete() || !file.exists()) {
+                LIVE.remove(file);
+            }
+        }
+    }
+
+    /**
+     * Sequential reader of the spill file, rebuilding the name table as it goes; registered
+     * with its store while open, so closing the store closes it
+     */
+    private static final class SpillReader implements Closeable {
+        private final DataInputStream in;
+        private final Set<SpillReader> openReaders;
+        private final List<String> names = new ArrayList<>();
+
+        SpillReader(File file, Set<SpillReader> openReaders) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+            this.openReaders = openReaders;
+            openReaders.add(this);
+        }
+
+        ValidationError read() throws IOException {
+            ErrorType errorType = ERROR_TYPES[in.readByte()];
+            int severity = in.readByte();
+            int line = in.readInt();
+            int column = in.readInt();
+            long byteOffset = in.readLong();
+            long endByteOffset = in.readLong();
+            String elementName = readName();
+            String xPath = readName();
+
+            ValidationError error;
+            int code = in.readByte();
+            if (code < 0) {
+                error = new ValidationError(errorType, readString(), line, column);
+            } else {
+                Object[] arguments = new Object[in.readByte()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = readArgument();
+                }
+                error = new ValidationError(errorType, ERROR_CODES[code], line, column, arguments);
+            }
+            error.setSeverity(severity >= 0 ? SEVERITIES[severity] : null);
+            error.setByteOffset(byteOffset);
+            error.setEndByteOffset(endByteOffset);
+            error.setElementName(elementName);
+            error.setxPath(xPath);
+            error.setExpectedValue(readString());
+            error.setActualValue(readString());
+            error.setSchemaRule(readString());
+            return error;
+        }
+
+        private Object readArgument() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case ARG_NULL:
+                    return null;
+                case ARG_INT:
+                    return in.readInt();
+                case ARG_LONG:
+                    return in.readLong();
+                case ARG_LIST:
+                    int size = in.readInt();
+                    List<String> values = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        values.add(readString());
+                    }
+                    return values;
+                case ARG_STRING:
+                    return readString();
+                default:
+                    throw new IOException("Corrupt error spill file, unknown argument tag " + tag);
+            }
+        }
+
+        private String readName() throws IOException {
+            int index = in.readInt();
+            if (index < 0) {
+                return null;
+            }
+            if (index == names.size()) {
+                names.add(readString());
+            }
+            return names.get(index);
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            openReaders.remove(this);
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was written, so there is nothing to lose
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ErrorStore{errors=%d, inMemory=%d, spilled=%d}", size(), window.size(), spilledCount);
+    }
+}
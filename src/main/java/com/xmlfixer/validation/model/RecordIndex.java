@@ -0,0 +1,353 @@
+package com.xmlfixer.validation.model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Sidecar index of the records of a large document: for each child of the root, in order,
+ * the byte offset of its '<' with its line and byte column. Stored next to the document as
+ * name.xfidx, it lets later runs go to any record without rescanning the file: record n is
+ * a direct read, and the record holding an offset or a line is a binary search. The index
+ * records the size and modification time of the document it was built from and is not
+ * loaded once either differs.
+ * <p>
+ * Layout: a header with the document's size, modification time, root name and root start
+ * tag; fixed-width entries (offset, line, column), which are mapped rather than read; and
+ * a trailer with the record name, the offset of the root end tag, the record count and the
+ * trailer's length, so a file cut short is recognised.
+ */
+public final class RecordIndex {
+
+    public static final String SUFFIX = ".xfidx";
+
+    private static final int MAGIC = 0x58464958; // "XFIX"
+    private static final short VERSION = 1;
+    private static final int ENTRY_BYTES = 16;
+
+    private final String rootName;
+    private final String recordName;
+    private final long rootOffset;
+    private final long rootTagEnd;
+    private final int rootLine;
+    private final int rootColumn;
+    private final long rootEnd;
+    private final long recordCount;
+    private final ByteBuffer entries;
+
+    private RecordIndex(String rootName, String recordName, long rootOffset, long rootTagEnd, int rootLine,
+                        int rootColumn, long rootEnd, long recordCount, ByteBuffer entries) {
+        this.rootName = rootName;
+        this.recordName = recordName;
+        this.rootOffset = rootOffset;
+        this.rootTagEnd = rootTagEnd;
+        this.rootLine = rootLine;
+        this.rootColumn = rootColumn;
+        this.rootEnd = rootEnd;
+        this.recordCount = recordCount;
+        this.entries = entries;
+    }
+
+    public static File sidecarFor(File xmlFile) {
+        return new File(xmlFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Loads the index of the document; null when there is none or the document has changed
+     * since it was written
+     */
+    public static RecordIndex load(File xmlFile) throws IOException {
+        File indexFile = sidecarFor(xmlFile);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+            if (file.readInt() != MAGIC || file.readShort() != VERSION) {
+                throw new IOException("Not a record index: " + indexFile);
+            }
+            if (file.readLong() != xmlFile.length() || file.readLong() != xmlFile.lastModified()) {
+                return null;
+            }
+            String rootName = file.readUTF();
+            long rootOffset = file.readLong();
+            long rootTagEnd = file.readLong();
+            int rootLine = file.readInt();
+            int rootColumn = file.readInt();
+            long entriesStart = file.getFilePointer();
+
+            long length = file.length();
+            file.seek(length - 8);
+            int trailerLength = file.readInt();
+            if (file.readInt() != MAGIC || trailerLength < 0 || length - 8 - trailerLength < entriesStart) {
+                throw new IOException("Incomplete record index: " + indexFile);
+            }
+            long entriesEnd = length - 8 - trailerLength;
+            file.seek(entriesEnd);
+            String recordName = file.readUTF();
+            boolean uniform = file.readBoolean();
+            long rootEnd = file.readLong();
+            long recordCount = file.readLong();
+            if (recordCount * ENTRY_BYTES != entriesEnd - entriesStart) {
+                throw new IOException("Corrupt record index: " + indexFile);
+            }
+            if (entriesEnd - entriesStart > Integer.MAX_VALUE) {
+                throw new IOException("Record index too large to map: " + indexFile);
+            }
+            ByteBuffer entries = file.getChannel().map(FileChannel.MapMode.READ_ONLY, entriesStart,
+                    entriesEnd - entriesStart);
+            return new RecordIndex(rootName, uniform ? recordName : null, rootOffset, rootTagEnd, rootLine,
+                    rootColumn, rootEnd, recordCount, entries);
+        }
+    }
+
+    /**
+     * Starts writing an index for the document; it replaces the current one on commit
+     */
+    public static Writer create(File xmlFile) throws IOException {
+        return new Writer(xmlFile);
+    }
+
+    public String getRootName() { return rootName; }
+
+    /**
+     * Name shared by all records; null when the root holds elements of several names
+     */
+    public String getRecordName() { return recordName; }
+    public boolean isUniform() { return recordName != null; }
+
+    // The root start tag spans rootOffset to rootTagEnd; rootEnd is the '<' of its end tag
+    public long getRootOffset() { return rootOffset; }
+    public long getRootTagEnd() { return rootTagEnd; }
+    public int getRootLine() { return rootLine; }
+    public int getRootColumn() { return rootColumn; }
+    public long getRootEnd() { return rootEnd; }
+
+    public long getRecordCount() { return recordCount; }
+
+    public long getOffset(long record) {
+        return entries.getLong(entry(record));
+    }
+
+    public int getLine(long record) {
+        return entries.getInt(entry(record) + 8);
+    }
+
+    /**
+     * Column of the record's '<', counted in bytes from the start of its line
+     */
+    public int getColumn(long record) {
+        return entries.getInt(entry(record) + 12);
+    }
+
+    /**
+     * Record holding the byte at the offset: the last one starting at or before it, -1 when
+     * the offset is before the first record
+     */
+    public long recordAtOffset(long offset) {
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            if (getOffset(middle) <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * First record starting at or after the offset; the record count when there is none
+     */
+    public long recordFromOffset(long offset) {
+        long record = recordAtOffset(offset - 1);
+        return record + 1;
+    }
+
+    /**
+     * Record holding the line: the last one starting on or before it, -1 when the line is
+     * before the first record
+     */
+    public long recordAtLine(int line) {
+        long low = 0;
+        long high = recordCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            if (getLine(middle) <= line) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    private int entry(long record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " of " + recordCount);
+        }
+        return (int) (record * ENTRY_BYTES);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RecordIndex{root=%s, record=%s, records=%d}", rootName, recordName, recordCount);
+    }
+
+    /**
+     * Writes an index as the document is read: the root, then each record in document order,
+     * then the end of the root. Entries go straight to a temporary file, which replaces the
+     * index on commit. Elements that arrive out of order, or without a location, make the
+     * index unusable and it is discarded on commit.
+     */
+    public static final class Writer implements Closeable {
+        private final File indexFile;
+        private final File tempFile;
+        private final long sourceLength;
+        private final long sourceModified;
+        private DataOutputStream out;
+        private IOException failure;
+        private boolean broken;
+        private boolean rootStarted;
+        private long rootEnd = -1;
+        private String recordName;
+        private boolean uniform = true;
+        private long lastOffset = -1;
+        private long recordCount;
+
+        private Writer(File xmlFile) throws IOException {
+            this.indexFile = sidecarFor(xmlFile);
+            this.sourceLength = xmlFile.length();
+            this.sourceModified = xmlFile.lastModified();
+            // A unique name, so concurrent writers for the same document never share a file
+            this.tempFile = Files.createTempFile(indexFile.getAbsoluteFile().getParentFile().toPath(),
+                    indexFile.getName(), ".tmp").toFile();
+            try {
+                this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+            } catch (IOException e) {
+                tempFile.delete();
+                throw e;
+            }
+        }
+
+        public void startRoot(String name, long offset, long tagEnd, int line, int column) {
+            if (rootStarted || offset < 0 || tagEnd <= offset || line <= 0 || column <= 0) {
+                broken = true;
+                return;
+            }
+            rootStarted = true;
+            try {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(sourceLength);
+                out.writeLong(sourceModified);
+                out.writeUTF(name);
+                out.writeLong(offset);
+                out.writeLong(tagEnd);
+                out.writeInt(line);
+                out.writeInt(column);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        public void addRecord(String name, long offset, int line, int column) {
+            if (!rootStarted || broken || offset <= lastOffset || line <= 0 || column <= 0) {
+                broken = true;
+                return;
+            }
+            if (recordName == null) {
+                recordName = name;
+            } else if (uniform && !recordName.equals(name)) {
+                uniform = false;
+            }
+            lastOffset = offset;
+            recordCount++;
+            try {
+                out.writeLong(offset);
+                out.writeInt(line);
+                out.writeInt(column);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * @param offset offset of the '<' of the root end tag
+         */
+        public void endRoot(long offset) {
+            if (offset <= lastOffset) {
+                broken = true;
+            }
+            rootEnd = offset;
+        }
+
+        /**
+         * Writes the trailer and replaces the document's index; false, with nothing
+         * replaced, when the document did not produce a usable index
+         */
+        public boolean commit() throws IOException {
+            if (out == null) {
+                return false;
+            }
+            if (failure != null || broken || !rootStarted || rootEnd < 0) {
+                discard();
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            try {
+                ByteArrayOutputStream trailer = new ByteArrayOutputStream();
+                DataOutputStream trailerOut = new DataOutputStream(trailer);
+                trailerOut.writeUTF(recordName != null ? recordName : "");
+                trailerOut.writeBoolean(uniform && recordName != null);
+                trailerOut.writeLong(rootEnd);
+                trailerOut.writeLong(recordCount);
+                trailer.writeTo(out);
+                out.writeInt(trailer.size());
+                out.writeInt(MAGIC);
+                out.close();
+                out = null;
+                Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (IOException e) {
+                discard();
+                throw e;
+            }
+        }
+
+        /**
+         * Drops the index being written; the current one, if any, is left in place
+         */
+        public void discard() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // The file is deleted anyway
+                }
+                out = null;
+            }
+            tempFile.delete();
+        }
+
+        public long getRecordCount() { return recordCount; }
+
+        @Override
+        public void close() {
+            discard();
+        }
+
+        private void fail(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            broken = true;
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.xmlfixer.validation.model;
 
 /**
- * Represents a validation error or warning with location and context information
+ * Represents a validation error or warning with location and context information.
+ * Errors raised while streaming carry an ErrorCode and its raw arguments; the message is
+ * rendered the first time it is read, so errors that are only counted never format one.
+ * Streamed errors also carry the byte range of the element they concern, so the file can
+ * be positioned at it directly instead of being rescanned for the line.
  */
 public class ValidationError {
     
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+    
     private ErrorType errorType;
+    private ErrorCode errorCode;
+    private Object[] arguments = NO_ARGUMENTS;
     private String message;
     private String xPath;
-    private int lineNumber;
-    private int columnNumber;
+    // Line in the high and column in the low 32 bits
+    private long location;
+    // Offsets of the element's start tag and of the end of its end tag, -1 when unknown
+    private long byteOffset;
+    private long endByteOffset;
     private String elementName;
     private String expectedValue;
     private String actualValue;
@@ -22,8 +33,9 @@ public class ValidationError {
     
     public ValidationError() {
         this.severity = Severity.ERROR;
-        this.lineNumber = -1;
-        this.columnNumber = -1;
+        this.location = pack(-1, -1);
+        this.byteOffset = -1;
+        this.endByteOffset = -1;
     }
     
     public ValidationError(ErrorType errorType, String message) {
@@ -34,16 +46,43 @@ public class ValidationError {
     
     public ValidationError(ErrorType errorType, String message, int lineNumber, int columnNumber) {
         this(errorType, message);
-        this.lineNumber = lineNumber;
-        this.columnNumber = columnNumber;
+        this.location = pack(lineNumber, columnNumber);
+    }
+    
+    /**
+     * Creates an error whose message is rendered from the code's template on first read
+     */
+    public ValidationError(ErrorType errorType, ErrorCode errorCode, int lineNumber, int columnNumber,
+                           Object... arguments) {
+        this();
+        this.errorType = errorType;
+        this.errorCode = errorCode;
+        this.arguments = arguments;
+        this.location = pack(lineNumber, columnNumber);
     }
     
     // Basic properties
     public ErrorType getErrorType() { return errorType; }
     public void setErrorType(ErrorType errorType) { this.errorType = errorType; }
     
-    public String getMessage() { return message; }
-    public void setMessage(String message) { this.message = message; }
+    public String getMessage() {
+        if (message == null && errorCode != null) {
+            message = errorCode.format(arguments);
+        }
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+        this.errorCode = null;
+        this.arguments = NO_ARGUMENTS;
+    }
+    
+    /**
+     * Template the message is rendered from; null when the message was given as text
+     */
+    public ErrorCode getErrorCode() { return errorCode; }
+    public Object[] getArguments() { return arguments; }
     
     public Severity getSeverity() { return severity; }
     public void setSeverity(Severity severity) { this.severity = severity; }
@@ -52,11 +91,28 @@ public class ValidationError {
     public String getxPath() { return xPath; }
     public void setxPath(String xPath) { this.xPath = xPath; }
     
-    public int getLineNumber() { return lineNumber; }
-    public void setLineNumber(int lineNumber) { this.lineNumber = lineNumber; }
+    public int getLineNumber() { return (int) (location >> 32); }
+    public void setLineNumber(int lineNumber) { this.location = pack(lineNumber, getColumnNumber()); }
+    
+    public int getColumnNumber() { return (int) location; }
+    public void setColumnNumber(int columnNumber) { this.location = pack(getLineNumber(), columnNumber); }
     
-    public int getColumnNumber() { return columnNumber; }
-    public void setColumnNumber(int columnNumber) { this.columnNumber = columnNumber; }
+    /**
+     * Byte offset in the file of the '<' that starts the element, or of the parser's
+     * position for well-formedness errors; -1 when unknown. For compressed sources it is an
+     * offset in the decompressed document.
+     */
+    public long getByteOffset() { return byteOffset; }
+    public void setByteOffset(long byteOffset) { this.byteOffset = byteOffset; }
+    
+    /**
+     * Byte offset just past the element's end tag; -1 when the error was found before the
+     * element ended
+     */
+    public long getEndByteOffset() { return endByteOffset; }
+    public void setEndByteOffset(long endByteOffset) { this.endByteOffset = endByteOffset; }
+    
+    public boolean hasByteOffset() { return byteOffset >= 0; }
     
     public String getElementName() { return elementName; }
     public void setElementName(String elementName) { this.elementName = elementName; }
@@ -72,12 +128,20 @@ public class ValidationError {
     public void setSchemaRule(String schemaRule) { this.schemaRule = schemaRule; }
     
     // Utility methods
+    private static long pack(int lineNumber, int columnNumber) {
+        return ((long) lineNumber << 32) | (columnNumber & 0xFFFFFFFFL);
+    }
+    
     public boolean hasLocation() {
-        return lineNumber > 0 || (xPath != null && !xPath.isEmpty());
+        return getLineNumber() > 0 || (xPath != null && !xPath.isEmpty());
     }
     
     public String getLocationString() {
-        if (lineNumber > 0 && columnNumber > 0) {
+        int lineNumber = getLineNumber();
+        int columnNumber = getColumnNumber();
+        if (lineNumber > 0 && columnNumber > 0 && byteOffset >= 0) {
+            return String.format("Line %d, Column %d, Byte %d", lineNumber, columnNumber, byteOffset);
+        } else if (lineNumber > 0 && columnNumber > 0) {
             return String.format("Line %d, Column %d", lineNumber, columnNumber);
         } else if (lineNumber > 0) {
             return String.format("Line %d", lineNumber);
@@ -94,8 +158,9 @@ public class ValidationError {
             sb.append("[").append(severity).append("] ");
         }
         
-        if (message != null) {
-            sb.append(message);
+        String text = getMessage();
+        if (text != null) {
+            sb.append(text);
         }
         
         if (hasLocation()) {
@@ -108,7 +173,7 @@ public class ValidationError {
     @Override
     public String toString() {
         return String.format("ValidationError{type=%s, severity=%s, message='%s', location='%s'}", 
-            errorType, severity, message, getLocationString());
+            errorType, severity, getMessage(), getLocationString());
     }
 }
 
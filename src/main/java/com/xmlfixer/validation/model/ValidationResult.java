@@ -2,12 +2,16 @@ package com.xmlfixer.validation.model;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- * Represents the result of XML validation against a schema
+ * Represents the result of XML validation against a schema.
+ * A result from a streaming run may hold errors spilled to a temporary file; its owner
+ * closes it once the errors have been read, which deletes the file but keeps the counts.
  */
-public class ValidationResult {
+public class ValidationResult implements AutoCloseable {
     
     private File xmlFile;
     private File schemaFile;
@@ -15,6 +19,10 @@ public class ValidationResult {
     private List<ValidationError> errors;
     private List<ValidationError> warnings;
     private long validationTimeMs;
+    private boolean truncated;
+    private ErrorStore errorStore;
+    private ErrorAggregator errorAggregator;
+    private int streamedErrorCount;
     
     public ValidationResult() {
         this.errors = new ArrayList<>();
@@ -30,7 +38,7 @@ public class ValidationResult {
     public void setSchemaFile(File schemaFile) { this.schemaFile = schemaFile; }
     
     // Validation results
-    public boolean isValid() { return valid && (errors == null || errors.isEmpty()); }
+    public boolean isValid() { return valid && getErrorCount() == 0; }
     public void setValid(boolean valid) { this.valid = valid; }
     
     public List<ValidationError> getErrors() { return errors; }
@@ -49,6 +57,39 @@ public class ValidationResult {
         this.valid = false;
     }
     
+    /**
+     * Store holding every error of the streaming run, including those spilled to disk;
+     * null when the errors were not produced by a streaming run
+     */
+    public ErrorStore getErrorStore() { return errorStore; }
+    public void setErrorStore(ErrorStore errorStore) { this.errorStore = errorStore; }
+
+    /**
+     * Groups of repeated errors when the run aggregated them, otherwise null; getErrors
+     * then holds the first error of each group
+     */
+    public ErrorAggregator getErrorAggregator() { return errorAggregator; }
+    public void setErrorAggregator(ErrorAggregator errorAggregator) { this.errorAggregator = errorAggregator; }
+
+    /**
+     * Errors handed to a ValidationListener during the run and not kept in getErrors
+     */
+    public int getStreamedErrorCount() { return streamedErrorCount; }
+    public void setStreamedErrorCount(int streamedErrorCount) { this.streamedErrorCount = streamedErrorCount; }
+
+    /**
+     * Iterates the errors in getErrors followed by those the store spilled to disk,
+     * reading the spilled ones back one at a time; close it when stopping early
+     */
+    public CloseableIterator<ValidationError> errorIterator() {
+        Iterator<ValidationError> inMemory = errors != null
+                ? errors.iterator() : Collections.emptyIterator();
+        if (getSpilledErrorCount() == 0) {
+            return CloseableIterator.of(inMemory);
+        }
+        return ErrorStore.concat(inMemory, errorStore.spilledIterator());
+    }
+    
     public List<ValidationError> getWarnings() { return warnings; }
     public void setWarnings(List<ValidationError> warnings) { this.warnings = warnings; }
     
@@ -59,13 +100,30 @@ public class ValidationResult {
         this.warnings.add(warning);
     }
     
+    /**
+     * True when validation stopped before the end of the document, because the error
+     * budget was spent or the XML is not well-formed
+     */
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+    
     // Performance metrics
     public long getValidationTimeMs() { return validationTimeMs; }
     public void setValidationTimeMs(long validationTimeMs) { this.validationTimeMs = validationTimeMs; }
     
     // Utility methods
+    /**
+     * Number of errors, counting those spilled to disk, every occurrence of an aggregated
+     * problem and those only handed to a listener
+     */
     public int getErrorCount() {
-        return errors != null ? errors.size() : 0;
+        long collapsed = errorAggregator != null ? errorAggregator.getCollapsedCount() : 0;
+        return (int) Math.min(Integer.MAX_VALUE,
+                (errors != null ? errors.size() : 0) + getSpilledErrorCount() + collapsed + streamedErrorCount);
+    }
+    
+    private int getSpilledErrorCount() {
+        return errorStore != null ? errorStore.getSpilledCount() : 0;
     }
     
     public int getWarningCount() {
@@ -75,11 +133,21 @@ public class ValidationResult {
     public boolean hasIssues() {
         return !isValid() || getWarningCount() > 0;
     }
+
+    /**
+     * Deletes the spilled errors; the errors in memory and all counts remain
+     */
+    @Override
+    public void close() {
+        if (errorStore != null) {
+            errorStore.close();
+        }
+    }
     
     @Override
     public String toString() {
-        return String.format("ValidationResult{valid=%s, errors=%d, warnings=%d, file='%s'}", 
-            isValid(), getErrorCount(), getWarningCount(), 
+        return String.format("ValidationResult{valid=%s, errors=%d, warnings=%d, truncated=%s, file='%s'}", 
+            isValid(), getErrorCount(), getWarningCount(), truncated, 
             xmlFile != null ? xmlFile.getName() : "null");
     }
 }
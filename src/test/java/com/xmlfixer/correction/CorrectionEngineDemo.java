@@ -6,6 +6,8 @@ import com.xmlfixer.correction.model.CorrectionResult;
 import com.xmlfixer.parsing.XmlParser;
 import com.xmlfixer.reporting.ReportGenerator;
 import com.xmlfixer.schema.SchemaAnalyzer;
+import com.xmlfixer.schema.SchemaCache;
+import com.xmlfixer.schema.SchemaSnapshotStore;
 import com.xmlfixer.schema.SchemaParser;
 import com.xmlfixer.validation.ErrorCollector;
 import com.xmlfixer.validation.StreamingValidator;
@@ -34,11 +36,12 @@ public class CorrectionEngineDemo {
 
             // Initialize all components
             SchemaParser schemaParser = new SchemaParser();
-            SchemaAnalyzer schemaAnalyzer = new SchemaAnalyzer(schemaParser);
+            SchemaAnalyzer schemaAnalyzer = new SchemaAnalyzer(schemaParser, new SchemaCache(),
+                    new SchemaSnapshotStore(false, null));
             ErrorCollector errorCollector = new ErrorCollector();
             StreamingValidator streamingValidator = new StreamingValidator(errorCollector);
             XmlParser xmlParser = new XmlParser();
-            XmlValidator xmlValidator = new XmlValidator(streamingValidator, errorCollector, xmlParser, schemaAnalyzer);
+            XmlValidator xmlValidator = new XmlValidator(streamingValidator, xmlParser, schemaAnalyzer);
 
             DomManipulator domManipulator = new DomManipulator();
             CorrectionEngine correctionEngine = new CorrectionEngine(domManipulator);
@@ -0,0 +1,139 @@
+package com.xmlfixer.parsing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecompressingXmlInputTest {
+
+    private static final String XML = "<?xml version=\"1.0\"?>\n<trades>" + "<trade id=\"1\">Grüße €</trade>".repeat(5000)
+            + "</trades>\n";
+
+    @TempDir
+    Path directory;
+
+    private final XmlInput input = XmlInput.decompressing(XmlInput.buffered(4096));
+
+    @Test
+    void readsGzipFiles() throws IOException {
+        File file = directory.resolve("trades.xml.gz").toFile();
+        Files.write(file.toPath(), gzip(XML.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(XML, read(file));
+        assertFalse(input.isSeekable(file));
+        assertThrows(IOException.class, () -> input.open(file, 0, 10));
+    }
+
+    @Test
+    void plainFilesAreReadAsTheyAre() throws IOException {
+        File file = directory.resolve("trades.xml").toFile();
+        Files.writeString(file.toPath(), XML);
+
+        assertEquals(XML, read(file));
+        assertTrue(input.isSeekable(file));
+        try (InputStream in = input.open(file, 22, 30)) {
+            assertEquals("<trades>", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void readsZipEntriesAndGzipEntriesInsideThem() throws IOException {
+        File archive = directory.resolve("feeds.zip").toFile();
+        byte[] xml = XML.getBytes(StandardCharsets.UTF_8);
+        zip(archive, "2024/plain.xml", xml, "2024/trades.xml.gz", gzip(xml), "readme.txt", new byte[]{'x'});
+
+        List<File> entries = XmlSources.listXmlEntries(archive);
+        assertEquals(2, entries.size());
+        for (File entry : entries) {
+            assertTrue(XmlSources.exists(entry), entry.getPath());
+            assertFalse(input.isSeekable(entry));
+            assertEquals(XML, read(entry));
+        }
+        assertEquals("2024/trades.xml.gz", XmlSources.entryNameOf(entries.get(1)));
+
+        File missing = XmlSources.zipEntry(archive, "2024/missing.xml");
+        assertFalse(XmlSources.exists(missing));
+        assertThrows(FileNotFoundException.class, () -> input.open(missing));
+    }
+
+    @Test
+    void corruptGzipHeaderFailsOnOpen() throws IOException {
+        File file = directory.resolve("broken.xml.gz").toFile();
+        Files.writeString(file.toPath(), XML);
+
+        assertThrows(IOException.class, () -> input.open(file));
+    }
+
+    @Test
+    void failureWhileInflatingReachesTheReader() throws IOException {
+        byte[] compressed = gzip(XML.getBytes(StandardCharsets.UTF_8));
+
+        // Cut short: the inflater runs out of input
+        File truncated = directory.resolve("truncated.xml.gz").toFile();
+        Files.write(truncated.toPath(), Arrays.copyOf(compressed, compressed.length / 2));
+        try (InputStream in = input.open(truncated)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+
+        // Damaged after the header: the inflater rejects the data
+        byte[] damaged = compressed.clone();
+        for (int i = 20; i < 60; i++) {
+            damaged[i] = (byte) 0xFF;
+        }
+        File corrupt = directory.resolve("corrupt.xml.gz").toFile();
+        Files.write(corrupt.toPath(), damaged);
+        try (InputStream in = input.open(corrupt)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+
+        // A damaged gzip entry inside an archive fails the same way
+        File archive = directory.resolve("feeds.zip").toFile();
+        zip(archive, "trades.xml.gz", Arrays.copyOf(compressed, compressed.length / 2));
+        try (InputStream in = input.open(XmlSources.zipEntry(archive, "trades.xml.gz"))) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    private String read(File file) throws IOException {
+        try (InputStream in = input.open(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes an archive of name and content pairs
+     */
+    private static void zip(File archive, Object... entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) entries[i]));
+                out.write((byte[]) entries[i + 1]);
+                out.closeEntry();
+            }
+        }
+    }
+}
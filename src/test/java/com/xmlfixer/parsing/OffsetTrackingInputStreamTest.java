@@ -0,0 +1,154 @@
+package com.xmlfixer.parsing;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.ext.Locator2;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffsetTrackingInputStreamTest {
+
+    private static final String BODY = "<doc>\n"
+            + "  <a note=\"café\">€1</a>\n"
+            + "  <b>😀😀</b><c title=\"😀 ü\"/>\n"
+            + "  <!-- <d> -->\n"
+            + "  <e><![CDATA[ <f> ]]></e>\n"
+            + "</doc>\n";
+
+    @Test
+    void startTagsOfMultiByteUtf8Text() throws Exception {
+        String document = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + BODY;
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expectedStarts(bytes, StandardCharsets.UTF_8), parsedStarts(bytes));
+    }
+
+    @Test
+    void byteOrderMarkAndCrLfLineEnds() throws Exception {
+        String document = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n" + BODY.replace("\n", "\r\n");
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expectedStarts(bytes, StandardCharsets.UTF_8), parsedStarts(bytes));
+    }
+
+    @Test
+    void singleByteEncoding() throws Exception {
+        String document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                + "<doc>\n  <a note=\"café\">ü</a><b>ÿ</b>\n</doc>\n";
+        byte[] bytes = document.getBytes(StandardCharsets.ISO_8859_1);
+
+        assertEquals(expectedStarts(bytes, StandardCharsets.ISO_8859_1), parsedStarts(bytes));
+    }
+
+    @Test
+    void unsupportedEncodingGivesNoOffsets() throws Exception {
+        String document = "<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n<doc><a/></doc>";
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_16);
+
+        List<Long> starts = parsedStarts(bytes);
+        assertEquals(2, starts.size());
+        for (long offset : starts) {
+            assertEquals(-1, offset);
+        }
+    }
+
+    @Test
+    void lookupsBehindTheCursorFail() throws IOException {
+        byte[] bytes = "<a>\n<b>\n<c>\n".getBytes(StandardCharsets.UTF_8);
+        OffsetTrackingInputStream in = new OffsetTrackingInputStream(new ByteArrayInputStream(bytes));
+        in.readAllBytes();
+
+        assertEquals(8, in.offsetOf(3, 1));
+        assertEquals(-1, in.offsetOf(2, 1));
+        assertEquals(3, in.lineOf(8));
+        assertEquals(1, in.lineOf(2));
+        assertEquals(8, in.lineStartOf(3));
+        assertEquals(4, in.markupStart(7));
+        assertEquals(bytes.length, in.getPosition());
+    }
+
+    @Test
+    void markupOutsideTheHistoryIsUnknown() throws IOException {
+        StringBuilder document = new StringBuilder("<a>");
+        for (int i = 0; i < 500; i++) {
+            document.append("text ").append(i).append(' ');
+        }
+        byte[] bytes = document.toString().getBytes(StandardCharsets.UTF_8);
+        OffsetTrackingInputStream in = new OffsetTrackingInputStream(new ByteArrayInputStream(bytes), 1024);
+        in.readAllBytes();
+
+        assertEquals(-1, in.markupStart(bytes.length));
+        assertEquals(-1, in.lineOf(0));
+    }
+
+    @Test
+    void historySizeIsChecked() {
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new OffsetTrackingInputStream(in, 100));
+    }
+
+    /**
+     * Offset of the '<' of every element, found through the parser's locator as the validator does
+     */
+    private static List<Long> parsedStarts(byte[] bytes) throws Exception {
+        OffsetTrackingInputStream in = new OffsetTrackingInputStream(new ByteArrayInputStream(bytes));
+        List<Long> starts = new ArrayList<>();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.newSAXParser().parse(new InputSource(in), new DefaultHandler() {
+            private Locator locator;
+            private boolean first = true;
+
+            @Override
+            public void setDocumentLocator(Locator locator) {
+                this.locator = locator;
+            }
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if (first) {
+                    in.setEncoding(((Locator2) locator).getEncoding());
+                    first = false;
+                }
+                long tagEnd = in.offsetOf(locator.getLineNumber(), locator.getColumnNumber());
+                starts.add(tagEnd < 0 ? -1 : in.markupStart(tagEnd));
+            }
+        });
+        return starts;
+    }
+
+    /**
+     * Offset of every '<' that starts an element, skipping comments, CDATA sections and
+     * the XML declaration
+     */
+    private static List<Long> expectedStarts(byte[] bytes, Charset charset) {
+        String text = new String(bytes, charset);
+        List<Long> starts = new ArrayList<>();
+        int i = 0;
+        while ((i = text.indexOf('<', i)) >= 0) {
+            if (text.startsWith("<!--", i)) {
+                i = text.indexOf("-->", i);
+            } else if (text.startsWith("<![CDATA[", i)) {
+                i = text.indexOf("]]>", i);
+            } else {
+                char next = text.charAt(i + 1);
+                if (next != '/' && next != '?') {
+                    starts.add((long) text.substring(0, i).getBytes(charset).length);
+                }
+                i++;
+            }
+        }
+        return starts;
+    }
+}
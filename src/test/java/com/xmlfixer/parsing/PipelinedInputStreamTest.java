@@ -0,0 +1,177 @@
+package com.xmlfixer.parsing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedInputStreamTest {
+
+    @Test
+    void readsAcrossBlocks() throws IOException {
+        byte[] data = bytes(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PipelinedInputStream in = new PipelinedInputStream(new ByteArrayInputStream(data), 7, 3)) {
+            byte[] buffer = new byte[13];
+            boolean single = true;
+            while (true) {
+                if (single) {
+                    int b = in.read();
+                    if (b < 0) {
+                        break;
+                    }
+                    out.write(b);
+                } else {
+                    int read = in.read(buffer, 2, 11);
+                    if (read < 0) {
+                        break;
+                    }
+                    assertTrue(read > 0 && read <= 7, "read " + read);
+                    out.write(buffer, 2, read);
+                }
+                single = !single;
+            }
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    void endsExactlyAtBlockBoundary() throws IOException {
+        byte[] data = bytes(28);
+        try (PipelinedInputStream in = new PipelinedInputStream(new ByteArrayInputStream(data), 7, 2)) {
+            byte[] block = new byte[7];
+            for (int i = 0; i < 4; i++) {
+                assertEquals(7, in.read(block, 0, 7));
+                assertEquals(data[i * 7 + 6], block[6]);
+                assertEquals(0, in.available());
+            }
+            assertEquals(-1, in.read(block, 0, 7));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void emptySourceEndsAtOnce() throws IOException {
+        try (PipelinedInputStream in = new PipelinedInputStream(new ByteArrayInputStream(new byte[0]), 7, 2)) {
+            assertEquals(-1, in.read());
+            assertEquals(0, in.read(new byte[4], 0, 0));
+        }
+    }
+
+    @Test
+    void closeStopsReaderWaitingForFreeBlocks() throws Exception {
+        TrackedSource source = new TrackedSource(new InputStream() {
+            @Override
+            public int read() {
+                return 'x';
+            }
+        });
+        PipelinedInputStream in = new PipelinedInputStream(source, 16, 2);
+        assertEquals('x', in.read());
+
+        // Both blocks are full, so the reader is waiting for the consumer
+        in.close();
+        assertTrue(source.closed.await(5, TimeUnit.SECONDS), "source not closed");
+        assertThrows(IOException.class, in::read);
+        in.close();
+    }
+
+    @Test
+    void closeStopsReaderBlockedInSource() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        TrackedSource source = new TrackedSource(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("interrupted");
+                }
+                return -1;
+            }
+        });
+        PipelinedInputStream in = new PipelinedInputStream(source, 16, 2);
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        in.close();
+        assertTrue(source.closed.await(5, TimeUnit.SECONDS), "source not closed");
+        assertThrows(IOException.class, () -> in.read(new byte[4]));
+    }
+
+    @Test
+    void sourceFailureReachesConsumer() {
+        byte[] data = bytes(40);
+        InputStream failing = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == data.length) {
+                    throw new IOException("disk gone");
+                }
+                return data[position++] & 0xFF;
+            }
+        };
+        PipelinedInputStream in = new PipelinedInputStream(failing, 16, 2);
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertEquals("disk gone", e.getMessage());
+        in.close();
+    }
+
+    @Test
+    void runtimeFailureIsNotTakenForTheEnd() {
+        InputStream failing = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() {
+                if (position++ == 20) {
+                    throw new IllegalStateException("inflater broken");
+                }
+                return 'x';
+            }
+        };
+        PipelinedInputStream in = new PipelinedInputStream(failing, 16, 2);
+        IOException e = assertThrows(IOException.class, in::readAllBytes);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        in.close();
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Source that signals when it is closed
+     */
+    private static final class TrackedSource extends InputStream {
+        private final InputStream in;
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        TrackedSource(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
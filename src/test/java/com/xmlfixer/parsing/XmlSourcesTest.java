@@ -0,0 +1,118 @@
+package com.xmlfixer.parsing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlSourcesTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void namesGzipFilesAndZipEntries() {
+        File archive = new File("data", "feeds.zip");
+        File entry = XmlSources.zipEntry(archive, "2024/q1/trades.xml");
+
+        assertTrue(XmlSources.isZipEntry(entry));
+        assertTrue(XmlSources.isCompressed(entry));
+        assertEquals(archive, XmlSources.archiveOf(entry));
+        assertEquals(archive, XmlSources.containerOf(entry));
+        assertEquals("2024/q1/trades.xml", XmlSources.entryNameOf(entry));
+        assertEquals("trades.xml", XmlSources.logicalName(entry));
+
+        File gzip = new File("data", "trades.XML.GZ");
+        assertTrue(XmlSources.isGzip(gzip));
+        assertFalse(XmlSources.isZipEntry(gzip));
+        assertEquals("trades.XML", XmlSources.logicalName(gzip));
+        assertEquals(gzip, XmlSources.containerOf(gzip));
+
+        // Only a '!' followed by a separator starts an entry
+        assertFalse(XmlSources.isZipEntry(new File("data", "feeds.zip!")));
+        assertFalse(XmlSources.isZipEntry(new File("data", "feeds.zip!name.xml")));
+        assertFalse(XmlSources.isCompressed(new File("data", "trades.xml")));
+
+        assertTrue(XmlSources.isXmlName("a.XML"));
+        assertTrue(XmlSources.isXmlName("a.xml.gz"));
+        assertFalse(XmlSources.isXmlName("a.gz"));
+    }
+
+    @Test
+    void outputPathsKeepArchivesApart() {
+        assertEquals("trades.xml", XmlSources.outputPath(new File("data", "trades.xml")));
+        assertEquals("trades.xml", XmlSources.outputPath(new File("data", "trades.xml.gz")));
+        assertEquals("a/2024/trades.xml",
+                XmlSources.outputPath(XmlSources.zipEntry(new File("data", "a.zip"), "2024/trades.xml")));
+        assertEquals("b/2024/trades.xml",
+                XmlSources.outputPath(XmlSources.zipEntry(new File("data", "b.zip"), "2024/trades.xml.gz")));
+        assertEquals("a/trades.xml",
+                XmlSources.outputPath(XmlSources.zipEntry(new File("data", "a.zip"), "./trades.xml")));
+    }
+
+    @Test
+    void entryPathsWithParentFoldersStayInsideTheOutputDirectory() throws IOException {
+        File archive = directory.resolve("evil.zip").toFile();
+        zip(archive, "../../escaped.xml", "x/../../../escaped-too.xml", "a/./b/../c.xml", "..\\windows.xml");
+        Path output = directory.resolve("out").toAbsolutePath().normalize();
+
+        List<File> entries = XmlSources.listXmlEntries(archive);
+        assertEquals(4, entries.size());
+        for (File entry : entries) {
+            String path = XmlSources.outputPath(entry);
+            assertFalse(path.startsWith("/"), path);
+            for (String folder : path.split("/")) {
+                assertNotEquals("..", folder, path);
+                assertNotEquals(".", folder, path);
+            }
+            Path resolved = output.resolve(path).normalize();
+            assertTrue(resolved.startsWith(output.resolve("evil")), resolved.toString());
+        }
+        assertEquals("evil/escaped.xml", XmlSources.outputPath(entries.get(0)));
+        assertEquals("evil/x/escaped-too.xml", XmlSources.outputPath(entries.get(1)));
+        assertEquals("evil/a/b/c.xml", XmlSources.outputPath(entries.get(2)));
+    }
+
+    @Test
+    void baseUriResolvesInsideTheArchive() throws IOException {
+        File archive = directory.resolve("feeds.zip").toFile();
+        zip(archive, "dir with space/doc.xml", "dir with space/types.dtd");
+        File entry = XmlSources.zipEntry(archive, "dir with space/doc.xml");
+
+        String baseUri = XmlSources.baseUri(entry);
+        assertTrue(baseUri.startsWith("jar:file:"), baseUri);
+        assertTrue(baseUri.endsWith(".zip!/dir%20with%20space/doc.xml"), baseUri);
+
+        URL sibling = new URL(new URL(baseUri), "types.dtd");
+        try (InputStream in = sibling.openStream()) {
+            assertEquals("dir with space/types.dtd", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        File plain = directory.resolve("doc.xml").toFile();
+        assertEquals(plain.toURI().toString(), XmlSources.baseUri(plain));
+    }
+
+    /**
+     * Writes an archive whose entries hold their own names
+     */
+    private static void zip(File archive, String... names) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+}
@@ -19,7 +19,8 @@ public class SchemaAnalysisDemo {
 
             // Initialize the parser and analyzer
             SchemaParser parser = new SchemaParser();
-            SchemaAnalyzer analyzer = new SchemaAnalyzer(parser);
+            SchemaAnalyzer analyzer = new SchemaAnalyzer(parser, new SchemaCache(),
+                    new SchemaSnapshotStore(false, null));
 
             // Test schema validation
             System.out.println("=== Schema Validation Test ===");
@@ -0,0 +1,119 @@
+package com.xmlfixer.schema;
+
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.schema.model.ElementConstraint;
+import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.SchemaElement.ValueCapture;
+import com.xmlfixer.schema.model.ValidationRule;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaCompilerTest {
+
+    private final SchemaElement root = new SchemaElement("root");
+    private final Map<String, List<ValidationRule>> rules = new HashMap<>();
+
+    @Test
+    void unconstrainedTextIsNotCaptured() {
+        leaf("name", "xs:string");
+        leaf("untyped", null);
+
+        CompiledSchema schema = compile();
+        assertEquals(ValueCapture.NONE, capture(schema, "name"));
+        assertEquals(ValueCapture.NONE, capture(schema, "untyped"));
+    }
+
+    @Test
+    void datatypesThatNeedTheWholeValueAreBuffered() {
+        leaf("amount", "xs:decimal");
+        leaf("when", "xs:dateTime");
+
+        CompiledSchema schema = compile();
+        assertEquals(ValueCapture.BUFFER, capture(schema, "amount"));
+        assertEquals(ValueCapture.BUFFER, capture(schema, "when"));
+    }
+
+    @Test
+    void binaryDatatypesAreStreamed() {
+        leaf("payload", "xs:base64Binary");
+        leaf("digest", "xs:hexBinary");
+
+        CompiledSchema schema = compile();
+        assertEquals(ValueCapture.STREAM, capture(schema, "payload"));
+        assertEquals(ValueCapture.STREAM, capture(schema, "digest"));
+    }
+
+    @Test
+    void lengthFacetsAreStreamed() {
+        leaf("note", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.MAX_LENGTH, "200"));
+
+        assertEquals(ValueCapture.STREAM, capture(compile(), "note"));
+    }
+
+    @Test
+    void valueFacetsAreBuffered() {
+        leaf("code", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.PATTERN, "[A-Z]{3}"));
+        leaf("price", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.MAX_INCLUSIVE, "100"));
+        leaf("precise", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.TOTAL_DIGITS, "5"));
+        SchemaElement both = leaf("both", "xs:base64Binary");
+        both.addConstraint(new ElementConstraint(ElementConstraint.ConstraintType.PATTERN, "[A-Z]+"));
+
+        CompiledSchema schema = compile();
+        assertEquals(ValueCapture.BUFFER, capture(schema, "code"));
+        assertEquals(ValueCapture.BUFFER, capture(schema, "price"));
+        assertEquals(ValueCapture.BUFFER, capture(schema, "precise"));
+        assertEquals(ValueCapture.BUFFER, capture(schema, "both"));
+    }
+
+    @Test
+    void facetsThatAreNotEnforcedDoNotCapture() {
+        leaf("since", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.MIN_INCLUSIVE, "2024-01-01"));
+        leaf("broken", "xs:string").addConstraint(
+                new ElementConstraint(ElementConstraint.ConstraintType.PATTERN, "[a-"));
+
+        CompiledSchema schema = compile();
+        assertEquals(ValueCapture.NONE, capture(schema, "since"));
+        assertEquals(ValueCapture.NONE, capture(schema, "broken"));
+        assertEquals(1, schema.getCompilationProblems().size());
+    }
+
+    @Test
+    void datatypesOfElementsWithChildrenAreIgnored() {
+        SchemaElement parent = leaf("parent", "xs:int");
+        parent.addChild(new SchemaElement("child"));
+
+        assertEquals(ValueCapture.NONE, capture(compile(), "parent"));
+    }
+
+    private SchemaElement leaf(String name, String type) {
+        SchemaElement element = new SchemaElement(name);
+        element.setType(type);
+        root.addChild(element);
+        if (type != null) {
+            ValidationRule rule = new ValidationRule(ValidationRule.RuleType.DATA_TYPE, name);
+            rule.setDataType(type);
+            rules.computeIfAbsent(name, key -> new ArrayList<>()).add(rule);
+        }
+        return element;
+    }
+
+    private CompiledSchema compile() {
+        return new SchemaCompiler().compile(new File("test.xsd"), root, rules);
+    }
+
+    private static ValueCapture capture(CompiledSchema schema, String name) {
+        return schema.findElement(name).getValueCapture();
+    }
+}
@@ -0,0 +1,65 @@
+package com.xmlfixer.schema.datatype;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalDigitsTest {
+
+    @Test
+    void totalDigitsIgnoreLeadingAndTrailingZeros() {
+        assertEquals(5, total("000123.4500"));
+        assertEquals(3, total("123"));
+        assertEquals(3, total("-1.23"));
+        assertEquals(3, total("+12.3"));
+        // Trailing zeros of the integer part are significant
+        assertEquals(3, total("100"));
+        assertEquals(4, total("100.10"));
+    }
+
+    @Test
+    void pureFractionsNeedTheirScale() {
+        assertEquals(4, total("0.0012"));
+        assertEquals(4, total(".0012"));
+        assertEquals(0, total("0"));
+        assertEquals(0, total("0.000"));
+    }
+
+    @Test
+    void fractionDigitsIgnoreTrailingZeros() {
+        assertEquals(2, fraction("1.2300"));
+        assertEquals(0, fraction("42"));
+        assertEquals(0, fraction("42."));
+        assertEquals(0, fraction("7.000"));
+        assertEquals(3, fraction("-.125"));
+    }
+
+    @Test
+    void surroundingWhitespaceIsIgnored() {
+        assertEquals(3, total("  12.3\n"));
+        assertEquals(1, fraction("\t12.3 "));
+    }
+
+    @Test
+    void nonDecimalTextIsNotCounted() {
+        for (String value : new String[]{"", " ", ".", "-", "1e3", "1.2.3", "12a", "INF", "1 2"}) {
+            assertEquals(-1, total(value), value);
+            assertEquals(-1, fraction(value), value);
+        }
+    }
+
+    @Test
+    void countsASliceOfABuffer() {
+        char[] chars = "xx12.50yy".toCharArray();
+        assertEquals(3, DecimalDigits.totalDigits(chars, 2, 5));
+        assertEquals(1, DecimalDigits.fractionDigits(chars, 2, 5));
+    }
+
+    private static int total(String value) {
+        return DecimalDigits.totalDigits(value.toCharArray(), 0, value.length());
+    }
+
+    private static int fraction(String value) {
+        return DecimalDigits.fractionDigits(value.toCharArray(), 0, value.length());
+    }
+}
@@ -0,0 +1,85 @@
+package com.xmlfixer.schema.datatype;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericBoundTest {
+
+    @Test
+    void integerBound() {
+        NumericBound bound = NumericBound.parse("10");
+        assertEquals(0, sign(bound, "10"));
+        assertEquals(0, sign(bound, "+010.000"));
+        assertEquals(1, sign(bound, "10.0001"));
+        assertEquals(-1, sign(bound, "9.9999"));
+        assertEquals(-1, sign(bound, "-10"));
+        assertEquals(1, sign(bound, "11"));
+    }
+
+    @Test
+    void negativeValuesAtTheBound() {
+        NumericBound bound = NumericBound.parse("-10");
+        assertEquals(-1, sign(bound, "-10.5"));
+        assertEquals(1, sign(bound, "-9.5"));
+        assertEquals(0, sign(bound, "-10.00"));
+
+        NumericBound zero = NumericBound.parse("0");
+        assertEquals(-1, sign(zero, "-0.5"));
+        assertEquals(0, sign(zero, "-0"));
+        assertEquals(1, sign(zero, "0.001"));
+    }
+
+    @Test
+    void fractionalBound() {
+        NumericBound bound = NumericBound.parse("1.5");
+        assertEquals(0, sign(bound, "1.50"));
+        assertEquals(-1, sign(bound, "1.4999"));
+        assertEquals(1, sign(bound, "1.5001"));
+    }
+
+    @Test
+    void valuesBeyondLongRange() {
+        NumericBound bound = NumericBound.parse("9223372036854775807");
+        assertEquals(0, sign(bound, "9223372036854775807"));
+        assertEquals(1, sign(bound, "9223372036854775808"));
+        assertEquals(1, sign(bound, "123456789012345678901234567890"));
+
+        NumericBound huge = NumericBound.parse("1E+30");
+        assertEquals(-1, sign(huge, "999999999999999999999999999999"));
+        assertEquals(0, sign(huge, "1000000000000000000000000000000"));
+    }
+
+    @Test
+    void exponentValuesAreCompared() {
+        NumericBound bound = NumericBound.parse("100");
+        assertEquals(0, sign(bound, "1e2"));
+        assertEquals(1, sign(bound, "1.01E2"));
+        assertEquals(-1, sign(bound, "9.9e1"));
+    }
+
+    @Test
+    void nonNumericTextIsNotComparable() {
+        NumericBound bound = NumericBound.parse("10");
+        for (String value : new String[]{"", "abc", ".", "1e", "1.2.3", "--1"}) {
+            assertEquals(NumericBound.NOT_COMPARABLE, compare(bound, value), value);
+        }
+    }
+
+    @Test
+    void nonNumericBoundsAreNotParsed() {
+        assertNull(NumericBound.parse("2024-01-01"));
+        assertNull(NumericBound.parse(null));
+        assertEquals("5", NumericBound.parse(" 5 ").toString());
+    }
+
+    private static int compare(NumericBound bound, String value) {
+        return bound.compareTo(value.toCharArray(), 0, value.length());
+    }
+
+    private static int sign(NumericBound bound, String value) {
+        int comparison = compare(bound, value);
+        assertNotEquals(NumericBound.NOT_COMPARABLE, comparison, value);
+        return Integer.signum(comparison);
+    }
+}
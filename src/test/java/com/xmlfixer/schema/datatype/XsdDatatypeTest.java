@@ -0,0 +1,140 @@
+package com.xmlfixer.schema.datatype;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XsdDatatypeTest {
+
+    @Test
+    void resolvesPrefixedAndBareNames() {
+        assertEquals(XsdDatatype.INT, XsdDatatype.forName("xs:int"));
+        assertEquals(XsdDatatype.DATE_TIME, XsdDatatype.forName("dateTime"));
+        assertNull(XsdDatatype.forName("tns:MyType"));
+        assertNull(XsdDatatype.forName(null));
+    }
+
+    @Test
+    void booleanLexicalSpace() {
+        valid(XsdDatatype.BOOLEAN, "true", "false", "1", "0", " true ");
+        invalid(XsdDatatype.BOOLEAN, "TRUE", "yes", "2", "", "t rue");
+    }
+
+    @Test
+    void decimalLexicalSpace() {
+        valid(XsdDatatype.DECIMAL, "0", "-1.5", "+.5", "5.", "007.100", " 12 ");
+        invalid(XsdDatatype.DECIMAL, ".", "-", "1e3", "1.2.3", "1,5", "", "NaN");
+    }
+
+    @Test
+    void integerTypesCheckTheirBounds() {
+        valid(XsdDatatype.INT, "2147483647", "-2147483648", "+0", "0002147483647");
+        invalid(XsdDatatype.INT, "2147483648", "-2147483649", "1.0", "");
+        valid(XsdDatatype.BYTE, "127", "-128");
+        invalid(XsdDatatype.BYTE, "128", "-129");
+        valid(XsdDatatype.UNSIGNED_LONG, "18446744073709551615", "0");
+        invalid(XsdDatatype.UNSIGNED_LONG, "18446744073709551616", "-1");
+        valid(XsdDatatype.POSITIVE_INTEGER, "1", "99999999999999999999999");
+        invalid(XsdDatatype.POSITIVE_INTEGER, "0", "-0", "-5");
+        valid(XsdDatatype.NON_POSITIVE_INTEGER, "0", "-0", "-7");
+        invalid(XsdDatatype.NON_POSITIVE_INTEGER, "1");
+        valid(XsdDatatype.INTEGER, "123456789012345678901234567890", "-1");
+        invalid(XsdDatatype.INTEGER, "1.", "1 2");
+    }
+
+    @Test
+    void floatingLexicalSpace() {
+        valid(XsdDatatype.DOUBLE, "1", "-1.5E10", "1e-3", ".5", "INF", "-INF", "NaN");
+        invalid(XsdDatatype.DOUBLE, "inf", "+NaN", "1e", "e5", "1.5E+", "0x10", "1d");
+        valid(XsdDatatype.FLOAT, "3.4E38", "+INF");
+    }
+
+    @Test
+    void dateAndTimeLexicalSpaces() {
+        valid(XsdDatatype.DATE, "2024-02-29", "2023-12-31Z", "2023-01-01+05:30", "-0044-03-15", "12024-01-01");
+        invalid(XsdDatatype.DATE, "2023-02-29", "2024-13-01", "2024-04-31", "24-01-01", "2024-1-01",
+                "2024-01-01T00:00:00", "0000-01-01", "2024-01-01+15:00");
+        valid(XsdDatatype.DATE_TIME, "2024-05-01T12:30:00", "2024-05-01T12:30:00.125Z", "2024-05-01T24:00:00");
+        invalid(XsdDatatype.DATE_TIME, "2024-05-01", "2024-05-01T25:00:00", "2024-05-01T12:60:00",
+                "2024-05-01 12:30:00", "2024-05-01T24:00:01");
+        valid(XsdDatatype.TIME, "00:00:00", "23:59:59.999", "12:00:00-08:00");
+        invalid(XsdDatatype.TIME, "24:30:00", "12:00", "12:00:60");
+    }
+
+    @Test
+    void durationLexicalSpace() {
+        valid(XsdDatatype.DURATION, "P1Y", "-P1Y2M3DT4H5M6.7S", "PT0S", "P0D", "PT1M");
+        invalid(XsdDatatype.DURATION, "P", "PT", "P1YT", "1Y", "P-1Y", "PT1.S", "P1M2Y");
+    }
+
+    @Test
+    void gregorianFragments() {
+        valid(XsdDatatype.G_YEAR, "2024", "-0001", "2024Z");
+        invalid(XsdDatatype.G_YEAR, "24", "2024-01");
+        valid(XsdDatatype.G_YEAR_MONTH, "2024-02");
+        invalid(XsdDatatype.G_YEAR_MONTH, "2024-13");
+        valid(XsdDatatype.G_MONTH, "--02");
+        invalid(XsdDatatype.G_MONTH, "--13", "02");
+        valid(XsdDatatype.G_MONTH_DAY, "--02-29", "--12-31");
+        invalid(XsdDatatype.G_MONTH_DAY, "--02-30", "--04-31");
+        valid(XsdDatatype.G_DAY, "---31");
+        invalid(XsdDatatype.G_DAY, "---32", "--31");
+    }
+
+    @Test
+    void binaryLexicalSpaces() {
+        valid(XsdDatatype.HEX_BINARY, "0fA9", "DEADbeef");
+        invalid(XsdDatatype.HEX_BINARY, "abc", "0g", "0x12");
+        valid(XsdDatatype.BASE64_BINARY, "QUJD", "QUI=", "QQ==", "QU JD");
+        invalid(XsdDatatype.BASE64_BINARY, "QUJ", "Q===", "QU=D", "QUJD!");
+    }
+
+    @Test
+    void stringTypesAcceptAnything() {
+        assertTrue(XsdDatatype.STRING.isUnrestricted());
+        valid(XsdDatatype.TOKEN, "", "  any text  ");
+        assertFalse(XsdDatatype.DATE.isStreamable());
+        assertTrue(XsdDatatype.BASE64_BINARY.isStreamable());
+    }
+
+    @Test
+    void checksASliceOfABuffer() {
+        char[] chars = "xx2024-02-29yy".toCharArray();
+        assertTrue(XsdDatatype.DATE.isValid(chars, 2, 10));
+        assertFalse(XsdDatatype.DATE.isValid(chars, 2, 11));
+        assertTrue(XsdDatatype.INT.isValid(new StringBuilder(" 42 ")));
+    }
+
+    @Test
+    void scannerChecksBinaryValuesChunkByChunk() {
+        ValueScanner scanner = new ValueScanner();
+        append(scanner, "  QU", "JD", "QQ", "==  ");
+        assertTrue(scanner.isValid(XsdDatatype.BASE64_BINARY));
+
+        scanner.reset();
+        append(scanner, "0f", "A", "9");
+        assertTrue(scanner.isValid(XsdDatatype.HEX_BINARY));
+
+        scanner.reset();
+        append(scanner, "0f", "A");
+        assertFalse(scanner.isValid(XsdDatatype.HEX_BINARY));
+    }
+
+    private static void append(ValueScanner scanner, String... chunks) {
+        for (String chunk : chunks) {
+            scanner.append(chunk.toCharArray(), 0, chunk.length());
+        }
+    }
+
+    private static void valid(XsdDatatype datatype, String... values) {
+        for (String value : values) {
+            assertTrue(datatype.isValid(value), datatype.getXsdName() + " '" + value + "'");
+        }
+    }
+
+    private static void invalid(XsdDatatype datatype, String... values) {
+        for (String value : values) {
+            assertFalse(datatype.isValid(value), datatype.getXsdName() + " '" + value + "'");
+        }
+    }
+}
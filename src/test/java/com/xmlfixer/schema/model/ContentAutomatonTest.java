@@ -0,0 +1,180 @@
+package com.xmlfixer.schema.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentAutomatonTest {
+
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    @Test
+    void sequenceWithOptionalAndUnboundedElements() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("a", 1, 1), element("b", 0, 1), element("c", 1, UNBOUNDED)));
+
+        assertTrue(accepts(automaton, "a", "c"));
+        assertTrue(accepts(automaton, "a", "b", "c", "c", "c"));
+        assertFalse(accepts(automaton, "a"));
+        assertFalse(accepts(automaton, "c"));
+        assertFalse(accepts(automaton, "a", "b", "b", "c"));
+        assertFalse(accepts(automaton, "a", "c", "b"));
+        assertFalse(accepts(automaton));
+    }
+
+    @Test
+    void countedRepetition() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("item", 2, 4)));
+
+        assertFalse(accepts(automaton, "item"));
+        assertTrue(accepts(automaton, "item", "item"));
+        assertTrue(accepts(automaton, "item", "item", "item", "item"));
+        assertFalse(accepts(automaton, "item", "item", "item", "item", "item"));
+    }
+
+    @Test
+    void unboundedElementWithMinimum() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("row", 3, UNBOUNDED)));
+
+        assertFalse(accepts(automaton, "row", "row"));
+        String[] many = new String[10_000];
+        Arrays.fill(many, "row");
+        assertTrue(accepts(automaton, many));
+    }
+
+    @Test
+    void choiceTakesExactlyOneBranch() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.CHOICE, 1, 1,
+                element("a", 1, 1), element("b", 2, 2)));
+
+        assertTrue(accepts(automaton, "a"));
+        assertTrue(accepts(automaton, "b", "b"));
+        assertFalse(accepts(automaton, "b"));
+        assertFalse(accepts(automaton, "a", "b"));
+        assertFalse(accepts(automaton, "a", "a"));
+        assertFalse(accepts(automaton));
+    }
+
+    @Test
+    void unboundedChoiceInsideSequence() {
+        OrderingRule choice = group(OrderingRule.OrderingType.CHOICE, 1, UNBOUNDED,
+                element("y", 1, 1), element("z", 1, 1));
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("x", 1, 1), OrderingRule.Particle.group(choice), element("end", 0, 1)));
+
+        assertTrue(accepts(automaton, "x", "y"));
+        assertTrue(accepts(automaton, "x", "z", "y", "y", "z", "end"));
+        assertFalse(accepts(automaton, "x"));
+        assertFalse(accepts(automaton, "x", "end"));
+        assertFalse(accepts(automaton, "x", "y", "end", "y"));
+    }
+
+    @Test
+    void optionalGroup() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 0, 1,
+                element("a", 1, 1), element("b", 1, 1)));
+
+        assertTrue(accepts(automaton));
+        assertTrue(accepts(automaton, "a", "b"));
+        assertFalse(accepts(automaton, "a"));
+    }
+
+    @Test
+    void allGroupAcceptsAnyOrder() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.ALL, 1, 1,
+                element("a", 1, 1), element("b", 0, 1), element("c", 1, 1)));
+
+        assertTrue(automaton.isUnordered());
+        assertTrue(accepts(automaton, "c", "a"));
+        assertTrue(accepts(automaton, "b", "c", "a"));
+        assertFalse(accepts(automaton, "b", "a"));
+        assertFalse(accepts(automaton, "a", "a", "c"));
+
+        long state = run(automaton, "b");
+        assertEquals(Arrays.asList("a", "c"), automaton.missingElements(state));
+    }
+
+    @Test
+    void allGroupRules() {
+        assertThrows(ContentModelException.class, () -> compile(group(OrderingRule.OrderingType.ALL, 1, 1,
+                element("a", 1, 2))));
+        assertThrows(ContentModelException.class, () -> compile(group(OrderingRule.OrderingType.ALL, 1, 1,
+                element("a", 1, 1), element("a", 0, 1))));
+        assertThrows(ContentModelException.class, () -> compile(group(OrderingRule.OrderingType.ALL, 1, 2,
+                element("a", 1, 1))));
+    }
+
+    @Test
+    void unknownElementsAreRejected() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("a", 1, 1)));
+
+        assertEquals(-1, automaton.symbolOf("other"));
+        assertEquals(ContentAutomaton.REJECTED, automaton.next(automaton.initialState(), -1));
+        assertFalse(automaton.isAccepting(ContentAutomaton.REJECTED));
+    }
+
+    @Test
+    void expectedElementsFollowTheState() {
+        ContentAutomaton automaton = compile(group(OrderingRule.OrderingType.SEQUENCE, 1, 1,
+                element("a", 1, 1), element("b", 0, 1), element("c", 1, 1)));
+
+        assertEquals(Arrays.asList("a"), automaton.expectedElements(automaton.initialState()));
+        assertEquals(Arrays.asList("b", "c"), automaton.expectedElements(run(automaton, "a")));
+        assertEquals(Arrays.asList("b", "c"), automaton.missingElements(run(automaton, "a")));
+        assertTrue(automaton.missingElements(run(automaton, "a", "c")).isEmpty());
+    }
+
+    @Test
+    void elementOrderWithoutParticlesUsesTheOwnersChildren() {
+        SchemaElement owner = new SchemaElement("order");
+        SchemaElement line = new SchemaElement("line");
+        line.setMinOccurs(1);
+        line.setMaxOccurs(UNBOUNDED);
+        owner.addChild(new SchemaElement("id"));
+        owner.addChild(line);
+        OrderingRule model = new OrderingRule(OrderingRule.OrderingType.SEQUENCE);
+        model.addElement("id");
+        model.addElement("line");
+
+        ContentAutomaton automaton = ContentAutomaton.compile(model, owner);
+        assertTrue(accepts(automaton, "id", "line", "line"));
+        assertFalse(accepts(automaton, "id"));
+        assertFalse(accepts(automaton, "line", "id"));
+    }
+
+    private static OrderingRule.Particle element(String name, int minOccurs, int maxOccurs) {
+        return OrderingRule.Particle.element(name, minOccurs, maxOccurs);
+    }
+
+    private static OrderingRule group(OrderingRule.OrderingType type, int minOccurs, int maxOccurs,
+                                      OrderingRule.Particle... particles) {
+        OrderingRule group = new OrderingRule(type);
+        group.setMinOccurs(minOccurs);
+        group.setMaxOccurs(maxOccurs);
+        for (OrderingRule.Particle particle : particles) {
+            group.addParticle(particle);
+        }
+        return group;
+    }
+
+    private static ContentAutomaton compile(OrderingRule model) {
+        return ContentAutomaton.compile(model, null);
+    }
+
+    private static long run(ContentAutomaton automaton, String... children) {
+        long state = automaton.initialState();
+        for (String child : children) {
+            state = automaton.next(state, automaton.symbolOf(child));
+        }
+        return state;
+    }
+
+    private static boolean accepts(ContentAutomaton automaton, String... children) {
+        return automaton.isAccepting(run(automaton, children));
+    }
+}
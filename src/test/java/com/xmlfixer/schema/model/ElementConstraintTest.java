@@ -0,0 +1,72 @@
+package com.xmlfixer.schema.model;
+
+import com.xmlfixer.schema.datatype.NumericBound;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElementConstraintTest {
+
+    @Test
+    void inclusiveBoundsAcceptTheBound() {
+        ElementConstraint min = range(ElementConstraint.ConstraintType.MIN_INCLUSIVE, "0");
+        assertTrue(check(min, "0"));
+        assertTrue(check(min, "0.1"));
+        assertFalse(check(min, "-0.1"));
+
+        ElementConstraint max = range(ElementConstraint.ConstraintType.MAX_INCLUSIVE, "100");
+        assertTrue(check(max, "100"));
+        assertFalse(check(max, "100.01"));
+    }
+
+    @Test
+    void exclusiveBoundsRejectTheBound() {
+        ElementConstraint min = range(ElementConstraint.ConstraintType.MIN_EXCLUSIVE, "0");
+        assertFalse(check(min, "0"));
+        assertFalse(check(min, "0.000"));
+        assertTrue(check(min, "0.001"));
+
+        ElementConstraint max = range(ElementConstraint.ConstraintType.MAX_EXCLUSIVE, "100");
+        assertFalse(check(max, "100"));
+        assertTrue(check(max, "99.999"));
+    }
+
+    @Test
+    void rangeFacetsLeaveOtherChecksToTheDatatype() {
+        assertTrue(check(range(ElementConstraint.ConstraintType.MAX_INCLUSIVE, "1"), "not a number"));
+        // Date bounds are not compiled, so they do not reject anything
+        ElementConstraint date = new ElementConstraint(ElementConstraint.ConstraintType.MIN_INCLUSIVE, "2024-01-01");
+        assertTrue(check(date, "1999-01-01"));
+    }
+
+    @Test
+    void digitsFacets() {
+        ElementConstraint total = digits(ElementConstraint.ConstraintType.TOTAL_DIGITS, 4);
+        assertTrue(check(total, "12.34"));
+        assertTrue(check(total, "0012.3400"));
+        assertFalse(check(total, "123.45"));
+
+        ElementConstraint fraction = digits(ElementConstraint.ConstraintType.FRACTION_DIGITS, 2);
+        assertTrue(check(fraction, "1.25"));
+        assertTrue(check(fraction, "1.2500"));
+        assertFalse(check(fraction, "1.255"));
+    }
+
+    private static ElementConstraint range(ElementConstraint.ConstraintType type, String value) {
+        ElementConstraint constraint = new ElementConstraint(type, value);
+        constraint.setNumericBound(NumericBound.parse(value));
+        constraint.seal();
+        return constraint;
+    }
+
+    private static ElementConstraint digits(ElementConstraint.ConstraintType type, int limit) {
+        ElementConstraint constraint = new ElementConstraint(type, String.valueOf(limit));
+        constraint.setLimit(limit);
+        constraint.seal();
+        return constraint;
+    }
+
+    private static boolean check(ElementConstraint constraint, String value) {
+        return constraint.checkNumericFacet(value.toCharArray(), 0, value.length());
+    }
+}
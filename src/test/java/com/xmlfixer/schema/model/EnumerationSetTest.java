@@ -0,0 +1,78 @@
+package com.xmlfixer.schema.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnumerationSetTest {
+
+    @Test
+    void smallSet() {
+        assertMembership(values(3));
+    }
+
+    @Test
+    void mediumSet() {
+        assertMembership(values(40));
+    }
+
+    @Test
+    void largeSet() {
+        assertMembership(values(500));
+    }
+
+    @Test
+    void valuesWithEqualHashCodes() {
+        // "Aa" and "BB" share a hash code, so no collision-free table exists for them
+        List<String> values = values(10);
+        values.add("Aa");
+        values.add("BB");
+        assertMembership(values);
+    }
+
+    @Test
+    void valuesAreKeptWhole() {
+        EnumerationSet set = EnumerationSet.of(Arrays.asList("a,b", "c"));
+        assertTrue(set.contains("a,b"));
+        assertFalse(set.contains("a"));
+        assertFalse(set.contains("b"));
+    }
+
+    @Test
+    void duplicatesAreDroppedInDeclarationOrder() {
+        EnumerationSet set = EnumerationSet.of(Arrays.asList("red", "green", "red", "blue"));
+        assertEquals(Arrays.asList("red", "green", "blue"), set.getValues());
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void nullAndEmptyValues() {
+        EnumerationSet set = EnumerationSet.of(Arrays.asList("", "x"));
+        assertTrue(set.contains(""));
+        assertFalse(set.contains(null));
+        assertFalse(EnumerationSet.of(List.of()).contains("x"));
+    }
+
+    private static List<String> values(int count) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add("CODE-" + i);
+        }
+        return values;
+    }
+
+    private static void assertMembership(List<String> values) {
+        EnumerationSet set = EnumerationSet.of(values);
+        for (String value : values) {
+            assertTrue(set.contains(value), value);
+            assertTrue(set.contains(new String(value.toCharArray())), value);
+        }
+        assertFalse(set.contains("CODE-" + values.size() * 2));
+        assertFalse(set.contains("code-1"));
+        assertFalse(set.contains("CODE-1 "));
+    }
+}
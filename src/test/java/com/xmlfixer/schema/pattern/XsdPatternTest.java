@@ -0,0 +1,104 @@
+package com.xmlfixer.schema.pattern;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XsdPatternTest {
+
+    @Test
+    void patternsAreAnchored() {
+        XsdPattern pattern = XsdPattern.compile("abc");
+        assertTrue(pattern.matches("abc"));
+        assertFalse(pattern.matches("xabc"));
+        assertFalse(pattern.matches("abcx"));
+    }
+
+    @Test
+    void characterClassSubtraction() {
+        XsdPattern consonants = XsdPattern.compile("[a-z-[aeiou]]+");
+        assertTrue(consonants.matches("bcdfg"));
+        assertFalse(consonants.matches("bad"));
+        assertFalse(consonants.matches("BCD"));
+
+        XsdPattern nested = XsdPattern.compile("[\\p{L}-[\\p{Lu}]]*");
+        assertTrue(nested.matches("straße"));
+        assertFalse(nested.matches("Straße"));
+
+        XsdPattern negated = XsdPattern.compile("[^0-9-[5]]");
+        assertTrue(negated.matches("x"));
+        assertFalse(negated.matches("3"));
+    }
+
+    @Test
+    void subtractionMustEndTheClass() {
+        assertThrows(XsdPatternException.class, () -> XsdPattern.compile("[a-z-[b]c]"));
+    }
+
+    @Test
+    void categoryAndBlockProperties() {
+        XsdPattern word = XsdPattern.compile("\\p{Lu}\\p{Ll}*");
+        assertTrue(word.matches("Élan"));
+        assertFalse(word.matches("élan"));
+
+        XsdPattern basicLatin = XsdPattern.compile("\\p{IsBasicLatin}+");
+        assertTrue(basicLatin.matches("plain ASCII"));
+        assertFalse(basicLatin.matches("café"));
+
+        XsdPattern noNumbers = XsdPattern.compile("\\P{N}+");
+        assertTrue(noNumbers.matches("abc"));
+        assertFalse(noNumbers.matches("ab3"));
+    }
+
+    @Test
+    void unknownPropertyIsRejected() {
+        XsdPatternException e = assertThrows(XsdPatternException.class, () -> XsdPattern.compile("\\p{Foo}"));
+        assertEquals("\\p{Foo}", e.getPattern());
+    }
+
+    @Test
+    void quantifierBounds() {
+        XsdPattern range = XsdPattern.compile("a{2,3}");
+        assertFalse(range.matches("a"));
+        assertTrue(range.matches("aa"));
+        assertTrue(range.matches("aaa"));
+        assertFalse(range.matches("aaaa"));
+
+        XsdPattern exact = XsdPattern.compile("[0-9]{4}");
+        assertTrue(exact.matches("2024"));
+        assertFalse(exact.matches("202"));
+        assertFalse(exact.matches("20245"));
+
+        XsdPattern atLeast = XsdPattern.compile("x{2,}");
+        assertFalse(atLeast.matches("x"));
+        assertTrue(atLeast.matches("xxxxxxxxxx"));
+
+        XsdPattern none = XsdPattern.compile("a{0,0}b");
+        assertTrue(none.matches("b"));
+        assertFalse(none.matches("ab"));
+    }
+
+    @Test
+    void invalidQuantifiersAreRejected() {
+        assertThrows(XsdPatternException.class, () -> XsdPattern.compile("a{3,2}"));
+        assertThrows(XsdPatternException.class, () -> XsdPattern.compile("a{2"));
+        assertThrows(XsdPatternException.class, () -> XsdPattern.compile("{2}"));
+    }
+
+    @Test
+    void nestedQuantifiersRunInLinearTime() {
+        XsdPattern pattern = XsdPattern.compile("(a*)*b");
+        String input = "a".repeat(100_000);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(pattern.matches(input)));
+    }
+
+    @Test
+    void matcherIsReusable() {
+        XsdMatcher matcher = XsdPattern.compile("[A-Z]{2}[0-9]+").matcher();
+        assertTrue(matcher.matches("AB12"));
+        assertFalse(matcher.matches("A12"));
+        assertTrue(matcher.matches("XY9"));
+    }
+}
@@ -0,0 +1,265 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.schema.SchemaCompiler;
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.ValidationRule;
+import com.xmlfixer.validation.model.ValidationError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorPublisherTest {
+
+    private static final int RECORDS = 30;
+    private static final int ERRORS = RECORDS / 3;
+
+    @TempDir
+    Path directory;
+
+    private final StreamingValidator validator = new StreamingValidator(new ErrorCollector());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final CompiledSchema schema = schema();
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+        validator.close();
+    }
+
+    @Test
+    void deliversNoMoreThanRequested() throws Exception {
+        Recorder recorder = new Recorder(null);
+        publisher().subscribe(recorder);
+
+        recorder.subscription.request(2);
+        recorder.awaitErrors(2);
+        Thread.sleep(100);
+        assertEquals(2, recorder.errorCount());
+        assertFalse(recorder.isTerminated());
+
+        recorder.subscription.request(3);
+        recorder.awaitErrors(5);
+        Thread.sleep(100);
+        assertEquals(5, recorder.errorCount());
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+        assertEquals(ERRORS, recorder.errorCount());
+        assertEquals("complete", recorder.terminalSignal());
+    }
+
+    @Test
+    void cancelStopsDelivery() throws Exception {
+        Recorder recorder = new Recorder(null);
+        publisher().subscribe(recorder);
+
+        recorder.subscription.request(2);
+        recorder.awaitErrors(2);
+        recorder.subscription.cancel();
+        recorder.subscription.request(10);
+        recorder.subscription.request(0);
+
+        awaitRunEnd();
+        assertEquals(2, recorder.errorCount());
+        assertFalse(recorder.isTerminated());
+    }
+
+    @Test
+    void invalidRequestIsSignalledAtOnce() throws Exception {
+        Recorder recorder = new Recorder(null);
+        publisher().subscribe(recorder);
+        recorder.subscription.request(1);
+        recorder.awaitErrors(1);
+
+        // The parse is waiting for demand; the failure must not wait for the run to end
+        recorder.subscription.request(0);
+        assertTrue(recorder.isTerminated());
+        assertInstanceOf(IllegalArgumentException.class, recorder.failure);
+        assertEquals(Thread.currentThread(), recorder.terminalThread);
+
+        recorder.subscription.request(-1);
+        awaitRunEnd();
+        assertEquals(1, recorder.errorCount());
+        assertEquals(1, recorder.signals.stream().filter(signal -> !signal.equals("next")).count());
+    }
+
+    @Test
+    void invalidRequestDuringOnNextIsSignalledWhenItReturns() throws Exception {
+        Recorder recorder = new Recorder(subscription -> subscription.request(-5));
+        publisher().subscribe(recorder);
+        recorder.subscription.request(3);
+
+        assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, recorder.failure);
+        assertEquals(recorder.nextThread, recorder.terminalThread);
+        awaitRunEnd();
+        assertEquals(List.of("next", "error"), recorder.signals);
+    }
+
+    @Test
+    void invalidRequestBeforeTheRunSkipsIt() throws Exception {
+        Recorder recorder = new Recorder(null) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(0);
+            }
+        };
+        publisher().subscribe(recorder);
+
+        assertTrue(recorder.isTerminated());
+        awaitRunEnd();
+        assertEquals(List.of("error"), recorder.signals);
+    }
+
+    @Test
+    void failingSubscriberCancelsTheRun() throws Exception {
+        Recorder recorder = new Recorder(subscription -> {
+            throw new IllegalStateException("subscriber broken");
+        });
+        publisher().subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+
+        awaitRunEnd();
+        assertEquals(List.of("next"), recorder.signals);
+    }
+
+    @Test
+    void rejectedRunIsSignalled() throws IOException {
+        Recorder recorder = new Recorder(null);
+        new ErrorPublisher(validator, write(), schema, null, command -> {
+            throw new RejectedExecutionException("no threads");
+        }).subscribe(recorder);
+
+        assertTrue(recorder.isTerminated());
+        assertInstanceOf(RejectedExecutionException.class, recorder.failure);
+    }
+
+    private ErrorPublisher publisher() throws IOException {
+        return new ErrorPublisher(validator, write(), schema, null, executor);
+    }
+
+    private void awaitRunEnd() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "run did not end");
+    }
+
+    /**
+     * Every third record has a value that is not an int
+     */
+    private File write() throws IOException {
+        StringBuilder xml = new StringBuilder("<records>\n");
+        for (int i = 0; i < RECORDS; i++) {
+            xml.append("  <record><v>").append(i % 3 == 0 ? "x" : String.valueOf(i)).append("</v></record>\n");
+        }
+        Path file = directory.resolve("records.xml");
+        Files.writeString(file, xml.append("</records>\n"));
+        return file.toFile();
+    }
+
+    private static CompiledSchema schema() {
+        SchemaElement root = new SchemaElement("records");
+        SchemaElement record = new SchemaElement("record");
+        record.setMaxOccurs(Integer.MAX_VALUE);
+        root.addChild(record);
+        SchemaElement value = new SchemaElement("v");
+        value.setType("xs:int");
+        record.addChild(value);
+        ValidationRule rule = new ValidationRule(ValidationRule.RuleType.DATA_TYPE, "v");
+        rule.setDataType("xs:int");
+        Map<String, List<ValidationRule>> rules = new HashMap<>();
+        rules.put("v", new ArrayList<>(List.of(rule)));
+        return new SchemaCompiler().compile(new File("records.xsd"), root, rules);
+    }
+
+    /**
+     * Subscriber recording the signals it gets and the threads they arrive on
+     */
+    private static class Recorder implements Flow.Subscriber<ValidationError> {
+        private final Consumer<Flow.Subscription> onNextAction;
+        private final List<String> signals = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable failure;
+        private volatile Thread nextThread;
+        private volatile Thread terminalThread;
+
+        Recorder(Consumer<Flow.Subscription> onNextAction) {
+            this.onNextAction = onNextAction;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ValidationError item) {
+            assertFalse(isTerminated(), "onNext after a terminal signal");
+            nextThread = Thread.currentThread();
+            signals.add("next");
+            if (onNextAction != null) {
+                onNextAction.accept(subscription);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+            terminate("error");
+        }
+
+        @Override
+        public void onComplete() {
+            terminate("complete");
+        }
+
+        private void terminate(String signal) {
+            assertFalse(isTerminated(), "second terminal signal");
+            terminalThread = Thread.currentThread();
+            signals.add(signal);
+            terminated.countDown();
+        }
+
+        boolean isTerminated() {
+            return terminated.getCount() == 0;
+        }
+
+        long errorCount() {
+            return signals.stream().filter(signal -> signal.equals("next")).count();
+        }
+
+        String terminalSignal() {
+            return signals.get(signals.size() - 1);
+        }
+
+        void awaitErrors(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (errorCount() < count) {
+                assertTrue(System.nanoTime() < deadline, "waiting for " + count + " errors");
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.parsing.XmlInput;
+import com.xmlfixer.validation.model.RecordIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordSplitterTest {
+
+    private static final int RECORDS = 60;
+    private static final String ROOT_START_TAG = "<records xmlns=\"urn:test\"\n         id=\"feed\">";
+
+    @TempDir
+    Path directory;
+
+    private final XmlInput input = XmlInput.buffered(4096);
+
+    @Test
+    void segmentsStartAtRecordsAndCoverTheRoot() throws IOException {
+        String document = document(RECORDS);
+        File file = write("records.xml", document);
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+
+        RecordSplitter.Split split = RecordSplitter.split(file, input, 400, (RecordIndex.Writer) null);
+
+        assertNotNull(split);
+        assertEquals("records", split.getRootName());
+        assertEquals("record", split.getRecordName());
+        List<RecordSplitter.Segment> segments = split.getSegments();
+        assertTrue(segments.size() > 2, segments.toString());
+
+        assertEquals(0, segments.get(0).getStartOffset());
+        // The last segment takes the real root end tag and the epilog
+        assertEquals(bytes.length, segments.get(segments.size() - 1).getEndOffset());
+        long records = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            RecordSplitter.Segment segment = segments.get(i);
+            assertEquals(i, segment.getIndex());
+            assertEquals(records, segment.getRecordsBefore());
+            records += segment.getRecordCount();
+            if (i > 0) {
+                assertEquals(segments.get(i - 1).getEndOffset(), segment.getStartOffset());
+                assertTrue(startsWith(bytes, segment.getStartOffset(), "<record "), segment.toString());
+            }
+        }
+        assertEquals(RECORDS, records);
+    }
+
+    @Test
+    void segmentsParseOnTheirOwnAndMapBackToFileLines() throws Exception {
+        String document = document(RECORDS);
+        File file = write("records.xml", document);
+        List<int[]> expected = recordLocations(document);
+
+        RecordSplitter.Split split = RecordSplitter.split(file, input, 400, (RecordIndex.Writer) null);
+        assertNotNull(split);
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        int record = 0;
+        for (RecordSplitter.Segment segment : split.getSegments()) {
+            List<int[]> seen = new ArrayList<>();
+            try (InputStream in = split.open(segment)) {
+                InputSource source = new InputSource(in);
+                if (!segment.isFirst()) {
+                    source.setEncoding(split.getEncoding().name());
+                }
+                factory.newSAXParser().parse(source, new DefaultHandler() {
+                    private Locator locator;
+
+                    @Override
+                    public void setDocumentLocator(Locator locator) {
+                        this.locator = locator;
+                    }
+
+                    @Override
+                    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                        if (localName.equals("record")) {
+                            assertEquals("urn:test", uri);
+                            int line = locator.getLineNumber();
+                            seen.add(new int[]{split.fileLine(segment, line),
+                                    split.fileColumn(segment, line, locator.getColumnNumber())});
+                        }
+                    }
+                });
+            }
+            assertEquals(segment.getRecordCount(), seen.size(), segment.toString());
+            for (int[] location : seen) {
+                assertArrayEquals(expected.get(record), location, "record " + record);
+                record++;
+            }
+        }
+        assertEquals(RECORDS, record);
+    }
+
+    @Test
+    void offsetsMapBackToTheFile() throws IOException {
+        String document = document(RECORDS);
+        File file = write("records.xml", document);
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+
+        RecordSplitter.Split split = RecordSplitter.split(file, input, 400, (RecordIndex.Writer) null);
+        assertNotNull(split);
+        long rootOffset = indexOf(bytes, "<records", 0);
+        int rootTagLength = ROOT_START_TAG.getBytes(StandardCharsets.UTF_8).length;
+        RecordSplitter.Segment first = split.getSegments().get(0);
+        RecordSplitter.Segment second = split.getSegments().get(1);
+        RecordSplitter.Segment last = split.getSegments().get(split.getSegments().size() - 1);
+
+        assertEquals(rootOffset, split.getRootOffset());
+        assertEquals(17, split.fileOffset(first, 17));
+        assertEquals(rootOffset + 5, split.fileOffset(second, 5));
+        assertEquals(second.getStartOffset(), split.fileOffset(second, rootTagLength));
+        assertEquals(second.getStartOffset() + 10, split.fileOffset(second, rootTagLength + 10));
+        // The synthetic end tag of a middle segment maps onto the segment's end
+        assertEquals(second.getEndOffset(), split.fileOffset(second, Long.MAX_VALUE / 2));
+        assertEquals(-1, split.fileOffset(last, -1));
+    }
+
+    @Test
+    void documentsThatCannotBeSplit() throws IOException {
+        assertNull(split("small.xml", document(1)));
+        assertNull(split("doctype.xml", "<?xml version=\"1.0\"?>\n<!DOCTYPE records>\n"
+                + document(RECORDS).substring(document(RECORDS).indexOf("<records"))));
+        assertNull(split("mixed.xml", document(RECORDS).replace("<record n=\"30\">", "<other n=\"30\">")
+                .replace("</record><!--30-->", "</other><!--30-->")));
+        assertNull(split("utf16.xml", "<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n<records/>"));
+        assertNull(split("unclosed.xml", document(RECORDS).replace("</records>", "")));
+    }
+
+    @Test
+    void malformedRootEndOrEpilogIsNotSplit() throws IOException {
+        assertNull(split("wrong-end.xml", document(RECORDS).replace("</records>", "</records_wrong>")));
+        assertNull(split("prefix-end.xml", document(RECORDS).replace("</records>", "</record>")));
+        assertNull(split("extra-element.xml", document(RECORDS) + "<extra/>\n"));
+        assertNull(split("extra-text.xml", document(RECORDS) + "tail\n"));
+        assertNull(split("extra-cdata.xml", document(RECORDS) + "<![CDATA[x]]>\n"));
+        assertNull(split("open-comment.xml", document(RECORDS) + "<!-- never closed"));
+
+        RecordSplitter.Split split = split("epilog.xml", document(RECORDS) + "<!-- done -->\n<?end?>\n");
+        assertNotNull(split);
+    }
+
+    @Test
+    void lastSegmentParsesTheRealTail() throws Exception {
+        String document = document(RECORDS) + "<!-- done -->\n";
+        RecordSplitter.Split split = split("records.xml", document);
+        assertNotNull(split);
+        RecordSplitter.Segment last = split.getSegments().get(split.getSegments().size() - 1);
+
+        String tail;
+        try (InputStream in = split.open(last)) {
+            tail = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertTrue(tail.startsWith(ROOT_START_TAG), tail);
+        assertTrue(tail.endsWith("</records>\n<!-- done -->\n"), tail);
+        assertEquals(tail.indexOf("</records>"), tail.lastIndexOf("</records>"));
+    }
+
+    @Test
+    void nonAsciiRecordNamesAreKeptWhole() throws IOException {
+        String uniform = document(RECORDS).replace("<record ", "<Größe ").replace("</record>", "</Größe>");
+        RecordSplitter.Split split = split("uniform.xml", uniform);
+        assertNotNull(split);
+        assertEquals("Größe", split.getRecordName());
+        long records = split.getSegments().stream().mapToLong(RecordSplitter.Segment::getRecordCount).sum();
+        assertEquals(RECORDS, records);
+
+        // Names sharing their ASCII prefix are still different records
+        String mixed = uniform.replace("<Größe n=\"30\">", "<Grüne n=\"30\">")
+                .replace("</Größe><!--30-->", "</Grüne><!--30-->");
+        assertNull(split("mixed.xml", mixed));
+
+        String root = document(RECORDS).replace("<records ", "<Einträge ").replace("</records>", "</Einträge>");
+        split = split("root.xml", root);
+        assertNotNull(split);
+        assertEquals("Einträge", split.getRootName());
+        assertNull(split("root-mismatch.xml", root.replace("</Einträge>", "</Eintrag>")));
+    }
+
+    @Test
+    void markupInsideCommentsAndCdataIsSkipped() throws IOException {
+        String document = document(RECORDS);
+        RecordSplitter.Split split = split("records.xml", document);
+        assertNotNull(split);
+        long records = split.getSegments().stream().mapToLong(RecordSplitter.Segment::getRecordCount).sum();
+        assertEquals(RECORDS, records);
+    }
+
+    /**
+     * A root start tag over two lines, then one record per line holding multi-byte text,
+     * markup inside CDATA and a comment
+     */
+    private static String document(int records) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<!-- feed of <record> elements -->\n")
+                .append(ROOT_START_TAG).append('\n');
+        for (int i = 0; i < records; i++) {
+            xml.append("  <record n=\"").append(i).append("\"><v>Grüße € ").append(i)
+                    .append("</v><![CDATA[<record n=\"x\">]]></record><!--").append(i).append("-->\n");
+        }
+        return xml.append("</records>\n").toString();
+    }
+
+    /**
+     * Line of each record and the column just past its start tag, as a parser reports them
+     */
+    private static List<int[]> recordLocations(String document) {
+        List<int[]> locations = new ArrayList<>();
+        String[] lines = document.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            int column = lines[i].indexOf("<record n=");
+            if (column >= 0) {
+                int tagEnd = lines[i].indexOf('>', column);
+                locations.add(new int[]{i + 1, tagEnd + 2});
+            }
+        }
+        return locations;
+    }
+
+    private RecordSplitter.Split split(String name, String document) throws IOException {
+        return RecordSplitter.split(write(name, document), input, 400, (RecordIndex.Writer) null);
+    }
+
+    private File write(String name, String document) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, document.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+
+    private static long indexOf(byte[] bytes, String text, int from) {
+        for (int i = from; i <= bytes.length - text.length(); i++) {
+            if (startsWith(bytes, i, text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] bytes, long offset, String text) {
+        byte[] prefix = text.getBytes(StandardCharsets.US_ASCII);
+        if (offset + prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[(int) offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
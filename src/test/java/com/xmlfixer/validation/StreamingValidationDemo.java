@@ -1,6 +1,8 @@
 package com.xmlfixer.validation;
 
 import com.xmlfixer.schema.SchemaAnalyzer;
+import com.xmlfixer.schema.SchemaCache;
+import com.xmlfixer.schema.SchemaSnapshotStore;
 import com.xmlfixer.schema.SchemaParser;
 import com.xmlfixer.parsing.XmlParser;
 import com.xmlfixer.validation.model.ValidationResult;
@@ -24,13 +26,14 @@ public class StreamingValidationDemo {
 
             // Initialize components
             SchemaParser schemaParser = new SchemaParser();
-            SchemaAnalyzer schemaAnalyzer = new SchemaAnalyzer(schemaParser);
+            SchemaAnalyzer schemaAnalyzer = new SchemaAnalyzer(schemaParser, new SchemaCache(),
+                    new SchemaSnapshotStore(false, null));
             ErrorCollector errorCollector = new ErrorCollector();
             StreamingValidator streamingValidator = new StreamingValidator(errorCollector);
             XmlParser xmlParser = new XmlParser();
 
             XmlValidator validator = new XmlValidator(
-                    streamingValidator, errorCollector, xmlParser, schemaAnalyzer);
+                    streamingValidator, xmlParser, schemaAnalyzer);
 
             System.out.println("=== XML STREAMING VALIDATION DEMO ===\n");
 
@@ -57,10 +60,10 @@ public class StreamingValidationDemo {
             // Test 4: Error analysis
             System.out.println("\nTEST 4: Error Analysis");
             System.out.println("-".repeat(50));
-            ErrorCollector.ErrorSummary summary = errorCollector.getErrorSummary();
-            System.out.println("Error Summary: " + summary);
-            System.out.println("\nDetailed Error Report:");
-            System.out.println(errorCollector.generateDetailedReport());
+            System.out.println("Runs: " + errorCollector.getRunCount()
+                    + ", errors: " + errorCollector.getTotalErrorCount()
+                    + ", warnings: " + errorCollector.getTotalWarningCount());
+            System.out.println("Errors by type: " + errorCollector.getErrorTypeTotals());
 
             // Clean up
             testSchema.delete();
@@ -0,0 +1,137 @@
+package com.xmlfixer.validation;
+
+import com.xmlfixer.parsing.XmlInput;
+import com.xmlfixer.schema.SchemaCompiler;
+import com.xmlfixer.schema.model.CompiledSchema;
+import com.xmlfixer.schema.model.SchemaElement;
+import com.xmlfixer.schema.model.ValidationRule;
+import com.xmlfixer.validation.model.CloseableIterator;
+import com.xmlfixer.validation.model.ErrorType;
+import com.xmlfixer.validation.model.RecordIndex;
+import com.xmlfixer.validation.model.ValidationError;
+import com.xmlfixer.validation.model.ValidationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingValidatorTest {
+
+    private static final int RECORDS = 80;
+
+    @TempDir
+    Path directory;
+
+    private final XmlInput input = XmlInput.buffered(4096);
+    private final StreamingValidator validator = new StreamingValidator(new ErrorCollector(), 4, 16, 4, 400, input);
+    private final CompiledSchema schema = schema();
+
+    @AfterEach
+    void closeValidator() {
+        validator.close();
+    }
+
+    @Test
+    void parallelRunFindsTheSameSchemaErrors() throws IOException {
+        String document = document();
+        File file = write("records.xml", document);
+        assertNotNull(RecordSplitter.split(file, input, 400, (RecordIndex.Writer) null));
+
+        List<String> sequential = errors(file, false);
+        assertEquals(RECORDS / 7 + 1, sequential.size(), sequential.toString());
+        assertEquals(sequential, errors(file, true));
+    }
+
+    @Test
+    void parallelRunReportsMalformedRootEndAndEpilog() throws IOException {
+        String document = document();
+        assertSameErrors("wrong-end.xml", document.replace("</records>", "</records_wrong>"));
+        assertSameErrors("extra-element.xml", document + "<extra/>\n");
+        assertSameErrors("extra-text.xml", document + "tail\n");
+        assertSameErrors("open-comment.xml", document + "<!-- never closed");
+        assertSameErrors("bad-comment.xml", document + "<!-- a -- b -->\n");
+    }
+
+    @Test
+    void parallelRunReportsMalformedRecords() throws IOException {
+        String document = document();
+        assertSameErrors("mismatched-record.xml", document.replace("</record><!--40-->", "</recrod><!--40-->"));
+        assertSameErrors("bad-attribute.xml", document.replace("<record n=\"55\">", "<record n=55>"));
+        assertSameErrors("non-ascii-record.xml", document.replace("<record ", "<Größe ")
+                .replace("</record>", "</Größe>").replace("</Größe><!--20-->", "</Grüne><!--20-->"));
+    }
+
+    private void assertSameErrors(String name, String document) throws IOException {
+        File file = write(name, document);
+        List<String> sequential = errors(file, false);
+        assertTrue(sequential.stream().anyMatch(error -> error.startsWith(ErrorType.MALFORMED_XML.toString())),
+                name + ": " + sequential);
+        assertEquals(sequential, errors(file, true), name);
+    }
+
+    /**
+     * Errors of a run with their type, location and message
+     */
+    private List<String> errors(File file, boolean parallel) {
+        XmlValidator.ValidationOptions options = new XmlValidator.ValidationOptions();
+        options.setParallel(parallel);
+        List<String> errors = new ArrayList<>();
+        try (ValidationResult result = validator.validateStreaming(file, schema, options);
+             CloseableIterator<ValidationError> iterator = result.errorIterator()) {
+            while (iterator.hasNext()) {
+                ValidationError error = iterator.next();
+                errors.add(error.getErrorType() + " " + error.getLineNumber() + ":" + error.getColumnNumber()
+                        + " @" + error.getByteOffset() + " " + error.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * One record per line, every seventh with a value that is not an int
+     */
+    private static String document() {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < RECORDS; i++) {
+            xml.append("  <record n=\"").append(i).append("\"><v>")
+                    .append(i % 7 == 0 ? "x" + i : String.valueOf(i))
+                    .append("</v><note>Grüße €</note></record><!--").append(i).append("-->\n");
+        }
+        return xml.append("</records>\n").toString();
+    }
+
+    private static CompiledSchema schema() {
+        Map<String, List<ValidationRule>> rules = new HashMap<>();
+        SchemaElement root = new SchemaElement("records");
+        SchemaElement record = new SchemaElement("record");
+        record.setMaxOccurs(Integer.MAX_VALUE);
+        root.addChild(record);
+        SchemaElement value = new SchemaElement("v");
+        value.setType("xs:int");
+        record.addChild(value);
+        ValidationRule rule = new ValidationRule(ValidationRule.RuleType.DATA_TYPE, "v");
+        rule.setDataType("xs:int");
+        rules.computeIfAbsent("v", key -> new ArrayList<>()).add(rule);
+        SchemaElement note = new SchemaElement("note");
+        note.setType("xs:string");
+        record.addChild(note);
+        return new SchemaCompiler().compile(new File("records.xsd"), root, rules);
+    }
+
+    private File write(String name, String document) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, document.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+}
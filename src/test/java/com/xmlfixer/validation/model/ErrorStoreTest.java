@@ -0,0 +1,181 @@
+package com.xmlfixer.validation.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorStoreTest {
+
+    @Test
+    void errorsWithinTheWindowStayInMemory() {
+        try (ErrorStore store = new ErrorStore(5)) {
+            List<ValidationError> errors = errors(5);
+            errors.forEach(store::add);
+
+            assertEquals(5, store.size());
+            assertFalse(store.hasSpilled());
+            assertEquals(errors, store.getWindow());
+        }
+    }
+
+    @Test
+    void spilledErrorsReadBackUnchanged() {
+        try (ErrorStore store = new ErrorStore(3)) {
+            List<ValidationError> errors = errors(50);
+            errors.forEach(store::add);
+
+            assertEquals(50, store.size());
+            assertEquals(47, store.getSpilledCount());
+            assertEquals(3, store.getWindow().size());
+
+            List<ValidationError> read = new ArrayList<>();
+            try (CloseableIterator<ValidationError> iterator = store.iterator()) {
+                iterator.forEachRemaining(read::add);
+            }
+            assertEquals(errors.size(), read.size());
+            for (int i = 0; i < errors.size(); i++) {
+                assertSameError(errors.get(i), read.get(i));
+            }
+
+            // A second pass reads the file again
+            List<ValidationError> again = new ArrayList<>();
+            store.forEach(again::add);
+            assertEquals(read.size(), again.size());
+            assertSameError(errors.get(49), again.get(49));
+        }
+    }
+
+    @Test
+    void zeroWindowSpillsEverything() {
+        try (ErrorStore store = new ErrorStore(0)) {
+            errors(4).forEach(store::add);
+
+            assertEquals(4, store.getSpilledCount());
+            assertTrue(store.getWindow().isEmpty());
+            assertEquals(4, countSpilled(store));
+        }
+    }
+
+    @Test
+    void countsIncludeSpilledErrors() {
+        try (ErrorStore store = new ErrorStore(2)) {
+            errors(10).forEach(store::add);
+
+            assertEquals(5, store.getCount(ErrorType.CONSTRAINT_VIOLATION));
+            assertEquals(5, store.getCount(ErrorType.INVALID_DATA_TYPE));
+            assertEquals(Integer.valueOf(10), store.countByElement().get("item"));
+            assertEquals(10, store.countByLine().size());
+        }
+    }
+
+    @Test
+    void sealedStoreRejectsNewErrors() {
+        try (ErrorStore store = new ErrorStore(1)) {
+            errors(3).forEach(store::add);
+            store.seal();
+
+            assertThrows(IllegalStateException.class, () -> store.add(errors(1).get(0)));
+            assertEquals(2, countSpilled(store));
+        }
+    }
+
+    @Test
+    void closeDeletesTheSpillFileAndKeepsTheCounts() throws IOException {
+        long before = spillFiles();
+        ErrorStore store = new ErrorStore(2);
+        errors(20).forEach(store::add);
+        assertEquals(before + 1, spillFiles());
+
+        // An iterator left open is closed with the store
+        CloseableIterator<ValidationError> open = store.iterator();
+        for (int i = 0; i < 5; i++) {
+            open.next();
+        }
+        store.close();
+
+        assertTrue(store.isClosed());
+        assertEquals(before, spillFiles());
+        assertEquals(20, store.size());
+        assertEquals(18, store.getSpilledCount());
+        assertEquals(2, store.getWindow().size());
+        assertThrows(IllegalStateException.class, () -> store.spilledIterator().next());
+        assertThrows(IllegalStateException.class, () -> store.forEach(error -> { }));
+    }
+
+    private static List<ValidationError> errors(int count) {
+        List<ValidationError> errors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ValidationError error;
+            switch (i % 4) {
+                case 0:
+                    error = new ValidationError(ErrorType.CONSTRAINT_VIOLATION, ErrorCode.LENGTH_ABOVE_MAXIMUM,
+                            i + 1, 7, i * 10, 20);
+                    break;
+                case 1:
+                    error = new ValidationError(ErrorType.INVALID_DATA_TYPE, ErrorCode.INVALID_STREAMED_VALUE,
+                            i + 1, 3, "xs:base64Binary", (long) i << 33, "item");
+                    break;
+                case 2:
+                    error = new ValidationError(ErrorType.CONSTRAINT_VIOLATION, ErrorCode.NOT_IN_ENUMERATION,
+                            i + 1, 1, "v" + i, Arrays.asList("a", "b", "ü"));
+                    break;
+                default:
+                    error = new ValidationError(ErrorType.INVALID_DATA_TYPE, "Plain message " + i + " ✓",
+                            i + 1, 2);
+                    error.setSeverity(ValidationError.Severity.WARNING);
+                    error.setExpectedValue("expected" + i);
+                    error.setActualValue(null);
+                    error.setSchemaRule("rule");
+                    break;
+            }
+            error.setElementName("item");
+            error.setxPath("/root/item[" + (i + 1) + "]");
+            error.setByteOffset(1000L * i);
+            error.setEndByteOffset(i % 2 == 0 ? 1000L * i + 50 : -1);
+            errors.add(error);
+        }
+        return errors;
+    }
+
+    private static void assertSameError(ValidationError expected, ValidationError actual) {
+        assertEquals(expected.getErrorType(), actual.getErrorType());
+        assertEquals(expected.getErrorCode(), actual.getErrorCode());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getSeverity(), actual.getSeverity());
+        assertEquals(expected.getLineNumber(), actual.getLineNumber());
+        assertEquals(expected.getColumnNumber(), actual.getColumnNumber());
+        assertEquals(expected.getByteOffset(), actual.getByteOffset());
+        assertEquals(expected.getEndByteOffset(), actual.getEndByteOffset());
+        assertEquals(expected.getElementName(), actual.getElementName());
+        assertEquals(expected.getxPath(), actual.getxPath());
+        assertEquals(expected.getExpectedValue(), actual.getExpectedValue());
+        assertEquals(expected.getActualValue(), actual.getActualValue());
+        assertEquals(expected.getSchemaRule(), actual.getSchemaRule());
+    }
+
+    private static int countSpilled(ErrorStore store) {
+        int count = 0;
+        try (CloseableIterator<ValidationError> iterator = store.spilledIterator()) {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("xmlfixer-errors-")).count();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.xmlfixer.validation.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void committedIndexLoadsBack() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        assertTrue(writeIndex(xmlFile, 5));
+
+        RecordIndex index = RecordIndex.load(xmlFile);
+        assertNotNull(index);
+        assertEquals("feed", index.getRootName());
+        assertEquals(0, index.getRootOffset());
+        assertEquals(6, index.getRootTagEnd());
+        assertEquals(1, index.getRootLine());
+        assertEquals(1, index.getRootColumn());
+        assertEquals(1000, index.getRootEnd());
+        assertEquals(5, index.getRecordCount());
+        assertTrue(index.isUniform());
+        assertEquals("item", index.getRecordName());
+        for (int record = 0; record < 5; record++) {
+            assertEquals(10 + record * 100L, index.getOffset(record));
+            assertEquals(2 + record, index.getLine(record));
+            assertEquals(3, index.getColumn(record));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getOffset(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.getOffset(-1));
+        assertEquals(List.of(RecordIndex.sidecarFor(xmlFile).getName()), leftovers(xmlFile));
+    }
+
+    @Test
+    void searchesByOffsetAndLine() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        writeIndex(xmlFile, 5);
+        RecordIndex index = RecordIndex.load(xmlFile);
+
+        assertEquals(-1, index.recordAtOffset(9));
+        assertEquals(0, index.recordAtOffset(10));
+        assertEquals(0, index.recordAtOffset(109));
+        assertEquals(1, index.recordAtOffset(110));
+        assertEquals(4, index.recordAtOffset(999));
+
+        assertEquals(0, index.recordFromOffset(0));
+        assertEquals(0, index.recordFromOffset(10));
+        assertEquals(1, index.recordFromOffset(11));
+        assertEquals(5, index.recordFromOffset(411));
+
+        assertEquals(-1, index.recordAtLine(1));
+        assertEquals(0, index.recordAtLine(2));
+        assertEquals(4, index.recordAtLine(100));
+    }
+
+    @Test
+    void mixedRecordNamesAreNotUniform() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            writer.addRecord("item", 10, 2, 3);
+            writer.addRecord("note", 20, 3, 3);
+            writer.endRoot(30);
+            assertTrue(writer.commit());
+        }
+
+        RecordIndex index = RecordIndex.load(xmlFile);
+        assertFalse(index.isUniform());
+        assertNull(index.getRecordName());
+        assertEquals(2, index.getRecordCount());
+    }
+
+    @Test
+    void staleIndexIsNotLoaded() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        writeIndex(xmlFile, 3);
+        assertNotNull(RecordIndex.load(xmlFile));
+
+        // Touched but unchanged in size
+        assertTrue(xmlFile.setLastModified(xmlFile.lastModified() - 60_000));
+        assertNull(RecordIndex.load(xmlFile));
+
+        writeIndex(xmlFile, 3);
+        assertNotNull(RecordIndex.load(xmlFile));
+
+        // Same modification time, different size
+        long modified = xmlFile.lastModified();
+        Files.writeString(xmlFile.toPath(), "<feed>....</feed>");
+        assertTrue(xmlFile.setLastModified(modified));
+        assertNull(RecordIndex.load(xmlFile));
+    }
+
+    @Test
+    void missingIndexIsNotLoaded() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        assertNull(RecordIndex.load(xmlFile));
+    }
+
+    @Test
+    void corruptIndexIsRejected() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        File indexFile = RecordIndex.sidecarFor(xmlFile);
+
+        Files.write(indexFile.toPath(), "not an index at all".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> RecordIndex.load(xmlFile));
+
+        // Cut short: the trailer is gone
+        writeIndex(xmlFile, 4);
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.setLength(file.length() - 20);
+        }
+        assertThrows(IOException.class, () -> RecordIndex.load(xmlFile));
+
+        // Entries and record count disagree
+        writeIndex(xmlFile, 4);
+        byte[] bytes = Files.readAllBytes(indexFile.toPath());
+        byte[] shorter = new byte[bytes.length - 16];
+        int entriesEnd = bytes.length - 8 - trailerLength(bytes);
+        System.arraycopy(bytes, 0, shorter, 0, entriesEnd - 16);
+        System.arraycopy(bytes, entriesEnd, shorter, entriesEnd - 16, bytes.length - entriesEnd);
+        Files.write(indexFile.toPath(), shorter);
+        assertThrows(IOException.class, () -> RecordIndex.load(xmlFile));
+    }
+
+    @Test
+    void brokenWriterKeepsCurrentIndex() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+        writeIndex(xmlFile, 3);
+
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            writer.addRecord("item", 50, 2, 3);
+            writer.addRecord("item", 40, 3, 3);
+            writer.endRoot(100);
+            assertFalse(writer.commit());
+        }
+        assertEquals(3, RecordIndex.load(xmlFile).getRecordCount());
+
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            writer.addRecord("item", 10, 2, 3);
+            assertFalse(writer.commit());
+        }
+        assertEquals(3, RecordIndex.load(xmlFile).getRecordCount());
+
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.addRecord("item", 10, 2, 3);
+            writer.endRoot(100);
+            assertFalse(writer.commit());
+        }
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            writer.addRecord("item", 10, 0, 3);
+            writer.endRoot(100);
+            assertFalse(writer.commit());
+        }
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            writer.addRecord("item", 10, 2, 3);
+            writer.endRoot(5);
+            assertFalse(writer.commit());
+        }
+
+        assertEquals(3, RecordIndex.load(xmlFile).getRecordCount());
+        assertEquals(List.of(RecordIndex.sidecarFor(xmlFile).getName()), leftovers(xmlFile));
+    }
+
+    @Test
+    void concurrentWritersUseTheirOwnFiles() throws IOException {
+        File xmlFile = write("feed.xml", "<feed>...</feed>");
+
+        RecordIndex.Writer first = RecordIndex.create(xmlFile);
+        RecordIndex.Writer second = RecordIndex.create(xmlFile);
+        assertEquals(2, leftovers(xmlFile).size());
+
+        second.discard();
+        assertEquals(1, leftovers(xmlFile).size());
+        first.startRoot("feed", 0, 6, 1, 1);
+        first.addRecord("item", 10, 2, 3);
+        first.endRoot(20);
+        assertTrue(first.commit());
+        assertFalse(first.commit());
+        first.close();
+
+        assertEquals(1, RecordIndex.load(xmlFile).getRecordCount());
+        assertEquals(List.of(RecordIndex.sidecarFor(xmlFile).getName()), leftovers(xmlFile));
+    }
+
+    private static boolean writeIndex(File xmlFile, int records) throws IOException {
+        try (RecordIndex.Writer writer = RecordIndex.create(xmlFile)) {
+            writer.startRoot("feed", 0, 6, 1, 1);
+            for (int record = 0; record < records; record++) {
+                writer.addRecord("item", 10 + record * 100L, 2 + record, 3);
+            }
+            writer.endRoot(1000);
+            assertEquals(records, writer.getRecordCount());
+            return writer.commit();
+        }
+    }
+
+    private static int trailerLength(byte[] bytes) {
+        int at = bytes.length - 8;
+        return ((bytes[at] & 0xff) << 24) | ((bytes[at + 1] & 0xff) << 16)
+                | ((bytes[at + 2] & 0xff) << 8) | (bytes[at + 3] & 0xff);
+    }
+
+    /**
+     * Files other than the document left in its directory
+     */
+    private static List<String> leftovers(File xmlFile) throws IOException {
+        try (Stream<Path> files = Files.list(xmlFile.getParentFile().toPath())) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.equals(xmlFile.getName()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private File write(String name, String content) throws IOException {
+        Path path = directory.resolve(name);
+        Files.writeString(path, content);
+        return path.toFile();
+    }
+}